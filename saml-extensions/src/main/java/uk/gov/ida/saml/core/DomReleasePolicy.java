@@ -0,0 +1,24 @@
+package uk.gov.ida.saml.core;
+
+import org.opensaml.core.xml.XMLObject;
+
+/**
+ * Whether to keep the W3C DOM that OpenSAML caches under each unmarshalled XMLObject once signature validation has
+ * finished with it. The DOM roughly doubles the heap held per message or metadata document, but it is needed to
+ * re-serialize signed content exactly as it was received, so only release it where nothing will do that.
+ */
+public enum DomReleasePolicy {
+    RETAIN,
+    RELEASE_AFTER_VALIDATION;
+
+    /**
+     * Applies this policy to a fully validated object. Once released, the signatures under the object can no longer
+     * be validated and re-marshalling it will not reproduce the original signed XML.
+     */
+    public void apply(XMLObject xmlObject) {
+        if (this == RELEASE_AFTER_VALIDATION && xmlObject != null) {
+            xmlObject.releaseDOM();
+            xmlObject.releaseChildrenDOM(true);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.opensaml.core.config.InitializationException;
 import org.opensaml.core.config.InitializationService;
 import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
 import org.opensaml.core.xml.schema.XSString;
+import uk.gov.ida.saml.core.crypto.CryptoProviderConfiguration;
+import uk.gov.ida.saml.core.crypto.CryptoProviders;
 import uk.gov.ida.saml.core.extensions.Address;
 import uk.gov.ida.saml.core.extensions.Date;
 import uk.gov.ida.saml.core.extensions.Gender;
@@ -99,6 +101,15 @@ public abstract class IdaSamlBootstrap {
         }
     }
 
+    /**
+     * Bootstraps OpenSAML, first routing crypto operations to the providers the configuration chooses; see
+     * {@link CryptoProviders}. {@link #bootstrap()} leaves every operation to the JVM's provider order.
+     */
+    public static synchronized void bootstrap(CryptoProviderConfiguration cryptoProviderConfiguration) {
+        CryptoProviders.configure(cryptoProviderConfiguration);
+        bootstrap();
+    }
+
     public static synchronized void bootstrap() {
         if (hasBeenBootstrapped) {
             return;
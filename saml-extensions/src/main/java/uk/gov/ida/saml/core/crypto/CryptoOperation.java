@@ -0,0 +1,81 @@
+package uk.gov.ida.saml.core.crypto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The JCA operations done while processing SAML, each identified by the JCA service type it uses and the exact
+ * algorithms, or cipher transformations, of that type it covers. Algorithms are compared as the JCA compares them,
+ * ignoring case, but never by prefix, so choosing a provider for SHA-256 does not also choose it for some other digest.
+ *
+ * Only the {@link #isRoutable() routable} operations can be given a provider by a {@link CryptoProviderConfiguration}.
+ * Signing, verifying, encrypting and decrypting XML are done by Santuario, which creates its engines itself from the
+ * JVM's provider order, or from a single provider, by name, for every algorithm; so a provider chosen here for RSA,
+ * ECDSA, RSA-OAEP or AES would never be used.
+ */
+public enum CryptoOperation {
+    RSA_SIGN(false, "Signature", "SHA256withRSA", "SHA1withRSA", "SHA384withRSA", "SHA512withRSA"),
+    ECDSA_SIGN(false, "Signature", "SHA256withECDSA", "SHA1withECDSA", "SHA384withECDSA", "SHA512withECDSA"),
+    RSA_OAEP_UNWRAP(false, "Cipher", "RSA/ECB/OAEPWithSHA-1AndMGF1Padding", "RSA/ECB/OAEPWithSHA1AndMGF1Padding", "RSA/ECB/OAEPPadding"),
+    AES(false, "Cipher", "AES/CBC/NoPadding", "AES/CBC/ISO10126Padding", "AES/GCM/NoPadding"),
+    SHA_DIGEST(true, "MessageDigest", "SHA-256", "SHA-1", "SHA-384", "SHA-512"),
+    X509_PARSING(true, "CertificateFactory", "X.509");
+
+    private final boolean routable;
+    private final String type;
+    private final String probeAlgorithm;
+    private final List<String> algorithms;
+
+    CryptoOperation(boolean routable, String type, String probeAlgorithm, String... otherAlgorithms) {
+        this.routable = routable;
+        this.type = type;
+        this.probeAlgorithm = probeAlgorithm;
+        String[] algorithms = Arrays.copyOf(otherAlgorithms, otherAlgorithms.length + 1);
+        algorithms[otherAlgorithms.length] = probeAlgorithm;
+        this.algorithms = Collections.unmodifiableList(Arrays.asList(algorithms));
+    }
+
+    /**
+     * @return the operation that covers the algorithm, if any
+     */
+    public static Optional<CryptoOperation> of(String type, String algorithm) {
+        for (CryptoOperation operation : values()) {
+            if (operation.covers(type, algorithm)) {
+                return Optional.of(operation);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return whether the engines for this operation are created through {@link CryptoProviders}, and so can be given
+     * a provider
+     */
+    public boolean isRoutable() {
+        return routable;
+    }
+
+    /**
+     * @return the JCA service type, such as "Signature" or "Cipher"
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the algorithm used to compare providers for this operation
+     */
+    public String getProbeAlgorithm() {
+        return probeAlgorithm;
+    }
+
+    public List<String> getAlgorithms() {
+        return algorithms;
+    }
+
+    public boolean covers(String type, String algorithm) {
+        return this.type.equals(type) && algorithms.stream().anyMatch(each -> each.equalsIgnoreCase(algorithm));
+    }
+}
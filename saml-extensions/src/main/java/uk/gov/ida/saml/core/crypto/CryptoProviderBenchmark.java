@@ -0,0 +1,106 @@
+package uk.gov.ida.saml.core.crypto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.cert.CertificateFactory;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Picks the fastest of the candidate providers for an operation by running a short, representative workload through
+ * each one that can perform it. The figures are only good for comparing providers on this JVM at startup, so they are
+ * logged alongside the choice rather than kept.
+ */
+final class CryptoProviderBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CryptoProviderBenchmark.class);
+
+    private static final int WARM_UP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 100;
+    private static final int DATA_LENGTH = 8 * 1024;
+
+    // A self-signed P-256 certificate; its content does not matter, only that every provider has to parse it
+    private static final String SAMPLE_CERTIFICATE = "MIIB4DCCAYWgAwIBAgIULb63r2WOxCRZEYQ3S65S3tltmjgwCgYIKoZIzj0EAwIwRDEcMBoGA1UEAwwTSFVCIFNpZ25pbmcgRUMgVGVzdDEXMBUGA1UECgwOQ2FiaW5ldCBPZmZpY2UxCzAJBgNVBAYTAkdCMCAXDTI2MTAxOTE3MjAyMFoYDzIxMjYwOTI1MTcyMDIwWjBEMRwwGgYDVQQDDBNIVUIgU2lnbmluZyBFQyBUZXN0MRcwFQYDVQQKDA5DYWJpbmV0IE9mZmljZTELMAkGA1UEBhMCR0IwWTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAASD7pTTWvew/TOq84fSlpE4ef9mppfVV2lkIDobfc/mnhQ8o9yZaBIPSTqfmdmeZdWxYmQahRGfG68qh6+aAtJXo1MwUTAdBgNVHQ4EFgQU7x8FazlE7OdN1+AFEmrpYH0A3MgwHwYDVR0jBBgwFoAU7x8FazlE7OdN1+AFEmrpYH0A3MgwDwYDVR0TAQH/BAUwAwEB/zAKBggqhkjOPQQDAgNJADBGAiEAvpev9deIMCI12ZvwtlABlSUd0ESAYyJQeCuWb4Qy6SgCIQD1JsK/KgUzYJhVK58ADaR3TTjaQbjY9sSwFAUFpDcNSA==";
+
+    // Keeps the JIT from discarding the work being measured
+    private static volatile int sink;
+
+    private interface Workload {
+        void run(Provider provider, int iterations) throws GeneralSecurityException;
+    }
+
+    private final Provider[] candidates;
+    private final byte[] data = new byte[DATA_LENGTH];
+
+    CryptoProviderBenchmark(Provider[] candidates) {
+        this.candidates = candidates;
+        new Random(0).nextBytes(data);
+    }
+
+    /**
+     * @return the candidate that performed the operation fastest, or empty if none could
+     */
+    Optional<Provider> selectFastest(CryptoOperation operation) {
+        Workload workload;
+        try {
+            workload = workloadFor(operation);
+        } catch (GeneralSecurityException e) {
+            LOG.warn("Unable to prepare a workload to compare providers for {}", operation, e);
+            return Optional.empty();
+        }
+
+        Map<String, Long> nanosPerOperation = new LinkedHashMap<>();
+        Provider fastest = null;
+        long fastestNanos = Long.MAX_VALUE;
+        for (Provider provider : candidates) {
+            try {
+                workload.run(provider, WARM_UP_ITERATIONS);
+                long start = System.nanoTime();
+                workload.run(provider, MEASURED_ITERATIONS);
+                long nanos = (System.nanoTime() - start) / MEASURED_ITERATIONS;
+                nanosPerOperation.put(provider.getName(), nanos);
+                if (nanos < fastestNanos) {
+                    fastest = provider;
+                    fastestNanos = nanos;
+                }
+            } catch (GeneralSecurityException | RuntimeException e) {
+                LOG.debug("Provider {} cannot perform {} with {}", provider.getName(), operation, operation.getProbeAlgorithm(), e);
+            }
+        }
+
+        if (fastest != null) {
+            LOG.info("Selected provider {} for {}; nanoseconds per operation by provider: {}", fastest.getName(), operation, nanosPerOperation);
+        }
+        return Optional.ofNullable(fastest);
+    }
+
+    private Workload workloadFor(CryptoOperation operation) throws GeneralSecurityException {
+        switch (operation) {
+            case SHA_DIGEST:
+                return (provider, iterations) -> {
+                    MessageDigest digest = MessageDigest.getInstance(operation.getProbeAlgorithm(), provider);
+                    for (int i = 0; i < iterations; i++) {
+                        sink += digest.digest(data).length;
+                    }
+                };
+            case X509_PARSING:
+                byte[] certificate = Base64.getDecoder().decode(SAMPLE_CERTIFICATE);
+                return (provider, iterations) -> {
+                    CertificateFactory certificateFactory = CertificateFactory.getInstance(operation.getProbeAlgorithm(), provider);
+                    for (int i = 0; i < iterations; i++) {
+                        sink += certificateFactory.generateCertificate(new ByteArrayInputStream(certificate)).hashCode();
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("No workload for " + operation);
+        }
+    }
+}
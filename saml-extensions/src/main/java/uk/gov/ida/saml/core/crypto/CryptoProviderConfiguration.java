@@ -0,0 +1,100 @@
+package uk.gov.ida.saml.core.crypto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which JCA provider {@link CryptoProviders} should route each {@link CryptoOperation} to: either pinned by name, or
+ * chosen when configured by timing every installed provider, and Bouncy Castle, on the operation. Operations that are
+ * neither pinned nor auto-selected are left to the JVM's provider order. Only {@link CryptoOperation#isRoutable()
+ * routable} operations can be pinned or auto-selected.
+ */
+public final class CryptoProviderConfiguration {
+
+    private static final CryptoProviderConfiguration DEFAULTS = builder().build();
+
+    private final Map<CryptoOperation, String> pinnedProviders;
+    private final Set<CryptoOperation> autoSelectedOperations;
+
+    private CryptoProviderConfiguration(Map<CryptoOperation, String> pinnedProviders, Set<CryptoOperation> autoSelectedOperations) {
+        this.pinnedProviders = Collections.unmodifiableMap(pinnedProviders);
+        this.autoSelectedOperations = Collections.unmodifiableSet(autoSelectedOperations);
+    }
+
+    /**
+     * @return a configuration that pins nothing, leaving every operation to the JVM's provider order
+     */
+    public static CryptoProviderConfiguration defaults() {
+        return DEFAULTS;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Map<CryptoOperation, String> getPinnedProviders() {
+        return pinnedProviders;
+    }
+
+    /**
+     * @return the operations whose provider is chosen by timing the installed providers, excluding any that are pinned
+     */
+    public Set<CryptoOperation> getAutoSelectedOperations() {
+        return autoSelectedOperations;
+    }
+
+    public static class Builder {
+        private final Map<CryptoOperation, String> pinnedProviders = new EnumMap<>(CryptoOperation.class);
+        private final Set<CryptoOperation> autoSelectedOperations = EnumSet.noneOf(CryptoOperation.class);
+
+        private Builder() {
+        }
+
+        /**
+         * Routes an operation to the named provider, which must be installed by the time the configuration is applied
+         * unless it is Bouncy Castle.
+         *
+         * @throws IllegalArgumentException if the operation is not routable
+         */
+        public Builder pin(CryptoOperation operation, String providerName) {
+            checkRoutable(operation);
+            pinnedProviders.put(operation, providerName);
+            return this;
+        }
+
+        /**
+         * Routes each of the given operations that is not pinned to whichever provider performs it fastest.
+         *
+         * @throws IllegalArgumentException if any of the operations is not routable
+         */
+        public Builder autoSelect(CryptoOperation... operations) {
+            Arrays.stream(operations).forEach(Builder::checkRoutable);
+            Collections.addAll(autoSelectedOperations, operations);
+            return this;
+        }
+
+        /**
+         * Routes every routable operation that is not pinned to whichever provider performs it fastest.
+         */
+        public Builder autoSelectAll() {
+            return autoSelect(Arrays.stream(CryptoOperation.values()).filter(CryptoOperation::isRoutable).toArray(CryptoOperation[]::new));
+        }
+
+        public CryptoProviderConfiguration build() {
+            Set<CryptoOperation> unpinnedAutoSelectedOperations = EnumSet.noneOf(CryptoOperation.class);
+            unpinnedAutoSelectedOperations.addAll(autoSelectedOperations);
+            unpinnedAutoSelectedOperations.removeAll(pinnedProviders.keySet());
+            return new CryptoProviderConfiguration(new EnumMap<>(pinnedProviders), unpinnedAutoSelectedOperations);
+        }
+
+        private static void checkRoutable(CryptoOperation operation) {
+            if (!operation.isRoutable()) {
+                throw new IllegalArgumentException(operation + " cannot be routed to a provider, as Santuario creates the engines for it");
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package uk.gov.ida.saml.core.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The JCA provider chosen for each {@link CryptoOperation} by a {@link CryptoProviderConfiguration}, and factories
+ * that create the engines for those operations from the chosen provider instance. Nothing is routed until
+ * {@link #configure} is called, for example by {@link uk.gov.ida.saml.core.IdaSamlBootstrap#bootstrap(CryptoProviderConfiguration)},
+ * and configuring never changes the JVM's provider list: Bouncy Castle may be chosen without being installed.
+ *
+ * Only engines created through these factories use the chosen providers, which is why only
+ * {@link CryptoOperation#isRoutable() routable} operations can be configured. OpenSAML and Santuario create the
+ * engines for signing and encrypting XML themselves, from the JVM's provider order.
+ */
+public final class CryptoProviders {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CryptoProviders.class);
+
+    private static volatile Map<CryptoOperation, Provider> selectedProviders = Collections.emptyMap();
+    private static Provider bouncyCastle;
+
+    private CryptoProviders() {
+    }
+
+    /**
+     * Chooses the provider for each operation the configuration pins or auto-selects. If that fails, the providers
+     * chosen before are kept.
+     *
+     * @return the name of the provider chosen for each routed operation, by operation
+     * @throws IllegalStateException if an operation is pinned to a provider that is neither installed nor Bouncy Castle
+     */
+    public static synchronized Map<CryptoOperation, String> configure(CryptoProviderConfiguration configuration) {
+        Map<CryptoOperation, Provider> selections = new EnumMap<>(CryptoOperation.class);
+        configuration.getPinnedProviders().forEach((operation, providerName) -> selections.put(operation, pinnedProvider(operation, providerName)));
+        if (!configuration.getAutoSelectedOperations().isEmpty()) {
+            CryptoProviderBenchmark benchmark = new CryptoProviderBenchmark(candidateProviders());
+            for (CryptoOperation operation : configuration.getAutoSelectedOperations()) {
+                benchmark.selectFastest(operation).ifPresent(provider -> selections.put(operation, provider));
+            }
+        }
+
+        selectedProviders = Collections.unmodifiableMap(selections);
+        if (!selections.isEmpty()) {
+            LOG.info("Routing crypto operations to providers {}", getSelectedProviders());
+        }
+        return getSelectedProviders();
+    }
+
+    /**
+     * @return the provider chosen for the operation, or empty if it is left to the JVM's provider order
+     */
+    public static Optional<Provider> provider(CryptoOperation operation) {
+        return Optional.ofNullable(selectedProviders.get(operation));
+    }
+
+    /**
+     * @return the name of the provider chosen for each routed operation, by operation
+     */
+    public static Map<CryptoOperation, String> getSelectedProviders() {
+        Map<CryptoOperation, String> providerNames = new EnumMap<>(CryptoOperation.class);
+        selectedProviders.forEach((operation, provider) -> providerNames.put(operation, provider.getName()));
+        return Collections.unmodifiableMap(providerNames);
+    }
+
+    public static MessageDigest messageDigest(String algorithm) throws NoSuchAlgorithmException {
+        Optional<Provider> provider = providerFor("MessageDigest", algorithm);
+        return provider.isPresent() ? MessageDigest.getInstance(algorithm, provider.get()) : MessageDigest.getInstance(algorithm);
+    }
+
+    public static CertificateFactory certificateFactory(String type) throws CertificateException {
+        Optional<Provider> provider = providerFor("CertificateFactory", type);
+        return provider.isPresent() ? CertificateFactory.getInstance(type, provider.get()) : CertificateFactory.getInstance(type);
+    }
+
+    private static Optional<Provider> providerFor(String type, String algorithm) {
+        if (selectedProviders.isEmpty()) {
+            return Optional.empty();
+        }
+        return CryptoOperation.of(type, algorithm).flatMap(CryptoProviders::provider);
+    }
+
+    private static Provider pinnedProvider(CryptoOperation operation, String providerName) {
+        Provider provider = Security.getProvider(providerName);
+        if (provider == null && BouncyCastleProvider.PROVIDER_NAME.equals(providerName)) {
+            provider = bouncyCastle();
+        }
+        if (provider == null) {
+            throw new IllegalStateException("Cannot route " + operation + " to provider " + providerName + " as it is not installed");
+        }
+        return provider;
+    }
+
+    private static Provider[] candidateProviders() {
+        Provider[] installed = Security.getProviders();
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) != null) {
+            return installed;
+        }
+        Provider[] candidates = new Provider[installed.length + 1];
+        System.arraycopy(installed, 0, candidates, 0, installed.length);
+        candidates[installed.length] = bouncyCastle();
+        return candidates;
+    }
+
+    private static Provider bouncyCastle() {
+        if (bouncyCastle == null) {
+            bouncyCastle = new BouncyCastleProvider();
+        }
+        return bouncyCastle;
+    }
+}
@@ -0,0 +1,32 @@
+package uk.gov.ida.saml.core.events;
+
+import org.opensaml.saml.saml2.core.EncryptedElementType;
+import org.opensaml.xmlsec.encryption.EncryptedData;
+import org.opensaml.xmlsec.encryption.EncryptedKey;
+import org.opensaml.xmlsec.encryption.EncryptionMethod;
+
+import java.util.List;
+
+final class EncryptionAlgorithms {
+
+    private EncryptionAlgorithms() {
+    }
+
+    static String dataEncryptionAlgorithmOf(EncryptedElementType encryptedElement) {
+        EncryptedData encryptedData = encryptedElement.getEncryptedData();
+        return encryptedData == null ? null : algorithmOf(encryptedData.getEncryptionMethod());
+    }
+
+    static String keyTransportAlgorithmOf(EncryptedElementType encryptedElement) {
+        List<EncryptedKey> encryptedKeys = encryptedElement.getEncryptedKeys();
+        EncryptedData encryptedData = encryptedElement.getEncryptedData();
+        if (encryptedKeys.isEmpty() && encryptedData != null && encryptedData.getKeyInfo() != null) {
+            encryptedKeys = encryptedData.getKeyInfo().getEncryptedKeys();
+        }
+        return encryptedKeys.isEmpty() ? null : algorithmOf(encryptedKeys.get(0).getEncryptionMethod());
+    }
+
+    private static String algorithmOf(EncryptionMethod encryptionMethod) {
+        return encryptionMethod == null ? null : encryptionMethod.getAlgorithm();
+    }
+}
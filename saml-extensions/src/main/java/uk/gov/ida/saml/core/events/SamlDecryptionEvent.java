@@ -0,0 +1,37 @@
+package uk.gov.ida.saml.core.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.EncryptedAssertion;
+
+@Name("uk.gov.ida.saml.Decryption")
+@Label("SAML Decryption")
+@Description("Decryption of an encrypted assertion")
+class SamlDecryptionEvent extends SamlOperationEvent implements SamlEvents.Decryption {
+
+    @Label("Data Encryption Algorithm")
+    String dataEncryptionAlgorithm;
+
+    @Label("Key Transport Algorithm")
+    String keyTransportAlgorithm;
+
+    static SamlEvents.Decryption start() {
+        SamlDecryptionEvent event = new SamlDecryptionEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void complete(EncryptedAssertion encryptedAssertion, Assertion assertion, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.issuer = issuerOf(assertion);
+            this.dataEncryptionAlgorithm = EncryptionAlgorithms.dataEncryptionAlgorithmOf(encryptedAssertion);
+            this.keyTransportAlgorithm = EncryptionAlgorithms.keyTransportAlgorithmOf(encryptedAssertion);
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
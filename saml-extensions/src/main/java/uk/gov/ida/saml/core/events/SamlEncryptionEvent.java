@@ -0,0 +1,48 @@
+package uk.gov.ida.saml.core.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.opensaml.saml.saml2.core.EncryptedAssertion;
+
+import java.util.List;
+
+@Name("uk.gov.ida.saml.Encryption")
+@Label("SAML Encryption")
+@Description("Encryption of the assertions in a SAML message for its recipient")
+class SamlEncryptionEvent extends SamlOperationEvent implements SamlEvents.Encryption {
+
+    @Label("Recipient")
+    String recipient;
+
+    @Label("Assertion Count")
+    int assertionCount;
+
+    @Label("Data Encryption Algorithm")
+    String dataEncryptionAlgorithm;
+
+    @Label("Key Transport Algorithm")
+    String keyTransportAlgorithm;
+
+    static SamlEvents.Encryption start() {
+        SamlEncryptionEvent event = new SamlEncryptionEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void complete(String recipient, List<EncryptedAssertion> encryptedAssertions, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.recipient = recipient;
+            this.assertionCount = encryptedAssertions.size();
+            if (!encryptedAssertions.isEmpty()) {
+                EncryptedAssertion encryptedAssertion = encryptedAssertions.get(0);
+                this.dataEncryptionAlgorithm = EncryptionAlgorithms.dataEncryptionAlgorithmOf(encryptedAssertion);
+                this.keyTransportAlgorithm = EncryptionAlgorithms.keyTransportAlgorithmOf(encryptedAssertion);
+            }
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
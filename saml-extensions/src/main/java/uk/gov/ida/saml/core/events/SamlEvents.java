@@ -0,0 +1,138 @@
+package uk.gov.ida.saml.core.events;
+
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.EncryptedAssertion;
+import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.SignableXMLObject;
+
+import javax.xml.namespace.QName;
+import java.util.List;
+
+/**
+ * Starts the Java Flight Recorder events emitted around SAML parsing, signing, signature validation, encryption,
+ * decryption and metadata refresh.
+ *
+ * The jdk.jfr API is only present from JDK 11 and OpenJDK 8u262, so callers only ever see the interfaces declared
+ * here, never a {@link SamlOperationEvent}. Whether the API is present is decided once, when this class is
+ * initialised; without it every event is a shared instance that does nothing, and no class that extends
+ * {@code jdk.jfr.Event} is ever loaded.
+ */
+public final class SamlEvents {
+
+    public static final String SUCCESS = "success";
+    public static final String INVALID = "invalid";
+    public static final String FAILURE = "failure";
+
+    private static final boolean JFR_AVAILABLE = jfrEventClassIsPresent();
+
+    private SamlEvents() {
+    }
+
+    public interface Parse {
+        void complete(long messageSize, XMLObject samlObject, String outcome);
+    }
+
+    public interface Sign {
+        void complete(SignableXMLObject samlObject, String outcome);
+    }
+
+    public interface SignatureValidation {
+        void complete(String issuer, QName role, Signature signature, String outcome);
+    }
+
+    public interface Encryption {
+        void complete(String recipient, List<EncryptedAssertion> encryptedAssertions, String outcome);
+    }
+
+    public interface Decryption {
+        void complete(EncryptedAssertion encryptedAssertion, Assertion assertion, String outcome);
+    }
+
+    public interface MetadataRefresh {
+        void complete(String metadataUri, long downloadSize, int entityCount, int entitiesChanged, String outcome);
+    }
+
+    public static boolean isJfrAvailable() {
+        return JFR_AVAILABLE;
+    }
+
+    public static Parse startParse() {
+        if (JFR_AVAILABLE) {
+            return SamlParseEvent.start();
+        }
+        return NoOpEvent.INSTANCE;
+    }
+
+    public static Sign startSign() {
+        if (JFR_AVAILABLE) {
+            return SamlSignEvent.start();
+        }
+        return NoOpEvent.INSTANCE;
+    }
+
+    public static SignatureValidation startSignatureValidation() {
+        if (JFR_AVAILABLE) {
+            return SamlSignatureValidationEvent.start();
+        }
+        return NoOpEvent.INSTANCE;
+    }
+
+    public static Encryption startEncryption() {
+        if (JFR_AVAILABLE) {
+            return SamlEncryptionEvent.start();
+        }
+        return NoOpEvent.INSTANCE;
+    }
+
+    public static Decryption startDecryption() {
+        if (JFR_AVAILABLE) {
+            return SamlDecryptionEvent.start();
+        }
+        return NoOpEvent.INSTANCE;
+    }
+
+    public static MetadataRefresh startMetadataRefresh() {
+        if (JFR_AVAILABLE) {
+            return SamlMetadataRefreshEvent.start();
+        }
+        return NoOpEvent.INSTANCE;
+    }
+
+    private static boolean jfrEventClassIsPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, SamlEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private enum NoOpEvent implements Parse, Sign, SignatureValidation, Encryption, Decryption, MetadataRefresh {
+        INSTANCE;
+
+        @Override
+        public void complete(long messageSize, XMLObject samlObject, String outcome) {
+        }
+
+        @Override
+        public void complete(SignableXMLObject samlObject, String outcome) {
+        }
+
+        @Override
+        public void complete(String issuer, QName role, Signature signature, String outcome) {
+        }
+
+        @Override
+        public void complete(String recipient, List<EncryptedAssertion> encryptedAssertions, String outcome) {
+        }
+
+        @Override
+        public void complete(EncryptedAssertion encryptedAssertion, Assertion assertion, String outcome) {
+        }
+
+        @Override
+        public void complete(String metadataUri, long downloadSize, int entityCount, int entitiesChanged, String outcome) {
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package uk.gov.ida.saml.core.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("uk.gov.ida.saml.MetadataRefresh")
+@Label("SAML Metadata Refresh")
+@Description("Download, filtering and indexing of SAML metadata")
+class SamlMetadataRefreshEvent extends SamlOperationEvent implements SamlEvents.MetadataRefresh {
+
+    @Label("Metadata URI")
+    String metadataUri;
+
+    @Label("Download Size")
+    @DataAmount
+    long downloadSize;
+
+    @Label("Entity Count")
+    int entityCount;
+
+    @Label("Entities Changed")
+    int entitiesChanged;
+
+    static SamlEvents.MetadataRefresh start() {
+        SamlMetadataRefreshEvent event = new SamlMetadataRefreshEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void complete(String metadataUri, long downloadSize, int entityCount, int entitiesChanged, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.metadataUri = metadataUri;
+            this.downloadSize = downloadSize;
+            this.entityCount = entityCount;
+            this.entitiesChanged = entitiesChanged;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package uk.gov.ida.saml.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Issuer;
+import org.opensaml.saml.saml2.core.RequestAbstractType;
+import org.opensaml.saml.saml2.core.StatusResponseType;
+
+/**
+ * Base for the Java Flight Recorder events emitted around SAML parsing, signing, signature validation, encryption,
+ * decryption and metadata refresh. Only ever created by {@link SamlEvents}, once it has found the jdk.jfr API.
+ *
+ * Each operation calls {@link #begin()} before it starts and one of the subclass {@code complete} methods when it
+ * finishes. The event's fields are only populated, and the event only committed, when a recording has enabled it,
+ * so the cost of an event that is not being recorded is a short-lived allocation.
+ */
+@Category("SAML")
+@StackTrace(false)
+abstract class SamlOperationEvent extends Event {
+
+    @Label("Issuer")
+    String issuer;
+
+    @Label("Outcome")
+    String outcome;
+
+    static String issuerOf(XMLObject samlObject) {
+        Issuer issuer = null;
+        if (samlObject instanceof Assertion) {
+            issuer = ((Assertion) samlObject).getIssuer();
+        } else if (samlObject instanceof RequestAbstractType) {
+            issuer = ((RequestAbstractType) samlObject).getIssuer();
+        } else if (samlObject instanceof StatusResponseType) {
+            issuer = ((StatusResponseType) samlObject).getIssuer();
+        }
+        return issuer == null ? null : issuer.getValue();
+    }
+
+    static String elementNameOf(XMLObject samlObject) {
+        return samlObject == null ? null : samlObject.getElementQName().getLocalPart();
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gov.ida.saml.core.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.opensaml.core.xml.XMLObject;
+
+@Name("uk.gov.ida.saml.Parse")
+@Label("SAML Parse")
+@Description("Parsing and unmarshalling of a SAML message")
+class SamlParseEvent extends SamlOperationEvent implements SamlEvents.Parse {
+
+    @Label("Message Size")
+    @DataAmount
+    long messageSize;
+
+    @Label("Element")
+    String element;
+
+    static SamlEvents.Parse start() {
+        SamlParseEvent event = new SamlParseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void complete(long messageSize, XMLObject samlObject, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.messageSize = messageSize;
+            this.element = elementNameOf(samlObject);
+            this.issuer = issuerOf(samlObject);
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package uk.gov.ida.saml.core.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.opensaml.xmlsec.signature.SignableXMLObject;
+
+@Name("uk.gov.ida.saml.Sign")
+@Label("SAML Sign")
+@Description("Marshalling and signing of a SAML object")
+class SamlSignEvent extends SamlOperationEvent implements SamlEvents.Sign {
+
+    @Label("Element")
+    String element;
+
+    @Label("Signature Algorithm")
+    String signatureAlgorithm;
+
+    static SamlEvents.Sign start() {
+        SamlSignEvent event = new SamlSignEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void complete(SignableXMLObject samlObject, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.element = elementNameOf(samlObject);
+            this.issuer = issuerOf(samlObject);
+            this.signatureAlgorithm = samlObject.getSignature() == null ? null : samlObject.getSignature().getSignatureAlgorithm();
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gov.ida.saml.core.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.opensaml.xmlsec.signature.Signature;
+
+import javax.xml.namespace.QName;
+
+@Name("uk.gov.ida.saml.SignatureValidation")
+@Label("SAML Signature Validation")
+@Description("Validation of the signature on a SAML object against the issuer's credentials")
+class SamlSignatureValidationEvent extends SamlOperationEvent implements SamlEvents.SignatureValidation {
+
+    @Label("Role")
+    String role;
+
+    @Label("Signature Algorithm")
+    String signatureAlgorithm;
+
+    static SamlEvents.SignatureValidation start() {
+        SamlSignatureValidationEvent event = new SamlSignatureValidationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void complete(String issuer, QName role, Signature signature, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.issuer = issuer;
+            this.role = role == null ? null : role.getLocalPart();
+            this.signatureAlgorithm = signature == null ? null : signature.getSignatureAlgorithm();
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.ida.saml.core.validation;
+
+import uk.gov.ida.saml.core.crypto.CryptoProviders;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A rejected payload as it should appear in an error message: in full if it is short, otherwise its first
+ * {@value #MAX_LENGTH} characters followed by its length and SHA-256 digest, which is enough to match it against
+ * an access log without putting a whole message, or a whole attack, into the application logs. Nothing is copied or
+ * hashed until the message is formatted.
+ */
+public final class PayloadExcerpt {
+
+    public static final int MAX_LENGTH = 256;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String payload;
+
+    private PayloadExcerpt(String payload) {
+        this.payload = payload;
+    }
+
+    public static PayloadExcerpt of(String payload) {
+        return new PayloadExcerpt(payload);
+    }
+
+    @Override
+    public String toString() {
+        if (payload == null || payload.length() <= MAX_LENGTH) {
+            return String.valueOf(payload);
+        }
+        return payload.substring(0, MAX_LENGTH) + "... (" + payload.length() + " characters, sha256=" + sha256(payload) + ")";
+    }
+
+    private static String sha256(String payload) {
+        byte[] digest;
+        try {
+            digest = CryptoProviders.messageDigest("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            return "unavailable";
+        }
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
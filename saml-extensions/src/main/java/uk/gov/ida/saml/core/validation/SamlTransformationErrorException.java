@@ -4,14 +4,26 @@ import org.slf4j.event.Level;
 
 public class SamlTransformationErrorException extends RuntimeException {
 
+    /**
+     * Set this system property to {@code false} to stop these exceptions capturing a stack trace. Every rejected
+     * message throws one, and the stack trace is usually the most expensive part of the rejection; the cause, if
+     * any, keeps its own.
+     */
+    public static final String CAPTURE_STACK_TRACES_PROPERTY = "uk.gov.ida.saml.validationErrors.captureStackTraces";
+
+    private static volatile boolean captureStackTraces =
+            Boolean.parseBoolean(System.getProperty(CAPTURE_STACK_TRACES_PROPERTY, "true"));
+
     private final Level logLevel;
+    private final SamlValidationSpecificationFailure failure;
 
     public SamlTransformationErrorException(
             String errorMessage,
             Exception cause,
             Level logLevel) {
-        super(errorMessage, cause);
+        super(errorMessage, cause, true, captureStackTraces);
         this.logLevel = logLevel;
+        this.failure = null;
     }
 
     public SamlTransformationErrorException(
@@ -20,6 +32,34 @@ public class SamlTransformationErrorException extends RuntimeException {
         this(errorMessage, null, logLevel);
     }
 
+    /**
+     * The failure's message is only formatted if {@link #getMessage()} is called.
+     */
+    public SamlTransformationErrorException(
+            SamlValidationSpecificationFailure failure,
+            Exception cause) {
+        super(null, cause, true, captureStackTraces);
+        this.logLevel = failure.getLogLevel();
+        this.failure = failure;
+    }
+
+    public SamlTransformationErrorException(SamlValidationSpecificationFailure failure) {
+        this(failure, null);
+    }
+
+    public static void setCaptureStackTraces(boolean captureStackTraces) {
+        SamlTransformationErrorException.captureStackTraces = captureStackTraces;
+    }
+
+    public static boolean isCapturingStackTraces() {
+        return captureStackTraces;
+    }
+
+    @Override
+    public String getMessage() {
+        return failure == null ? super.getMessage() : failure.getErrorMessage();
+    }
+
     public Level getLogLevel() {
         return logLevel;
     }
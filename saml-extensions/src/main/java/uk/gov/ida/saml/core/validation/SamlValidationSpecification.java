@@ -4,18 +4,48 @@ import java.text.MessageFormat;
 
 public abstract class SamlValidationSpecification {
 
+    private final String messageFormat;
+    private final Object[] messageParameters;
+    private final boolean contextExpected;
+    // Formatted on first use; racing threads format the same immutable string
     private String message;
-    private boolean contextExpected;
+    private String errorMessage;
 
     public abstract SamlDocumentReference documentReference();
 
     protected SamlValidationSpecification(String message, boolean contextExpected) {
+        this.messageFormat = null;
+        this.messageParameters = null;
         this.message = message;
         this.contextExpected = contextExpected;
     }
 
+    /**
+     * The message is only formatted, with {@link MessageFormat}, when {@link #getErrorMessage()} is first called, so a
+     * failure that is mapped to a response without ever being logged costs no formatting.
+     */
+    protected SamlValidationSpecification(String messageFormat, Object[] messageParameters, boolean contextExpected) {
+        this.messageFormat = messageFormat;
+        this.messageParameters = messageParameters;
+        this.contextExpected = contextExpected;
+    }
+
     public String getErrorMessage(){
-        return MessageFormat.format("SAML Validation Specification: {0}\n{1}", message, documentReference());
+        String formatted = errorMessage;
+        if (formatted == null) {
+            formatted = MessageFormat.format("SAML Validation Specification: {0}\n{1}", getMessage(), documentReference());
+            errorMessage = formatted;
+        }
+        return formatted;
+    }
+
+    private String getMessage() {
+        String formatted = message;
+        if (formatted == null) {
+            formatted = MessageFormat.format(messageFormat, messageParameters);
+            message = formatted;
+        }
+        return formatted;
     }
 
     public boolean isContextExpected() {
@@ -16,6 +16,15 @@ public abstract class SamlValidationSpecificationFailure extends SamlValidationS
         this(message, contextExpected, Level.ERROR);
     }
 
+    protected SamlValidationSpecificationFailure(String messageFormat, Object[] messageParameters, boolean contextExpected, Level logLevel) {
+        super(messageFormat, messageParameters, contextExpected);
+        this.logLevel = logLevel;
+    }
+
+    protected SamlValidationSpecificationFailure(String messageFormat, Object[] messageParameters, boolean contextExpected) {
+        this(messageFormat, messageParameters, contextExpected, Level.ERROR);
+    }
+
     public Level getLogLevel() {
         return logLevel;
     }
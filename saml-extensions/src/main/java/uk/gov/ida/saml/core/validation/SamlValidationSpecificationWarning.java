@@ -4,4 +4,8 @@ public abstract class SamlValidationSpecificationWarning extends SamlValidationS
     protected SamlValidationSpecificationWarning(String message, Boolean contextExpected) {
         super(message, contextExpected);
     }
+
+    protected SamlValidationSpecificationWarning(String messageFormat, Object[] messageParameters, Boolean contextExpected) {
+        super(messageFormat, messageParameters, contextExpected);
+    }
 }
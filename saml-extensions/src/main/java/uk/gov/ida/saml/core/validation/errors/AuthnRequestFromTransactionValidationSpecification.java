@@ -3,8 +3,6 @@ package uk.gov.ida.saml.core.validation.errors;
 import uk.gov.ida.saml.core.validation.SamlDocumentReference;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
 
-import static java.text.MessageFormat.format;
-
 public class AuthnRequestFromTransactionValidationSpecification extends SamlValidationSpecificationFailure {
     public static final String ASSERTION_CONSUMING_SERVICE_URL_EXISTS = "''AssertionConsumerServiceURL'' must not be present.";
     public static final String SCOPE_NOT_ALLOWED = "''Scoping'' element is not allowed.";
@@ -24,7 +22,7 @@ public class AuthnRequestFromTransactionValidationSpecification extends SamlVali
     public static final String ILLEGAL_NAME_ID_POLICY = "Name ID policy format has illegal value: {0}.";
 
     public AuthnRequestFromTransactionValidationSpecification(String message, Object... params) {
-        super(format(message, params), true);
+        super(message, params, true);
     }
 
     @Override
@@ -3,8 +3,6 @@ package uk.gov.ida.saml.core.validation.errors;
 import uk.gov.ida.saml.core.validation.SamlDocumentReference;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
 
-import static java.text.MessageFormat.format;
-
 public class BearerSubjectConfirmationValidationSpecification extends SamlValidationSpecificationFailure {
 
     public static final String IN_RESPONSE_TO_DOES_NOT_MATCH = "Bearer subject confirmation data''s ''InResponseTo'' attribute ({0}) was not the same as the Response''s ''InResponseTo'' ({1}).";
@@ -20,7 +18,7 @@ public class BearerSubjectConfirmationValidationSpecification extends SamlValida
 
 
     public BearerSubjectConfirmationValidationSpecification(String message, Object... parameters) {
-        super(format(message, parameters), true);
+        super(message, parameters, true);
     }
 
     @Override
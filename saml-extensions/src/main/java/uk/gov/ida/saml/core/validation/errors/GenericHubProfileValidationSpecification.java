@@ -3,8 +3,6 @@ package uk.gov.ida.saml.core.validation.errors;
 import uk.gov.ida.saml.core.validation.SamlDocumentReference;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
 
-import java.text.MessageFormat;
-
 public class GenericHubProfileValidationSpecification extends SamlValidationSpecificationFailure {
 
     public static final String INVALID_MESSAGE_SIGNATURE = "Signature was not valid.";
@@ -37,6 +35,7 @@ public class GenericHubProfileValidationSpecification extends SamlValidationSpec
     public static final String MISSING_ISSUER = "SAML is missing ''Issuer'' element.";
     public static final String ILLEGAL_ISSUER_FORMAT = "SAML ''Issuer'' has wrong format: {0}, expected {1}.";
     public static final String EMPTY_ISSUER = "SAML ''Issuer'' element has no value.";
+    public static final String UNKNOWN_ISSUER = "SAML ''Issuer'' {0} is not in metadata.";
 
     public static final String MISSING_OR_EMPTY_ENTITY_ID = "SAML ''EntityID'' attribute is missing or has no value.";
 
@@ -83,7 +82,7 @@ public class GenericHubProfileValidationSpecification extends SamlValidationSpec
 
 
     public GenericHubProfileValidationSpecification(String errorFormat, Object... params) {
-        super(MessageFormat.format(errorFormat, params), true);
+        super(errorFormat, params, true);
     }
 
     @Override
@@ -3,14 +3,13 @@ package uk.gov.ida.saml.core.validation.errors;
 import uk.gov.ida.saml.core.validation.SamlDocumentReference;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
 
-import java.text.MessageFormat;
-
 public class RequestFreshnessValidationSpecification extends SamlValidationSpecificationFailure {
 
     public static final String REQUEST_TOO_OLD = "Request ID {0} too old (request issueInstant {1}, current time {2}).";
+    public static final String REQUEST_ISSUED_IN_FUTURE = "Request ID {0} issued in the future (request issueInstant {1}, current time {2}).";
 
 public RequestFreshnessValidationSpecification (String errorFormat, Object... params) {
-    super(MessageFormat.format(errorFormat, params), false);
+    super(errorFormat, params, false);
 }
 
     @Override
@@ -3,8 +3,6 @@ package uk.gov.ida.saml.core.validation.errors;
 import uk.gov.ida.saml.core.validation.SamlDocumentReference;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
 
-import static java.text.MessageFormat.format;
-
 public class ResponseProcessingValidationSpecification extends SamlValidationSpecificationFailure {
 
     public static final String MISSING_ATTRIBUTE_STATEMENT_IN_ASSERTION = "All <Assertions> must contain an <AttributeStatement>. Assertion Id: {0} doesn''t.";
@@ -34,7 +32,7 @@ public class ResponseProcessingValidationSpecification extends SamlValidationSpe
     public static final String UNEXPECTED_NUMBER_OF_ASSERTIONS = "Response expected to contain {0} assertions. {1} assertion(s) found.";
 
     public ResponseProcessingValidationSpecification(String message, Object... parameters) {
-        super(format(message, parameters), true);
+        super(message, parameters, true);
     }
 
     @Override
@@ -3,8 +3,6 @@ package uk.gov.ida.saml.core.validation.errors;
 import uk.gov.ida.saml.core.validation.SamlDocumentReference;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
 
-import java.text.MessageFormat;
-
 public class StringValidationSpecification extends SamlValidationSpecificationFailure {
 
     public static final String LOWER_BOUND_ERROR_MESSAGE = "The size of string is {0}; it should be at least {1}.";
@@ -12,7 +10,7 @@ public class StringValidationSpecification extends SamlValidationSpecificationFa
 
 
     public StringValidationSpecification(String errorFormat, Object... params) {
-        super(MessageFormat.format(errorFormat, params), false);
+        super(errorFormat, params, false);
     }
 
     @Override
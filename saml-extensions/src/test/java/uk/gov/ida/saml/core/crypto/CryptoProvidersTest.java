@@ -0,0 +1,118 @@
+package uk.gov.ida.saml.core.crypto;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.security.Security;
+import java.security.cert.CertificateFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.fail;
+
+public class CryptoProvidersTest {
+
+    private static final byte[] DATA = "some data to digest".getBytes();
+
+    @After
+    public void restoreDefaults() {
+        CryptoProviders.configure(CryptoProviderConfiguration.defaults());
+    }
+
+    @Test
+    public void shouldLeaveEveryOperationToTheJvmProviderOrderByDefault() throws Exception {
+        assertThat(CryptoProviders.configure(CryptoProviderConfiguration.defaults())).isEmpty();
+
+        assertThat(CryptoProviders.provider(CryptoOperation.SHA_DIGEST).isPresent()).isFalse();
+        assertThat(CryptoProviders.messageDigest("SHA-256").getProvider()).isEqualTo(MessageDigest.getInstance("SHA-256").getProvider());
+    }
+
+    @Test
+    public void shouldCreateEnginesForAPinnedOperationFromItsProvider() throws Exception {
+        CryptoProviders.configure(CryptoProviderConfiguration.builder().pin(CryptoOperation.SHA_DIGEST, "SUN").build());
+
+        MessageDigest digest = CryptoProviders.messageDigest("SHA-256");
+        assertThat(digest.getProvider().getName()).isEqualTo("SUN");
+        assertThat(digest.digest(DATA)).isEqualTo(MessageDigest.getInstance("SHA-256", "SUN").digest(DATA));
+        assertThat(CryptoProviders.getSelectedProviders()).contains(entry(CryptoOperation.SHA_DIGEST, "SUN"));
+    }
+
+    @Test
+    public void shouldUseBouncyCastleWithoutInstallingIt() throws Exception {
+        boolean installedBefore = Security.getProvider("BC") != null;
+
+        CryptoProviders.configure(CryptoProviderConfiguration.builder().pin(CryptoOperation.SHA_DIGEST, "BC").build());
+
+        assertThat(CryptoProviders.messageDigest("SHA-512").getProvider().getName()).isEqualTo("BC");
+        assertThat(Security.getProvider("BC") != null).isEqualTo(installedBefore);
+    }
+
+    @Test
+    public void shouldOnlyRouteTheExactAlgorithmsAnOperationCovers() throws Exception {
+        CryptoProviders.configure(CryptoProviderConfiguration.builder().pin(CryptoOperation.SHA_DIGEST, "BC").build());
+
+        assertThat(CryptoProviders.messageDigest("MD5").getProvider().getName()).isNotEqualTo("BC");
+        assertThat(CryptoProviders.messageDigest("sha-384").getProvider().getName()).isEqualTo("BC");
+        assertThat(CryptoOperation.of("MessageDigest", "MD5").isPresent()).isFalse();
+        assertThat(CryptoOperation.of("Signature", "sha256withrsa").get()).isEqualTo(CryptoOperation.RSA_SIGN);
+    }
+
+    @Test
+    public void shouldRejectOperationsWhoseEnginesSantuarioCreates() {
+        for (CryptoOperation operation : new CryptoOperation[] {CryptoOperation.RSA_SIGN, CryptoOperation.ECDSA_SIGN, CryptoOperation.RSA_OAEP_UNWRAP, CryptoOperation.AES}) {
+            assertThat(operation.isRoutable()).isFalse();
+            try {
+                CryptoProviderConfiguration.builder().pin(operation, "SunJCE");
+                fail("expected " + operation + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).contains(operation.name());
+            }
+            try {
+                CryptoProviderConfiguration.builder().autoSelect(operation);
+                fail("expected " + operation + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).contains(operation.name());
+            }
+        }
+    }
+
+    @Test
+    public void shouldOnlyAutoSelectRoutableOperationsWhenAskedForAll() {
+        assertThat(CryptoProviderConfiguration.builder().autoSelectAll().build().getAutoSelectedOperations())
+                .containsOnly(CryptoOperation.SHA_DIGEST, CryptoOperation.X509_PARSING);
+    }
+
+    @Test
+    public void shouldLeaveOperationsThatAreNotRoutedToTheJvmProviderOrder() throws Exception {
+        CryptoProviders.configure(CryptoProviderConfiguration.builder().pin(CryptoOperation.SHA_DIGEST, "BC").build());
+
+        assertThat(CryptoProviders.certificateFactory("X.509").getProvider()).isEqualTo(CertificateFactory.getInstance("X.509").getProvider());
+        assertThat(MessageDigest.getInstance("SHA-256").getProvider().getName()).isNotEqualTo("BC");
+    }
+
+    @Test
+    public void shouldKeepThePreviousProvidersWhenAPinIsRejected() {
+        CryptoProviders.configure(CryptoProviderConfiguration.builder().pin(CryptoOperation.SHA_DIGEST, "SUN").build());
+
+        try {
+            CryptoProviders.configure(CryptoProviderConfiguration.builder().pin(CryptoOperation.X509_PARSING, "NoSuchProvider").build());
+            fail("expected the pin to be rejected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("NoSuchProvider");
+        }
+
+        assertThat(CryptoProviders.getSelectedProviders()).containsOnly(entry(CryptoOperation.SHA_DIGEST, "SUN"));
+    }
+
+    @Test
+    public void shouldAutoSelectAProviderForOperationsThatAreNotPinned() {
+        CryptoProviders.configure(CryptoProviderConfiguration.builder()
+                .autoSelect(CryptoOperation.SHA_DIGEST, CryptoOperation.X509_PARSING)
+                .pin(CryptoOperation.X509_PARSING, "SUN")
+                .build());
+
+        assertThat(CryptoProviders.getSelectedProviders()).contains(entry(CryptoOperation.X509_PARSING, "SUN"));
+        assertThat(CryptoProviders.provider(CryptoOperation.SHA_DIGEST).isPresent()).isTrue();
+    }
+}
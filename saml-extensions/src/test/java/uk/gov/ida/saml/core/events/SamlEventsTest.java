@@ -0,0 +1,98 @@
+package uk.gov.ida.saml.core.events;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class SamlEventsTest {
+
+    private static final String METADATA_REFRESH = "uk.gov.ida.saml.MetadataRefresh";
+    private static final String PARSE = "uk.gov.ida.saml.Parse";
+
+    @Test
+    public void shouldOnlyCreateFlightRecorderEventsWhenTheJfrApiIsPresent() {
+        SamlEvents.Parse event = SamlEvents.startParse();
+
+        event.complete(0, null, SamlEvents.FAILURE);
+
+        assertThat(event.getClass().getSimpleName()).isEqualTo(SamlEvents.isJfrAvailable() ? "SamlParseEvent" : "NoOpEvent");
+    }
+
+    @Test
+    public void shouldCompleteEveryKindOfEventWhenNothingIsRecording() {
+        SamlEvents.startParse().complete(0, null, SamlEvents.FAILURE);
+        SamlEvents.startSignatureValidation().complete("https://issuer.example.com", null, null, SamlEvents.INVALID);
+        SamlEvents.startMetadataRefresh().complete("https://metadata.example.com", 0, 0, 0, SamlEvents.FAILURE);
+    }
+
+    @Test
+    public void shouldRecordAMetadataRefreshWithItsFieldsWhenARecordingHasEnabledIt() throws IOException {
+        assumeTrue(SamlEvents.isJfrAvailable());
+
+        Recording recording = new Recording();
+        recording.enable(METADATA_REFRESH).withoutThreshold();
+        List<RecordedEvent> events = record(recording, () ->
+                SamlEvents.startMetadataRefresh().complete("https://metadata.example.com", 2048, 10, 3, SamlEvents.SUCCESS));
+
+        assertThat(events).hasSize(1);
+        RecordedEvent event = events.get(0);
+        assertThat(event.getString("metadataUri")).isEqualTo("https://metadata.example.com");
+        assertThat(event.getLong("downloadSize")).isEqualTo(2048);
+        assertThat(event.getInt("entityCount")).isEqualTo(10);
+        assertThat(event.getInt("entitiesChanged")).isEqualTo(3);
+        assertThat(event.getString("outcome")).isEqualTo(SamlEvents.SUCCESS);
+    }
+
+    @Test
+    public void shouldRecordAFailedParseWithoutAnElementOrIssuer() throws IOException {
+        assumeTrue(SamlEvents.isJfrAvailable());
+
+        Recording recording = new Recording();
+        recording.enable(PARSE).withoutThreshold();
+        List<RecordedEvent> events = record(recording, () -> SamlEvents.startParse().complete(512, null, SamlEvents.FAILURE));
+
+        assertThat(events).hasSize(1);
+        RecordedEvent event = events.get(0);
+        assertThat(event.getLong("messageSize")).isEqualTo(512);
+        assertThat(event.getString("element")).isNull();
+        assertThat(event.getString("issuer")).isNull();
+        assertThat(event.getString("outcome")).isEqualTo(SamlEvents.FAILURE);
+    }
+
+    @Test
+    public void shouldNotRecordEventsThatTheRecordingHasDisabled() throws IOException {
+        assumeTrue(SamlEvents.isJfrAvailable());
+
+        Recording recording = new Recording();
+        recording.disable(PARSE);
+        List<RecordedEvent> events = record(recording, () -> SamlEvents.startParse().complete(512, null, SamlEvents.FAILURE));
+
+        assertThat(events).isEmpty();
+    }
+
+    private static List<RecordedEvent> record(Recording recording, Runnable operation) throws IOException {
+        Path file = Files.createTempFile("saml-events", ".jfr");
+        try {
+            recording.start();
+            operation.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("uk.gov.ida.saml."))
+                    .collect(Collectors.toList());
+        } finally {
+            recording.close();
+            Files.deleteIfExists(file);
+        }
+    }
+}
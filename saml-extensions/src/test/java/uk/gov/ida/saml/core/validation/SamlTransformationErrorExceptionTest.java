@@ -0,0 +1,62 @@
+package uk.gov.ida.saml.core.validation;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.event.Level;
+import uk.gov.ida.saml.core.validation.errors.SamlValidationSpecification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SamlTransformationErrorExceptionTest {
+
+    @After
+    public void restoreStackTraces() {
+        SamlTransformationErrorException.setCaptureStackTraces(true);
+    }
+
+    @Test
+    public void shouldFormatTheFailureMessageWhenAskedFor() {
+        SamlValidationSpecificationFailure failure = new SamlValidationSpecification(SamlValidationSpecification.UNMARSHALLING_ERROR, "Response");
+
+        SamlTransformationErrorException exception = new SamlTransformationErrorException(failure);
+
+        assertThat(exception.getMessage()).isEqualTo(failure.getErrorMessage());
+        assertThat(exception.getMessage()).contains("Unable to unmarshall element 'Response' into OpenSaml object.");
+        assertThat(exception.getLogLevel()).isEqualTo(Level.ERROR);
+    }
+
+    @Test
+    public void shouldCaptureAStackTraceByDefault() {
+        assertThat(new SamlTransformationErrorException("message", Level.ERROR).getStackTrace()).isNotEmpty();
+    }
+
+    @Test
+    public void shouldNotCaptureAStackTraceWhenDisabled() {
+        SamlTransformationErrorException.setCaptureStackTraces(false);
+        Exception cause = new IllegalStateException();
+
+        SamlTransformationErrorException exception = new SamlTransformationErrorException("message", cause, Level.ERROR);
+
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertThat(exception.getCause()).isSameAs(cause);
+        assertThat(cause.getStackTrace()).isNotEmpty();
+    }
+
+    @Test
+    public void shouldIncludeShortPayloadsInFull() {
+        assertThat(PayloadExcerpt.of("<SAMLRequest/>").toString()).isEqualTo("<SAMLRequest/>");
+    }
+
+    @Test
+    public void shouldTruncateAndHashLongPayloads() {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < PayloadExcerpt.MAX_LENGTH * 4; i++) {
+            payload.append('a');
+        }
+
+        String excerpt = PayloadExcerpt.of(payload.toString()).toString();
+
+        assertThat(excerpt).startsWith(payload.substring(0, PayloadExcerpt.MAX_LENGTH) + "... (1024 characters, sha256=");
+        assertThat(excerpt.length()).isLessThan(PayloadExcerpt.MAX_LENGTH + 100);
+    }
+}
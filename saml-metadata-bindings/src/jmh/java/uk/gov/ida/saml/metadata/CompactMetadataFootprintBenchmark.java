@@ -0,0 +1,119 @@
+package uk.gov.ida.saml.metadata;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.core.config.InitializationService;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import uk.gov.ida.saml.metadata.domain.CompactMetadata;
+import uk.gov.ida.saml.metadata.factories.MetadataResolverFactory;
+import uk.gov.ida.saml.metadata.test.factories.metadata.EntityDescriptorFactory;
+import uk.gov.ida.saml.metadata.test.factories.metadata.MetadataFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Compares the heap retained by loaded metadata with and without its DOM, and by its {@link CompactMetadata}
+ * projection, for federations of 1,000 and 10,000 entities. The figure to compare is the {@code retainedKilobytes}
+ * counter, not the time taken; compare it between runs rather than trusting any one of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompactMetadataFootprintBenchmark {
+
+    public enum Form { WITH_DOM, WITHOUT_DOM, COMPACT }
+
+    @Param({"1000", "10000"})
+    public int entities;
+
+    @Param
+    public Form form;
+
+    // Keeps what is being measured reachable while the heap is sampled
+    private static volatile Object retained;
+
+    private String metadata;
+    private StringBackedMetadataResolver loaded;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long retainedKilobytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        InitializationService.initialize();
+        metadata = metadataWith(entities);
+        loaded = load(metadata);
+    }
+
+    @Benchmark
+    public void retainedHeap(Footprint footprint) throws Exception {
+        long before = usedHeapAfterGc();
+        retained = allocate();
+        long after = usedHeapAfterGc();
+        retained = null;
+        footprint.retainedKilobytes = (after - before) / 1024;
+    }
+
+    private Object allocate() throws Exception {
+        switch (form) {
+            case WITH_DOM:
+                return load(metadata);
+            case WITHOUT_DOM:
+                StringBackedMetadataResolver resolver = load(metadata);
+                resolver.forEach(entityDescriptor -> {
+                    entityDescriptor.releaseDOM();
+                    entityDescriptor.releaseChildrenDOM(true);
+                    entityDescriptor.releaseParentDOM(true);
+                });
+                return resolver;
+            default:
+                return CompactMetadata.from(loaded);
+        }
+    }
+
+    private static String metadataWith(int entities) {
+        EntityDescriptorFactory entityDescriptorFactory = new EntityDescriptorFactory();
+        List<EntityDescriptor> entityDescriptors = IntStream.range(0, entities)
+                .mapToObj(i -> entityDescriptorFactory.idpEntityDescriptor("https://idp-" + i + ".example.com"))
+                .collect(toList());
+        return new MetadataFactory().metadata(entityDescriptors);
+    }
+
+    private static StringBackedMetadataResolver load(String metadata) throws Exception {
+        StringBackedMetadataResolver resolver = new StringBackedMetadataResolver(metadata);
+        resolver.setId("benchmark");
+        resolver.setParserPool(MetadataResolverFactory.createParserPool());
+        resolver.initialize();
+        return resolver;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
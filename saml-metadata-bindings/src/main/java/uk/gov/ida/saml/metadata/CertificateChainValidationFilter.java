@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.ida.common.shared.security.verification.CertificateChainValidator;
 import uk.gov.ida.saml.metadata.exception.CertificateConversionException;
+import uk.gov.ida.saml.security.CertificateValidityCache;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -18,7 +19,18 @@ import javax.xml.namespace.QName;
 import java.security.KeyStore;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toConcurrentMap;
+import static java.util.stream.Collectors.toSet;
 
 import static org.opensaml.xmlsec.keyinfo.KeyInfoSupport.getCertificates;
 
@@ -29,15 +41,37 @@ public final class CertificateChainValidationFilter implements MetadataFilter {
     private final QName role;
     private final CertificateChainValidator certificateChainValidator;
     private final KeyStore keyStore;
+    private final Optional<ForkJoinPool> validationPool;
+    private final Optional<CertificateValidityCache> certificateValidityCache;
 
     public CertificateChainValidationFilter(
         @NotNull final QName role,
         @NotNull final CertificateChainValidator certificateChainValidator,
         @NotNull final KeyStore keyStore) {
 
+        this(role, certificateChainValidator, keyStore, Optional.empty(), Optional.empty());
+    }
+
+    /**
+     * @param validationPool when present, every distinct certificate in the metadata is validated concurrently on
+     *                       this pool before any descriptors are removed. The removals themselves always happen on
+     *                       the calling thread as {@link org.opensaml.core.xml.util.IndexedXMLObjectChildrenList}
+     *                       is not thread safe.
+     * @param certificateValidityCache when present, validation results are shared with other filters and signature
+     *                                 validators and reused across refreshes.
+     */
+    public CertificateChainValidationFilter(
+        @NotNull final QName role,
+        @NotNull final CertificateChainValidator certificateChainValidator,
+        @NotNull final KeyStore keyStore,
+        @NotNull final Optional<ForkJoinPool> validationPool,
+        @NotNull final Optional<CertificateValidityCache> certificateValidityCache) {
+
         this.role = role;
         this.certificateChainValidator = certificateChainValidator;
         this.keyStore = keyStore;
+        this.validationPool = validationPool;
+        this.certificateValidityCache = certificateValidityCache;
     }
 
     public QName getRole() {
@@ -60,16 +94,17 @@ public final class CertificateChainValidationFilter implements MetadataFilter {
         }
 
         try {
+            final Map<X509Certificate, Boolean> certificateValidity = validateCertificatesConcurrently(metadata);
             if (metadata instanceof EntityDescriptor) {
                 EntityDescriptor entityDescriptor = (EntityDescriptor) metadata;
-                filterOutUntrustedRoleDescriptors(entityDescriptor);
+                filterOutUntrustedRoleDescriptors(entityDescriptor, certificateValidity);
                 if (entityDescriptor.getRoleDescriptors().isEmpty()) {
                     LOG.warn("EntityDescriptor '{}' has empty role descriptor list, metadata will be filtered out", entityDescriptor.getEntityID());
                     return null;
                 }
             } else if (metadata instanceof EntitiesDescriptor) {
                 EntitiesDescriptor entitiesDescriptor = (EntitiesDescriptor) metadata;
-                filterOutUntrustedEntityDescriptors(entitiesDescriptor);
+                filterOutUntrustedEntityDescriptors(entitiesDescriptor, certificateValidity);
                 if (entitiesDescriptor.getEntityDescriptors().isEmpty()) {
                     LOG.warn("EntitiesDescriptor '{}' has empty entity descriptor list, metadata will be filtered out");
                     return null;
@@ -86,7 +121,36 @@ public final class CertificateChainValidationFilter implements MetadataFilter {
         return metadata;
     }
 
-    private void filterOutUntrustedEntityDescriptors(@Nonnull EntitiesDescriptor entitiesDescriptor) {
+    private Map<X509Certificate, Boolean> validateCertificatesConcurrently(@Nonnull XMLObject metadata) {
+        if (!validationPool.isPresent()) {
+            return new HashMap<>();
+        }
+
+        final Set<X509Certificate> certificates = getEntityDescriptors(metadata)
+            .flatMap(entityDescriptor -> entityDescriptor.getRoleDescriptors().stream())
+            .filter(roleDescriptor -> getRole().equals(roleDescriptor.getElementQName()))
+            .flatMap(roleDescriptor -> roleDescriptor.getKeyDescriptors().stream())
+            .flatMap(keyDescriptor -> getCertificatesFromKeyInfo(keyDescriptor.getKeyInfo()).stream())
+            .collect(toSet());
+        LOG.trace("Validating {} distinct certificates concurrently", certificates.size());
+
+        // Streams submitted to a ForkJoinPool run their parallel stages on that pool rather than the common pool
+        return new HashMap<>(validationPool.get().submit(() ->
+            certificates.parallelStream().collect(toConcurrentMap(Function.identity(), this::isValid))
+        ).join());
+    }
+
+    private Stream<EntityDescriptor> getEntityDescriptors(@Nonnull XMLObject metadata) {
+        if (metadata instanceof EntityDescriptor) {
+            return Stream.of((EntityDescriptor) metadata);
+        }
+        if (metadata instanceof EntitiesDescriptor) {
+            return ((EntitiesDescriptor) metadata).getEntityDescriptors().stream();
+        }
+        return Stream.empty();
+    }
+
+    private void filterOutUntrustedEntityDescriptors(@Nonnull EntitiesDescriptor entitiesDescriptor, @Nonnull Map<X509Certificate, Boolean> certificateValidity) {
         final String name = getGroupName(entitiesDescriptor);
         LOG.trace("Processing EntitiesDescriptor group: {}", name);
 
@@ -96,7 +160,7 @@ public final class CertificateChainValidationFilter implements MetadataFilter {
 
         entitiesDescriptor.getEntityDescriptors().forEach(
         entityDescriptor -> {
-            filterOutUntrustedRoleDescriptors(entityDescriptor);
+            filterOutUntrustedRoleDescriptors(entityDescriptor, certificateValidity);
             if (entityDescriptor.getRoleDescriptors().isEmpty()) {
                 LOG.warn("EntityDescriptor '{}' has empty role descriptor list, removing from metadata", entityDescriptor.getEntityID());
                 toRemove.add(entityDescriptor);
@@ -110,7 +174,7 @@ public final class CertificateChainValidationFilter implements MetadataFilter {
     }
 
 
-    private void filterOutUntrustedRoleDescriptors(@Nonnull EntityDescriptor entityDescriptor) {
+    private void filterOutUntrustedRoleDescriptors(@Nonnull EntityDescriptor entityDescriptor, @Nonnull Map<X509Certificate, Boolean> certificateValidity) {
         final String entityID = entityDescriptor.getEntityID();
         LOG.trace("Processing EntityDescriptor: {}", entityID);
 
@@ -119,7 +183,7 @@ public final class CertificateChainValidationFilter implements MetadataFilter {
         entityDescriptor.getRoleDescriptors()
             .removeIf(roleDescriptor -> {
                 if (getRole().equals(roleDescriptor.getElementQName())) {
-                    filterOutUntrustedKeyDescriptors(roleDescriptor);
+                    filterOutUntrustedKeyDescriptors(roleDescriptor, certificateValidity);
                     if (roleDescriptor.getKeyDescriptors().isEmpty()) {
                         LOG.warn("KeyDescriptor '{}' has empty key descriptor list, removing from metadata", entityID);
                         return true;
@@ -129,25 +193,35 @@ public final class CertificateChainValidationFilter implements MetadataFilter {
             });
     }
 
-    private void filterOutUntrustedKeyDescriptors(@Nonnull RoleDescriptor roleDescriptor) {
+    private void filterOutUntrustedKeyDescriptors(@Nonnull RoleDescriptor roleDescriptor, @Nonnull Map<X509Certificate, Boolean> certificateValidity) {
         roleDescriptor.getKeyDescriptors().removeIf(
             keyDescriptor -> {
-                KeyInfo keyInfo = keyDescriptor.getKeyInfo();
-                try {
-                    for (final X509Certificate certificate : getCertificates(keyInfo)) {
-                        if (!getCertificateChainValidator().validate(certificate, getKeyStore()).isValid()) {
-                            LOG.warn("Certificate chain validation failed for metadata entry {}", certificate.getSubjectDN());
-                            return true;
-                        }
+                for (final X509Certificate certificate : getCertificatesFromKeyInfo(keyDescriptor.getKeyInfo())) {
+                    if (!certificateValidity.computeIfAbsent(certificate, this::isValid)) {
+                        LOG.warn("Certificate chain validation failed for metadata entry {}", certificate.getSubjectDN());
+                        return true;
                     }
-                    return false;
-                } catch (CertificateException e) {
-                    throw new CertificateConversionException(e);
                 }
+                return false;
             }
         );
     }
 
+    private boolean isValid(X509Certificate certificate) {
+        return certificateValidityCache
+            .map(cache -> cache.validate(certificate, getKeyStore(), getCertificateChainValidator()))
+            .orElseGet(() -> getCertificateChainValidator().validate(certificate, getKeyStore()))
+            .isValid();
+    }
+
+    private List<X509Certificate> getCertificatesFromKeyInfo(KeyInfo keyInfo) {
+        try {
+            return getCertificates(keyInfo);
+        } catch (CertificateException e) {
+            throw new CertificateConversionException(e);
+        }
+    }
+
     private String getGroupName(final EntitiesDescriptor group) {
         String name = group.getName();
         if (name != null) {
@@ -0,0 +1,51 @@
+package uk.gov.ida.saml.metadata;
+
+import com.google.common.collect.ImmutableList;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.credential.impl.AbstractCriteriaFilteringCredentialResolver;
+import org.opensaml.security.criteria.UsageCriterion;
+import uk.gov.ida.saml.metadata.domain.CompactEntityDescriptor;
+import uk.gov.ida.saml.metadata.domain.CompactMetadata;
+import uk.gov.ida.saml.metadata.domain.CompactRoleDescriptor;
+
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Resolves credentials from the {@link CompactMetadata} kept by a {@link JerseyClientMetadataResolver}, in place of
+ * a {@code MetadataCredentialResolver} walking the metadata object tree. Any criteria other than entity id, role and
+ * usage are applied to the credentials found in the same way as by {@code MetadataCredentialResolver}.
+ */
+public class CompactMetadataCredentialResolver extends AbstractCriteriaFilteringCredentialResolver {
+
+    private final Supplier<CompactMetadata> compactMetadata;
+
+    public CompactMetadataCredentialResolver(Supplier<CompactMetadata> compactMetadata) {
+        this.compactMetadata = compactMetadata;
+    }
+
+    @Override
+    protected Iterable<Credential> resolveFromSource(CriteriaSet criteriaSet) throws ResolverException {
+        if (criteriaSet == null || !criteriaSet.contains(EntityIdCriterion.class)) {
+            throw new ResolverException("EntityIdCriterion is required to resolve credentials from compact metadata");
+        }
+
+        String entityId = criteriaSet.get(EntityIdCriterion.class).getEntityId();
+        UsageType usage = criteriaSet.contains(UsageCriterion.class) ? criteriaSet.get(UsageCriterion.class).getUsage() : UsageType.UNSPECIFIED;
+        return compactMetadata.get().getEntityDescriptor(entityId)
+                .filter(CompactEntityDescriptor::isValid)
+                .map(entityDescriptor -> criteriaSet.contains(EntityRoleCriterion.class) ?
+                        entityDescriptor.getRoleDescriptors(criteriaSet.get(EntityRoleCriterion.class).getRole()) : entityDescriptor.getRoleDescriptors())
+                .map(roleDescriptors -> roleDescriptors.stream()
+                        .filter(CompactRoleDescriptor::isValid)
+                        .flatMap(roleDescriptor -> roleDescriptor.getCredentials(usage).stream())
+                        .collect(toList()))
+                .orElse(ImmutableList.of());
+    }
+}
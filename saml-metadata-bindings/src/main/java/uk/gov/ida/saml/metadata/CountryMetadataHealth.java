@@ -0,0 +1,93 @@
+package uk.gov.ida.saml.metadata;
+
+import org.joda.time.DateTime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The state of one country's metadata as of its most recent refresh.
+ */
+public final class CountryMetadataHealth {
+
+    static final String UNRESOLVED = "Could not resolve metadata";
+
+    private final String entityId;
+    private final boolean loaded;
+    private final Optional<DateTime> validUntil;
+    private final Optional<DateTime> lastSuccessfulRefresh;
+    private final Optional<String> lastError;
+    private final Optional<MetadataRefreshStatistics> lastRefreshStatistics;
+
+    public CountryMetadataHealth(
+            String entityId,
+            boolean resolvable,
+            Optional<DateTime> lastSuccessfulRefresh,
+            Optional<String> lastError,
+            Optional<MetadataRefreshStatistics> lastRefreshStatistics) {
+        this(entityId, resolvable, Optional.empty(), lastSuccessfulRefresh, lastError, lastRefreshStatistics);
+    }
+
+    /**
+     * @param loaded     whether the country's own entity is in its most recently loaded metadata
+     * @param validUntil when the entity, or an EntitiesDescriptor it is nested in, stops being valid
+     */
+    public CountryMetadataHealth(
+            String entityId,
+            boolean loaded,
+            Optional<DateTime> validUntil,
+            Optional<DateTime> lastSuccessfulRefresh,
+            Optional<String> lastError,
+            Optional<MetadataRefreshStatistics> lastRefreshStatistics) {
+        this.entityId = entityId;
+        this.loaded = loaded;
+        this.validUntil = validUntil;
+        this.lastSuccessfulRefresh = lastSuccessfulRefresh;
+        this.lastError = lastError;
+        this.lastRefreshStatistics = lastRefreshStatistics;
+    }
+
+    static CountryMetadataHealth of(String entityId, JerseyClientMetadataResolver metadataResolver) {
+        return new CountryMetadataHealth(
+                entityId,
+                metadataResolver.containsEntity(entityId),
+                metadataResolver.getValidUntil(entityId),
+                metadataResolver.getLastSuccessfulRefresh(),
+                metadataResolver.getLastRefreshError(),
+                metadataResolver.getLastRefreshStatistics());
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * @return whether the country's own entity is in its most recently loaded metadata and is still valid
+     */
+    public boolean isResolvable() {
+        return loaded && validUntil.map(DateTime::isAfterNow).orElse(true);
+    }
+
+    public Optional<DateTime> getLastSuccessfulRefresh() {
+        return lastSuccessfulRefresh;
+    }
+
+    public Optional<String> getLastError() {
+        return lastError;
+    }
+
+    public Optional<MetadataRefreshStatistics> getLastRefreshStatistics() {
+        return lastRefreshStatistics;
+    }
+
+    public Map<String, Object> toDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("resolvable", isResolvable());
+        validUntil.ifPresent(until -> details.put("validUntil", until.toString()));
+        lastSuccessfulRefresh.ifPresent(refreshed -> details.put("lastSuccessfulRefresh", refreshed.toString()));
+        lastError.ifPresent(error -> details.put("lastError", error));
+        lastRefreshStatistics.ifPresent(statistics -> details.put("lastRefresh", statistics.toDetails()));
+        return details;
+    }
+}
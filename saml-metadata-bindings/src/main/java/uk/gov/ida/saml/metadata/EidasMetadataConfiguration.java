@@ -30,6 +30,10 @@ public class EidasMetadataConfiguration {
 
     private URI metadataSourceUri;
 
+    /* Used to set {@link uk.gov.ida.saml.metadata.JerseyClientMetadataResolver#setCompactMetadataEnabled(boolean)} for every country */
+    @JsonProperty
+    private boolean compactMetadata = false;
+
     @JsonCreator
     public EidasMetadataConfiguration(@JsonProperty("trustAnchorUri") URI trustAnchorUri,
                                       @JsonProperty("minRefreshDelay") Long minRefreshDelay,
@@ -88,4 +92,8 @@ public class EidasMetadataConfiguration {
     public URI getMetadataSourceUri() {
         return metadataSourceUri;
     }
+
+    public boolean isCompactMetadata() {
+        return compactMetadata;
+    }
 }
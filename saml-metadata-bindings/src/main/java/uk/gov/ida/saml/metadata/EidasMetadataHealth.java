@@ -0,0 +1,70 @@
+package uk.gov.ida.saml.metadata;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A snapshot of the health of every country's metadata, rebuilt by {@link EidasMetadataResolverRepository} whenever
+ * the trust anchors are refreshed, a country's resolver is created, replaced or removed, or a country's metadata is
+ * refreshed, so that reading it never resolves anything. Only whether each country's metadata has expired since is
+ * worked out when it is read.
+ */
+public final class EidasMetadataHealth {
+
+    private static final EidasMetadataHealth EMPTY = new EidasMetadataHealth(ImmutableList.of(), ImmutableSortedMap.of(), DateTime.now());
+
+    private final List<String> missingMetadataResolverEntityIds;
+    private final Map<String, CountryMetadataHealth> countries;
+    private final DateTime computedAt;
+
+    public EidasMetadataHealth(List<String> missingMetadataResolverEntityIds, Map<String, CountryMetadataHealth> countries, DateTime computedAt) {
+        this.missingMetadataResolverEntityIds = ImmutableList.copyOf(missingMetadataResolverEntityIds);
+        this.countries = ImmutableSortedMap.copyOf(countries);
+        this.computedAt = computedAt;
+    }
+
+    public static EidasMetadataHealth empty() {
+        return EMPTY;
+    }
+
+    public boolean isHealthy() {
+        return missingMetadataResolverEntityIds.isEmpty() && countries.values().stream().allMatch(CountryMetadataHealth::isResolvable);
+    }
+
+    public List<String> getMissingMetadataResolverEntityIds() {
+        return missingMetadataResolverEntityIds;
+    }
+
+    public Map<String, CountryMetadataHealth> getCountries() {
+        return countries;
+    }
+
+    public DateTime getComputedAt() {
+        return computedAt;
+    }
+
+    /**
+     * @return why each country whose own entity could not be found in its metadata, or has expired, is unhealthy, by
+     *         entity id
+     */
+    public Map<String, String> getUnresolvedMetadata() {
+        return ImmutableSortedMap.copyOf(countries.values().stream()
+                .filter(country -> !country.isResolvable())
+                .collect(Collectors.toMap(
+                        CountryMetadataHealth::getEntityId,
+                        country -> country.getLastError().orElse(CountryMetadataHealth.UNRESOLVED))));
+    }
+
+    /**
+     * @return each country's health as health check details, by entity id
+     */
+    public Map<String, Map<String, Object>> getCountryDetails() {
+        return ImmutableSortedMap.copyOf(Maps.transformValues(countries, CountryMetadataHealth::toDetails));
+    }
+}
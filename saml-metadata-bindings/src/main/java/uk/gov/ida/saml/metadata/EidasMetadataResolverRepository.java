@@ -2,12 +2,8 @@ package uk.gov.ida.saml.metadata;
 
 import com.google.common.collect.ImmutableMap;
 import com.nimbusds.jose.jwk.JWK;
-import com.nimbusds.jose.util.X509CertUtils;
 import net.shibboleth.utilities.java.support.component.AbstractInitializableComponent;
 import net.shibboleth.utilities.java.support.component.ComponentInitializationException;
-import org.apache.commons.collections.ListUtils;
-import org.apache.xml.security.exceptions.Base64DecodingException;
-import org.apache.xml.security.utils.Base64;
 import org.joda.time.DateTime;
 import org.opensaml.saml.metadata.resolver.MetadataResolver;
 import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
@@ -16,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import uk.gov.ida.eidas.trustanchor.CountryTrustAnchor;
 import uk.gov.ida.saml.metadata.factories.DropwizardMetadataResolverFactory;
 import uk.gov.ida.saml.metadata.factories.MetadataSignatureTrustEngineFactory;
+import uk.gov.ida.saml.security.CertificateInterner;
 
 import javax.inject.Inject;
 import javax.ws.rs.client.Client;
@@ -26,27 +23,36 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
 
 public class EidasMetadataResolverRepository implements MetadataResolverRepository {
 
+    private static final int MAX_BACKOFF_DOUBLINGS = 30;
+
     private final Logger log = LoggerFactory.getLogger(EidasMetadataResolverRepository.class);
     private final EidasTrustAnchorResolver trustAnchorResolver;
     private final DropwizardMetadataResolverFactory dropwizardMetadataResolverFactory;
     private final MetadataResolverConfigBuilder metadataResolverConfigBuilder;
-    private ImmutableMap<String, MetadataResolverContainer> metadataResolvers = ImmutableMap.of();
-    private List<JWK> trustAnchors = new ArrayList<>();
+    private volatile ImmutableMap<String, MetadataResolverContainer> metadataResolvers = ImmutableMap.of();
+    private volatile List<JWK> trustAnchors = new ArrayList<>();
+    private final Map<String, TimerTask> countryRefreshTasks = new HashMap<>();
+    private final Map<String, Integer> countryFailureCounts = new HashMap<>();
+    private final List<MetadataRefreshListener> refreshListeners = new CopyOnWriteArrayList<>();
+    private final Object healthLock = new Object();
+    private volatile EidasMetadataHealth health = EidasMetadataHealth.empty();
     private final EidasMetadataConfiguration eidasMetadataConfiguration;
     private final Timer timer;
     private final MetadataSignatureTrustEngineFactory metadataSignatureTrustEngineFactory;
-    private long delayBeforeNextRefresh;
     private Client client;
 
     @Inject
@@ -97,56 +103,201 @@ public class EidasMetadataResolverRepository implements MetadataResolverReposito
         return trustAnchors.stream().map(JWK::getKeyID).collect(toList());
     }
 
+    /**
+     * @return the health of every country's metadata as of the last trust anchor refresh, resolver change or
+     *         country metadata refresh
+     */
+    @Override
+    public Optional<EidasMetadataHealth> getHealth() {
+        return Optional.of(health);
+    }
+
+    /**
+     * Registers a listener that is told about entities added, removed or modified in any country's metadata, whether
+     * because that country's metadata was refreshed or because its resolver was created, replaced or removed.
+     */
+    public void addRefreshListener(MetadataRefreshListener refreshListener) {
+        refreshListeners.add(refreshListener);
+    }
+
+    public void removeRefreshListener(MetadataRefreshListener refreshListener) {
+        refreshListeners.remove(refreshListener);
+    }
+
     private JWK getTrustAnchorFromKeyId(String keyId) {
         return trustAnchors.stream().filter(e -> e.getKeyID().equals(keyId)).findFirst().orElseThrow(() -> new IllegalArgumentException("Cannot find " + keyId + " in trust anchors"));
     }
 
     @Override
-    public void refresh() {
-        delayBeforeNextRefresh = eidasMetadataConfiguration.getTrustAnchorMaxRefreshDelay();
+    public synchronized void refresh() {
+        long delayBeforeNextRefresh = eidasMetadataConfiguration.getTrustAnchorMaxRefreshDelay();
 
         try {
             trustAnchors = trustAnchorResolver.getTrustAnchors();
             refreshMetadataResolvers();
         } catch (Exception e) {
             log.error("Error fetching trust anchor or validating it", e);
-            setShortRefreshDelay();
+            delayBeforeNextRefresh = eidasMetadataConfiguration.getTrustAnchorMinRefreshDelay();
         } finally {
-            timer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    refresh();
-                }
-            }, delayBeforeNextRefresh);
+            updateHealth();
+            timer.schedule(timerTask(this::refresh), delayBeforeNextRefresh);
         }
     }
 
     private void refreshMetadataResolvers() {
         List<String> trustAnchorsEntityIds = getTrustAnchorsEntityIds();
-        List<String> currentResolverEntityIds = getResolverEntityIds();
-
-        List<String> resolversToRemove = ListUtils.subtract(currentResolverEntityIds, trustAnchorsEntityIds);
-        ImmutableMap.Builder<String, MetadataResolverContainer> newMetadataResolvers = new ImmutableMap.Builder<>();
+        Map<String, MetadataResolverContainer> oldMetadataResolvers = metadataResolvers;
+        ImmutableMap.Builder<String, MetadataResolverContainer> newMetadataResolversBuilder = new ImmutableMap.Builder<>();
 
         trustAnchorsEntityIds.forEach(trustAnchorsEntityId -> {
             try {
-                MetadataResolverContainer metadataResolverContainer = metadataResolvers.containsKey(trustAnchorsEntityId) ?
-                        metadataResolvers.get(trustAnchorsEntityId) : createMetadataResolverContainer(trustAnchorsEntityId);
-                newMetadataResolvers.put(trustAnchorsEntityId, metadataResolverContainer);
+                MetadataResolverContainer existingContainer = oldMetadataResolvers.get(trustAnchorsEntityId);
+                MetadataResolverContainer metadataResolverContainer = existingContainer != null && existingContainer.isFor(getTrustAnchorFromKeyId(trustAnchorsEntityId)) ?
+                        existingContainer : createMetadataResolverContainer(trustAnchorsEntityId);
+                newMetadataResolversBuilder.put(trustAnchorsEntityId, metadataResolverContainer);
+                scheduleCountryRefreshBeforeExpiry(trustAnchorsEntityId);
             } catch (Exception e) {
-                log.error("Error creating MetadataResolver for " + trustAnchorsEntityId, e);
+                long retryDelay = scheduleCountryRetry(trustAnchorsEntityId);
+                log.error(String.format("Error creating MetadataResolver for %s, retrying in %dms", trustAnchorsEntityId, retryDelay), e);
             }
         });
 
-        List<JerseyClientMetadataResolver> metadataResolversToRemove = resolversToRemove.stream()
-                .map(resolverToRemove -> metadataResolvers.get(resolverToRemove).getMetadataResolver())
+        ImmutableMap<String, MetadataResolverContainer> newMetadataResolvers = newMetadataResolversBuilder.build();
+        List<JerseyClientMetadataResolver> metadataResolversToRemove = oldMetadataResolvers.entrySet().stream()
+                .filter(entry -> newMetadataResolvers.get(entry.getKey()) != entry.getValue())
+                .map(entry -> entry.getValue().getMetadataResolver())
                 .collect(toList());
 
-        this.metadataResolvers = newMetadataResolvers.build();
+        setMetadataResolvers(newMetadataResolvers);
 
+        new ArrayList<>(countryRefreshTasks.keySet()).stream()
+                .filter(entityId -> !trustAnchorsEntityIds.contains(entityId))
+                .forEach(this::cancelCountryRefresh);
+        countryFailureCounts.keySet().retainAll(trustAnchorsEntityIds);
         metadataResolversToRemove.forEach(AbstractInitializableComponent::destroy);
     }
 
+    /*
+     Refreshes a single country outside of the full refresh, either because its signing certificate is about to
+     expire or because creating its resolver failed. Other countries' resolvers are left as they are.
+     */
+    private synchronized void refreshCountry(String entityId) {
+        try {
+            trustAnchors = trustAnchorResolver.getTrustAnchors();
+            if (!getTrustAnchorsEntityIds().contains(entityId)) {
+                cancelCountryRefresh(entityId);
+                replaceMetadataResolver(entityId, Optional.empty());
+                return;
+            }
+
+            MetadataResolverContainer existingContainer = metadataResolvers.get(entityId);
+            JWK trustAnchor = getTrustAnchorFromKeyId(entityId);
+            if (existingContainer == null || !existingContainer.isFor(trustAnchor)) {
+                replaceMetadataResolver(entityId, Optional.of(createMetadataResolverContainer(entityId)));
+            }
+            scheduleCountryRefreshBeforeExpiry(entityId);
+        } catch (Exception e) {
+            long retryDelay = scheduleCountryRetry(entityId);
+            log.error(String.format("Error refreshing MetadataResolver for %s, retrying in %dms", entityId, retryDelay), e);
+        }
+    }
+
+    private void replaceMetadataResolver(String entityId, Optional<MetadataResolverContainer> newContainer) {
+        Optional<MetadataResolverContainer> oldContainer = Optional.ofNullable(metadataResolvers.get(entityId));
+
+        ImmutableMap.Builder<String, MetadataResolverContainer> newMetadataResolvers = new ImmutableMap.Builder<>();
+        metadataResolvers.entrySet().stream()
+                .filter(entry -> !entry.getKey().equals(entityId))
+                .forEach(newMetadataResolvers::put);
+        newContainer.ifPresent(container -> newMetadataResolvers.put(entityId, container));
+        setMetadataResolvers(newMetadataResolvers.build());
+
+        oldContainer.map(MetadataResolverContainer::getMetadataResolver).ifPresent(AbstractInitializableComponent::destroy);
+    }
+
+    private void setMetadataResolvers(ImmutableMap<String, MetadataResolverContainer> newMetadataResolvers) {
+        Map<String, String> previousDigests = getEntityDescriptorDigests(metadataResolvers);
+        this.metadataResolvers = newMetadataResolvers;
+        updateHealth();
+
+        MetadataRefreshEvent event = MetadataRefreshEvent.between(previousDigests, getEntityDescriptorDigests(newMetadataResolvers));
+        if (!event.isEmpty()) {
+            notifyRefreshListeners(event);
+        }
+    }
+
+    /*
+     Rebuilds the health snapshot from the resolvers' own record of their last refresh. This is only ever done when
+     something changes, so health checks never have to resolve anything themselves.
+     */
+    private void updateHealth() {
+        synchronized (healthLock) {
+            Map<String, MetadataResolverContainer> currentResolvers = metadataResolvers;
+            List<String> missingEntityIds = getTrustAnchorsEntityIds().stream()
+                    .filter(entityId -> !currentResolvers.containsKey(entityId))
+                    .collect(toList());
+            Map<String, CountryMetadataHealth> countries = new HashMap<>();
+            currentResolvers.forEach((entityId, container) -> countries.put(entityId, CountryMetadataHealth.of(entityId, container.getMetadataResolver())));
+            health = new EidasMetadataHealth(missingEntityIds, countries, DateTime.now());
+        }
+    }
+
+    private static Map<String, String> getEntityDescriptorDigests(Map<String, MetadataResolverContainer> containers) {
+        Map<String, String> digests = new HashMap<>();
+        containers.values().forEach(container -> digests.putAll(container.getMetadataResolver().getEntityDescriptorDigests()));
+        return digests;
+    }
+
+    private void notifyRefreshListeners(MetadataRefreshEvent event) {
+        for (MetadataRefreshListener refreshListener : refreshListeners) {
+            try {
+                refreshListener.onRefresh(event);
+            } catch (RuntimeException e) {
+                log.error("Metadata refresh listener failed", e);
+            }
+        }
+    }
+
+    private void scheduleCountryRefreshBeforeExpiry(String entityId) {
+        countryFailureCounts.remove(entityId);
+
+        long minRefreshDelay = eidasMetadataConfiguration.getTrustAnchorMinRefreshDelay();
+        Date metadataSigningCertExpiryDate = sortCertsByDate(getTrustAnchorFromKeyId(entityId)).get(0).getNotAfter();
+        long delayBeforeExpiry = metadataSigningCertExpiryDate.getTime() - DateTime.now().getMillis() - minRefreshDelay;
+
+        if (delayBeforeExpiry < eidasMetadataConfiguration.getTrustAnchorMaxRefreshDelay()) {
+            scheduleCountryRefresh(entityId, Math.max(delayBeforeExpiry, minRefreshDelay));
+        } else {
+            cancelCountryRefresh(entityId);
+        }
+    }
+
+    /*
+     Exponential backoff from trustAnchorMinRefreshDelay up to trustAnchorMaxRefreshDelay, with each delay picked at
+     random from its upper half so that countries which fail together do not retry together.
+     */
+    private long scheduleCountryRetry(String entityId) {
+        int failures = countryFailureCounts.merge(entityId, 1, Integer::sum);
+        long minRefreshDelay = eidasMetadataConfiguration.getTrustAnchorMinRefreshDelay();
+        long maxRefreshDelay = eidasMetadataConfiguration.getTrustAnchorMaxRefreshDelay();
+
+        long backoff = Math.min(maxRefreshDelay, minRefreshDelay << Math.min(failures - 1, MAX_BACKOFF_DOUBLINGS));
+        long retryDelay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        scheduleCountryRefresh(entityId, retryDelay);
+        return retryDelay;
+    }
+
+    private void scheduleCountryRefresh(String entityId, long delay) {
+        cancelCountryRefresh(entityId);
+        TimerTask countryRefreshTask = timerTask(() -> refreshCountry(entityId));
+        countryRefreshTasks.put(entityId, countryRefreshTask);
+        timer.schedule(countryRefreshTask, delay);
+    }
+
+    private void cancelCountryRefresh(String entityId) {
+        Optional.ofNullable(countryRefreshTasks.remove(entityId)).ifPresent(TimerTask::cancel);
+    }
+
     private MetadataResolverContainer createMetadataResolverContainer(String resolverToAddEntityId) throws CertificateException, UnsupportedEncodingException, ComponentInitializationException {
         JWK trustAnchor = getTrustAnchorFromKeyId(resolverToAddEntityId);
 
@@ -157,12 +308,6 @@ public class EidasMetadataResolverRepository implements MetadataResolverReposito
             throw new Error(String.format("Managed to generate an invalid anchor: %s", String.join(", ", errors)));
         }
 
-        Date metadataSigningCertExpiryDate = sortCertsByDate(trustAnchor).get(0).getNotAfter();
-        Date nextRunTime = DateTime.now().plus(delayBeforeNextRefresh).toDate();
-        if (metadataSigningCertExpiryDate.before(nextRunTime)) {
-            setShortRefreshDelay();
-        }
-
         return createMetadataResolverContainer(trustAnchor);
     }
 
@@ -171,8 +316,8 @@ public class EidasMetadataResolverRepository implements MetadataResolverReposito
         return trustAnchor.getX509CertChain().stream()
                 .map(base64 -> {
                     try {
-                        return X509CertUtils.parse(Base64.decode(String.valueOf(base64)));
-                    } catch (Base64DecodingException e) {
+                        return CertificateInterner.getDefault().intern(base64.decode());
+                    } catch (CertificateException e) {
                         throw new IllegalArgumentException(String.format("Failed to parse X509 certificate: %s", e.getMessage()));
                     }
                 })
@@ -182,24 +327,48 @@ public class EidasMetadataResolverRepository implements MetadataResolverReposito
 
     private MetadataResolverContainer createMetadataResolverContainer(JWK trustAnchor) throws CertificateException, ComponentInitializationException, UnsupportedEncodingException {
         MetadataResolverConfiguration metadataResolverConfiguration = metadataResolverConfigBuilder.createMetadataResolverConfiguration(trustAnchor, eidasMetadataConfiguration);
-        JerseyClientMetadataResolver metadataResolver = (JerseyClientMetadataResolver) dropwizardMetadataResolverFactory.createMetadataResolverWithClient(metadataResolverConfiguration, true, client);
-        return new MetadataResolverContainer(metadataResolver, metadataSignatureTrustEngineFactory.createSignatureTrustEngine(metadataResolver));
+        JerseyClientMetadataResolver metadataResolver = dropwizardMetadataResolverFactory.createMetadataResolverWithClient(metadataResolverConfiguration, true, client);
+        metadataResolver.addRefreshListener(new MetadataRefreshListener() {
+            @Override
+            public void onRefresh(MetadataRefreshEvent event) {
+                updateHealth();
+                notifyRefreshListeners(event);
+            }
+
+            @Override
+            public void onRefreshFailed(Exception cause) {
+                updateHealth();
+            }
+        });
+        return new MetadataResolverContainer(trustAnchor, metadataResolver, metadataSignatureTrustEngineFactory.createSignatureTrustEngine(metadataResolver));
     }
 
-    private void setShortRefreshDelay() {
-        delayBeforeNextRefresh = eidasMetadataConfiguration.getTrustAnchorMinRefreshDelay();
+    private static TimerTask timerTask(Runnable runnable) {
+        return new TimerTask() {
+            @Override
+            public void run() {
+                runnable.run();
+            }
+        };
     }
 
     private class MetadataResolverContainer {
+        private final String trustAnchorJson;
         private final JerseyClientMetadataResolver metadataResolver;
         private final ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine;
 
-        private MetadataResolverContainer(JerseyClientMetadataResolver metadataResolver,
+        private MetadataResolverContainer(JWK trustAnchor,
+                                          JerseyClientMetadataResolver metadataResolver,
                                           ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine) {
+            this.trustAnchorJson = trustAnchor.toJSONString();
             this.metadataResolver = metadataResolver;
             this.explicitKeySignatureTrustEngine = explicitKeySignatureTrustEngine;
         }
 
+        private boolean isFor(JWK trustAnchor) {
+            return trustAnchorJson.equals(trustAnchor.toJSONString());
+        }
+
         private ExplicitKeySignatureTrustEngine getSignatureTrustEngine() {
             return explicitKeySignatureTrustEngine;
         }
@@ -13,6 +13,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 
 public class EidasTrustAnchorHealthCheck extends HealthCheck {
 
@@ -25,20 +27,52 @@ public class EidasTrustAnchorHealthCheck extends HealthCheck {
 
     @Override
     protected Result check() {
+        // A repository that keeps its health up to date as it refreshes leaves nothing to resolve here
+        Optional<EidasMetadataHealth> health = metadataResolverRepository.getHealth();
+        if (health.isPresent()) {
+            return check(health.get());
+        }
+
         List<String> trustAnchorEntityIds = metadataResolverRepository.getTrustAnchorsEntityIds();
 
         List<String> missingEntityIds = getErrorsCreatingMetadataResolvers(trustAnchorEntityIds);
         Map<String, String> unresolvedMetadata = getErrorsResolvingMetadata();
 
+        Map<String, Map<String, Object>> lastRefreshes = getLastRefreshStatistics();
+
         if (missingEntityIds.isEmpty() && unresolvedMetadata.isEmpty()) {
-            return Result.healthy();
+            return Result.builder().healthy()
+                    .withDetail("lastRefreshes", lastRefreshes)
+                    .build();
         }
         return Result.builder().unhealthy()
                 .withDetail("missingMetadataResolverEntityIds", missingEntityIds)
                 .withDetail("unresolvedMetadata", unresolvedMetadata)
+                .withDetail("lastRefreshes", lastRefreshes)
+                .build();
+    }
+
+    private static Result check(EidasMetadataHealth health) {
+        ResultBuilder result = health.isHealthy() ? Result.builder().healthy() : Result.builder().unhealthy()
+                .withDetail("missingMetadataResolverEntityIds", health.getMissingMetadataResolverEntityIds())
+                .withDetail("unresolvedMetadata", health.getUnresolvedMetadata());
+        return result
+                .withDetail("countries", health.getCountryDetails())
+                .withDetail("computedAt", health.getComputedAt().toString())
                 .build();
     }
 
+    private Map<String, Map<String, Object>> getLastRefreshStatistics() {
+        Map<String, Map<String, Object>> lastRefreshes = new TreeMap<>();
+        metadataResolverRepository.getMetadataResolvers().forEach((entityId, metadataResolver) -> {
+            if (metadataResolver instanceof JerseyClientMetadataResolver) {
+                ((JerseyClientMetadataResolver) metadataResolver).getLastRefreshStatistics()
+                        .ifPresent(statistics -> lastRefreshes.put(entityId, statistics.toDetails()));
+            }
+        });
+        return lastRefreshes;
+    }
+
     private List<String> getErrorsCreatingMetadataResolvers(List<String> trustAnchorEntityIds) {
         List<String> entityIdsWithResolver = metadataResolverRepository.getResolverEntityIds();
 
@@ -8,10 +8,11 @@ import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
 
+import uk.gov.ida.saml.core.crypto.CryptoProviders;
+import uk.gov.ida.saml.security.CertificateInterner;
+
 import javax.ws.rs.client.Client;
 import javax.ws.rs.core.Response;
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 import java.net.URI;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
@@ -19,7 +20,6 @@ import java.security.SignatureException;
 import java.security.cert.CertPath;
 import java.security.cert.CertPathValidator;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.PKIXParameters;
 import java.security.cert.X509Certificate;
 import java.text.ParseException;
@@ -57,13 +57,11 @@ public class EidasTrustAnchorResolver {
     }
 
     private X509Certificate getCertificate(JWSObject jwsObject) throws CertificateException {
-        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-        InputStream certStream = new ByteArrayInputStream(jwsObject.getHeader().getX509CertChain().get(0).decode());
-        X509Certificate certificate = (X509Certificate) certificateFactory.generateCertificate(certStream);
+        X509Certificate certificate = CertificateInterner.getDefault().intern(jwsObject.getHeader().getX509CertChain().get(0).decode());
 
         try {
             List<X509Certificate> certificateList = Arrays.asList(certificate);
-            CertPath cp = certificateFactory.generateCertPath(certificateList);
+            CertPath cp = CryptoProviders.certificateFactory("X.509").generateCertPath(certificateList);
             PKIXParameters params = new PKIXParameters(trustStore);
             params.setRevocationEnabled(false);
             CertPathValidator certPathValidator = CertPathValidator.getInstance(CertPathValidator.getDefaultType());
@@ -0,0 +1,67 @@
+package uk.gov.ida.saml.metadata;
+
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.metadata.resolver.index.MetadataIndex;
+import org.opensaml.saml.metadata.resolver.index.MetadataIndexKey;
+import org.opensaml.saml.saml2.metadata.EntitiesDescriptor;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Secondary index from the name of the enclosing EntitiesDescriptor to its EntityDescriptors, built when the
+ * metadata is loaded so that {@link EntitiesDescriptorNameCriterion} lookups don't have to test every entity
+ * against {@link EntitiesDescriptorNamePredicate}.
+ */
+public class EntitiesDescriptorNameMetadataIndex implements MetadataIndex {
+
+    @Nullable
+    @Override
+    public Set<MetadataIndexKey> generateKeys(@Nonnull CriteriaSet criteriaSet) {
+        EntitiesDescriptorNameCriterion criterion = criteriaSet.get(EntitiesDescriptorNameCriterion.class);
+        if (criterion == null || criterion.getExpectedName() == null) {
+            return null;
+        }
+        return Collections.singleton(new EntitiesDescriptorNameKey(criterion.getExpectedName()));
+    }
+
+    @Nullable
+    @Override
+    public Set<MetadataIndexKey> generateKeys(@Nonnull EntityDescriptor descriptor) {
+        XMLObject parent = descriptor.getParent();
+        if (!(parent instanceof EntitiesDescriptor) || ((EntitiesDescriptor) parent).getName() == null) {
+            return null;
+        }
+        return Collections.singleton(new EntitiesDescriptorNameKey(((EntitiesDescriptor) parent).getName()));
+    }
+
+    protected static class EntitiesDescriptorNameKey implements MetadataIndexKey {
+        private final String name;
+
+        public EntitiesDescriptorNameKey(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return name.equals(((EntitiesDescriptorNameKey) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name);
+        }
+
+        @Override
+        public String toString() {
+            return "EntitiesDescriptorNameKey[" + name + "]";
+        }
+    }
+}
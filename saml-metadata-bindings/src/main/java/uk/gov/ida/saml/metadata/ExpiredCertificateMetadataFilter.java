@@ -1,7 +1,6 @@
 package uk.gov.ida.saml.metadata;
 
-import org.apache.xml.security.exceptions.Base64DecodingException;
-import org.apache.xml.security.utils.Base64;
+import org.joda.time.DateTime;
 import org.joda.time.DateTimeUtils;
 import org.opensaml.core.xml.XMLObject;
 import org.opensaml.saml.metadata.resolver.filter.FilterException;
@@ -10,28 +9,29 @@ import org.opensaml.xmlsec.signature.SignableXMLObject;
 import org.opensaml.xmlsec.signature.Signature;
 import org.opensaml.xmlsec.signature.X509Certificate;
 import uk.gov.ida.saml.metadata.exception.CertificateConversionException;
+import uk.gov.ida.saml.security.CertificateInterner;
 
 import javax.inject.Inject;
-import java.io.ByteArrayInputStream;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateExpiredException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateNotYetValidException;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class ExpiredCertificateMetadataFilter implements MetadataFilter {
 
-    CertificateFactory certificateFactory;
+    private final CertificateInterner certificateInterner;
+    private volatile Optional<DateTime> soonestCertificateExpiry = Optional.empty();
 
     @Inject
     public ExpiredCertificateMetadataFilter() {
-        try {
-            certificateFactory = CertificateFactory.getInstance("X.509");
-        } catch (CertificateException e) {
-            throw new RuntimeException(e);
-        }
+        this(CertificateInterner.getDefault());
+    }
+
+    public ExpiredCertificateMetadataFilter(CertificateInterner certificateInterner) {
+        this.certificateInterner = certificateInterner;
     }
  
     @Override
@@ -43,22 +43,34 @@ public class ExpiredCertificateMetadataFilter implements MetadataFilter {
                 .flatMap(x -> x.getX509Certificates().stream())
                 .collect(Collectors.toList());
 
+        Date now = new Date(DateTimeUtils.currentTimeMillis());
+        Optional<Date> soonestExpiry = Optional.empty();
         for (X509Certificate cert: certs) {
             java.security.cert.X509Certificate x509Cert = convertToSunCert(cert);
             try {
-                x509Cert.checkValidity(new Date(DateTimeUtils.currentTimeMillis()));
+                x509Cert.checkValidity(now);
             } catch (CertificateExpiredException | CertificateNotYetValidException e) {
                 throw new FilterException(e);
             }
+            if (!soonestExpiry.isPresent() || x509Cert.getNotAfter().before(soonestExpiry.get())) {
+                soonestExpiry = Optional.of(x509Cert.getNotAfter());
+            }
         }
+        soonestCertificateExpiry = soonestExpiry.map(DateTime::new);
         return metadata;
     }
 
+    /**
+     * @return the earliest notAfter of the signing certificates in the metadata this filter last accepted
+     */
+    public Optional<DateTime> getSoonestCertificateExpiry() {
+        return soonestCertificateExpiry;
+    }
+
     private java.security.cert.X509Certificate convertToSunCert(X509Certificate cert) {
         try {
-            byte[] derValue = Base64.decode(cert.getValue());
-            return (java.security.cert.X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(derValue));
-        } catch (Base64DecodingException | CertificateException e) {
+            return certificateInterner.intern(cert.getValue());
+        } catch (CertificateException e) {
             throw new CertificateConversionException(e);
         }
     }
@@ -0,0 +1,49 @@
+package uk.gov.ida.saml.metadata;
+
+import org.opensaml.saml.metadata.resolver.filter.MetadataFilter;
+import org.opensaml.saml.metadata.resolver.filter.MetadataFilterChain;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link MetadataFilterChain} that times each of its filters with a {@link TimedMetadataFilter} and remembers how
+ * long each took on the most recent refresh.
+ */
+public class InstrumentedMetadataFilterChain extends MetadataFilterChain {
+
+    private final SamlMetrics metrics;
+
+    public InstrumentedMetadataFilterChain(SamlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setFilters(@Nullable List<MetadataFilter> newFilters) {
+        if (newFilters == null) {
+            super.setFilters(null);
+            return;
+        }
+        super.setFilters(newFilters.stream()
+                .filter(Objects::nonNull)
+                .map(filter -> filter instanceof TimedMetadataFilter ? filter : new TimedMetadataFilter(filter, metrics))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the time each filter took on its most recent run, by metric stage name, in chain order
+     */
+    public Map<String, Long> getLastFilterDurationsMillis() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (MetadataFilter filter : getFilters()) {
+            TimedMetadataFilter timedFilter = (TimedMetadataFilter) filter;
+            durations.merge(timedFilter.getStage(), timedFilter.getLastDurationMillis(), Long::sum);
+        }
+        return durations;
+    }
+}
@@ -1,14 +1,76 @@
 package uk.gov.ida.saml.metadata;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import net.shibboleth.utilities.java.support.xml.SerializeSupport;
+import org.joda.time.DateTime;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.io.MarshallingException;
+import org.opensaml.core.xml.io.UnmarshallingException;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.metadata.resolver.filter.FilterException;
 import org.opensaml.saml.metadata.resolver.impl.AbstractReloadingMetadataResolver;
+import org.opensaml.saml.saml2.metadata.EntitiesDescriptor;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.RoleDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import uk.gov.ida.saml.core.DomReleasePolicy;
+import uk.gov.ida.saml.core.events.SamlEvents;
+import uk.gov.ida.saml.metadata.domain.CompactEntityDescriptor;
+import uk.gov.ida.saml.metadata.domain.CompactMetadata;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
 
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.Timer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 public class JerseyClientMetadataResolver extends AbstractReloadingMetadataResolver {
+    private static final Logger LOG = LoggerFactory.getLogger(JerseyClientMetadataResolver.class);
+
     private final Client client;
     private final URI metadataUri;
+    private Supplier<Optional<DateTime>> signingCertificateExpiry = Optional::empty;
+    private final List<MetadataRefreshListener> refreshListeners = new CopyOnWriteArrayList<>();
+    private volatile Map<String, String> entityDescriptorDigests = ImmutableMap.of();
+    private volatile Map<String, DateTime> entityValidUntils = Collections.emptyMap();
+    private boolean compactMetadataEnabled = false;
+    private DomReleasePolicy domReleasePolicy = DomReleasePolicy.RETAIN;
+    private volatile CompactMetadata compactMetadata = CompactMetadata.empty();
+    private SamlMetrics metrics = SamlMetrics.disabled();
+    private long fetchTimeoutMillis = 0;
+    private volatile MetadataRefreshStatistics lastRefreshStatistics;
+    private volatile DateTime lastSuccessfulRefresh;
+    private volatile String lastRefreshError;
+    private long lastFetchSize = 0;
+    private long lastFetchNanos = 0;
+    private long lastUnmarshalNanos = 0;
+    private long lastFilterNanos = 0;
+    private long lastNextRefreshDelay = 0;
+    private int entityCount = 0;
+    private Map<String, String> filteredEntityDescriptorDigests;
+    private Map<String, DateTime> filteredEntityValidUntils;
+    private CompactMetadata filteredCompactMetadata;
+    private int filteredEntityCount = 0;
 
     public JerseyClientMetadataResolver(Timer timer, Client client, URI metadataUri) {
         super(timer);
@@ -16,6 +78,315 @@ public class JerseyClientMetadataResolver extends AbstractReloadingMetadataResol
         this.metadataUri = metadataUri;
     }
 
+    /**
+     * Brings the next refresh forward so that it happens before the metadata signing certificate expires,
+     * giving the metadata a chance to be re-signed with a new certificate before the old one stops being accepted.
+     */
+    public void setSigningCertificateExpiry(Supplier<Optional<DateTime>> signingCertificateExpiry) {
+        this.signingCertificateExpiry = signingCertificateExpiry;
+    }
+
+    /**
+     * Projects the filtered metadata into a {@link CompactMetadata} as part of each refresh, then drops from the
+     * metadata the resolver keeps the signatures, key descriptors, organizations and contacts, along with the DOM.
+     * Credential resolvers from {@link uk.gov.ida.saml.metadata.factories.CredentialResolverFactory} and health checks
+     * read from the compact metadata instead. A refresh whose metadata cannot be projected fails, keeping the previous
+     * metadata.
+     */
+    public void setCompactMetadataEnabled(boolean compactMetadataEnabled) {
+        this.compactMetadataEnabled = compactMetadataEnabled;
+    }
+
+    /**
+     * Whether to release the DOM under the metadata once the filter chain has validated its signature. The
+     * DOM is always released when compact metadata is enabled.
+     */
+    public void setDomReleasePolicy(DomReleasePolicy domReleasePolicy) {
+        this.domReleasePolicy = domReleasePolicy;
+    }
+
+    /**
+     * Fails a refresh whose metadata has not finished downloading after this long, so that it gives up its refresh
+     * thread, on top of any timeouts the client has itself. 0, the default, leaves it to the client's timeouts.
+     */
+    public void setFetchTimeout(long fetchTimeoutMillis) {
+        this.fetchTimeoutMillis = fetchTimeoutMillis;
+    }
+
+    /**
+     * Times each metadata download as {@code metadata.fetch}.
+     */
+    public void setMetrics(SamlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Optional<CompactMetadata> getCompactMetadata() {
+        return compactMetadataEnabled ? Optional.of(compactMetadata) : Optional.empty();
+    }
+
+    public void addRefreshListener(MetadataRefreshListener refreshListener) {
+        refreshListeners.add(refreshListener);
+    }
+
+    public void removeRefreshListener(MetadataRefreshListener refreshListener) {
+        refreshListeners.remove(refreshListener);
+    }
+
+    /**
+     * @return download size, phase timings, entity count and next refresh delay from the most recent successful
+     *         refresh, if there has been one
+     */
+    public Optional<MetadataRefreshStatistics> getLastRefreshStatistics() {
+        return Optional.ofNullable(lastRefreshStatistics);
+    }
+
+    public Optional<DateTime> getLastSuccessfulRefresh() {
+        return Optional.ofNullable(lastSuccessfulRefresh);
+    }
+
+    /**
+     * @return why the most recent refresh failed, or empty if it succeeded
+     */
+    public Optional<String> getLastRefreshError() {
+        return Optional.ofNullable(lastRefreshError);
+    }
+
+    /**
+     * @return a digest of each EntityDescriptor in the most recently loaded metadata, by entity id; digests are only
+     *         computed while a refresh listener is registered, and are empty otherwise
+     */
+    public Map<String, String> getEntityDescriptorDigests() {
+        return entityDescriptorDigests;
+    }
+
+    /**
+     * @return whether the entity is in the most recently loaded metadata, whether or not it is still valid
+     */
+    public boolean containsEntity(String entityId) {
+        return entityValidUntils.containsKey(entityId);
+    }
+
+    /**
+     * @return the earliest validUntil of the entity and every EntitiesDescriptor it is nested in, from the most
+     *         recently loaded metadata, or empty if none of them has one or the entity is not in the metadata
+     */
+    public Optional<DateTime> getValidUntil(String entityId) {
+        return Optional.ofNullable(entityValidUntils.get(entityId));
+    }
+
+    @Override
+    protected long computeNextRefreshDelay(DateTime expectedExpiration) {
+        long refreshDelay = super.computeNextRefreshDelay(expectedExpiration);
+        lastNextRefreshDelay = signingCertificateExpiry.get()
+                .map(expiry -> expiry.getMillis() - DateTime.now().getMillis() - getMinRefreshDelay())
+                .map(delayBeforeExpiry -> Math.min(refreshDelay, Math.max(delayBeforeExpiry, getMinRefreshDelay())))
+                .orElse(refreshDelay);
+        return lastNextRefreshDelay;
+    }
+
+    @Override
+    protected XMLObject unmarshallMetadata(InputStream metadataInput) throws UnmarshallingException {
+        long start = System.nanoTime();
+        try {
+            return metrics.time("metadata.unmarshal", () -> super.unmarshallMetadata(metadataInput));
+        } finally {
+            lastUnmarshalNanos = System.nanoTime() - start;
+        }
+    }
+
+    /*
+     Digests are taken here, while the DOM the metadata was unmarshalled from is still attached to it, rather than
+     after the refresh when the DOM may have been released and each EntityDescriptor would have to be marshalled
+     again. They are only needed to tell refresh listeners what changed, so are skipped when there are none.
+     */
+    @Override
+    protected XMLObject filterMetadata(XMLObject metadata) throws FilterException {
+        long start = System.nanoTime();
+        XMLObject filteredMetadata;
+        try {
+            filteredMetadata = metrics.time("metadata.filter", () -> super.filterMetadata(metadata));
+        } finally {
+            lastFilterNanos = System.nanoTime() - start;
+        }
+
+        List<EntityDescriptor> entityDescriptors = entityDescriptors(filteredMetadata);
+        filteredEntityCount = entityDescriptors.size();
+        Map<String, DateTime> validUntils = new HashMap<>();
+        entityDescriptors.forEach(entityDescriptor -> validUntils.putIfAbsent(entityDescriptor.getEntityID(), CompactEntityDescriptor.effectiveValidUntil(entityDescriptor)));
+        filteredEntityValidUntils = Collections.unmodifiableMap(validUntils);
+        filteredEntityDescriptorDigests = refreshListeners.isEmpty() ? ImmutableMap.of() : digestEntityDescriptors(entityDescriptors);
+        if (compactMetadataEnabled) {
+            try {
+                filteredCompactMetadata = CompactMetadata.from(entityDescriptors);
+            } catch (ResolverException e) {
+                throw new FilterException("Unable to build compact metadata", e);
+            }
+            dropCompactedParts(filteredMetadata);
+        }
+        return filteredMetadata;
+    }
+
+    @Override
+    public synchronized void refresh() throws ResolverException {
+        // A shared timer cannot cancel refreshes that were already scheduled before this resolver was destroyed
+        if (isDestroyed()) {
+            return;
+        }
+        SamlEvents.MetadataRefresh event = SamlEvents.startMetadataRefresh();
+        lastFetchSize = 0;
+        lastFetchNanos = 0;
+        lastUnmarshalNanos = 0;
+        lastFilterNanos = 0;
+        MetadataRefreshEvent refreshEvent = null;
+        try {
+            filteredEntityDescriptorDigests = null;
+            filteredCompactMetadata = null;
+            super.refresh();
+
+            Map<String, String> previousDigests = entityDescriptorDigests;
+            // Nothing was filtered if the metadata had already expired, in which case the previous metadata is kept
+            if (filteredEntityDescriptorDigests != null) {
+                entityDescriptorDigests = filteredEntityDescriptorDigests;
+                entityCount = filteredEntityCount;
+                entityValidUntils = filteredEntityValidUntils;
+                filteredEntityDescriptorDigests = null;
+            }
+            if (filteredCompactMetadata != null) {
+                compactMetadata = filteredCompactMetadata;
+                filteredCompactMetadata = null;
+            }
+            releaseMetadataDOM(compactMetadataEnabled ? DomReleasePolicy.RELEASE_AFTER_VALIDATION : domReleasePolicy);
+            refreshEvent = MetadataRefreshEvent.between(previousDigests, entityDescriptorDigests);
+            recordRefreshStatistics();
+            lastSuccessfulRefresh = DateTime.now();
+            lastRefreshError = null;
+            notifyRefreshListeners(refreshEvent);
+        } catch (ResolverException | RuntimeException e) {
+            lastRefreshError = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            notifyRefreshFailed(e);
+            throw e;
+        } finally {
+            event.complete(
+                    getMetadataIdentifier(),
+                    lastFetchSize,
+                    entityCount,
+                    refreshEvent == null ? 0 : refreshEvent.getChangedEntityIds().size(),
+                    refreshEvent == null ? SamlEvents.FAILURE : SamlEvents.SUCCESS);
+        }
+    }
+
+    private void recordRefreshStatistics() {
+        MetadataRefreshStatistics statistics = new MetadataRefreshStatistics(
+                DateTime.now(),
+                lastFetchSize,
+                TimeUnit.NANOSECONDS.toMillis(lastFetchNanos),
+                TimeUnit.NANOSECONDS.toMillis(lastUnmarshalNanos),
+                TimeUnit.NANOSECONDS.toMillis(lastFilterNanos),
+                getMetadataFilter() instanceof InstrumentedMetadataFilterChain ?
+                        ((InstrumentedMetadataFilterChain) getMetadataFilter()).getLastFilterDurationsMillis() : Collections.emptyMap(),
+                entityCount,
+                lastNextRefreshDelay);
+        metrics.update("metadata.fetch.bytes", statistics.getDownloadBytes());
+        metrics.update("metadata.entities", statistics.getEntityCount());
+        metrics.update("metadata.next-refresh-delay", statistics.getNextRefreshDelayMillis());
+        lastRefreshStatistics = statistics;
+    }
+
+    private static List<EntityDescriptor> entityDescriptors(XMLObject metadata) {
+        List<EntityDescriptor> entityDescriptors = new ArrayList<>();
+        if (metadata instanceof EntityDescriptor) {
+            entityDescriptors.add((EntityDescriptor) metadata);
+        } else if (metadata instanceof EntitiesDescriptor) {
+            EntitiesDescriptor entitiesDescriptor = (EntitiesDescriptor) metadata;
+            entityDescriptors.addAll(entitiesDescriptor.getEntityDescriptors());
+            entitiesDescriptor.getEntitiesDescriptors().forEach(child -> entityDescriptors.addAll(entityDescriptors(child)));
+        }
+        return entityDescriptors;
+    }
+
+    /*
+     Everything the compact metadata holds in its own form, or that is not needed once the metadata has been
+     validated, so that the tree the resolver indexes is left with little more than entity ids, roles and endpoints.
+     */
+    private static void dropCompactedParts(XMLObject metadata) {
+        if (metadata instanceof EntitiesDescriptor) {
+            EntitiesDescriptor entitiesDescriptor = (EntitiesDescriptor) metadata;
+            entitiesDescriptor.setSignature(null);
+            entitiesDescriptor.getEntitiesDescriptors().forEach(JerseyClientMetadataResolver::dropCompactedParts);
+            entitiesDescriptor.getEntityDescriptors().forEach(JerseyClientMetadataResolver::dropCompactedParts);
+        } else if (metadata instanceof EntityDescriptor) {
+            EntityDescriptor entityDescriptor = (EntityDescriptor) metadata;
+            entityDescriptor.setSignature(null);
+            entityDescriptor.setOrganization(null);
+            entityDescriptor.getContactPersons().clear();
+            entityDescriptor.getAdditionalMetadataLocations().clear();
+            for (RoleDescriptor roleDescriptor : entityDescriptor.getRoleDescriptors()) {
+                roleDescriptor.setSignature(null);
+                roleDescriptor.setOrganization(null);
+                roleDescriptor.getContactPersons().clear();
+                roleDescriptor.getKeyDescriptors().clear();
+            }
+        }
+    }
+
+    private static Map<String, String> digestEntityDescriptors(List<EntityDescriptor> entityDescriptors) throws FilterException {
+        Map<String, String> digests = new HashMap<>();
+        for (EntityDescriptor entityDescriptor : entityDescriptors) {
+            try {
+                Element entityDescriptorElement = entityDescriptor.getDOM();
+                // Only when a filter has modified the EntityDescriptor and dropped its DOM
+                boolean marshalled = entityDescriptorElement == null;
+                if (marshalled) {
+                    entityDescriptorElement = XMLObjectSupport.marshall(entityDescriptor);
+                }
+                String serializedEntityDescriptor = SerializeSupport.nodeToString(entityDescriptorElement);
+                digests.put(entityDescriptor.getEntityID(), Hashing.sha256().hashString(serializedEntityDescriptor, StandardCharsets.UTF_8).toString());
+                if (marshalled) {
+                    entityDescriptor.releaseDOM();
+                    entityDescriptor.releaseChildrenDOM(true);
+                }
+            } catch (MarshallingException e) {
+                throw new FilterException("Unable to digest EntityDescriptor for " + entityDescriptor.getEntityID(), e);
+            }
+        }
+        return ImmutableMap.copyOf(digests);
+    }
+
+    private void releaseMetadataDOM(DomReleasePolicy policy) {
+        if (policy == DomReleasePolicy.RETAIN) {
+            return;
+        }
+        Set<XMLObject> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (EntityDescriptor entityDescriptor : this) {
+            XMLObject root = entityDescriptor;
+            while (root.getParent() != null) {
+                root = root.getParent();
+            }
+            roots.add(root);
+        }
+        roots.forEach(policy::apply);
+    }
+
+    private void notifyRefreshListeners(MetadataRefreshEvent event) {
+        for (MetadataRefreshListener refreshListener : refreshListeners) {
+            try {
+                refreshListener.onRefresh(event);
+            } catch (RuntimeException e) {
+                LOG.error("Metadata refresh listener failed for " + getMetadataIdentifier(), e);
+            }
+        }
+    }
+
+    private void notifyRefreshFailed(Exception cause) {
+        for (MetadataRefreshListener refreshListener : refreshListeners) {
+            try {
+                refreshListener.onRefreshFailed(cause);
+            } catch (RuntimeException e) {
+                LOG.error("Metadata refresh listener failed for " + getMetadataIdentifier(), e);
+            }
+        }
+    }
+
     @Override
     protected String getMetadataIdentifier() {
         return metadataUri.toString();
@@ -23,6 +394,33 @@ public class JerseyClientMetadataResolver extends AbstractReloadingMetadataResol
 
     @Override
     protected byte[] fetchMetadata() {
-        return client.target(metadataUri).request().get(String.class).getBytes();
+        long start = System.nanoTime();
+        byte[] metadata = metrics.time("metadata.fetch", () -> download().getBytes());
+        lastFetchNanos = System.nanoTime() - start;
+        lastFetchSize = metadata.length;
+        return metadata;
+    }
+
+    private String download() {
+        if (fetchTimeoutMillis == 0) {
+            return client.target(metadataUri).request().get(String.class);
+        }
+
+        Future<String> download = client.target(metadataUri).request().async().get(String.class);
+        try {
+            return download.get(fetchTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            download.cancel(true);
+            throw new ProcessingException("Gave up fetching metadata from " + metadataUri + " after " + fetchTimeoutMillis + "ms", e);
+        } catch (InterruptedException e) {
+            download.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted while fetching metadata from " + metadataUri, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ProcessingException(e.getCause());
+        }
     }
 }
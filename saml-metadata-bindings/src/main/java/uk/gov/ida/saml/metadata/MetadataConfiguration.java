@@ -1,5 +1,6 @@
 package uk.gov.ida.saml.metadata;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.client.JerseyClientConfiguration;
 
 import java.net.URI;
@@ -26,6 +27,10 @@ public abstract class MetadataConfiguration implements MetadataResolverConfigura
     private String jerseyClientName;
     private String hubFederationId;
 
+    /* Used to set {@link uk.gov.ida.saml.metadata.JerseyClientMetadataResolver#setCompactMetadataEnabled(boolean)} */
+    @JsonProperty
+    private boolean compactMetadata = false;
+
     public MetadataConfiguration(URI uri,
         Long minRefreshDelay,
         Long maxRefreshDelay,
@@ -77,4 +82,13 @@ public abstract class MetadataConfiguration implements MetadataResolverConfigura
     public String getHubFederationId() {
         return hubFederationId;
     }
+
+    @Override
+    public boolean isCompactMetadata() {
+        return compactMetadata;
+    }
+
+    void setCompactMetadata(boolean compactMetadata) {
+        this.compactMetadata = compactMetadata;
+    }
 }
@@ -2,15 +2,16 @@ package uk.gov.ida.saml.metadata;
 
 import com.codahale.metrics.health.HealthCheck;
 import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
 import org.opensaml.core.criterion.EntityIdCriterion;
 import org.opensaml.saml.metadata.resolver.MetadataResolver;
 import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import uk.gov.ida.saml.metadata.domain.CompactEntityDescriptor;
+import uk.gov.ida.saml.metadata.domain.CompactMetadata;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-
-import static com.codahale.metrics.health.HealthCheck.Result.healthy;
-import static com.codahale.metrics.health.HealthCheck.Result.unhealthy;
+import java.util.Optional;
 
 public class MetadataHealthCheck extends HealthCheck {
     private final MetadataResolver metadataResolver;
@@ -38,11 +39,25 @@ public class MetadataHealthCheck extends HealthCheck {
 
     @Override
     protected Result check() throws Exception {
+        Optional<JerseyClientMetadataResolver> jerseyClientMetadataResolver = metadataResolver instanceof JerseyClientMetadataResolver ?
+                Optional.of((JerseyClientMetadataResolver) metadataResolver) : Optional.empty();
+
+        ResultBuilder result = canResolveExpectedEntity(jerseyClientMetadataResolver.flatMap(JerseyClientMetadataResolver::getCompactMetadata)) ?
+                Result.builder().healthy() :
+                Result.builder().unhealthy().withMessage("Could not load: " + expectedEntityId + " from the metadata provider");
+        jerseyClientMetadataResolver
+                .flatMap(JerseyClientMetadataResolver::getLastRefreshStatistics)
+                .ifPresent(statistics -> result.withDetail("lastRefresh", statistics.toDetails()));
+        return result.build();
+    }
+
+    private boolean canResolveExpectedEntity(Optional<CompactMetadata> compactMetadata) throws ResolverException {
+        if (compactMetadata.isPresent()) {
+            return compactMetadata.get().getEntityDescriptor(expectedEntityId).filter(CompactEntityDescriptor::isValid).isPresent();
+        }
+
         CriteriaSet criteria = new CriteriaSet(new EntityIdCriterion(expectedEntityId));
         EntityDescriptor entityDescriptor = metadataResolver.resolveSingle(criteria);
-        if (entityDescriptor != null) {
-            return healthy();
-        }
-        return unhealthy("Could not load: " + expectedEntityId + " from the metadata provider");
+        return entityDescriptor != null;
     }
 }
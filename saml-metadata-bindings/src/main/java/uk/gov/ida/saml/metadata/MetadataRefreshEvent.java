@@ -0,0 +1,66 @@
+package uk.gov.ida.saml.metadata;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The entities that changed between two successful loads of some metadata. Each entity is compared by a digest of
+ * its EntityDescriptor, so an entity is only reported as modified when its descriptor actually changed.
+ */
+public class MetadataRefreshEvent {
+
+    private final Set<String> addedEntityIds;
+    private final Set<String> removedEntityIds;
+    private final Set<String> modifiedEntityIds;
+
+    public MetadataRefreshEvent(Set<String> addedEntityIds, Set<String> removedEntityIds, Set<String> modifiedEntityIds) {
+        this.addedEntityIds = ImmutableSet.copyOf(addedEntityIds);
+        this.removedEntityIds = ImmutableSet.copyOf(removedEntityIds);
+        this.modifiedEntityIds = ImmutableSet.copyOf(modifiedEntityIds);
+    }
+
+    /**
+     * @param previousDigests EntityDescriptor digests by entity id before the refresh
+     * @param currentDigests EntityDescriptor digests by entity id after the refresh
+     */
+    public static MetadataRefreshEvent between(Map<String, String> previousDigests, Map<String, String> currentDigests) {
+        return new MetadataRefreshEvent(
+                Sets.difference(currentDigests.keySet(), previousDigests.keySet()),
+                Sets.difference(previousDigests.keySet(), currentDigests.keySet()),
+                Sets.filter(Sets.intersection(previousDigests.keySet(), currentDigests.keySet()),
+                        entityId -> !Objects.equals(previousDigests.get(entityId), currentDigests.get(entityId))));
+    }
+
+    public Set<String> getAddedEntityIds() {
+        return addedEntityIds;
+    }
+
+    public Set<String> getRemovedEntityIds() {
+        return removedEntityIds;
+    }
+
+    public Set<String> getModifiedEntityIds() {
+        return modifiedEntityIds;
+    }
+
+    public Set<String> getChangedEntityIds() {
+        return ImmutableSet.<String>builder()
+                .addAll(addedEntityIds)
+                .addAll(removedEntityIds)
+                .addAll(modifiedEntityIds)
+                .build();
+    }
+
+    public boolean isEmpty() {
+        return addedEntityIds.isEmpty() && removedEntityIds.isEmpty() && modifiedEntityIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MetadataRefreshEvent{added=%s, removed=%s, modified=%s}", addedEntityIds, removedEntityIds, modifiedEntityIds);
+    }
+}
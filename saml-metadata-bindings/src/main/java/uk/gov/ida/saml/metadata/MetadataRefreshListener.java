@@ -0,0 +1,16 @@
+package uk.gov.ida.saml.metadata;
+
+/**
+ * Notified each time new metadata has been successfully loaded, with the entities that were added, removed or
+ * modified, so that anything derived from those entities' old metadata can be discarded.
+ */
+@FunctionalInterface
+public interface MetadataRefreshListener {
+    void onRefresh(MetadataRefreshEvent event);
+
+    /**
+     * Notified when a refresh fails. The previously loaded metadata, if any, is still in use.
+     */
+    default void onRefreshFailed(Exception cause) {
+    }
+}
@@ -0,0 +1,171 @@
+package uk.gov.ida.saml.metadata;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the background refreshes of any number of metadata resolvers on a single bounded pool of threads.
+ *
+ * OpenSAML's {@link org.opensaml.saml.metadata.resolver.impl.AbstractReloadingMetadataResolver} will only schedule
+ * its refreshes on a {@link Timer}, so every resolver is given the same {@link Timer} from {@link #createTimer()},
+ * which hands its tasks over to the shared executor rather than running them on a thread of its own. Constructing a
+ * {@link Timer} always starts a thread, so the one timer is created when first asked for and its thread stopped
+ * straight away.
+ *
+ * The pool stays at the size it was given however many resolvers share it. So that a country whose metadata is slow
+ * to download cannot hold up the refreshes of the others for long, resolvers from
+ * {@link uk.gov.ida.saml.metadata.factories.MetadataResolverFactory} give up on a download after
+ * {@link #getFetchTimeoutMillis()}.
+ */
+public class MetadataRefreshScheduler {
+
+    public static final int DEFAULT_POOL_SIZE = 2;
+    public static final double DEFAULT_MAX_JITTER = 0.1;
+    public static final long DEFAULT_FETCH_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final MetadataRefreshScheduler DEFAULT = new MetadataRefreshScheduler(DEFAULT_POOL_SIZE, DEFAULT_MAX_JITTER);
+
+    private final ScheduledExecutorService executor;
+    private final double maxJitter;
+    private final long fetchTimeoutMillis;
+    private Timer timer;
+
+    public MetadataRefreshScheduler(int poolSize, double maxJitter) {
+        this(poolSize, maxJitter, DEFAULT_FETCH_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param poolSize the number of threads that run refreshes, however many resolvers there are
+     * @param fetchTimeoutMillis the longest a resolver waits for its metadata to download, or 0 to leave it to the
+     *                           client's own timeouts
+     */
+    public MetadataRefreshScheduler(int poolSize, double maxJitter, long fetchTimeoutMillis) {
+        this(createExecutor(poolSize), maxJitter, fetchTimeoutMillis);
+    }
+
+    public MetadataRefreshScheduler(ScheduledExecutorService executor, double maxJitter) {
+        this(executor, maxJitter, DEFAULT_FETCH_TIMEOUT_MILLIS);
+    }
+
+    public MetadataRefreshScheduler(ScheduledExecutorService executor, double maxJitter, long fetchTimeoutMillis) {
+        if (maxJitter < 0 || maxJitter >= 1) {
+            throw new IllegalArgumentException("maxJitter must be in the range [0, 1): " + maxJitter);
+        }
+        if (fetchTimeoutMillis < 0) {
+            throw new IllegalArgumentException("fetchTimeoutMillis must not be negative: " + fetchTimeoutMillis);
+        }
+        this.executor = executor;
+        this.maxJitter = maxJitter;
+        this.fetchTimeoutMillis = fetchTimeoutMillis;
+    }
+
+    public static MetadataRefreshScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return the timer to give a resolver; every resolver shares it, and cancelling it has no effect
+     */
+    public synchronized Timer createTimer() {
+        if (timer == null) {
+            timer = new ExecutorBackedTimer();
+        }
+        return timer;
+    }
+
+    public long getFetchTimeoutMillis() {
+        return fetchTimeoutMillis;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /*
+     Refreshes are only ever brought forward, never pushed back, so that a resolver still refreshes before the
+     next refresh time OpenSAML computed from the metadata validUntil/cacheDuration.
+     */
+    long applyJitter(long delay) {
+        if (delay <= 0 || maxJitter == 0) {
+            return Math.max(delay, 0);
+        }
+        long maxReduction = (long) (delay * maxJitter);
+        return delay - (maxReduction == 0 ? 0 : ThreadLocalRandom.current().nextLong(maxReduction + 1));
+    }
+
+    private static ScheduledExecutorService createExecutor(int poolSize) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                poolSize,
+                new ThreadFactoryBuilder().setNameFormat("metadata-refresh-%d").setDaemon(true).build());
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private class ExecutorBackedTimer extends Timer {
+
+        private ExecutorBackedTimer() {
+            super("metadata-refresh-timer", true);
+            // Stop the thread the base class started; every task is run by the executor instead.
+            super.cancel();
+        }
+
+        @Override
+        public void schedule(TimerTask task, long delay) {
+            executor.schedule(task, applyJitter(delay), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void schedule(TimerTask task, Date time) {
+            schedule(task, time.getTime() - System.currentTimeMillis());
+        }
+
+        /*
+         Jitter is only applied to the first run of a periodic task; the period itself is kept so that runs do not
+         drift further and further ahead of it.
+         */
+        @Override
+        public void schedule(TimerTask task, long delay, long period) {
+            checkPeriod(period);
+            executor.scheduleWithFixedDelay(task, applyJitter(delay), period, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void schedule(TimerTask task, Date firstTime, long period) {
+            schedule(task, firstTime.getTime() - System.currentTimeMillis(), period);
+        }
+
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, long delay, long period) {
+            checkPeriod(period);
+            executor.scheduleAtFixedRate(task, applyJitter(delay), period, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, Date firstTime, long period) {
+            scheduleAtFixedRate(task, firstTime.getTime() - System.currentTimeMillis(), period);
+        }
+
+        private void checkPeriod(long period) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("Non-positive period: " + period);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            // The timer and executor are shared by every resolver, so one resolver being destroyed must not stop them.
+        }
+
+        @Override
+        public int purge() {
+            return 0;
+        }
+    }
+}
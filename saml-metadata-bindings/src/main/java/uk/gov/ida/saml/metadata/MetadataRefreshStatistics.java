@@ -0,0 +1,96 @@
+package uk.gov.ida.saml.metadata;
+
+import com.google.common.collect.ImmutableMap;
+import org.joda.time.DateTime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What happened on the most recent refresh of a {@link JerseyClientMetadataResolver}: how much metadata was
+ * downloaded, how long each phase took and when the next refresh is due. Durations for phases that were skipped,
+ * for example because the downloaded metadata had not changed, are zero.
+ */
+public final class MetadataRefreshStatistics {
+
+    private final DateTime refreshedAt;
+    private final long downloadBytes;
+    private final long fetchMillis;
+    private final long unmarshalMillis;
+    private final long filterMillis;
+    private final Map<String, Long> filterMillisByStage;
+    private final int entityCount;
+    private final long nextRefreshDelayMillis;
+
+    public MetadataRefreshStatistics(
+            DateTime refreshedAt,
+            long downloadBytes,
+            long fetchMillis,
+            long unmarshalMillis,
+            long filterMillis,
+            Map<String, Long> filterMillisByStage,
+            int entityCount,
+            long nextRefreshDelayMillis) {
+        this.refreshedAt = refreshedAt;
+        this.downloadBytes = downloadBytes;
+        this.fetchMillis = fetchMillis;
+        this.unmarshalMillis = unmarshalMillis;
+        this.filterMillis = filterMillis;
+        this.filterMillisByStage = ImmutableMap.copyOf(filterMillisByStage);
+        this.entityCount = entityCount;
+        this.nextRefreshDelayMillis = nextRefreshDelayMillis;
+    }
+
+    public DateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    public long getDownloadBytes() {
+        return downloadBytes;
+    }
+
+    public long getFetchMillis() {
+        return fetchMillis;
+    }
+
+    public long getUnmarshalMillis() {
+        return unmarshalMillis;
+    }
+
+    public long getFilterMillis() {
+        return filterMillis;
+    }
+
+    public Map<String, Long> getFilterMillisByStage() {
+        return filterMillisByStage;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public long getNextRefreshDelayMillis() {
+        return nextRefreshDelayMillis;
+    }
+
+    /**
+     * @return these statistics as health check details
+     */
+    public Map<String, Object> toDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("refreshedAt", refreshedAt.toString());
+        details.put("downloadBytes", downloadBytes);
+        details.put("fetchMillis", fetchMillis);
+        details.put("unmarshalMillis", unmarshalMillis);
+        details.put("filterMillis", filterMillis);
+        details.put("filterMillisByStage", filterMillisByStage);
+        details.put("entityCount", entityCount);
+        details.put("nextRefreshDelayMillis", nextRefreshDelayMillis);
+        return details;
+    }
+
+    @Override
+    public String toString() {
+        return "MetadataRefreshStatistics" + toDetails();
+    }
+}
@@ -3,14 +3,12 @@ package uk.gov.ida.saml.metadata;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.util.Base64;
 import uk.gov.ida.saml.metadata.exception.TrustAnchorConfigException;
+import uk.gov.ida.saml.security.CertificateInterner;
 
 import javax.ws.rs.core.UriBuilder;
-import java.io.ByteArrayInputStream;
 import java.net.URI;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,10 +17,11 @@ import static uk.gov.ida.saml.metadata.ResourceEncoder.entityIdAsResource;
 public class MetadataResolverConfigBuilder {
 
     private KeyStoreLoader keyStoreLoader = new KeyStoreLoader();
+    private CertificateInterner certificateInterner = CertificateInterner.getDefault();
 
     public MetadataResolverConfiguration createMetadataResolverConfiguration(JWK trustAnchor, EidasMetadataConfiguration configuration)
             throws CertificateException{
-        return new TrustStoreBackedMetadataConfiguration(
+        TrustStoreBackedMetadataConfiguration metadataConfiguration = new TrustStoreBackedMetadataConfiguration(
                 fullUri(configuration.getMetadataSourceUri(), trustAnchor.getKeyID()),
                 configuration.getMinRefreshDelay(),
                 configuration.getMaxRefreshDelay(),
@@ -32,6 +31,8 @@ public class MetadataResolverConfigBuilder {
                 null,
                 trustStoreConfig(trustAnchor)
         );
+        metadataConfiguration.setCompactMetadata(configuration.isCompactMetadata());
+        return metadataConfiguration;
     }
 
     private URI fullUri(URI sourceUri, String entityId) {
@@ -42,14 +43,12 @@ public class MetadataResolverConfigBuilder {
     }
 
     private DynamicTrustStoreConfiguration trustStoreConfig(JWK trustAnchor) throws CertificateException {
-        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
         List<Certificate> certs = trustAnchor.getX509CertChain()
                 .stream()
                 .map(Base64::decode)
-                .map(ByteArrayInputStream::new)
-                .map(certStream -> {
+                .map(derValue -> {
                     try { //Java streams don't allow throwing checked exceptions
-                        return (X509Certificate) certificateFactory.generateCertificate(certStream);
+                        return certificateInterner.intern(derValue);
                     } catch (CertificateException e) {
                         throw new TrustAnchorConfigException("Certificate in Trust Anchor x5c is not a valid x509", e);
                     }
@@ -31,4 +31,12 @@ public interface MetadataResolverConfiguration {
     String getJerseyClientName();
 
     String getHubFederationId();
+
+    /**
+     * Whether to keep a compact projection of the metadata and release its DOM after each refresh, see
+     * {@link JerseyClientMetadataResolver#setCompactMetadataEnabled(boolean)}.
+     */
+    default boolean isCompactMetadata() {
+        return false;
+    }
 }
@@ -23,4 +23,12 @@ public interface MetadataResolverRepository {
     void refresh();
 
     List<X509Certificate> sortCertsByDate(JWK trustAnchor);
+
+    /**
+     * @return the health of every metadata resolver, if this repository keeps it up to date as it refreshes, so that
+     *         reading it never resolves anything
+     */
+    default Optional<EidasMetadataHealth> getHealth() {
+        return Optional.empty();
+    }
 }
@@ -11,16 +11,15 @@ import org.opensaml.xmlsec.keyinfo.impl.provider.InlineX509DataProvider;
 import org.opensaml.xmlsec.signature.support.SignatureTrustEngine;
 import org.opensaml.xmlsec.signature.support.SignatureValidationParametersCriterion;
 import org.opensaml.xmlsec.signature.support.impl.PKIXSignatureTrustEngine;
+import uk.gov.ida.saml.security.CertificateInterner;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
-import java.io.ByteArrayInputStream;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.Security;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -68,11 +67,11 @@ public class PKIXSignatureValidationFilterProvider implements Provider<Signature
         ArrayList<String> aliases;
         BasicPKIXValidationInformation basicPKIXValidationInformation = null;
         try {
-            CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+            CertificateInterner certificateInterner = CertificateInterner.getDefault();
             aliases = Collections.list(metadataTrustStore.aliases());
             ArrayList<X509Certificate> trustAnchors = new ArrayList<>();
             for (String alias : aliases) {
-                trustAnchors.add((X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(metadataTrustStore.getCertificate(alias).getEncoded())));
+                trustAnchors.add(certificateInterner.intern(metadataTrustStore.getCertificate(alias).getEncoded()));
             }
             basicPKIXValidationInformation = new BasicPKIXValidationInformation(trustAnchors, Collections.emptyList(), CERTIFICATE_CHAIN_DEPTH);
         } catch (KeyStoreException | CertificateException e) {
@@ -0,0 +1,61 @@
+package uk.gov.ida.saml.metadata;
+
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.metadata.resolver.filter.FilterException;
+import org.opensaml.saml.metadata.resolver.filter.MetadataFilter;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times another metadata filter as {@code metadata.filter.<filter class>}, with the role appended for a
+ * {@link CertificateChainValidationFilter} so that hub and IDP certificate validation are timed separately.
+ */
+public class TimedMetadataFilter implements MetadataFilter {
+
+    private final MetadataFilter delegate;
+    private final SamlMetrics metrics;
+    private final String stage;
+    private volatile long lastDurationNanos = 0;
+
+    public TimedMetadataFilter(MetadataFilter delegate, SamlMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.stage = stageName(delegate);
+    }
+
+    public MetadataFilter getDelegate() {
+        return delegate;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * @return how long the most recent call to {@link #filter(XMLObject)} took
+     */
+    public long getLastDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastDurationNanos);
+    }
+
+    @Nullable
+    @Override
+    public XMLObject filter(@Nullable XMLObject metadata) throws FilterException {
+        long start = System.nanoTime();
+        try {
+            return metrics.time(stage, () -> delegate.filter(metadata));
+        } finally {
+            lastDurationNanos = System.nanoTime() - start;
+        }
+    }
+
+    private static String stageName(MetadataFilter filter) {
+        String stage = "metadata.filter." + filter.getClass().getSimpleName();
+        if (filter instanceof CertificateChainValidationFilter) {
+            return stage + "." + ((CertificateChainValidationFilter) filter).getRole().getLocalPart();
+        }
+        return stage;
+    }
+}
@@ -7,13 +7,17 @@ import io.dropwizard.setup.Environment;
 import net.shibboleth.utilities.java.support.component.ComponentInitializationException;
 import org.opensaml.saml.metadata.resolver.MetadataResolver;
 import org.opensaml.saml.security.impl.MetadataCredentialResolver;
+import org.opensaml.security.credential.CredentialResolver;
 import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+import uk.gov.ida.saml.metadata.JerseyClientMetadataResolver;
 import uk.gov.ida.saml.metadata.MetadataHealthCheck;
 import uk.gov.ida.saml.metadata.MetadataResolverConfiguration;
 import uk.gov.ida.saml.metadata.exception.MetadataResolverCreationException;
 import uk.gov.ida.saml.metadata.factories.CredentialResolverFactory;
 import uk.gov.ida.saml.metadata.factories.DropwizardMetadataResolverFactory;
+import uk.gov.ida.saml.metadata.factories.KnownIssuerValidatorFactory;
 import uk.gov.ida.saml.metadata.factories.MetadataSignatureTrustEngineFactory;
+import uk.gov.ida.saml.security.validators.issuer.KnownIssuerValidator;
 
 import javax.annotation.Nullable;
 import javax.inject.Provider;
@@ -21,10 +25,12 @@ import java.util.Optional;
 
 public class MetadataResolverBundle<T extends Configuration> implements io.dropwizard.ConfiguredBundle<T> {
     private final MetadataConfigurationExtractor<T> configExtractor;
-    private MetadataResolver metadataResolver;
+    private JerseyClientMetadataResolver metadataResolver;
     private DropwizardMetadataResolverFactory dropwizardMetadataResolverFactory = new DropwizardMetadataResolverFactory();
     private ExplicitKeySignatureTrustEngine signatureTrustEngine;
     private MetadataCredentialResolver credentialResolver;
+    private CredentialResolver cachingCredentialResolver;
+    private KnownIssuerValidator knownIssuerValidator;
     private final boolean validateSignatures;
 
     public MetadataResolverBundle(MetadataConfigurationExtractor<T> configExtractor) {
@@ -42,7 +48,10 @@ public class MetadataResolverBundle<T extends Configuration> implements io.dropw
             metadataResolver = dropwizardMetadataResolverFactory.createMetadataResolver(environment, mc, validateSignatures);
             try {
                 signatureTrustEngine = new MetadataSignatureTrustEngineFactory().createSignatureTrustEngine(metadataResolver);
-                credentialResolver = new CredentialResolverFactory().create(metadataResolver);
+                CredentialResolverFactory credentialResolverFactory = new CredentialResolverFactory();
+                credentialResolver = credentialResolverFactory.create(metadataResolver);
+                cachingCredentialResolver = credentialResolverFactory.createCaching(metadataResolver);
+                knownIssuerValidator = new KnownIssuerValidatorFactory().create(metadataResolver);
             } catch (ComponentInitializationException e) {
                 throw new MetadataResolverCreationException(mc.getUri(), e.getMessage());
             }
@@ -87,6 +96,32 @@ public class MetadataResolverBundle<T extends Configuration> implements io.dropw
         return () -> credentialResolver;
     }
 
+    /**
+     * A credential resolver that remembers the credentials for each entity until the metadata is next refreshed,
+     * for use by callers such as {@code MetadataBackedEncryptionCredentialResolver} that resolve on every message.
+     */
+    @Nullable
+    public CredentialResolver getCachingCredentialResolver() {
+        return cachingCredentialResolver;
+    }
+
+    public Provider<CredentialResolver> getCachingCredentialResolverProvider() {
+        return () -> cachingCredentialResolver;
+    }
+
+    /**
+     * Rejects messages from issuers that are not in this metadata, forgetting the issuers it found unknown whenever
+     * a refresh adds an entity.
+     */
+    @Nullable
+    public KnownIssuerValidator getKnownIssuerValidator() {
+        return knownIssuerValidator;
+    }
+
+    public Provider<KnownIssuerValidator> getKnownIssuerValidatorProvider() {
+        return () -> knownIssuerValidator;
+    }
+
 
     public Module getMetadataModule() {
       return binder -> binder.bind(MetadataResolver.class).toProvider(getMetadataResolverProvider());
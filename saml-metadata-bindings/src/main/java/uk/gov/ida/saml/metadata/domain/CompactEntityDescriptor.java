@@ -0,0 +1,79 @@
+package uk.gov.ida.saml.metadata.domain;
+
+import com.google.common.collect.ImmutableList;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.joda.time.DateTime;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.common.TimeBoundSAMLObject;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.RoleDescriptor;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
+
+import javax.xml.namespace.QName;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+public final class CompactEntityDescriptor {
+
+    private final String entityId;
+    private final DateTime validUntil;
+    private final ImmutableList<CompactRoleDescriptor> roleDescriptors;
+
+    private CompactEntityDescriptor(String entityId, DateTime validUntil, ImmutableList<CompactRoleDescriptor> roleDescriptors) {
+        this.entityId = entityId;
+        this.validUntil = validUntil;
+        this.roleDescriptors = roleDescriptors;
+    }
+
+    static CompactEntityDescriptor from(EntityDescriptor entityDescriptor, KeyInfoCredentialResolver keyInfoCredentialResolver) throws ResolverException {
+        DateTime validUntil = effectiveValidUntil(entityDescriptor);
+        ImmutableList.Builder<CompactRoleDescriptor> roleDescriptors = ImmutableList.builder();
+        for (RoleDescriptor roleDescriptor : entityDescriptor.getRoleDescriptors()) {
+            roleDescriptors.add(CompactRoleDescriptor.from(entityDescriptor.getEntityID(), roleDescriptor, earliest(validUntil, roleDescriptor.getValidUntil()), keyInfoCredentialResolver));
+        }
+        return new CompactEntityDescriptor(entityDescriptor.getEntityID(), validUntil, roleDescriptors.build());
+    }
+
+    /**
+     * An EntityDescriptor is only valid while every EntitiesDescriptor it is nested in is, as when resolving against
+     * the metadata itself.
+     *
+     * @return the earliest validUntil of the entity descriptor and its ancestors, or null if none of them has one
+     */
+    public static DateTime effectiveValidUntil(EntityDescriptor entityDescriptor) {
+        DateTime validUntil = null;
+        for (XMLObject xmlObject = entityDescriptor; xmlObject != null; xmlObject = xmlObject.getParent()) {
+            if (xmlObject instanceof TimeBoundSAMLObject) {
+                validUntil = earliest(validUntil, ((TimeBoundSAMLObject) xmlObject).getValidUntil());
+            }
+        }
+        return validUntil;
+    }
+
+    private static DateTime earliest(DateTime first, DateTime second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null || first.isBefore(second) ? first : second;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * @return whether neither the entity nor any EntitiesDescriptor it was nested in has passed its validUntil
+     */
+    public boolean isValid() {
+        return validUntil == null || validUntil.isAfterNow();
+    }
+
+    public List<CompactRoleDescriptor> getRoleDescriptors() {
+        return roleDescriptors;
+    }
+
+    public List<CompactRoleDescriptor> getRoleDescriptors(QName role) {
+        return roleDescriptors.stream().filter(roleDescriptor -> roleDescriptor.isRole(role)).collect(toList());
+    }
+}
@@ -0,0 +1,56 @@
+package uk.gov.ida.saml.metadata.domain;
+
+import com.google.common.collect.ImmutableMap;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.xmlsec.config.impl.DefaultSecurityConfigurationBootstrap;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An immutable projection of filtered metadata holding only entity ids, roles, endpoints by binding and parsed
+ * credentials. It is a small fraction of the size of the XMLObject tree and DOM it was built from, and lookups
+ * against it do not reparse KeyInfo.
+ */
+public final class CompactMetadata {
+
+    private static final CompactMetadata EMPTY = new CompactMetadata(ImmutableMap.of());
+
+    private final ImmutableMap<String, CompactEntityDescriptor> entityDescriptors;
+
+    private CompactMetadata(ImmutableMap<String, CompactEntityDescriptor> entityDescriptors) {
+        this.entityDescriptors = entityDescriptors;
+    }
+
+    public static CompactMetadata empty() {
+        return EMPTY;
+    }
+
+    public static CompactMetadata from(Iterable<EntityDescriptor> entityDescriptors) throws ResolverException {
+        KeyInfoCredentialResolver keyInfoCredentialResolver = DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver();
+        // Where an entity id appears more than once the first wins, as it does when resolving against the metadata itself
+        Map<String, CompactEntityDescriptor> compactEntityDescriptors = new LinkedHashMap<>();
+        for (EntityDescriptor entityDescriptor : entityDescriptors) {
+            if (!compactEntityDescriptors.containsKey(entityDescriptor.getEntityID())) {
+                compactEntityDescriptors.put(entityDescriptor.getEntityID(), CompactEntityDescriptor.from(entityDescriptor, keyInfoCredentialResolver));
+            }
+        }
+        return new CompactMetadata(ImmutableMap.copyOf(compactEntityDescriptors));
+    }
+
+    public Optional<CompactEntityDescriptor> getEntityDescriptor(String entityId) {
+        return Optional.ofNullable(entityDescriptors.get(entityId));
+    }
+
+    public Collection<CompactEntityDescriptor> getEntityDescriptors() {
+        return entityDescriptors.values();
+    }
+
+    public int size() {
+        return entityDescriptors.size();
+    }
+}
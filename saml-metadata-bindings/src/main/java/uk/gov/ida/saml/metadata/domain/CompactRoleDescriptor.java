@@ -0,0 +1,174 @@
+package uk.gov.ida.saml.metadata.domain;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.joda.time.DateTime;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.metadata.EncryptionMethod;
+import org.opensaml.saml.saml2.metadata.KeyDescriptor;
+import org.opensaml.saml.saml2.metadata.RoleDescriptor;
+import org.opensaml.saml.security.impl.SAMLMDCredentialContext;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.MutableCredential;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCriterion;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
+
+import javax.xml.namespace.QName;
+import java.util.List;
+
+/**
+ * The parts of a role descriptor needed once metadata has been loaded: which role it is, where its endpoints are
+ * for each binding, and its signing and encryption credentials already parsed from KeyInfo.
+ */
+public final class CompactRoleDescriptor {
+
+    private final QName elementName;
+    private final QName schemaType;
+    private final DateTime validUntil;
+    private final ImmutableListMultimap<String, Endpoint> endpointsByBinding;
+    private final ImmutableList<Credential> credentials;
+    private final ImmutableList<Credential> signingCredentials;
+    private final ImmutableList<Credential> encryptionCredentials;
+
+    private CompactRoleDescriptor(QName elementName,
+                                  QName schemaType,
+                                  DateTime validUntil,
+                                  ImmutableListMultimap<String, Endpoint> endpointsByBinding,
+                                  ImmutableList<Credential> credentials,
+                                  ImmutableList<Credential> signingCredentials,
+                                  ImmutableList<Credential> encryptionCredentials) {
+        this.elementName = elementName;
+        this.schemaType = schemaType;
+        this.validUntil = validUntil;
+        this.endpointsByBinding = endpointsByBinding;
+        this.credentials = credentials;
+        this.signingCredentials = signingCredentials;
+        this.encryptionCredentials = encryptionCredentials;
+    }
+
+    /**
+     * @param validUntil the earliest validUntil of the role descriptor and everything it is nested in
+     */
+    static CompactRoleDescriptor from(String entityId, RoleDescriptor roleDescriptor, DateTime validUntil, KeyInfoCredentialResolver keyInfoCredentialResolver) throws ResolverException {
+        ImmutableListMultimap.Builder<String, Endpoint> endpointsByBinding = ImmutableListMultimap.builder();
+        for (org.opensaml.saml.saml2.metadata.Endpoint endpoint : roleDescriptor.getEndpoints()) {
+            if (endpoint.getBinding() != null) {
+                endpointsByBinding.put(endpoint.getBinding(), new Endpoint(endpoint.getElementQName(), endpoint.getLocation(), endpoint.getResponseLocation()));
+            }
+        }
+
+        ImmutableList.Builder<Credential> credentials = ImmutableList.builder();
+        ImmutableList.Builder<Credential> signingCredentials = ImmutableList.builder();
+        ImmutableList.Builder<Credential> encryptionCredentials = ImmutableList.builder();
+        for (KeyDescriptor keyDescriptor : roleDescriptor.getKeyDescriptors()) {
+            if (keyDescriptor.getKeyInfo() == null) {
+                continue;
+            }
+            UsageType usage = keyDescriptor.getUse() != null ? keyDescriptor.getUse() : UsageType.UNSPECIFIED;
+            KeyDescriptor encryptionMethods = encryptionMethodsOf(keyDescriptor);
+            for (Credential credential : keyInfoCredentialResolver.resolve(new CriteriaSet(new KeyInfoCriterion(keyDescriptor.getKeyInfo())))) {
+                credential.getCredentialContextSet().add(new SAMLMDCredentialContext(encryptionMethods));
+                if (credential instanceof MutableCredential) {
+                    ((MutableCredential) credential).setEntityId(entityId);
+                    ((MutableCredential) credential).setUsageType(usage);
+                }
+                credentials.add(credential);
+                if (usage != UsageType.ENCRYPTION) {
+                    signingCredentials.add(credential);
+                }
+                if (usage != UsageType.SIGNING) {
+                    encryptionCredentials.add(credential);
+                }
+            }
+        }
+
+        return new CompactRoleDescriptor(
+                roleDescriptor.getElementQName(),
+                roleDescriptor.getSchemaType(),
+                validUntil,
+                endpointsByBinding.build(),
+                credentials.build(),
+                signingCredentials.build(),
+                encryptionCredentials.build());
+    }
+
+    /*
+     Credentials carry a SAMLMDCredentialContext, as they do when resolved by a MetadataCredentialResolver, so that
+     the EncryptionMethods the recipient advertises can be read from them. Its KeyDescriptor holds only those, rather
+     than holding on to the metadata the compact form replaces, and so has no role descriptor.
+     */
+    private static KeyDescriptor encryptionMethodsOf(KeyDescriptor keyDescriptor) {
+        KeyDescriptor encryptionMethods = (KeyDescriptor) XMLObjectSupport.buildXMLObject(KeyDescriptor.DEFAULT_ELEMENT_NAME);
+        encryptionMethods.setUse(keyDescriptor.getUse());
+        for (EncryptionMethod encryptionMethod : keyDescriptor.getEncryptionMethods()) {
+            EncryptionMethod algorithm = (EncryptionMethod) XMLObjectSupport.buildXMLObject(EncryptionMethod.DEFAULT_ELEMENT_NAME);
+            algorithm.setAlgorithm(encryptionMethod.getAlgorithm());
+            encryptionMethods.getEncryptionMethods().add(algorithm);
+        }
+        return encryptionMethods;
+    }
+
+    public boolean isRole(QName role) {
+        return role.equals(elementName) || role.equals(schemaType);
+    }
+
+    /**
+     * @return whether neither the role descriptor nor anything it was nested in has passed its validUntil
+     */
+    public boolean isValid() {
+        return validUntil == null || validUntil.isAfterNow();
+    }
+
+    public QName getElementName() {
+        return elementName;
+    }
+
+    public List<Endpoint> getEndpoints(String binding) {
+        return endpointsByBinding.get(binding);
+    }
+
+    public ImmutableListMultimap<String, Endpoint> getEndpointsByBinding() {
+        return endpointsByBinding;
+    }
+
+    /**
+     * @return the credentials that may be used for the given purpose, including those whose KeyDescriptor does not say
+     */
+    public List<Credential> getCredentials(UsageType usage) {
+        switch (usage) {
+            case SIGNING:
+                return signingCredentials;
+            case ENCRYPTION:
+                return encryptionCredentials;
+            default:
+                return credentials;
+        }
+    }
+
+    public static final class Endpoint {
+        private final QName elementName;
+        private final String location;
+        private final String responseLocation;
+
+        private Endpoint(QName elementName, String location, String responseLocation) {
+            this.elementName = elementName;
+            this.location = location;
+            this.responseLocation = responseLocation;
+        }
+
+        public QName getElementName() {
+            return elementName;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public String getResponseLocation() {
+            return responseLocation;
+        }
+    }
+}
@@ -1,19 +1,81 @@
 package uk.gov.ida.saml.metadata.factories;
 
 import net.shibboleth.utilities.java.support.component.ComponentInitializationException;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
 import org.opensaml.saml.metadata.resolver.MetadataResolver;
 import org.opensaml.saml.metadata.resolver.impl.PredicateRoleDescriptorResolver;
 import org.opensaml.saml.security.impl.MetadataCredentialResolver;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.CredentialResolver;
 import org.opensaml.xmlsec.config.impl.DefaultSecurityConfigurationBootstrap;
+import uk.gov.ida.saml.metadata.CompactMetadataCredentialResolver;
+import uk.gov.ida.saml.metadata.JerseyClientMetadataResolver;
+import uk.gov.ida.saml.metadata.domain.CompactMetadata;
+import uk.gov.ida.saml.security.CachingCredentialResolver;
+
+import java.util.Optional;
 
 public class CredentialResolverFactory {
+    /**
+     * When the metadata resolver keeps compact metadata, the key descriptors are gone from the metadata it resolves,
+     * so the credential resolver reads credentials from the compact metadata instead.
+     */
     public MetadataCredentialResolver create(MetadataResolver metadataResolver) throws ComponentInitializationException {
         PredicateRoleDescriptorResolver roleDescriptorResolver = new PredicateRoleDescriptorResolver(metadataResolver);
         roleDescriptorResolver.initialize();
-        MetadataCredentialResolver metadataCredentialResolver = new MetadataCredentialResolver();
+        Optional<CredentialResolver> compactMetadataCredentialResolver = compactMetadataCredentialResolver(metadataResolver);
+        MetadataCredentialResolver metadataCredentialResolver = compactMetadataCredentialResolver.isPresent() ?
+                new CompactMetadataBackedCredentialResolver(compactMetadataCredentialResolver.get()) : new MetadataCredentialResolver();
         metadataCredentialResolver.setRoleDescriptorResolver(roleDescriptorResolver);
         metadataCredentialResolver.setKeyInfoCredentialResolver(DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver());
         metadataCredentialResolver.initialize();
         return metadataCredentialResolver;
     }
+
+    /**
+     * Reads credentials from the compact metadata when the metadata resolver keeps it, otherwise caches credentials
+     * per entity, role and usage, until the entity changes or its metadata expires, when the metadata resolver tells
+     * us about refreshes, and otherwise falls back to an uncached resolver.
+     */
+    public CredentialResolver createCaching(MetadataResolver metadataResolver) throws ComponentInitializationException {
+        Optional<CredentialResolver> compactMetadataCredentialResolver = compactMetadataCredentialResolver(metadataResolver);
+        if (compactMetadataCredentialResolver.isPresent()) {
+            return compactMetadataCredentialResolver.get();
+        }
+
+        MetadataCredentialResolver metadataCredentialResolver = create(metadataResolver);
+        if (!(metadataResolver instanceof JerseyClientMetadataResolver)) {
+            return metadataCredentialResolver;
+        }
+        JerseyClientMetadataResolver jerseyClientMetadataResolver = (JerseyClientMetadataResolver) metadataResolver;
+        CachingCredentialResolver cachingCredentialResolver = new CachingCredentialResolver(
+                metadataCredentialResolver, CachingCredentialResolver.DEFAULT_MAXIMUM_SIZE, jerseyClientMetadataResolver::getValidUntil);
+        jerseyClientMetadataResolver.addRefreshListener(event ->
+                event.getChangedEntityIds().forEach(cachingCredentialResolver::invalidate));
+        return cachingCredentialResolver;
+    }
+
+    private static Optional<CredentialResolver> compactMetadataCredentialResolver(MetadataResolver metadataResolver) {
+        if (metadataResolver instanceof JerseyClientMetadataResolver) {
+            JerseyClientMetadataResolver jerseyClientMetadataResolver = (JerseyClientMetadataResolver) metadataResolver;
+            if (jerseyClientMetadataResolver.getCompactMetadata().isPresent()) {
+                return Optional.of(new CompactMetadataCredentialResolver(() -> jerseyClientMetadataResolver.getCompactMetadata().orElse(CompactMetadata.empty())));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static class CompactMetadataBackedCredentialResolver extends MetadataCredentialResolver {
+        private final CredentialResolver compactMetadataCredentialResolver;
+
+        private CompactMetadataBackedCredentialResolver(CredentialResolver compactMetadataCredentialResolver) {
+            this.compactMetadataCredentialResolver = compactMetadataCredentialResolver;
+        }
+
+        @Override
+        protected Iterable<Credential> resolveFromSource(CriteriaSet criteriaSet) throws ResolverException {
+            return compactMetadataCredentialResolver.resolve(criteriaSet);
+        }
+    }
 }
@@ -1,7 +1,6 @@
 package uk.gov.ida.saml.metadata.factories;
 
 import io.dropwizard.setup.Environment;
-import org.opensaml.saml.metadata.resolver.MetadataResolver;
 import org.opensaml.saml.metadata.resolver.filter.MetadataFilter;
 import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
 import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
@@ -10,8 +9,11 @@ import uk.gov.ida.common.shared.security.verification.CertificateChainValidator;
 import uk.gov.ida.common.shared.security.verification.PKIXParametersProvider;
 import uk.gov.ida.saml.metadata.CertificateChainValidationFilter;
 import uk.gov.ida.saml.metadata.ExpiredCertificateMetadataFilter;
+import uk.gov.ida.saml.metadata.JerseyClientMetadataResolver;
 import uk.gov.ida.saml.metadata.MetadataResolverConfiguration;
 import uk.gov.ida.saml.metadata.PKIXSignatureValidationFilterProvider;
+import uk.gov.ida.saml.security.CertificateValidityCache;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
 
 import javax.ws.rs.client.Client;
 import java.net.URI;
@@ -20,38 +22,60 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.util.Collections.emptyList;
 
 public class DropwizardMetadataResolverFactory {
-    private final MetadataResolverFactory metadataResolverFactory = new MetadataResolverFactory();
-    private final ExpiredCertificateMetadataFilter expiredCertificateMetadataFilter = new ExpiredCertificateMetadataFilter();
+    private final MetadataResolverFactory metadataResolverFactory;
     private final MetadataClientFactory metadataClientFactory = new MetadataClientFactory();
     private final CertificateChainValidator certificateChainValidator = new CertificateChainValidator(new PKIXParametersProvider(), new X509CertificateFactory());
+    private final Optional<ForkJoinPool> certificateValidationPool;
 
-    public MetadataResolver createMetadataResolver(
+    public DropwizardMetadataResolverFactory() {
+        this(new MetadataResolverFactory());
+    }
+
+    public DropwizardMetadataResolverFactory(MetadataResolverFactory metadataResolverFactory) {
+        this(metadataResolverFactory, Optional.empty());
+    }
+
+    public DropwizardMetadataResolverFactory(MetadataResolverFactory metadataResolverFactory, Optional<ForkJoinPool> certificateValidationPool) {
+        this.metadataResolverFactory = metadataResolverFactory;
+        this.certificateValidationPool = certificateValidationPool;
+    }
+
+    public JerseyClientMetadataResolver createMetadataResolver(
             Environment environment,
             MetadataResolverConfiguration metadataConfiguration) {
         return createMetadataResolver(environment, metadataConfiguration, true);
     }
 
-    public MetadataResolver createMetadataResolverWithoutSignatureValidation(
+    public JerseyClientMetadataResolver createMetadataResolverWithoutSignatureValidation(
             Environment environment,
             MetadataResolverConfiguration metadataConfiguration) {
         return createMetadataResolver(environment, metadataConfiguration, false);
     }
 
-    public MetadataResolver createMetadataResolver(
+    public JerseyClientMetadataResolver createMetadataResolver(
             Environment environment,
             MetadataResolverConfiguration metadataConfiguration,
             boolean validateSignatures) {
-        return createMetadataResolverWithClient(metadataConfiguration, validateSignatures, metadataClientFactory.getClient(environment, metadataConfiguration));
+        return createMetadataResolverWithClient(metadataConfiguration, validateSignatures, metadataClientFactory.getClient(environment, metadataConfiguration), new SamlMetrics(environment.metrics()));
     }
 
-    public MetadataResolver createMetadataResolverWithClient(
+    public JerseyClientMetadataResolver createMetadataResolverWithClient(
             MetadataResolverConfiguration metadataConfiguration,
             boolean validateSignatures,
             Client client) {
+        return createMetadataResolverWithClient(metadataConfiguration, validateSignatures, client, SamlMetrics.disabled());
+    }
+
+    public JerseyClientMetadataResolver createMetadataResolverWithClient(
+            MetadataResolverConfiguration metadataConfiguration,
+            boolean validateSignatures,
+            Client client,
+            SamlMetrics metrics) {
         URI uri = metadataConfiguration.getUri();
         Long minRefreshDelay = metadataConfiguration.getMinRefreshDelay();
         Long maxRefreshDelay = metadataConfiguration.getMaxRefreshDelay();
@@ -65,7 +89,9 @@ public class DropwizardMetadataResolverFactory {
                 metadataConfiguration.getHubTrustStore(),
                 metadataConfiguration.getIdpTrustStore()),
             minRefreshDelay,
-            maxRefreshDelay
+            maxRefreshDelay,
+            metadataConfiguration.isCompactMetadata(),
+            metrics
         );
     }
 
@@ -82,21 +108,26 @@ public class DropwizardMetadataResolverFactory {
 
         ArrayList<MetadataFilter> metadataFilters = new ArrayList();
         metadataFilters.add(pkixSignatureValidationFilterProvider.get());
-        metadataFilters.add(expiredCertificateMetadataFilter);
+        // Each resolver needs its own filter as the filter records the signing certificate expiry of its metadata
+        metadataFilters.add(new ExpiredCertificateMetadataFilter());
 
         hubTrustStore.ifPresent(
             hubKeyStore ->
                 metadataFilters.add(new CertificateChainValidationFilter(
                     SPSSODescriptor.DEFAULT_ELEMENT_NAME,
                     certificateChainValidator,
-                    hubKeyStore)));
+                    hubKeyStore,
+                    certificateValidationPool,
+                    Optional.of(CertificateValidityCache.getDefault()))));
 
         idpTrustStore.ifPresent(
             idpKeyStore ->
                 metadataFilters.add(new CertificateChainValidationFilter(
                     IDPSSODescriptor.DEFAULT_ELEMENT_NAME,
                     certificateChainValidator,
-                    idpKeyStore)));
+                    idpKeyStore,
+                    certificateValidationPool,
+                    Optional.of(CertificateValidityCache.getDefault()))));
 
         return Collections.unmodifiableList(new ArrayList(metadataFilters));
     }
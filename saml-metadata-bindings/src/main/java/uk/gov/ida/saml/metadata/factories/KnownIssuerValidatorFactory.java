@@ -0,0 +1,21 @@
+package uk.gov.ida.saml.metadata.factories;
+
+import uk.gov.ida.saml.metadata.JerseyClientMetadataResolver;
+import uk.gov.ida.saml.security.validators.issuer.KnownIssuerValidator;
+
+public class KnownIssuerValidatorFactory {
+    /**
+     * The issuers the validator remembers as unknown are forgotten whenever a refresh of the metadata resolver adds
+     * an entity, so that a newly added entity is accepted straight away. A resolver that does not tell us about
+     * refreshes can be given to {@link KnownIssuerValidator} directly.
+     */
+    public KnownIssuerValidator create(JerseyClientMetadataResolver metadataResolver) {
+        KnownIssuerValidator knownIssuerValidator = new KnownIssuerValidator(metadataResolver);
+        metadataResolver.addRefreshListener(event -> {
+            if (!event.getAddedEntityIds().isEmpty()) {
+                knownIssuerValidator.invalidateUnknownIssuers();
+            }
+        });
+        return knownIssuerValidator;
+    }
+}
@@ -1,38 +1,77 @@
 package uk.gov.ida.saml.metadata.factories;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
 import net.shibboleth.utilities.java.support.component.ComponentInitializationException;
 import net.shibboleth.utilities.java.support.xml.BasicParserPool;
+import net.shibboleth.utilities.java.support.xml.ParserPool;
 import org.opensaml.core.config.InitializationException;
 import org.opensaml.core.config.InitializationService;
 import org.opensaml.saml.metadata.criteria.entity.impl.EntityDescriptorCriterionPredicateRegistry;
-import org.opensaml.saml.metadata.resolver.MetadataResolver;
 import org.opensaml.saml.metadata.resolver.filter.MetadataFilter;
 import org.opensaml.saml.metadata.resolver.filter.MetadataFilterChain;
+import org.opensaml.saml.metadata.resolver.index.impl.RoleMetadataIndex;
+import uk.gov.ida.saml.core.DomReleasePolicy;
 import uk.gov.ida.saml.metadata.EntitiesDescriptorNameCriterion;
+import uk.gov.ida.saml.metadata.EntitiesDescriptorNameMetadataIndex;
 import uk.gov.ida.saml.metadata.EntitiesDescriptorNamePredicate;
+import uk.gov.ida.saml.metadata.ExpiredCertificateMetadataFilter;
+import uk.gov.ida.saml.metadata.InstrumentedMetadataFilterChain;
 import uk.gov.ida.saml.metadata.JerseyClientMetadataResolver;
+import uk.gov.ida.saml.metadata.MetadataRefreshScheduler;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
 
 import javax.ws.rs.client.Client;
 import java.net.URI;
 import java.util.List;
-import java.util.Timer;
 
 public class MetadataResolverFactory {
 
-    public MetadataResolver create(Client client, URI metadataUri, List<MetadataFilter> metadataFilterList, long minRefreshDelay, long maxRefreshDelay) {
+    private final MetadataRefreshScheduler refreshScheduler;
+    private final ParserPool parserPool;
+    private final DomReleasePolicy domReleasePolicy;
+
+    public MetadataResolverFactory() {
+        this(MetadataRefreshScheduler.getDefault(), SharedParserPool.INSTANCE);
+    }
+
+    public MetadataResolverFactory(MetadataRefreshScheduler refreshScheduler, ParserPool parserPool) {
+        this(refreshScheduler, parserPool, DomReleasePolicy.RETAIN);
+    }
+
+    /**
+     * @param domReleasePolicy whether resolvers release the metadata DOM once the filter chain has validated it;
+     *                         only retain it if something re-serializes the resolved metadata
+     */
+    public MetadataResolverFactory(MetadataRefreshScheduler refreshScheduler, ParserPool parserPool, DomReleasePolicy domReleasePolicy) {
+        this.refreshScheduler = refreshScheduler;
+        this.parserPool = parserPool;
+        this.domReleasePolicy = domReleasePolicy;
+    }
+
+    public JerseyClientMetadataResolver create(Client client, URI metadataUri, List<MetadataFilter> metadataFilterList, long minRefreshDelay, long maxRefreshDelay) {
+        return create(client, metadataUri, metadataFilterList, minRefreshDelay, maxRefreshDelay, false);
+    }
+
+    public JerseyClientMetadataResolver create(Client client, URI metadataUri, List<MetadataFilter> metadataFilterList, long minRefreshDelay, long maxRefreshDelay, boolean compactMetadata) {
+        return create(client, metadataUri, metadataFilterList, minRefreshDelay, maxRefreshDelay, compactMetadata, SamlMetrics.disabled());
+    }
+
+    /**
+     * @param metrics records download size, the time taken by each phase of a refresh and by each filter, the entity
+     *                count and the delay until the next refresh
+     */
+    public JerseyClientMetadataResolver create(Client client, URI metadataUri, List<MetadataFilter> metadataFilterList, long minRefreshDelay, long maxRefreshDelay, boolean compactMetadata, SamlMetrics metrics) {
         try {
             InitializationService.initialize();
             JerseyClientMetadataResolver metadataResolver = new JerseyClientMetadataResolver(
-                    new Timer(),
+                    refreshScheduler.createTimer(),
                     client,
                     metadataUri);
-            BasicParserPool parserPool = new BasicParserPool();
-            parserPool.initialize();
             metadataResolver.setParserPool(parserPool);
             metadataResolver.setId("MetadataModule.MetadataResolver");
 
-            MetadataFilterChain metadataFilterChain = new MetadataFilterChain();
+            MetadataFilterChain metadataFilterChain = new InstrumentedMetadataFilterChain(metrics);
             metadataFilterChain.setFilters(metadataFilterList);
             metadataResolver.setMetadataFilter(metadataFilterChain);
 
@@ -40,16 +79,44 @@ public class MetadataResolverFactory {
             metadataResolver.setFailFastInitialization(false);
             metadataResolver.setMaxRefreshDelay(maxRefreshDelay);
             metadataResolver.setMinRefreshDelay(minRefreshDelay);
+            // Lookups without an entityID go to these indexes first and only fall back to testing every
+            // entity against the registered predicates when no index applies to the criteria
+            metadataResolver.setIndexes(ImmutableSet.of(new EntitiesDescriptorNameMetadataIndex(), new RoleMetadataIndex()));
             metadataResolver.setResolveViaPredicatesOnly(true);
 
             EntityDescriptorCriterionPredicateRegistry registry = new EntityDescriptorCriterionPredicateRegistry();
             registry.register(EntitiesDescriptorNameCriterion.class, EntitiesDescriptorNamePredicate.class);
             metadataResolver.setCriterionPredicateRegistry(registry);
 
+            metadataFilterList.stream()
+                    .filter(ExpiredCertificateMetadataFilter.class::isInstance)
+                    .map(ExpiredCertificateMetadataFilter.class::cast)
+                    .findFirst()
+                    .ifPresent(filter -> metadataResolver.setSigningCertificateExpiry(filter::getSoonestCertificateExpiry));
+            metadataResolver.setCompactMetadataEnabled(compactMetadata);
+            metadataResolver.setDomReleasePolicy(domReleasePolicy);
+            metadataResolver.setMetrics(metrics);
+            metadataResolver.setFetchTimeout(refreshScheduler.getFetchTimeoutMillis());
+
             metadataResolver.initialize();
             return metadataResolver;
         } catch (ComponentInitializationException | InitializationException e) {
             throw Throwables.propagate(e);
         }
     }
+
+    public static ParserPool createParserPool() {
+        try {
+            BasicParserPool parserPool = new BasicParserPool();
+            parserPool.initialize();
+            return parserPool;
+        } catch (ComponentInitializationException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    // BasicParserPool is thread safe, so one pool is shared by every resolver unless another is supplied
+    private static class SharedParserPool {
+        private static final ParserPool INSTANCE = createParserPool();
+    }
 }
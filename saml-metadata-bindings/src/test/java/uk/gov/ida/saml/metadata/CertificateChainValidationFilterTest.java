@@ -25,6 +25,8 @@ import javax.xml.namespace.QName;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -141,6 +143,31 @@ public class CertificateChainValidationFilterTest {
         assertThat(getKeyNamesFromMetadata(metadata, SPSSODescriptor.DEFAULT_ELEMENT_NAME, TestEntityIds.HUB_ENTITY_ID)).doesNotContain(EntityDescriptorFactory.SIGNING_BAD);
     }
 
+    @Test
+    public void shouldFilterOutTheSameCertificatesWhenValidatingConcurrently() throws Exception {
+        final ForkJoinPool validationPool = new ForkJoinPool(4);
+        try {
+            final CertificateChainValidationFilter certificateChainValidationFilter = new CertificateChainValidationFilter(IDPSSODescriptor.DEFAULT_ELEMENT_NAME, certificateChainValidator, idpKeyStoreRule.getKeyStore(), Optional.of(validationPool), Optional.empty());
+            final EntityDescriptorFactory entityDescriptorFactory =  new EntityDescriptorFactory();
+            String metadataWithOneBadIdpCertificate = metadataFactory.metadata(
+                asList(
+                    entityDescriptorFactory.hubEntityDescriptor(),
+                    entityDescriptorFactory.idpEntityDescriptor(TestEntityIds.STUB_IDP_ONE),
+                    entityDescriptorFactory.idpEntityDescriptor(TestEntityIds.STUB_IDP_TWO),
+                    entityDescriptorFactory.idpEntityDescriptor(TestEntityIds.STUB_IDP_THREE),
+                    entityDescriptorFactory.idpEntityDescriptor(TestEntityIds.STUB_IDP_FOUR),
+                    entityDescriptorFactory.idpEntityDescriptor(TestEntityIds.TEST_RP)));
+
+            final XMLObject metadata = validateMetadata(certificateChainValidationFilter, metadataWithOneBadIdpCertificate);
+
+            assertThat(getEntityIdsFromMetadata(metadata, SPSSODescriptor.DEFAULT_ELEMENT_NAME)).containsOnlyElementsOf(HUB_ENTITY_IDS);
+            assertThat(getEntityIdsFromMetadata(metadata, IDPSSODescriptor.DEFAULT_ELEMENT_NAME)).containsOnlyElementsOf(IDP_ENTITY_IDS);
+            assertThat(getEntityIdsFromMetadata(metadata, IDPSSODescriptor.DEFAULT_ELEMENT_NAME)).doesNotContain(TestEntityIds.TEST_RP);
+        } finally {
+            validationPool.shutdown();
+        }
+    }
+
     private XMLObject validateMetadata(final CertificateChainValidationFilter certificateChainValidationFilter, String metadataContent) throws Exception {
         BasicParserPool parserPool = new BasicParserPool();
         parserPool.initialize();
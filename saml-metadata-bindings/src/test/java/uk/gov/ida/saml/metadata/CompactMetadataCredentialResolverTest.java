@@ -0,0 +1,114 @@
+package uk.gov.ida.saml.metadata;
+
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.joda.time.DateTime;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opensaml.core.config.InitializationService;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.metadata.resolver.impl.DOMMetadataResolver;
+import org.opensaml.saml.common.xml.SAMLConstants;
+import org.opensaml.saml.saml2.metadata.EncryptionMethod;
+import org.opensaml.saml.saml2.metadata.EntitiesDescriptor;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.saml.saml2.metadata.KeyDescriptor;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.criteria.UsageCriterion;
+import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
+import org.w3c.dom.Element;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.core.test.TestEntityIds;
+import uk.gov.ida.saml.core.test.builders.metadata.EntitiesDescriptorBuilder;
+import uk.gov.ida.saml.metadata.domain.CompactMetadata;
+import uk.gov.ida.saml.metadata.test.factories.metadata.EntityDescriptorFactory;
+import uk.gov.ida.saml.metadata.test.factories.metadata.TestCredentialFactory;
+import uk.gov.ida.saml.security.EncrypterFactory;
+
+import javax.xml.namespace.QName;
+import java.security.PublicKey;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactMetadataCredentialResolverTest {
+
+    private static CompactMetadata compactMetadata;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        InitializationService.initialize();
+
+        EntityDescriptor entityDescriptor = new EntityDescriptorFactory().hubEntityDescriptor();
+        Element element = XMLObjectSupport.marshall(entityDescriptor);
+
+        DOMMetadataResolver metadataResolver = new DOMMetadataResolver(element);
+        metadataResolver.setId("test-metadata-resolver");
+        metadataResolver.initialize();
+
+        compactMetadata = CompactMetadata.from(metadataResolver);
+    }
+
+    @Test
+    public void shouldProjectEachRoleAndItsCredentials() {
+        assertThat(compactMetadata.size()).isEqualTo(1);
+        assertThat(compactMetadata.getEntityDescriptor(TestEntityIds.HUB_ENTITY_ID).get().getRoleDescriptors(SPSSODescriptor.DEFAULT_ELEMENT_NAME).get(0).getCredentials(UsageType.SIGNING)).hasSize(2);
+    }
+
+    @Test
+    public void shouldResolveCredentialsForTheEntityRoleAndUsage() throws Exception {
+        CompactMetadataCredentialResolver credentialResolver = new CompactMetadataCredentialResolver(() -> compactMetadata);
+
+        Credential credential = credentialResolver.resolveSingle(criteria(TestEntityIds.HUB_ENTITY_ID, SPSSODescriptor.DEFAULT_ELEMENT_NAME));
+
+        PublicKey publicKey = TestCredentialFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT);
+        assertThat(credential.getPublicKey()).isEqualTo(publicKey);
+        assertThat(credential.getEntityId()).isEqualTo(TestEntityIds.HUB_ENTITY_ID);
+    }
+
+    @Test
+    public void shouldNotResolveCredentialsForAnotherRoleOrEntity() throws Exception {
+        CompactMetadataCredentialResolver credentialResolver = new CompactMetadataCredentialResolver(() -> compactMetadata);
+
+        assertThat(credentialResolver.resolveSingle(criteria(TestEntityIds.HUB_ENTITY_ID, IDPSSODescriptor.DEFAULT_ELEMENT_NAME))).isNull();
+        assertThat(credentialResolver.resolveSingle(criteria(TestEntityIds.STUB_IDP_ONE, SPSSODescriptor.DEFAULT_ELEMENT_NAME))).isNull();
+    }
+
+    @Test
+    public void shouldNotResolveCredentialsForAnEntityInAnExpiredEntitiesDescriptor() throws Exception {
+        EntitiesDescriptor entitiesDescriptor = EntitiesDescriptorBuilder.anEntitiesDescriptor()
+                .withEntityDescriptors(singletonList(new EntityDescriptorFactory().hubEntityDescriptor()))
+                .withValidUntil(DateTime.now().minusMinutes(1))
+                .build();
+        CompactMetadata expiredCompactMetadata = CompactMetadata.from(entitiesDescriptor.getEntityDescriptors());
+        CompactMetadataCredentialResolver credentialResolver = new CompactMetadataCredentialResolver(() -> expiredCompactMetadata);
+
+        assertThat(expiredCompactMetadata.getEntityDescriptor(TestEntityIds.HUB_ENTITY_ID).get().isValid()).isFalse();
+        assertThat(credentialResolver.resolveSingle(criteria(TestEntityIds.HUB_ENTITY_ID, SPSSODescriptor.DEFAULT_ELEMENT_NAME))).isNull();
+    }
+
+    @Test
+    public void shouldNegotiateTheDataEncryptionAlgorithmFromTheEncryptionMethodsInCompactMetadata() throws Exception {
+        EntityDescriptor entityDescriptor = new EntityDescriptorFactory().hubEntityDescriptor();
+        for (KeyDescriptor keyDescriptor : entityDescriptor.getSPSSODescriptor(SAMLConstants.SAML20P_NS).getKeyDescriptors()) {
+            EncryptionMethod encryptionMethod = (EncryptionMethod) XMLObjectSupport.buildXMLObject(EncryptionMethod.DEFAULT_ELEMENT_NAME);
+            encryptionMethod.setAlgorithm(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM);
+            keyDescriptor.getEncryptionMethods().add(encryptionMethod);
+        }
+        CompactMetadata compactMetadataWithEncryptionMethods = CompactMetadata.from(singletonList(entityDescriptor));
+        CompactMetadataCredentialResolver credentialResolver = new CompactMetadataCredentialResolver(() -> compactMetadataWithEncryptionMethods);
+
+        Credential credential = credentialResolver.resolveSingle(criteria(TestEntityIds.HUB_ENTITY_ID, SPSSODescriptor.DEFAULT_ELEMENT_NAME));
+
+        assertThat(new EncrypterFactory().withPreferredDataEncryptionAlgorithms(EncrypterFactory.GCM_PREFERRED_DATA_ENCRYPTION_ALGORITHMS).getDataEncryptionAlgorithm(credential))
+                .isEqualTo(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM);
+    }
+
+    private static CriteriaSet criteria(String entityId, QName role) {
+        return new CriteriaSet(new EntityIdCriterion(entityId), new EntityRoleCriterion(role), new UsageCriterion(UsageType.ENCRYPTION));
+    }
+}
@@ -41,10 +41,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Timer;
+import java.util.TimerTask;
 import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.fail;
@@ -52,6 +54,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -220,6 +223,34 @@ public class EidasMetadataResolverRepositoryTest {
             .contains(String.format("Error creating MetadataResolver for %s", entityId));
     }
 
+    @Test
+    public void shouldRetryOnlyTheFailingCountryWhenCreatingItsMetadataResolverFails() {
+        when(metadataConfiguration.getMetadataSourceUri()).thenReturn(UriBuilder.fromUri("https://source.com").build());
+        when(metadataConfiguration.getTrustAnchorMinRefreshDelay()).thenReturn(60000L);
+        when(metadataConfiguration.getTrustAnchorMaxRefreshDelay()).thenReturn(3600000L);
+        List<String> certificateChain = asList(
+            CACertificates.TEST_ROOT_CA,
+            CACertificates.TEST_IDP_CA,
+            TestCertificateStrings.STUB_COUNTRY_PUBLIC_EXPIRED_CERT
+        );
+        trustAnchors.add(createJWK("http://signin.gov.uk/entity-id", certificateChain, false));
+
+        new EidasMetadataResolverRepository(
+            trustAnchorResolver,
+            metadataConfiguration,
+            dropwizardMetadataResolverFactory,
+            timer,
+            metadataSignatureTrustEngineFactory,
+            new MetadataResolverConfigBuilder(),
+            metadataClient);
+
+        ArgumentCaptor<Long> delayCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(timer, times(2)).schedule(any(TimerTask.class), delayCaptor.capture());
+        List<Long> delays = delayCaptor.getAllValues();
+        assertThat(delays.get(0)).isGreaterThanOrEqualTo(30000L).isLessThanOrEqualTo(60000L);
+        assertThat(delays.get(1)).isEqualTo(3600000L);
+    }
+
     @Test
     public void shouldNotCreateMetadataResolverRepositoryWhenCertificateIsInvalid() {
         when(metadataConfiguration.getMetadataSourceUri()).thenReturn(UriBuilder.fromUri("https://source.com").build());
@@ -288,6 +319,27 @@ public class EidasMetadataResolverRepositoryTest {
         assertThat(metadataResolverRepository.getTrustAnchorsEntityIds()).contains(trustAnchor2.getKeyID());
     }
 
+    @Test
+    public void shouldNotifyRefreshListenersOfEntitiesRemovedWithTheirMetadataResolver() throws CertificateException, SignatureException, ParseException, JOSEException {
+        List<String> certificateChain = asList(
+                CACertificates.TEST_ROOT_CA,
+                CACertificates.TEST_METADATA_CA,
+                TestCertificateStrings.METADATA_SIGNING_A_PUBLIC_CERT
+        );
+        when(metadataResolver.getEntityDescriptorDigests()).thenReturn(singletonMap("http://country/entity", "digest"));
+        EidasMetadataResolverRepository metadataResolverRepository = createMetadataResolverRepositoryWithTrustAnchors(createJWK("http://signin.gov.uk/entity/id", certificateChain, true));
+        List<MetadataRefreshEvent> events = new ArrayList<>();
+        metadataResolverRepository.addRefreshListener(events::add);
+
+        when(trustAnchorResolver.getTrustAnchors()).thenReturn(new ArrayList<>());
+        metadataResolverRepository.refresh();
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getRemovedEntityIds()).containsOnly("http://country/entity");
+        assertThat(events.get(0).getAddedEntityIds()).isEmpty();
+        assertThat(events.get(0).getModifiedEntityIds()).isEmpty();
+    }
+
     @Test
     public void shouldNotRecreateExistingMetadataResolversWhenRefreshing() throws ParseException, CertificateException, JOSEException, SignatureException {
         List<String> certificateChain = asList(
@@ -306,6 +358,27 @@ public class EidasMetadataResolverRepositoryTest {
         refreshedMetadataResolvers.forEach((key, value) -> assertThat(value == originalMetadataResolvers.get(key)).isTrue());
     }
 
+    @Test
+    public void shouldReplaceAndDestroyTheMetadataResolverOfACountryWhoseTrustAnchorChangedWhenRefreshing() throws ParseException, CertificateException, JOSEException, SignatureException {
+        String entityId = "http://signin.gov.uk/entity/id";
+        EidasMetadataResolverRepository metadataResolverRepository = createMetadataResolverRepositoryWithTrustAnchors(createJWK(entityId, asList(
+                CACertificates.TEST_ROOT_CA,
+                CACertificates.TEST_METADATA_CA,
+                TestCertificateStrings.METADATA_SIGNING_A_PUBLIC_CERT), true));
+        JerseyClientMetadataResolver replacementMetadataResolver = mock(JerseyClientMetadataResolver.class);
+        when(dropwizardMetadataResolverFactory.createMetadataResolverWithClient(any(), eq(true), eq(metadataClient))).thenReturn(replacementMetadataResolver);
+        when(metadataSignatureTrustEngineFactory.createSignatureTrustEngine(replacementMetadataResolver)).thenReturn(explicitKeySignatureTrustEngine);
+
+        when(trustAnchorResolver.getTrustAnchors()).thenReturn(singletonList(createJWK(entityId, asList(
+                CACertificates.TEST_ROOT_CA,
+                CACertificates.TEST_METADATA_CA,
+                TestCertificateStrings.METADATA_SIGNING_B_PUBLIC_CERT), true)));
+        metadataResolverRepository.refresh();
+
+        assertThat(metadataResolverRepository.getMetadataResolver(entityId).get()).isSameAs(replacementMetadataResolver);
+        assertThat(metadataResolver.isDestroyed()).isTrue();
+    }
+
     private EidasMetadataResolverRepository createMetadataResolverRepositoryWithTrustAnchors(JWK... trustAnchors) throws ParseException, CertificateException, JOSEException, SignatureException {
         when(trustAnchorResolver.getTrustAnchors()).thenReturn(asList(trustAnchors));
 
@@ -4,6 +4,7 @@ import com.codahale.metrics.health.HealthCheck.Result;
 import com.google.common.collect.ImmutableMap;
 import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
 import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -17,10 +18,15 @@ import uk.gov.ida.saml.core.test.builders.metadata.EntityDescriptorBuilder;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -34,6 +40,7 @@ public class EidasTrustAnchorHealthCheckTest {
 
     @Before
     public void setUp(){
+        when(metadataResolverRepository.getHealth()).thenReturn(Optional.empty());
         eidasTrustAnchorHealthCheck = new EidasTrustAnchorHealthCheck(metadataResolverRepository);
     }
 
@@ -113,6 +120,39 @@ public class EidasTrustAnchorHealthCheckTest {
         assertThat(result.isHealthy()).isTrue();
     }
 
+    @Test
+    public void shouldReadTheHealthSnapshotKeptByTheRepository() {
+        CountryMetadataHealth healthyCountry = new CountryMetadataHealth("entityId1", true, Optional.of(DateTime.now()), Optional.empty(), Optional.empty());
+        CountryMetadataHealth failingCountry = new CountryMetadataHealth("entityId2", false, Optional.empty(), Optional.of("Connection refused"), Optional.empty());
+        when(metadataResolverRepository.getHealth()).thenReturn(Optional.of(new EidasMetadataHealth(
+                asList("entityId3"),
+                ImmutableMap.of("entityId1", healthyCountry, "entityId2", failingCountry),
+                DateTime.now())));
+
+        Result result = eidasTrustAnchorHealthCheck.check();
+
+        assertThat(result.isHealthy()).isFalse();
+        assertThat((List<String>) result.getDetails().get("missingMetadataResolverEntityIds")).containsOnly("entityId3");
+        assertThat((Map<String, String>) result.getDetails().get("unresolvedMetadata")).contains(entry("entityId2", "Connection refused"));
+        assertThat(((Map<String, String>) result.getDetails().get("unresolvedMetadata")).keySet()).doesNotContain("entityId1");
+        verify(metadataResolverRepository, never()).getMetadataResolvers();
+    }
+
+    @Test
+    public void shouldReportACountryWhoseMetadataHasExpiredSinceItWasLoadedAsUnresolved() {
+        CountryMetadataHealth expiredCountry = new CountryMetadataHealth("entityId1", true, Optional.of(DateTime.now().minusMinutes(1)), Optional.of(DateTime.now().minusHours(1)), Optional.empty(), Optional.empty());
+        when(metadataResolverRepository.getHealth()).thenReturn(Optional.of(new EidasMetadataHealth(
+                emptyList(),
+                ImmutableMap.of("entityId1", expiredCountry),
+                DateTime.now())));
+
+        Result result = eidasTrustAnchorHealthCheck.check();
+
+        assertThat(expiredCountry.isResolvable()).isFalse();
+        assertThat(result.isHealthy()).isFalse();
+        assertThat(((Map<String, String>) result.getDetails().get("unresolvedMetadata")).keySet()).containsOnly("entityId1");
+    }
+
     private MetadataResolver getValidMetadataResolver(String entityId) throws MarshallingException, SignatureException, ResolverException {
         MetadataResolver metadataResolver = mock(MetadataResolver.class);
         when(metadataResolver.resolveSingle(new CriteriaSet(new EntityIdCriterion(entityId)))).thenReturn(EntityDescriptorBuilder.anEntityDescriptor().build());
@@ -0,0 +1,54 @@
+package uk.gov.ida.saml.metadata;
+
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.core.config.InitializationException;
+import org.opensaml.core.config.InitializationService;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.core.xml.io.MarshallingException;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.xmlsec.signature.support.SignatureException;
+import uk.gov.ida.saml.metadata.test.factories.metadata.EntityDescriptorFactory;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.ida.saml.core.test.builders.metadata.EntitiesDescriptorBuilder.anEntitiesDescriptor;
+
+public class EntitiesDescriptorNameMetadataIndexTest {
+
+    private final EntitiesDescriptorNameMetadataIndex index = new EntitiesDescriptorNameMetadataIndex();
+
+    @Before
+    public void setUp() throws InitializationException {
+        InitializationService.initialize();
+    }
+
+    @Test
+    public void shouldGenerateTheSameKeyForAnEntityAndACriterionWithItsParentName() throws MarshallingException, SignatureException {
+        String entitiesName = "collection of entities";
+        EntityDescriptor entityDescriptor = new EntityDescriptorFactory().idpEntityDescriptor("an idp");
+        anEntitiesDescriptor()
+                .withEntityDescriptors(Collections.singletonList(entityDescriptor))
+                .withName(entitiesName)
+                .build();
+
+        assertThat(index.generateKeys(entityDescriptor))
+                .isEqualTo(index.generateKeys(new CriteriaSet(new EntitiesDescriptorNameCriterion(entitiesName))));
+        assertThat(index.generateKeys(entityDescriptor))
+                .isNotEqualTo(index.generateKeys(new CriteriaSet(new EntitiesDescriptorNameCriterion("some other parent"))));
+    }
+
+    @Test
+    public void shouldNotIndexEntitiesWithoutANamedParent() throws MarshallingException, SignatureException {
+        EntityDescriptor entityDescriptor = new EntityDescriptorFactory().idpEntityDescriptor("an idp");
+
+        assertThat(index.generateKeys(entityDescriptor)).isNull();
+    }
+
+    @Test
+    public void shouldNotApplyToCriteriaWithoutAnEntitiesDescriptorName() {
+        assertThat(index.generateKeys(new CriteriaSet(new EntityIdCriterion("an idp")))).isNull();
+    }
+}
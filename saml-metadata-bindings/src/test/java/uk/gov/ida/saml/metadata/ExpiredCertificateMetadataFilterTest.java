@@ -10,11 +10,14 @@ import org.opensaml.core.config.InitializationService;
 import org.opensaml.core.xml.XMLObject;
 import org.opensaml.saml.metadata.resolver.filter.FilterException;
 import org.opensaml.saml.metadata.resolver.filter.MetadataFilter;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
 import uk.gov.ida.saml.core.test.TestCertificateStrings;
 import uk.gov.ida.saml.deserializers.OpenSamlXMLObjectUnmarshaller;
 import uk.gov.ida.saml.deserializers.parser.SamlObjectParser;
 import uk.gov.ida.saml.metadata.test.factories.metadata.MetadataFactory;
 
+import java.security.cert.X509Certificate;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
@@ -67,4 +70,16 @@ public class ExpiredCertificateMetadataFilterTest {
         metadata = metadataFilter.filter(metadata);
         Assert.assertNotNull("metadata should not have been filtered out", metadata);
     }
+
+    @Test
+    public void shouldPublishTheExpiryOfTheSigningCertificate() throws Exception {
+        ExpiredCertificateMetadataFilter expiredCertificateMetadataFilter = new ExpiredCertificateMetadataFilter();
+        assertThat(expiredCertificateMetadataFilter.getSoonestCertificateExpiry().isPresent()).isFalse();
+
+        String signedMetadata = metadataFactory.signedMetadata(TestCertificateStrings.METADATA_SIGNING_A_PUBLIC_CERT, TestCertificateStrings.METADATA_SIGNING_A_PRIVATE_KEY);
+        expiredCertificateMetadataFilter.filter(unmarshaller.fromString(signedMetadata));
+
+        X509Certificate signingCertificate = new X509CertificateFactory().createCertificate(TestCertificateStrings.METADATA_SIGNING_A_PUBLIC_CERT);
+        assertThat(expiredCertificateMetadataFilter.getSoonestCertificateExpiry().get().toDate()).isEqualTo(signingCertificate.getNotAfter());
+    }
 }
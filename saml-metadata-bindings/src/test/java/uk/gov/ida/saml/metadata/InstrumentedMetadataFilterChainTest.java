@@ -0,0 +1,47 @@
+package uk.gov.ida.saml.metadata;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.metadata.resolver.filter.MetadataFilter;
+import org.opensaml.saml.saml2.metadata.EntitiesDescriptor;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class InstrumentedMetadataFilterChainTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final InstrumentedMetadataFilterChain filterChain = new InstrumentedMetadataFilterChain(new SamlMetrics(metricRegistry));
+
+    @Test
+    public void shouldTimeEachFilterInTheChain() throws Exception {
+        XMLObject metadata = mock(EntitiesDescriptor.class);
+        filterChain.setFilters(Arrays.<MetadataFilter>asList(new PassThroughFilter(), null));
+
+        XMLObject filtered = filterChain.filter(metadata);
+
+        assertThat(filtered).isSameAs(metadata);
+        assertThat(filterChain.getFilters()).hasSize(1);
+        assertThat(filterChain.getLastFilterDurationsMillis()).containsKey("metadata.filter.PassThroughFilter");
+        assertThat(metricRegistry.timer("uk.gov.ida.saml.metadata.filter.PassThroughFilter").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotWrapFiltersThatAreAlreadyTimed() {
+        TimedMetadataFilter timedFilter = new TimedMetadataFilter(new PassThroughFilter(), SamlMetrics.disabled());
+        filterChain.setFilters(Arrays.<MetadataFilter>asList(timedFilter));
+
+        assertThat(filterChain.getFilters().get(0)).isSameAs(timedFilter);
+    }
+
+    private static class PassThroughFilter implements MetadataFilter {
+        @Override
+        public XMLObject filter(XMLObject metadata) {
+            return metadata;
+        }
+    }
+}
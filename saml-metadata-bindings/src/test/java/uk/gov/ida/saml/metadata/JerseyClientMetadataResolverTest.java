@@ -0,0 +1,162 @@
+package uk.gov.ida.saml.metadata;
+
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.xml.BasicParserPool;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opensaml.core.config.InitializationService;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.UsageType;
+import uk.gov.ida.saml.core.DomReleasePolicy;
+import uk.gov.ida.saml.core.test.TestEntityIds;
+import uk.gov.ida.saml.metadata.test.factories.metadata.MetadataFactory;
+import uk.gov.ida.shared.utils.datetime.DateTimeFreezer;
+
+import javax.ws.rs.client.Client;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Timer;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JerseyClientMetadataResolverTest {
+
+    private static final URI METADATA_URI = URI.create("http://localhost/metadata");
+    private static final long MIN_REFRESH_DELAY = 60_000;
+    private static final long MAX_REFRESH_DELAY = 3_600_000;
+
+    private final Timer timer = new Timer(true);
+    private final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+    private JerseyClientMetadataResolver metadataResolver;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        InitializationService.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        metadataResolver.destroy();
+        timer.cancel();
+        DateTimeFreezer.unfreezeTime();
+    }
+
+    @Test
+    public void shouldNotDigestEntityDescriptorsWhenNothingIsListeningForChanges() throws Exception {
+        metadataResolver = metadataResolver(new MetadataFactory().defaultMetadata());
+
+        metadataResolver.initialize();
+
+        assertThat(metadataResolver.getEntityDescriptorDigests()).isEmpty();
+        assertThat(metadataResolver.getLastRefreshStatistics().get().getEntityCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldTellRefreshListenersAboutEntitiesInMetadataWhoseDomIsReleased() throws Exception {
+        metadataResolver = metadataResolver(new MetadataFactory().defaultMetadata());
+        metadataResolver.setDomReleasePolicy(DomReleasePolicy.RELEASE_AFTER_VALIDATION);
+        List<MetadataRefreshEvent> events = new ArrayList<>();
+        metadataResolver.addRefreshListener(events::add);
+
+        metadataResolver.initialize();
+
+        assertThat(metadataResolver.getEntityDescriptorDigests()).containsKey(TestEntityIds.HUB_ENTITY_ID);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getAddedEntityIds()).contains(TestEntityIds.HUB_ENTITY_ID);
+        assertThat(metadataResolver.resolveSingle(new CriteriaSet(new EntityIdCriterion(TestEntityIds.HUB_ENTITY_ID))).getDOM()).isNull();
+    }
+
+    @Test
+    public void shouldKeepOnlyTheCompactFormOfCredentialsInCompactMode() throws Exception {
+        metadataResolver = metadataResolver(new MetadataFactory().defaultMetadata());
+        metadataResolver.setCompactMetadataEnabled(true);
+
+        metadataResolver.initialize();
+
+        EntityDescriptor entityDescriptor = metadataResolver.resolveSingle(new CriteriaSet(new EntityIdCriterion(TestEntityIds.HUB_ENTITY_ID)));
+        assertThat(entityDescriptor.getDOM()).isNull();
+        assertThat(entityDescriptor.getRoleDescriptors()).isNotEmpty();
+        entityDescriptor.getRoleDescriptors().forEach(roleDescriptor -> assertThat(roleDescriptor.getKeyDescriptors()).isEmpty());
+        assertThat(metadataResolver.getCompactMetadata().get().getEntityDescriptor(TestEntityIds.HUB_ENTITY_ID).get()
+                .getRoleDescriptors(SPSSODescriptor.DEFAULT_ELEMENT_NAME).get(0).getCredentials(UsageType.SIGNING)).isNotEmpty();
+    }
+
+    @Test
+    public void shouldFailARefreshWhoseDownloadTakesLongerThanTheFetchTimeout() throws Exception {
+        when(client.target(METADATA_URI).request().async().get(String.class)).thenReturn(new CompletableFuture<>());
+        metadataResolver = new JerseyClientMetadataResolver(timer, client, METADATA_URI);
+        BasicParserPool parserPool = new BasicParserPool();
+        parserPool.initialize();
+        metadataResolver.setParserPool(parserPool);
+        metadataResolver.setId("test-metadata-resolver");
+        metadataResolver.setFailFastInitialization(false);
+        metadataResolver.setFetchTimeout(50);
+
+        metadataResolver.initialize();
+
+        assertThat(metadataResolver.getLastRefreshError().get()).contains("Gave up fetching metadata from " + METADATA_URI);
+        assertThat(metadataResolver.getLastSuccessfulRefresh().isPresent()).isFalse();
+    }
+
+    @Test
+    public void shouldRefreshAfterTheMinimumDelayWhenASigningCertificateExpiresBeforeThen() throws Exception {
+        DateTime now = DateTime.now();
+        DateTimeFreezer.freezeTime(now);
+        metadataResolver = metadataResolverWithSigningCertificateExpiry(now.plusSeconds(30));
+
+        metadataResolver.initialize();
+
+        assertThat(metadataResolver.getLastRefreshStatistics().get().getNextRefreshDelayMillis()).isEqualTo(MIN_REFRESH_DELAY);
+    }
+
+    @Test
+    public void shouldRefreshTheMinimumDelayBeforeASigningCertificateExpiresWithinTheRefreshWindow() throws Exception {
+        DateTime now = DateTime.now();
+        DateTimeFreezer.freezeTime(now);
+        metadataResolver = metadataResolverWithSigningCertificateExpiry(now.plusMinutes(30));
+
+        metadataResolver.initialize();
+
+        assertThat(metadataResolver.getLastRefreshStatistics().get().getNextRefreshDelayMillis()).isEqualTo(30 * 60_000 - MIN_REFRESH_DELAY);
+    }
+
+    @Test
+    public void shouldRefreshAsUsualWhenASigningCertificateExpiresAfterTheRefreshWindow() throws Exception {
+        DateTime now = DateTime.now();
+        DateTimeFreezer.freezeTime(now);
+        metadataResolver = metadataResolverWithSigningCertificateExpiry(now.plusDays(1));
+
+        metadataResolver.initialize();
+
+        assertThat(metadataResolver.getLastRefreshStatistics().get().getNextRefreshDelayMillis())
+                .isEqualTo((long) (MAX_REFRESH_DELAY * metadataResolver.getRefreshDelayFactor()));
+    }
+
+    private JerseyClientMetadataResolver metadataResolverWithSigningCertificateExpiry(DateTime signingCertificateExpiry) throws Exception {
+        JerseyClientMetadataResolver metadataResolver = metadataResolver(new MetadataFactory().defaultMetadata());
+        metadataResolver.setMinRefreshDelay(MIN_REFRESH_DELAY);
+        metadataResolver.setMaxRefreshDelay(MAX_REFRESH_DELAY);
+        metadataResolver.setSigningCertificateExpiry(() -> Optional.of(signingCertificateExpiry));
+        return metadataResolver;
+    }
+
+    private JerseyClientMetadataResolver metadataResolver(String metadata) throws Exception {
+        when(client.target(METADATA_URI).request().get(String.class)).thenReturn(metadata);
+        JerseyClientMetadataResolver metadataResolver = new JerseyClientMetadataResolver(timer, client, METADATA_URI);
+        BasicParserPool parserPool = new BasicParserPool();
+        parserPool.initialize();
+        metadataResolver.setParserPool(parserPool);
+        metadataResolver.setId("test-metadata-resolver");
+        return metadataResolver;
+    }
+}
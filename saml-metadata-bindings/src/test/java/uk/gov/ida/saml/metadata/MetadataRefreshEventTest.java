@@ -0,0 +1,30 @@
+package uk.gov.ida.saml.metadata;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataRefreshEventTest {
+
+    @Test
+    public void shouldReportEntitiesAddedRemovedAndModifiedBetweenRefreshes() {
+        MetadataRefreshEvent event = MetadataRefreshEvent.between(
+                ImmutableMap.of("unchanged", "a", "modified", "b", "removed", "c"),
+                ImmutableMap.of("unchanged", "a", "modified", "B", "added", "d"));
+
+        assertThat(event.getAddedEntityIds()).containsOnly("added");
+        assertThat(event.getRemovedEntityIds()).containsOnly("removed");
+        assertThat(event.getModifiedEntityIds()).containsOnly("modified");
+        assertThat(event.getChangedEntityIds()).containsOnly("added", "removed", "modified");
+        assertThat(event.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void shouldBeEmptyWhenNothingChanged() {
+        MetadataRefreshEvent event = MetadataRefreshEvent.between(ImmutableMap.of("unchanged", "a"), ImmutableMap.of("unchanged", "a"));
+
+        assertThat(event.isEmpty()).isTrue();
+        assertThat(event.getChangedEntityIds()).isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package uk.gov.ida.saml.metadata;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataRefreshSchedulerTest {
+
+    private final MetadataRefreshScheduler scheduler = new MetadataRefreshScheduler(1, 0.1);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void shouldRunTasksFromEveryTimerOnTheSharedExecutor() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+
+        scheduler.createTimer().schedule(countDown(latch), 10);
+        scheduler.createTimer().schedule(countDown(latch), 10);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldKeepRunningTasksWhenATimerIsCancelled() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        Timer cancelledTimer = scheduler.createTimer();
+        cancelledTimer.cancel();
+
+        scheduler.createTimer().schedule(countDown(latch), 10);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldRunPeriodicTasksRepeatedly() throws Exception {
+        CountDownLatch fixedDelay = new CountDownLatch(3);
+        CountDownLatch fixedRate = new CountDownLatch(3);
+
+        scheduler.createTimer().schedule(countDown(fixedDelay), 0, 10);
+        scheduler.createTimer().scheduleAtFixedRate(countDown(fixedRate), 0, 10);
+
+        assertThat(fixedDelay.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(fixedRate.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldGiveEveryResolverTheSameTimer() {
+        assertThat(scheduler.createTimer()).isSameAs(scheduler.createTimer());
+    }
+
+    @Test
+    public void shouldKeepThePoolAtItsConfiguredSizeHoweverManyResolversShareIt() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        MetadataRefreshScheduler sharedScheduler = new MetadataRefreshScheduler(executor, 0);
+        try {
+            sharedScheduler.createTimer();
+            sharedScheduler.createTimer();
+            sharedScheduler.createTimer();
+
+            assertThat(executor.getCorePoolSize()).isEqualTo(1);
+        } finally {
+            sharedScheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldOnlyBringRefreshesForwardByAtMostTheMaximumJitter() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(scheduler.applyJitter(10000)).isGreaterThanOrEqualTo(9000L).isLessThanOrEqualTo(10000L);
+        }
+    }
+
+    @Test
+    public void shouldNotApplyJitterToImmediateRefreshes() {
+        assertThat(scheduler.applyJitter(0)).isEqualTo(0);
+        assertThat(scheduler.applyJitter(-5)).isEqualTo(0);
+    }
+
+    private static TimerTask countDown(CountDownLatch latch) {
+        return new TimerTask() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+}
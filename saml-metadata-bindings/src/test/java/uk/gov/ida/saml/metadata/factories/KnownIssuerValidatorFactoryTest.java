@@ -0,0 +1,67 @@
+package uk.gov.ida.saml.metadata.factories;
+
+import net.shibboleth.utilities.java.support.xml.BasicParserPool;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opensaml.core.config.InitializationService;
+import uk.gov.ida.saml.core.test.TestEntityIds;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.saml.metadata.JerseyClientMetadataResolver;
+import uk.gov.ida.saml.metadata.test.factories.metadata.MetadataFactory;
+import uk.gov.ida.saml.security.validators.issuer.KnownIssuerValidator;
+
+import javax.ws.rs.client.Client;
+import java.net.URI;
+import java.util.Timer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class KnownIssuerValidatorFactoryTest {
+
+    private static final URI METADATA_URI = URI.create("http://localhost/metadata");
+
+    private final Timer timer = new Timer(true);
+    private final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+    private JerseyClientMetadataResolver metadataResolver;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        InitializationService.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        metadataResolver.destroy();
+        timer.cancel();
+    }
+
+    @Test
+    public void shouldAcceptAnIssuerAddedByAMetadataRefreshThatWasUnknownBefore() throws Exception {
+        MetadataFactory metadataFactory = new MetadataFactory();
+        when(client.target(METADATA_URI).request().get(String.class)).thenReturn(metadataFactory.emptyMetadata(), metadataFactory.defaultMetadata());
+        metadataResolver = new JerseyClientMetadataResolver(timer, client, METADATA_URI);
+        BasicParserPool parserPool = new BasicParserPool();
+        parserPool.initialize();
+        metadataResolver.setParserPool(parserPool);
+        metadataResolver.setId("test-metadata-resolver");
+        KnownIssuerValidator knownIssuerValidator = new KnownIssuerValidatorFactory().create(metadataResolver);
+        metadataResolver.initialize();
+
+        try {
+            knownIssuerValidator.validate(TestEntityIds.HUB_ENTITY_ID);
+            fail("expected the issuer to be unknown");
+        } catch (SamlTransformationErrorException e) {
+            assertThat(knownIssuerValidator.getUnknownIssuerCount()).isEqualTo(1);
+        }
+
+        metadataResolver.refresh();
+
+        knownIssuerValidator.validate(TestEntityIds.HUB_ENTITY_ID);
+        assertThat(knownIssuerValidator.getUnknownIssuerCount()).isEqualTo(0);
+    }
+}
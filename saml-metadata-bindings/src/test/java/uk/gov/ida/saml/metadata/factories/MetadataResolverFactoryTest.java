@@ -1,25 +1,49 @@
 package uk.gov.ida.saml.metadata.factories;
 
 import com.google.common.base.Predicate;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.Criterion;
 import net.shibboleth.utilities.java.support.resolver.CriterionPredicateRegistry;
+import org.joda.time.DateTime;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
 import org.opensaml.saml.metadata.resolver.MetadataResolver;
 import org.opensaml.saml.metadata.resolver.filter.impl.SignatureValidationFilter;
 import org.opensaml.saml.metadata.resolver.impl.AbstractBatchMetadataResolver;
+import org.opensaml.saml.saml2.metadata.EntitiesDescriptor;
 import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import uk.gov.ida.saml.core.test.TestEntityIds;
 import uk.gov.ida.saml.metadata.EntitiesDescriptorNameCriterion;
+import uk.gov.ida.saml.metadata.EntitiesDescriptorNameMetadataIndex;
 import uk.gov.ida.saml.metadata.EntitiesDescriptorNamePredicate;
 import uk.gov.ida.saml.metadata.ExpiredCertificateMetadataFilter;
+import uk.gov.ida.saml.metadata.JerseyClientMetadataResolver;
+import uk.gov.ida.saml.metadata.MetadataRefreshScheduler;
+import uk.gov.ida.saml.metadata.test.factories.metadata.EntityDescriptorFactory;
+import uk.gov.ida.saml.metadata.test.factories.metadata.MetadataFactory;
 
 import javax.ws.rs.client.Client;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.ida.saml.core.test.builders.metadata.EntitiesDescriptorBuilder.anEntitiesDescriptor;
 
 public class MetadataResolverFactoryTest {
 
+    private static final URI METADATA_URI = URI.create("http://localhost/metadata");
+    private static final String IDENTITY_PROVIDERS = "identity providers";
+    private static final String SERVICE_PROVIDERS = "service providers";
+
     @Mock
     ExpiredCertificateMetadataFilter expiredCertificateMetadataFilter;
 
@@ -38,5 +62,60 @@ public class MetadataResolverFactoryTest {
         Predicate<EntityDescriptor> predicate = criterionPredicateRegistry.getPredicate(new EntitiesDescriptorNameCriterion("some-name"));
         assertThat(predicate.getClass()).isEqualTo(EntitiesDescriptorNamePredicate.class);
         assertThat(batchMetadataResolver.isResolveViaPredicatesOnly()).isTrue();
+        assertThat(batchMetadataResolver.getIndexes().stream().anyMatch(EntitiesDescriptorNameMetadataIndex.class::isInstance)).isTrue();
+    }
+
+    @Test
+    public void shouldResolveEntitiesByTheNameOfTheirEntitiesDescriptorAndByRole() throws Exception {
+        MetadataRefreshScheduler refreshScheduler = new MetadataRefreshScheduler(1, 0, 0);
+        JerseyClientMetadataResolver metadataResolver = new MetadataResolverFactory(refreshScheduler, MetadataResolverFactory.createParserPool())
+                .create(clientReturning(federationMetadata()), METADATA_URI, Collections.emptyList(), 60_000, 600_000);
+        try {
+            assertThat(entityIds(metadataResolver, new EntitiesDescriptorNameCriterion(IDENTITY_PROVIDERS)))
+                    .containsOnly(TestEntityIds.STUB_IDP_ONE, TestEntityIds.STUB_IDP_TWO);
+            assertThat(entityIds(metadataResolver, new EntitiesDescriptorNameCriterion(SERVICE_PROVIDERS)))
+                    .containsOnly(TestEntityIds.HUB_ENTITY_ID);
+            assertThat(entityIds(metadataResolver, new EntitiesDescriptorNameCriterion("some other federation"))).isEmpty();
+            assertThat(entityIds(metadataResolver, new EntityRoleCriterion(IDPSSODescriptor.DEFAULT_ELEMENT_NAME)))
+                    .containsOnly(TestEntityIds.STUB_IDP_ONE, TestEntityIds.STUB_IDP_TWO);
+            assertThat(entityIds(metadataResolver, new EntityRoleCriterion(SPSSODescriptor.DEFAULT_ELEMENT_NAME)))
+                    .containsOnly(TestEntityIds.HUB_ENTITY_ID);
+            assertThat(entityIds(metadataResolver, new EntitiesDescriptorNameCriterion(SERVICE_PROVIDERS), new EntityRoleCriterion(IDPSSODescriptor.DEFAULT_ELEMENT_NAME)))
+                    .isEmpty();
+        } finally {
+            metadataResolver.destroy();
+            refreshScheduler.shutdown();
+        }
+    }
+
+    private static String federationMetadata() throws Exception {
+        EntityDescriptorFactory entityDescriptorFactory = new EntityDescriptorFactory();
+        EntitiesDescriptor identityProviders = anEntitiesDescriptor()
+                .withName(IDENTITY_PROVIDERS)
+                .withEntityDescriptors(asList(
+                        entityDescriptorFactory.idpEntityDescriptor(TestEntityIds.STUB_IDP_ONE),
+                        entityDescriptorFactory.idpEntityDescriptor(TestEntityIds.STUB_IDP_TWO)))
+                .build();
+        EntitiesDescriptor serviceProviders = anEntitiesDescriptor()
+                .withName(SERVICE_PROVIDERS)
+                .withEntityDescriptors(Collections.singletonList(entityDescriptorFactory.hubEntityDescriptor()))
+                .build();
+        EntitiesDescriptor federation = anEntitiesDescriptor().withValidUntil(DateTime.now().plusWeeks(2)).build();
+        federation.getEntitiesDescriptors().addAll(asList(identityProviders, serviceProviders));
+        return new MetadataFactory().metadata(federation);
+    }
+
+    private static Client clientReturning(String metadata) {
+        Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.target(METADATA_URI).request().get(String.class)).thenReturn(metadata);
+        return client;
+    }
+
+    private static List<String> entityIds(MetadataResolver metadataResolver, Criterion... criteria) throws Exception {
+        List<String> entityIds = new ArrayList<>();
+        for (EntityDescriptor entityDescriptor : metadataResolver.resolve(new CriteriaSet(criteria))) {
+            entityIds.add(entityDescriptor.getEntityID());
+        }
+        return entityIds;
     }
 }
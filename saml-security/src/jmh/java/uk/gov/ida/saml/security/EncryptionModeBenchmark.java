@@ -0,0 +1,113 @@
+package uk.gov.ida.saml.security;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Attribute;
+import org.opensaml.saml.saml2.core.AttributeStatement;
+import org.opensaml.saml.saml2.core.EncryptedAssertion;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.encryption.Encrypter;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
+import uk.gov.ida.common.shared.security.PrivateKeyFactory;
+import uk.gov.ida.common.shared.security.PublicKeyFactory;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.security.saml.IdaSamlBootstrap;
+import uk.gov.ida.saml.security.saml.TestCredentialFactory;
+import uk.gov.ida.saml.security.saml.TestSamlObjectFactory;
+import uk.gov.ida.saml.security.validators.ValidatedResponse;
+import uk.gov.ida.saml.security.validators.encryptedelementtype.EncryptionAlgorithmValidator;
+
+import java.security.KeyPair;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.ida.saml.security.saml.builders.AssertionBuilder.anAssertion;
+import static uk.gov.ida.saml.security.saml.builders.ResponseBuilder.aResponse;
+
+/**
+ * Reports how many assertions per second can be encrypted and decrypted with AES-CBC and AES-GCM data encryption,
+ * for assertions of roughly the sizes we send: a bare authn assertion, a typical matching dataset and a matching
+ * dataset with a long history. Compare the figures between modes rather than trusting any one run of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EncryptionModeBenchmark {
+
+    private static final int APPROXIMATE_ATTRIBUTE_SIZE = 128;
+
+    @Param({"2048", "8192", "32768"})
+    public int assertionSize;
+
+    @Param({
+            EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128,
+            EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM,
+            EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM
+    })
+    public String dataEncryptionAlgorithm;
+
+    private Assertion assertion;
+    private Encrypter encrypter;
+    private AssertionDecrypter assertionDecrypter;
+    private ValidatedResponse encryptedResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        IdaSamlBootstrap.bootstrap();
+        Credential encryptingCredential = new TestCredentialFactory(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT, null).getEncryptingCredential();
+        assertion = assertionOfSize(assertionSize);
+        encrypter = new EncrypterFactory().withDataEncryptionAlgorithm(dataEncryptionAlgorithm).createEncrypter(encryptingCredential);
+        assertionDecrypter = assertionDecrypter();
+        Response response = aResponse().addEncryptedAssertion(encrypter.encrypt(assertion)).build();
+        encryptedResponse = new ValidatedResponse(response);
+    }
+
+    @Benchmark
+    public EncryptedAssertion encrypt() throws Exception {
+        return encrypter.encrypt(assertion);
+    }
+
+    @Benchmark
+    public List<Assertion> decrypt() {
+        return assertionDecrypter.decryptAssertions(encryptedResponse);
+    }
+
+    private static Assertion assertionOfSize(int size) {
+        TestSamlObjectFactory samlObjectFactory = new TestSamlObjectFactory();
+        AttributeStatement attributeStatement = samlObjectFactory.createAttributeStatement();
+        for (int i = 0; i < size / APPROXIMATE_ATTRIBUTE_SIZE; i++) {
+            Attribute attribute = samlObjectFactory.createAttribute();
+            attribute.setName(String.format("%0100d", i));
+            attributeStatement.getAttributes().add(attribute);
+        }
+        return anAssertion().withoutSigning().addAttributeStatement(attributeStatement).build();
+    }
+
+    private static AssertionDecrypter assertionDecrypter() throws Exception {
+        PublicKeyFactory publicKeyFactory = new PublicKeyFactory(new X509CertificateFactory());
+        KeyPair encryptionKeyPair = new KeyPair(
+                publicKeyFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT),
+                new PrivateKeyFactory().createPrivateKey(Base64.decodeBase64(TestCertificateStrings.HUB_TEST_PRIVATE_ENCRYPTION_KEY)));
+        IdaKeyStore keyStore = new IdaKeyStore(encryptionKeyPair, Collections.singletonList(encryptionKeyPair));
+        List<Credential> credentials = new IdaKeyStoreCredentialRetriever(keyStore).getDecryptingCredentials();
+        return new AssertionDecrypter(EncryptionAlgorithmValidator.acceptingGcm(), new DecrypterFactory().createDecrypter(credentials));
+    }
+}
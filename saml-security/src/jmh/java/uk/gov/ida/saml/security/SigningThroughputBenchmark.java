@@ -0,0 +1,79 @@
+package uk.gov.ida.saml.security;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.xmlsec.algorithm.SignatureAlgorithm;
+import org.opensaml.xmlsec.algorithm.descriptors.DigestSHA256;
+import org.opensaml.xmlsec.algorithm.descriptors.SignatureECDSASHA256;
+import org.opensaml.xmlsec.algorithm.descriptors.SignatureRSASHA256;
+import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.support.Signer;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.security.saml.EcTestKeys;
+import uk.gov.ida.saml.security.saml.IdaSamlBootstrap;
+
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.ida.saml.security.saml.builders.AssertionBuilder.anAssertion;
+
+/**
+ * Reports how many assertions per second can be signed with an RSA-2048 key using RSA-SHA256 and with a P-256 key
+ * using ECDSA-SHA256. Compare the figures between key types rather than trusting any one run of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SigningThroughputBenchmark {
+
+    private static final String ASSERTION_ID = "benchmark-assertion";
+
+    public enum Key { RSA_2048, EC_P256 }
+
+    @Param
+    public Key key;
+
+    private Signature signature;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        IdaSamlBootstrap.bootstrap();
+        SignatureFactory signatureFactory = key == Key.RSA_2048
+                ? signatureFactory(TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT, TestCertificateStrings.HUB_TEST_PRIVATE_SIGNING_KEY, new SignatureRSASHA256())
+                : signatureFactory(EcTestKeys.EC_PUBLIC_SIGNING_CERT, EcTestKeys.EC_PRIVATE_SIGNING_KEY, new SignatureECDSASHA256());
+        Assertion assertion = anAssertion().withId(ASSERTION_ID).withSignature(signatureFactory.createSignature(ASSERTION_ID)).withoutSigning().build();
+        signature = assertion.getSignature();
+    }
+
+    @Benchmark
+    public Signature sign() throws Exception {
+        Signer.signObject(signature);
+        return signature;
+    }
+
+    private static SignatureFactory signatureFactory(String certificate, String privateKey, SignatureAlgorithm signatureAlgorithm) {
+        X509Certificate signingCertificate = new X509CertificateFactory().createCertificate(certificate);
+        IdaKeyStore keyStore = new IdaKeyStore(
+                signingCertificate,
+                new SigningKeyPairFactory().createKeyPair(signingCertificate, Base64.decodeBase64(privateKey)),
+                Collections.emptyList());
+        return new SignatureFactory(new IdaKeyStoreCredentialRetriever(keyStore), signatureAlgorithm, new DigestSHA256());
+    }
+}
@@ -0,0 +1,210 @@
+package uk.gov.ida.saml.security;
+
+import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.Criterion;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.joda.time.DateTime;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.criterion.ProtocolCriterion;
+import org.opensaml.saml.criterion.RoleDescriptorCriterion;
+import org.opensaml.security.SecurityException;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.CredentialResolver;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.credential.criteria.impl.EvaluableCredentialCriteriaRegistry;
+import org.opensaml.security.credential.criteria.impl.EvaluableCredentialCriterion;
+import org.opensaml.security.criteria.UsageCriterion;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers the credentials resolved from metadata for each (entity id, role, usage) so that role descriptors are
+ * not walked and KeyInfo is not reparsed for every message signed, verified or encrypted.
+ *
+ * Any other criteria in a request, such as the key algorithm added by the signature trust engine or a
+ * {@link CertificateChainEvaluableCriterion}, are applied to the cached credentials in the same way the delegate
+ * would apply them. Requests that select role descriptors by protocol or by instance bypass the cache.
+ *
+ * Cached credentials are only as fresh as the metadata they came from, so the owner of this resolver must call
+ * {@link #invalidateAll()} (or {@link #invalidate(String)}) whenever the underlying metadata is refreshed. They also
+ * stop being returned once the entity's metadata passes its validUntil, if the resolver is told when that is, as the
+ * delegate stops returning them then even if the metadata could not be refreshed.
+ */
+public class CachingCredentialResolver implements CredentialResolver {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final CredentialResolver delegate;
+    private final Function<String, Optional<DateTime>> validUntil;
+    private final Cache<Key, CachedCredentials> credentials;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CachingCredentialResolver(CredentialResolver delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CachingCredentialResolver(CredentialResolver delegate, long maximumSize) {
+        this(delegate, maximumSize, entityId -> Optional.empty());
+    }
+
+    /**
+     * @param validUntil the validUntil of an entity's metadata, including that of anything it is nested in, by entity
+     *                   id; credentials cached for the entity are not returned after it
+     */
+    public CachingCredentialResolver(CredentialResolver delegate, long maximumSize, Function<String, Optional<DateTime>> validUntil) {
+        this.delegate = delegate;
+        this.validUntil = validUntil;
+        this.credentials = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public Iterable<Credential> resolve(CriteriaSet criteriaSet) throws ResolverException {
+        if (!isCacheable(criteriaSet)) {
+            return delegate.resolve(criteriaSet);
+        }
+
+        List<Predicate<Credential>> predicates = getAdditionalPredicates(criteriaSet);
+        return getCredentials(criteriaSet).stream()
+                .filter(credential -> predicates.stream().allMatch(predicate -> predicate.apply(credential)))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Credential resolveSingle(CriteriaSet criteriaSet) throws ResolverException {
+        if (!isCacheable(criteriaSet)) {
+            return delegate.resolveSingle(criteriaSet);
+        }
+
+        for (Credential credential : resolve(criteriaSet)) {
+            return credential;
+        }
+        return null;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        credentials.invalidateAll();
+    }
+
+    public void invalidate(String entityId) {
+        generation.incrementAndGet();
+        credentials.asMap().keySet().removeIf(key -> key.entityId.equals(entityId));
+    }
+
+    public long size() {
+        return credentials.size();
+    }
+
+    private List<Credential> getCredentials(CriteriaSet criteriaSet) throws ResolverException {
+        Key key = new Key(
+                criteriaSet.get(EntityIdCriterion.class).getEntityId(),
+                criteriaSet.contains(EntityRoleCriterion.class) ? criteriaSet.get(EntityRoleCriterion.class).getRole() : null,
+                criteriaSet.contains(UsageCriterion.class) ? criteriaSet.get(UsageCriterion.class).getUsage() : null);
+
+        CachedCredentials cached = credentials.getIfPresent(key);
+        if (cached != null && cached.isValid()) {
+            return cached.credentials;
+        }
+
+        // A refresh that lands while the delegate is resolving must not be overwritten with credentials from the old metadata
+        long generationBeforeResolving = generation.get();
+        DateTime entityValidUntil = validUntil.apply(key.entityId).orElse(null);
+        List<Credential> resolved = ImmutableList.copyOf(delegate.resolve(key.toCriteriaSet()));
+        if (generation.get() == generationBeforeResolving) {
+            credentials.put(key, new CachedCredentials(resolved, entityValidUntil));
+        }
+        return resolved;
+    }
+
+    private static boolean isCacheable(CriteriaSet criteriaSet) {
+        return criteriaSet.contains(EntityIdCriterion.class)
+                && !criteriaSet.contains(ProtocolCriterion.class)
+                && !criteriaSet.contains(RoleDescriptorCriterion.class);
+    }
+
+    private static List<Predicate<Credential>> getAdditionalPredicates(CriteriaSet criteriaSet) throws ResolverException {
+        List<Predicate<Credential>> predicates = new ArrayList<>();
+        for (Criterion criterion : criteriaSet) {
+            if (criterion instanceof EntityIdCriterion || criterion instanceof EntityRoleCriterion || criterion instanceof UsageCriterion) {
+                continue;
+            }
+            if (criterion instanceof EvaluableCredentialCriterion) {
+                predicates.add((EvaluableCredentialCriterion) criterion);
+                continue;
+            }
+            try {
+                EvaluableCredentialCriterion evaluableCriterion = EvaluableCredentialCriteriaRegistry.getEvaluator(criterion);
+                if (evaluableCriterion != null) {
+                    predicates.add(evaluableCriterion);
+                }
+            } catch (SecurityException e) {
+                throw new ResolverException("Unable to evaluate criterion " + criterion, e);
+            }
+        }
+        return predicates;
+    }
+
+    private static final class CachedCredentials {
+        private final List<Credential> credentials;
+        private final DateTime validUntil;
+
+        private CachedCredentials(List<Credential> credentials, DateTime validUntil) {
+            this.credentials = credentials;
+            this.validUntil = validUntil;
+        }
+
+        private boolean isValid() {
+            return validUntil == null || validUntil.isAfterNow();
+        }
+    }
+
+    private static final class Key {
+        private final String entityId;
+        private final QName role;
+        private final UsageType usage;
+
+        private Key(String entityId, QName role, UsageType usage) {
+            this.entityId = entityId;
+            this.role = role;
+            this.usage = usage;
+        }
+
+        private CriteriaSet toCriteriaSet() {
+            CriteriaSet criteriaSet = new CriteriaSet(new EntityIdCriterion(entityId));
+            if (role != null) {
+                criteriaSet.add(new EntityRoleCriterion(role));
+            }
+            if (usage != null) {
+                criteriaSet.add(new UsageCriterion(usage));
+            }
+            return criteriaSet;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return entityId.equals(key.entityId) && Objects.equals(role, key.role) && usage == key.usage;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entityId, role, usage);
+        }
+    }
+}
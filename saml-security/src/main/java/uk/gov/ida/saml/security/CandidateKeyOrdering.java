@@ -0,0 +1,227 @@
+package uk.gov.ida.saml.security;
+
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.Criterion;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.opensaml.security.SecurityException;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.CredentialResolver;
+import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
+import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Orders the trusted keys an {@link ExplicitKeySignatureTrustEngine} tries when an entity has several, as it does
+ * while rotating its signing key, so that the key that made a signature is usually the first one tried rather than
+ * costing a failed verification for each key ahead of it. Keys the signature's KeyInfo points to (by certificate,
+ * certificate digest, subject key identifier or key name) come first, then the key that last verified a signature
+ * from the same entity, then the rest in the order they were resolved.
+ *
+ * The trust engine first verifies the signature with any key its KeyInfo carries, and only compares that key with
+ * the trusted keys, so no trusted key is verified against when that succeeds. Otherwise it tries the trusted keys
+ * themselves and stops at the first that verifies, so the last key it took from the ordered candidates is the one
+ * that verified. Every key it took before that, or every key it took if none verified, was a wasted verification;
+ * these are counted and marked on the {@code signature.wasted-verifications} meter.
+ *
+ * Thread safe, and meant to be shared by every signature validator in an application.
+ */
+public class CandidateKeyOrdering {
+
+    public static final String WASTED_VERIFICATIONS = "signature.wasted-verifications";
+
+    private final SamlMetrics metrics;
+    private final Map<String, PublicKey> lastVerifyingKeys = new ConcurrentHashMap<>();
+    private final AtomicLong wastedVerifications = new AtomicLong();
+
+    public CandidateKeyOrdering() {
+        this(SamlMetrics.disabled());
+    }
+
+    public CandidateKeyOrdering(SamlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return a trust engine that trusts the same credentials as the given resolver, and tries them in the order
+     * described above when the criteria carry the signature being validated
+     */
+    public ExplicitKeySignatureTrustEngine trustEngine(CredentialResolver credentialResolver, KeyInfoCredentialResolver keyInfoResolver) {
+        return new OrderingTrustEngine(new OrderingCredentialResolver(credentialResolver), keyInfoResolver);
+    }
+
+    /**
+     * @return the number of candidate keys tried that did not verify the signature they were tried against
+     */
+    public long getWastedVerifications() {
+        return wastedVerifications.get();
+    }
+
+    CandidateKeyCriterion newCriterion(String entityId, Signature signature) {
+        return new CandidateKeyCriterion(entityId, KeyInfoHints.of(signature));
+    }
+
+    void recordOutcome(CandidateKeyCriterion criterion, boolean valid) {
+        TrackedCandidates candidates = criterion.candidates;
+        if (candidates == null) {
+            return;
+        }
+        if (candidates.trustedKeyInfoKey != null) {
+            lastVerifyingKeys.put(criterion.entityId, candidates.trustedKeyInfoKey);
+            return;
+        }
+
+        long wasted = valid ? candidates.handedOut - 1 : candidates.handedOut;
+        if (wasted > 0) {
+            wastedVerifications.addAndGet(wasted);
+            metrics.mark(WASTED_VERIFICATIONS, wasted);
+        }
+        if (valid && candidates.handedOut > 0) {
+            PublicKey verifyingKey = candidates.credentials.get(candidates.handedOut - 1).getPublicKey();
+            if (verifyingKey != null) {
+                lastVerifyingKeys.put(criterion.entityId, verifyingKey);
+            }
+        }
+    }
+
+    private List<Credential> order(List<Credential> credentials, CandidateKeyCriterion criterion) {
+        if (credentials.size() < 2) {
+            return credentials;
+        }
+
+        PublicKey lastVerifyingKey = lastVerifyingKeys.get(criterion.entityId);
+        List<Credential> hinted = new ArrayList<>();
+        List<Credential> lastVerifying = new ArrayList<>();
+        List<Credential> rest = new ArrayList<>();
+        for (Credential credential : credentials) {
+            if (!criterion.hints.isEmpty() && criterion.hints.matches(credential)) {
+                hinted.add(credential);
+            } else if (lastVerifyingKey != null && lastVerifyingKey.equals(credential.getPublicKey())) {
+                lastVerifying.add(credential);
+            } else {
+                rest.add(credential);
+            }
+        }
+        hinted.addAll(lastVerifying);
+        hinted.addAll(rest);
+        return hinted;
+    }
+
+    /**
+     * Carries one signature's KeyInfo hints from the signature validator to the resolver, and the candidates the
+     * resolver ordered for it back again. Used for one validation only.
+     */
+    static final class CandidateKeyCriterion implements Criterion {
+        private final String entityId;
+        private final KeyInfoHints hints;
+        private TrackedCandidates candidates;
+
+        private CandidateKeyCriterion(String entityId, KeyInfoHints hints) {
+            this.entityId = entityId;
+            this.hints = hints;
+        }
+    }
+
+    /**
+     * Compares a key from the signature's KeyInfo with the trusted keys without counting them as tried, as none of
+     * them is verified against.
+     */
+    private static final class OrderingTrustEngine extends ExplicitKeySignatureTrustEngine {
+
+        private OrderingTrustEngine(CredentialResolver credentialResolver, KeyInfoCredentialResolver keyInfoResolver) {
+            super(credentialResolver, keyInfoResolver);
+        }
+
+        @Override
+        protected boolean evaluateTrust(Credential untrustedCredential, Iterable<Credential> trustedCredentials) throws SecurityException {
+            if (!(trustedCredentials instanceof TrackedCandidates)) {
+                return super.evaluateTrust(untrustedCredential, trustedCredentials);
+            }
+
+            TrackedCandidates candidates = (TrackedCandidates) trustedCredentials;
+            boolean trusted = super.evaluateTrust(untrustedCredential, candidates.credentials);
+            if (trusted) {
+                candidates.trustedKeyInfoKey = untrustedCredential.getPublicKey();
+            }
+            return trusted;
+        }
+    }
+
+    private final class OrderingCredentialResolver implements CredentialResolver {
+        private final CredentialResolver delegate;
+
+        private OrderingCredentialResolver(CredentialResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Iterable<Credential> resolve(CriteriaSet criteriaSet) throws ResolverException {
+            CandidateKeyCriterion criterion = criteriaSet.get(CandidateKeyCriterion.class);
+            if (criterion == null) {
+                return delegate.resolve(criteriaSet);
+            }
+
+            CriteriaSet delegateCriteria = new CriteriaSet();
+            for (Criterion each : criteriaSet) {
+                if (each != criterion) {
+                    delegateCriteria.add(each);
+                }
+            }
+            List<Credential> credentials = new ArrayList<>();
+            delegate.resolve(delegateCriteria).forEach(credentials::add);
+            criterion.candidates = new TrackedCandidates(order(credentials, criterion));
+            return criterion.candidates;
+        }
+
+        @Override
+        public Credential resolveSingle(CriteriaSet criteriaSet) throws ResolverException {
+            Iterator<Credential> credentials = resolve(criteriaSet).iterator();
+            return credentials.hasNext() ? credentials.next() : null;
+        }
+    }
+
+    /**
+     * Remembers how many candidates the most recent pass over them took, which for a trust engine that stops at the
+     * first key to verify is how many keys it tried, and the KeyInfo key that was found trusted, if any.
+     */
+    private static final class TrackedCandidates implements Iterable<Credential> {
+        private final List<Credential> credentials;
+        private int handedOut;
+        private PublicKey trustedKeyInfoKey;
+
+        private TrackedCandidates(List<Credential> credentials) {
+            this.credentials = credentials;
+        }
+
+        @Override
+        public Iterator<Credential> iterator() {
+            handedOut = 0;
+            return new Iterator<Credential>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < credentials.size();
+                }
+
+                @Override
+                public Credential next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    handedOut = ++next;
+                    return credentials.get(next - 1);
+                }
+            };
+        }
+    }
+}
@@ -42,12 +42,24 @@ public class CertificateChainEvaluableCriterion implements EvaluableCredentialCr
 
     private final CertificateChainValidator certificateChainValidator;
     private final KeyStore keyStore;
+    private final CertificateValidityCache certificateValidityCache;
     private final Logger log = LoggerFactory.getLogger(CertificateChainEvaluableCriterion.class);
 
 
     public CertificateChainEvaluableCriterion(CertificateChainValidator certificateChainValidator, KeyStore keyStore) {
         this.certificateChainValidator = certificateChainValidator;
         this.keyStore = keyStore;
+        this.certificateValidityCache = null;
+    }
+
+    /**
+     * @param certificateValidityCache where to remember the outcome of validating each certificate, so that it is
+     *                                 not validated again for every signature it is used to check
+     */
+    public CertificateChainEvaluableCriterion(CertificateChainValidator certificateChainValidator, KeyStore keyStore, CertificateValidityCache certificateValidityCache) {
+        this.certificateChainValidator = certificateChainValidator;
+        this.keyStore = keyStore;
+        this.certificateValidityCache = certificateValidityCache;
     }
 
     @Override
@@ -69,7 +81,9 @@ public class CertificateChainEvaluableCriterion implements EvaluableCredentialCr
         }
 
         try {
-            CertificateValidity result = certificateChainValidator.validate(entityCert, keyStore);
+            CertificateValidity result = certificateValidityCache != null
+                    ? certificateValidityCache.validate(entityCert, keyStore, certificateChainValidator)
+                    : certificateChainValidator.validate(entityCert, keyStore);
             if (result.isValid()) {
                 return Boolean.TRUE;
             }
@@ -0,0 +1,75 @@
+package uk.gov.ida.saml.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import uk.gov.ida.saml.core.crypto.CryptoProviders;
+
+import java.io.ByteArrayInputStream;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Parses each distinct X.509 certificate once and hands out the same {@link X509Certificate} (and so the same
+ * {@link PublicKey}) for every later request for it. Certificates are keyed by the SHA-256 digest of their DER
+ * encoding and the least recently used are evicted once the cache is full.
+ */
+public class CertificateInterner {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 5_000;
+
+    private static final CertificateInterner DEFAULT = new CertificateInterner(DEFAULT_MAXIMUM_SIZE);
+
+    private final Cache<String, X509Certificate> certificates;
+
+    public CertificateInterner(long maximumSize) {
+        this.certificates = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public static CertificateInterner getDefault() {
+        return DEFAULT;
+    }
+
+    public X509Certificate intern(byte[] derValue) throws CertificateException {
+        String digest = Hashing.sha256().hashBytes(derValue).toString();
+        try {
+            return certificates.get(digest, () -> parse(derValue));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof CertificateException) {
+                throw (CertificateException) e.getCause();
+            }
+            throw new CertificateException("Unable to parse X.509 certificate", e.getCause());
+        }
+    }
+
+    public X509Certificate intern(String base64EncodedCertificate) throws CertificateException {
+        final byte[] derValue;
+        try {
+            derValue = Base64.getMimeDecoder().decode(base64EncodedCertificate);
+        } catch (IllegalArgumentException e) {
+            throw new CertificateException("X.509 certificate is not valid base64", e);
+        }
+        return intern(derValue);
+    }
+
+    public PublicKey getPublicKey(String base64EncodedCertificate) throws CertificateException {
+        return intern(base64EncodedCertificate).getPublicKey();
+    }
+
+    public long size() {
+        return certificates.size();
+    }
+
+    private static X509Certificate parse(byte[] derValue) throws CertificateException {
+        // CertificateFactory is not documented as thread safe, and a new one is cheap next to the parse itself
+        CertificateFactory certificateFactory = CryptoProviders.certificateFactory("X.509");
+        return (X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(derValue));
+    }
+}
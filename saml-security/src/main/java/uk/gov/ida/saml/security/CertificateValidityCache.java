@@ -0,0 +1,147 @@
+package uk.gov.ida.saml.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.joda.time.DateTimeUtils;
+import uk.gov.ida.common.shared.security.verification.CertificateChainValidator;
+import uk.gov.ida.common.shared.security.verification.CertificateValidity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the outcome of PKIX certificate chain validation so that the same certificate is not revalidated
+ * against the same trust store on every metadata refresh and every signature check.
+ *
+ * Results are keyed by the SHA-256 digest of the certificate, the validator and a SHA-256 fingerprint of the aliases
+ * and certificates in the trust store, and are only reused while the certificate is within its validity period and
+ * the configured time to live has not passed. The fingerprint is taken from the trust store's contents on every
+ * validation, so a trust store changed in place is never matched against results from before the change.
+ */
+public class CertificateValidityCache {
+
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private static final CertificateValidityCache DEFAULT = new CertificateValidityCache(DEFAULT_TIME_TO_LIVE_MILLIS, DEFAULT_MAXIMUM_SIZE);
+
+    private final long timeToLiveMillis;
+    private final Cache<Key, Entry> results;
+
+    public CertificateValidityCache(long timeToLiveMillis, long maximumSize) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public static CertificateValidityCache getDefault() {
+        return DEFAULT;
+    }
+
+    public CertificateValidity validate(X509Certificate certificate, KeyStore trustStore, CertificateChainValidator certificateChainValidator) {
+        if (trustStore == null) {
+            return certificateChainValidator.validate(certificate, trustStore);
+        }
+
+        Key key = new Key(digest(certificate), fingerprint(trustStore), certificateChainValidator);
+        long now = DateTimeUtils.currentTimeMillis();
+
+        Entry cached = results.getIfPresent(key);
+        if (cached != null && cached.isUsableAt(now)) {
+            return cached.validity;
+        }
+
+        CertificateValidity validity = certificateChainValidator.validate(certificate, trustStore);
+        results.put(key, new Entry(validity, certificate.getNotBefore().getTime(), Math.min(certificate.getNotAfter().getTime(), now + timeToLiveMillis)));
+        return validity;
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    public long size() {
+        return results.size();
+    }
+
+    private static String fingerprint(KeyStore trustStore) {
+        try {
+            Hasher hasher = Hashing.sha256().newHasher();
+            List<String> aliases = Collections.list(trustStore.aliases());
+            Collections.sort(aliases);
+            for (String alias : aliases) {
+                Certificate certificate = trustStore.getCertificate(alias);
+                hasher.putString(alias, StandardCharsets.UTF_8);
+                if (certificate != null) {
+                    hasher.putBytes(certificate.getEncoded());
+                }
+            }
+            return hasher.hash().toString();
+        } catch (KeyStoreException | CertificateEncodingException e) {
+            throw new IllegalArgumentException("Unable to fingerprint trust store", e);
+        }
+    }
+
+    private static String digest(X509Certificate certificate) {
+        try {
+            return Hashing.sha256().hashBytes(certificate.getEncoded()).toString();
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException("Unable to encode certificate " + certificate.getSubjectDN(), e);
+        }
+    }
+
+    private static final class Key {
+        private final String certificateDigest;
+        private final String trustStoreFingerprint;
+        private final CertificateChainValidator certificateChainValidator;
+
+        private Key(String certificateDigest, String trustStoreFingerprint, CertificateChainValidator certificateChainValidator) {
+            this.certificateDigest = certificateDigest;
+            this.trustStoreFingerprint = trustStoreFingerprint;
+            this.certificateChainValidator = certificateChainValidator;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return certificateDigest.equals(key.certificateDigest)
+                    && trustStoreFingerprint.equals(key.trustStoreFingerprint)
+                    && certificateChainValidator == key.certificateChainValidator;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(certificateDigest, trustStoreFingerprint, System.identityHashCode(certificateChainValidator));
+        }
+    }
+
+    private static final class Entry {
+        private final CertificateValidity validity;
+        private final long notBefore;
+        private final long expiresAt;
+
+        private Entry(CertificateValidity validity, long notBefore, long expiresAt) {
+            this.validity = validity;
+            this.notBefore = notBefore;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isUsableAt(long time) {
+            return time >= notBefore && time < expiresAt;
+        }
+    }
+}
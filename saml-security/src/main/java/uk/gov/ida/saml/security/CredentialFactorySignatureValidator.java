@@ -9,7 +9,6 @@ import org.opensaml.security.trust.TrustEngine;
 import org.opensaml.xmlsec.config.impl.DefaultSecurityConfigurationBootstrap;
 import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
 import org.opensaml.xmlsec.signature.Signature;
-import org.opensaml.xmlsec.signature.support.impl.ExplicitKeySignatureTrustEngine;
 
 import javax.xml.namespace.QName;
 import java.util.Arrays;
@@ -23,6 +22,16 @@ public class CredentialFactorySignatureValidator extends SignatureValidator {
         this.credentialFactory = credentialFactory;
     }
 
+    public CredentialFactorySignatureValidator(SigningCredentialFactory credentialFactory, CryptoBulkhead cryptoBulkhead) {
+        super(cryptoBulkhead);
+        this.credentialFactory = credentialFactory;
+    }
+
+    public CredentialFactorySignatureValidator(SigningCredentialFactory credentialFactory, CryptoBulkhead cryptoBulkhead, CandidateKeyOrdering candidateKeyOrdering) {
+        super(cryptoBulkhead, candidateKeyOrdering);
+        this.credentialFactory = credentialFactory;
+    }
+
     @Override
     protected List<Criterion> getAdditionalCriteria(String entityId, QName role) {
         return Arrays.asList(new Criterion() {});
@@ -34,6 +43,6 @@ public class CredentialFactorySignatureValidator extends SignatureValidator {
 
         CredentialResolver credResolver = new StaticCredentialResolver(credentials);
         KeyInfoCredentialResolver kiResolver = DefaultSecurityConfigurationBootstrap.buildBasicInlineKeyInfoCredentialResolver();
-        return new ExplicitKeySignatureTrustEngine(credResolver, kiResolver);
+        return getCandidateKeyOrdering().trustEngine(credResolver, kiResolver);
     }
 }
@@ -0,0 +1,189 @@
+package uk.gov.ida.saml.security;
+
+import org.joda.time.Duration;
+import uk.gov.ida.saml.security.exception.CryptoOverloadedException;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how many private-key and signature operations of each kind run at once, so that a burst of logins queues
+ * briefly and is then turned away with a {@link CryptoOverloadedException} rather than saturating every core and
+ * slowing every request down together.
+ *
+ * Each {@link Operation} with a limit has its own permits, a bounded number of callers that may wait for one, and a
+ * longest wait. A caller is rejected straight away if the queue is full, or once its wait reaches the longest wait.
+ * Permits are handed out in the order callers asked for them, so a caller arriving while others wait queues behind
+ * them rather than taking the next free permit.
+ *
+ * Each rejection marks a {@code crypto.<operation>.rejected} meter, the queue depth seen by each caller that has to
+ * wait is recorded in a {@code crypto.<operation>.queue-depth} histogram, and a {@code crypto.<operation>.waiting}
+ * gauge reports how many callers are waiting now. Operations without a limit run directly.
+ */
+public class CryptoBulkhead {
+
+    public enum Operation {
+        SIGN,
+        VERIFY,
+        DECRYPT;
+
+        private final String metricName = "crypto." + name().toLowerCase();
+    }
+
+    @FunctionalInterface
+    public interface CryptoCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface CryptoAction<E extends Exception> {
+        void run() throws E;
+    }
+
+    private static final CryptoBulkhead UNLIMITED = new CryptoBulkhead(new EnumMap<>(Operation.class), SamlMetrics.disabled());
+
+    private final Map<Operation, Lane> lanes;
+    private final SamlMetrics metrics;
+
+    private CryptoBulkhead(Map<Operation, Lane> lanes, SamlMetrics metrics) {
+        this.lanes = lanes;
+        this.metrics = metrics;
+        lanes.values().forEach(lane -> metrics.gauge(lane.operation.metricName + ".waiting", lane.queued::get));
+    }
+
+    public static CryptoBulkhead unlimited() {
+        return UNLIMITED;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @throws CryptoOverloadedException if the operation could not be admitted; it has not been started
+     */
+    public <T, E extends Exception> T call(Operation operation, CryptoCall<T, E> call) throws E {
+        Lane lane = lanes.get(operation);
+        if (lane == null) {
+            return call.call();
+        }
+        lane.admit(metrics);
+        try {
+            return call.call();
+        } finally {
+            lane.permits.release();
+        }
+    }
+
+    /**
+     * @throws CryptoOverloadedException if the operation could not be admitted; it has not been started
+     */
+    public <E extends Exception> void run(Operation operation, CryptoAction<E> action) throws E {
+        call(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public boolean isLimited(Operation operation) {
+        return lanes.containsKey(operation);
+    }
+
+    /**
+     * @return how many callers are waiting to start the operation
+     */
+    public int getQueueDepth(Operation operation) {
+        Lane lane = lanes.get(operation);
+        return lane == null ? 0 : lane.queued.get();
+    }
+
+    /**
+     * @return how many callers have been turned away from the operation
+     */
+    public long getRejectionCount(Operation operation) {
+        Lane lane = lanes.get(operation);
+        return lane == null ? 0 : lane.rejections.sum();
+    }
+
+    public static class Builder {
+
+        private final Map<Operation, Lane> lanes = new EnumMap<>(Operation.class);
+        private SamlMetrics metrics = SamlMetrics.disabled();
+
+        private Builder() {
+        }
+
+        public Builder withMetrics(SamlMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrent how many of the operation may run at once; no more than the number of cores is sensible
+         * @param maxQueued     how many callers may wait for one to finish before further callers are turned away
+         * @param maxWait       how long a caller may wait before it is turned away
+         */
+        public Builder withLimit(Operation operation, int maxConcurrent, int maxQueued, Duration maxWait) {
+            if (maxConcurrent < 1 || maxQueued < 0) {
+                throw new IllegalArgumentException("A crypto operation needs at least one permit and a queue of zero or more");
+            }
+            lanes.put(operation, new Lane(operation, maxConcurrent, maxQueued, maxWait));
+            return this;
+        }
+
+        public CryptoBulkhead build() {
+            return new CryptoBulkhead(new EnumMap<>(lanes), metrics);
+        }
+    }
+
+    private static final class Lane {
+        private final Operation operation;
+        private final Semaphore permits;
+        private final int maxQueued;
+        private final long maxWaitNanos;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LongAdder rejections = new LongAdder();
+
+        private Lane(Operation operation, int maxConcurrent, int maxQueued, Duration maxWait) {
+            this.operation = operation;
+            this.permits = new Semaphore(maxConcurrent, true);
+            this.maxQueued = maxQueued;
+            this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait.getMillis());
+        }
+
+        private void admit(SamlMetrics metrics) {
+            try {
+                // Unlike tryAcquire(), a timed tryAcquire does not take a permit ahead of callers that are waiting
+                if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+                int depth = queued.incrementAndGet();
+                try {
+                    if (depth > maxQueued) {
+                        throw reject("the queue is full", metrics);
+                    }
+                    metrics.update(operation.metricName + ".queue-depth", depth);
+                    if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                        throw reject("no permit became free in time", metrics);
+                    }
+                } finally {
+                    queued.decrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("interrupted while waiting", metrics);
+            }
+        }
+
+        private CryptoOverloadedException reject(String reason, SamlMetrics metrics) {
+            rejections.increment();
+            metrics.mark(operation.metricName + ".rejected", 1);
+            return new CryptoOverloadedException(operation, reason);
+        }
+    }
+}
@@ -14,6 +14,10 @@ import java.util.List;
 
 public class DecrypterFactory {
     public Decrypter createDecrypter(List<Credential> credentials) {
+        return createDecrypter(credentials, CryptoBulkhead.unlimited());
+    }
+
+    public Decrypter createDecrypter(List<Credential> credentials, CryptoBulkhead cryptoBulkhead) {
 
         // Resolves local credentials by using information in the EncryptedKey/KeyInfo to query the supplied
         // local credential resolver.
@@ -24,6 +28,6 @@ public class DecrypterFactory {
 
         ChainingEncryptedKeyResolver encryptedKeyResolver = new ChainingEncryptedKeyResolver(encKeyResolvers);
 
-        return new IdaDecrypter(null, kekResolver, encryptedKeyResolver);
+        return new IdaDecrypter(null, kekResolver, encryptedKeyResolver, cryptoBulkhead);
     }
 }
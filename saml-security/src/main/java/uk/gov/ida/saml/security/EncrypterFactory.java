@@ -1,14 +1,33 @@
 package uk.gov.ida.saml.security;
 
+import com.google.common.collect.ImmutableList;
 import org.opensaml.saml.saml2.encryption.Encrypter;
+import org.opensaml.saml.saml2.metadata.EncryptionMethod;
+import org.opensaml.saml.security.impl.SAMLMDCredentialContext;
 import org.opensaml.security.credential.Credential;
 import org.opensaml.xmlsec.encryption.support.DataEncryptionParameters;
 import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
 import org.opensaml.xmlsec.encryption.support.KeyEncryptionParameters;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 public class EncrypterFactory {
+
+    /**
+     * AES-GCM first, for recipients whose metadata says they accept it, then the AES-128-CBC that every recipient
+     * accepts. GCM authenticates the data as it encrypts it, and is much faster than CBC where the processor has AES
+     * instructions.
+     */
+    public static final List<String> GCM_PREFERRED_DATA_ENCRYPTION_ALGORITHMS = ImmutableList.of(
+            EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM,
+            EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM,
+            EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128);
+
     private String keyEncryptionAlgorithm = EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP;
     private String dataEncryptionAlgorithm = EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128;
+    private List<String> preferredDataEncryptionAlgorithms = ImmutableList.of();
     private Encrypter.KeyPlacement keyPlacement = Encrypter.KeyPlacement.PEER;
 
     public EncrypterFactory withKeyEncryptionAlgorithm(String algorithm) {
@@ -21,6 +40,16 @@ public class EncrypterFactory {
         return this;
     }
 
+    /**
+     * Chooses the data encryption algorithm for each recipient from the {@code EncryptionMethod}s in its metadata:
+     * the first of {@code algorithms}, in order, that the recipient lists. Recipients that list none of them, or whose
+     * credential did not come from metadata, get the algorithm set by {@link #withDataEncryptionAlgorithm}.
+     */
+    public EncrypterFactory withPreferredDataEncryptionAlgorithms(List<String> algorithms) {
+        preferredDataEncryptionAlgorithms = ImmutableList.copyOf(algorithms);
+        return this;
+    }
+
     public EncrypterFactory withKeyPlacement(Encrypter.KeyPlacement keyPlacement) {
         this.keyPlacement = keyPlacement;
         return this;
@@ -28,7 +57,7 @@ public class EncrypterFactory {
 
     public Encrypter createEncrypter(Credential credential) {
         DataEncryptionParameters encParams = new DataEncryptionParameters();
-        encParams.setAlgorithm(dataEncryptionAlgorithm);
+        encParams.setAlgorithm(getDataEncryptionAlgorithm(credential));
 
         KeyEncryptionParameters kekParams = new KeyEncryptionParameters();
         kekParams.setEncryptionCredential(credential);
@@ -39,4 +68,24 @@ public class EncrypterFactory {
 
         return encrypter;
     }
+
+    /**
+     * @return the data encryption algorithm that {@link #createEncrypter} will use for the recipient of {@code credential}
+     */
+    public String getDataEncryptionAlgorithm(Credential credential) {
+        if (preferredDataEncryptionAlgorithms.isEmpty()) {
+            return dataEncryptionAlgorithm;
+        }
+        SAMLMDCredentialContext metadataContext = credential.getCredentialContextSet().get(SAMLMDCredentialContext.class);
+        if (metadataContext == null) {
+            return dataEncryptionAlgorithm;
+        }
+        Set<String> advertisedAlgorithms = metadataContext.getEncryptionMethods().stream()
+                .map(EncryptionMethod::getAlgorithm)
+                .collect(Collectors.toSet());
+        return preferredDataEncryptionAlgorithms.stream()
+                .filter(advertisedAlgorithms::contains)
+                .findFirst()
+                .orElse(dataEncryptionAlgorithm);
+    }
 }
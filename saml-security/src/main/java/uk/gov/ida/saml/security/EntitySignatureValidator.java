@@ -0,0 +1,85 @@
+package uk.gov.ida.saml.security;
+
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.opensaml.saml.common.SignableSAMLObject;
+import org.opensaml.saml.security.impl.SAMLSignatureProfileValidator;
+import org.opensaml.security.SecurityException;
+import org.opensaml.security.trust.TrustEngine;
+import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.support.SignatureException;
+import uk.gov.ida.saml.core.events.SamlEvents;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Validates signatures from one entity in one role, looking up the trust engine and building the criteria only for
+ * the first signature it validates. Not thread safe: use one per message.
+ */
+public final class EntitySignatureValidator {
+
+    private final SignatureValidator signatureValidator;
+    private final String entityId;
+    private final QName role;
+    private final SAMLSignatureProfileValidator samlSignatureProfileValidator;
+    private final CryptoBulkhead cryptoBulkhead;
+    private final CandidateKeyOrdering candidateKeyOrdering;
+    private TrustEngine<Signature> trustEngine;
+    private CriteriaSet criteria;
+
+    EntitySignatureValidator(
+            SignatureValidator signatureValidator,
+            String entityId,
+            QName role,
+            SAMLSignatureProfileValidator samlSignatureProfileValidator,
+            CryptoBulkhead cryptoBulkhead,
+            CandidateKeyOrdering candidateKeyOrdering) {
+        this.signatureValidator = signatureValidator;
+        this.entityId = entityId;
+        this.role = role;
+        this.samlSignatureProfileValidator = samlSignatureProfileValidator;
+        this.cryptoBulkhead = cryptoBulkhead;
+        this.candidateKeyOrdering = candidateKeyOrdering;
+    }
+
+    public boolean validate(SignableSAMLObject signableSAMLObject) throws SecurityException, SignatureException {
+        SamlEvents.SignatureValidation event = SamlEvents.startSignatureValidation();
+        String outcome = SamlEvents.FAILURE;
+        try {
+            boolean valid = validateSignature(signableSAMLObject);
+            outcome = valid ? SamlEvents.SUCCESS : SamlEvents.INVALID;
+            return valid;
+        } finally {
+            event.complete(entityId, role, signableSAMLObject.getSignature(), outcome);
+        }
+    }
+
+    private boolean validateSignature(SignableSAMLObject signableSAMLObject) throws SecurityException, SignatureException {
+        Signature signature = signableSAMLObject.getSignature();
+
+        if (signature == null) {
+            throw new SignatureException("Signature in signableSAMLObject is null");
+        }
+
+        samlSignatureProfileValidator.validate(signature);
+
+        if (trustEngine == null) {
+            criteria = signatureValidator.buildCriteria(entityId, role);
+            trustEngine = signatureValidator.getTrustEngine(entityId);
+        }
+        CandidateKeyOrdering.CandidateKeyCriterion candidateKeyCriterion = candidateKeyOrdering.newCriterion(entityId, signature);
+        CriteriaSet signatureCriteria = new CriteriaSet();
+        signatureCriteria.addAll(criteria);
+        signatureCriteria.add(candidateKeyCriterion);
+        boolean valid = cryptoBulkhead.call(CryptoBulkhead.Operation.VERIFY, () -> trustEngine.validate(signature, signatureCriteria));
+        candidateKeyOrdering.recordOutcome(candidateKeyCriterion, valid);
+        return valid;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public QName getRole() {
+        return role;
+    }
+}
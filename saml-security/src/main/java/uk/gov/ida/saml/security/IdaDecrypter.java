@@ -11,6 +11,7 @@ import org.opensaml.xmlsec.encryption.support.EncryptedKeyResolver;
 import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.ida.saml.core.events.SamlEvents;
 
 /**
  * Class which implements SAML2-specific options for {@link org.opensaml.saml.saml2.core.EncryptedElementType} objects.
@@ -25,6 +26,8 @@ public class IdaDecrypter extends Decrypter {
     /** Class logger. */
     private static final Logger LOG = LoggerFactory.getLogger(IdaDecrypter.class);
 
+    private final CryptoBulkhead cryptoBulkhead;
+
     /**
      * Constructor.
      *
@@ -34,7 +37,21 @@ public class IdaDecrypter extends Decrypter {
      */
     public IdaDecrypter(KeyInfoCredentialResolver newResolver, KeyInfoCredentialResolver newKEKResolver,
                         EncryptedKeyResolver newEncKeyResolver) {
+        this(newResolver, newKEKResolver, newEncKeyResolver, CryptoBulkhead.unlimited());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param newResolver resolver for data encryption keys.
+     * @param newKEKResolver resolver for key encryption keys.
+     * @param newEncKeyResolver resolver for EncryptedKey elements
+     * @param cryptoBulkhead limits how many assertions are decrypted at once
+     */
+    public IdaDecrypter(KeyInfoCredentialResolver newResolver, KeyInfoCredentialResolver newKEKResolver,
+                        EncryptedKeyResolver newEncKeyResolver, CryptoBulkhead cryptoBulkhead) {
         super(newResolver, newKEKResolver, newEncKeyResolver);
+        this.cryptoBulkhead = cryptoBulkhead;
     }
 
     /**
@@ -45,11 +62,18 @@ public class IdaDecrypter extends Decrypter {
      * @throws org.opensaml.xmlsec.encryption.support.DecryptionException thrown when decryption generates an error
      */
     public Assertion decrypt(EncryptedAssertion encryptedAssertion) throws DecryptionException {
-        SAMLObject samlObject = decryptData(encryptedAssertion);
-        if (! (samlObject instanceof Assertion)) {
-            throw new DecryptionException("Decrypted SAMLObject was not an instance of Assertion");
+        SamlEvents.Decryption event = SamlEvents.startDecryption();
+        Assertion assertion = null;
+        try {
+            SAMLObject samlObject = cryptoBulkhead.call(CryptoBulkhead.Operation.DECRYPT, () -> decryptData(encryptedAssertion));
+            if (! (samlObject instanceof Assertion)) {
+                throw new DecryptionException("Decrypted SAMLObject was not an instance of Assertion");
+            }
+            assertion = (Assertion) samlObject;
+            return assertion;
+        } finally {
+            event.complete(encryptedAssertion, assertion, assertion == null ? SamlEvents.FAILURE : SamlEvents.SUCCESS);
         }
-        return (Assertion) samlObject;
     }
 
 
@@ -30,4 +30,11 @@ public class IdaKeyStore {
     public X509Certificate getSigningCertificate() {
         return signingCertificate;
     }
+
+    /**
+     * @return the JCA name of the signing key's algorithm, such as "RSA" or "EC"
+     */
+    public String getSigningKeyAlgorithm() {
+        return signingKeyPair.getPublic().getAlgorithm();
+    }
 }
@@ -0,0 +1,126 @@
+package uk.gov.ida.saml.security;
+
+import com.google.common.collect.ImmutableMap;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.security.x509.X509Support;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.KeyName;
+import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.X509Data;
+import org.opensaml.xmlsec.signature.X509Digest;
+import org.opensaml.xmlsec.signature.X509SKI;
+import org.opensaml.xmlsec.signature.support.SignatureConstants;
+import uk.gov.ida.saml.core.crypto.CryptoProviders;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What a signature's KeyInfo says about the key that made it: the public keys of any certificates, and any
+ * certificate digests, subject key identifiers and key names. These are only hints for choosing which trusted key to
+ * try first; whether a key is trusted is still decided by the trust engine, so a hint that cannot be read is ignored.
+ */
+final class KeyInfoHints {
+
+    private static final KeyInfoHints NONE = new KeyInfoHints();
+
+    private static final Map<String, String> DIGEST_ALGORITHMS = ImmutableMap.of(
+            SignatureConstants.ALGO_ID_DIGEST_SHA1, "SHA-1",
+            SignatureConstants.ALGO_ID_DIGEST_SHA256, "SHA-256",
+            SignatureConstants.ALGO_ID_DIGEST_SHA512, "SHA-512");
+
+    private final List<PublicKey> publicKeys = new ArrayList<>();
+    private final List<byte[]> subjectKeyIdentifiers = new ArrayList<>();
+    private final List<X509Digest> certificateDigests = new ArrayList<>();
+    private final Set<String> keyNames = new HashSet<>();
+
+    private KeyInfoHints() {
+    }
+
+    static KeyInfoHints of(Signature signature) {
+        KeyInfo keyInfo = signature.getKeyInfo();
+        if (keyInfo == null) {
+            return NONE;
+        }
+
+        KeyInfoHints hints = new KeyInfoHints();
+        for (X509Data x509Data : keyInfo.getX509Datas()) {
+            for (org.opensaml.xmlsec.signature.X509Certificate certificate : x509Data.getX509Certificates()) {
+                try {
+                    hints.publicKeys.add(CertificateInterner.getDefault().getPublicKey(certificate.getValue()));
+                } catch (CertificateException | RuntimeException e) {
+                    // Not a usable hint; the trust engine will reject the certificate itself if it matters
+                }
+            }
+            for (X509SKI ski : x509Data.getX509SKIs()) {
+                if (ski.getValue() == null) {
+                    continue;
+                }
+                try {
+                    hints.subjectKeyIdentifiers.add(Base64.getMimeDecoder().decode(ski.getValue()));
+                } catch (IllegalArgumentException e) {
+                    // Not a usable hint
+                }
+            }
+            hints.certificateDigests.addAll(x509Data.getX509Digests());
+        }
+        for (KeyName keyName : keyInfo.getKeyNames()) {
+            hints.keyNames.add(keyName.getValue());
+        }
+        return hints;
+    }
+
+    boolean isEmpty() {
+        return publicKeys.isEmpty() && subjectKeyIdentifiers.isEmpty() && certificateDigests.isEmpty() && keyNames.isEmpty();
+    }
+
+    boolean matches(Credential credential) {
+        if (credential.getPublicKey() != null && publicKeys.contains(credential.getPublicKey())) {
+            return true;
+        }
+        if (credential.getKeyNames().stream().anyMatch(keyNames::contains)) {
+            return true;
+        }
+        if (credential instanceof X509Credential && ((X509Credential) credential).getEntityCertificate() != null) {
+            X509Certificate certificate = ((X509Credential) credential).getEntityCertificate();
+            return matchesSubjectKeyIdentifier(certificate) || matchesDigest(certificate);
+        }
+        return false;
+    }
+
+    private boolean matchesSubjectKeyIdentifier(X509Certificate certificate) {
+        if (subjectKeyIdentifiers.isEmpty()) {
+            return false;
+        }
+        byte[] subjectKeyIdentifier = X509Support.getSubjectKeyIdentifier(certificate);
+        return subjectKeyIdentifier != null && subjectKeyIdentifiers.stream().anyMatch(ski -> Arrays.equals(ski, subjectKeyIdentifier));
+    }
+
+    private boolean matchesDigest(X509Certificate certificate) {
+        for (X509Digest digest : certificateDigests) {
+            String jcaAlgorithm = DIGEST_ALGORITHMS.get(digest.getAlgorithm());
+            if (jcaAlgorithm == null || digest.getValue() == null) {
+                continue;
+            }
+            try {
+                byte[] certificateDigest = CryptoProviders.messageDigest(jcaAlgorithm).digest(certificate.getEncoded());
+                if (Arrays.equals(certificateDigest, Base64.getMimeDecoder().decode(digest.getValue()))) {
+                    return true;
+                }
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                // Not a usable hint
+            }
+        }
+        return false;
+    }
+}
@@ -20,21 +20,39 @@ public class MetadataBackedSignatureValidator extends SignatureValidator {
     private final Optional<CertificateChainEvaluableCriterion> certificateChainEvaluableCriteria;
 
     public static MetadataBackedSignatureValidator withoutCertificateChainValidation(ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine) {
-        return new MetadataBackedSignatureValidator(explicitKeySignatureTrustEngine);
+        return withoutCertificateChainValidation(explicitKeySignatureTrustEngine, CryptoBulkhead.unlimited());
+    }
+
+    public static MetadataBackedSignatureValidator withoutCertificateChainValidation(ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine, CryptoBulkhead cryptoBulkhead) {
+        return withoutCertificateChainValidation(explicitKeySignatureTrustEngine, cryptoBulkhead, new CandidateKeyOrdering());
+    }
+
+    public static MetadataBackedSignatureValidator withoutCertificateChainValidation(ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine, CryptoBulkhead cryptoBulkhead, CandidateKeyOrdering candidateKeyOrdering) {
+        return new MetadataBackedSignatureValidator(explicitKeySignatureTrustEngine, Optional.empty(), cryptoBulkhead, candidateKeyOrdering);
     }
 
     public static MetadataBackedSignatureValidator withCertificateChainValidation(ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine, CertificateChainEvaluableCriterion certificateChainEvaluableCriterion) {
-        return new MetadataBackedSignatureValidator(explicitKeySignatureTrustEngine, certificateChainEvaluableCriterion);
+        return withCertificateChainValidation(explicitKeySignatureTrustEngine, certificateChainEvaluableCriterion, CryptoBulkhead.unlimited());
+    }
+
+    public static MetadataBackedSignatureValidator withCertificateChainValidation(ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine, CertificateChainEvaluableCriterion certificateChainEvaluableCriterion, CryptoBulkhead cryptoBulkhead) {
+        return withCertificateChainValidation(explicitKeySignatureTrustEngine, certificateChainEvaluableCriterion, cryptoBulkhead, new CandidateKeyOrdering());
     }
 
-    private MetadataBackedSignatureValidator(ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine) {
-        this.explicitKeySignatureTrustEngine = explicitKeySignatureTrustEngine;
-        this.certificateChainEvaluableCriteria = Optional.empty();
+    public static MetadataBackedSignatureValidator withCertificateChainValidation(ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine, CertificateChainEvaluableCriterion certificateChainEvaluableCriterion, CryptoBulkhead cryptoBulkhead, CandidateKeyOrdering candidateKeyOrdering) {
+        return new MetadataBackedSignatureValidator(explicitKeySignatureTrustEngine, Optional.of(certificateChainEvaluableCriterion), cryptoBulkhead, candidateKeyOrdering);
     }
 
-    private MetadataBackedSignatureValidator(ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine, CertificateChainEvaluableCriterion certificateChainEvaluableCriterion) {
-        this.explicitKeySignatureTrustEngine = explicitKeySignatureTrustEngine;
-        this.certificateChainEvaluableCriteria = Optional.of(certificateChainEvaluableCriterion);
+    private MetadataBackedSignatureValidator(
+            ExplicitKeySignatureTrustEngine explicitKeySignatureTrustEngine,
+            Optional<CertificateChainEvaluableCriterion> certificateChainEvaluableCriteria,
+            CryptoBulkhead cryptoBulkhead,
+            CandidateKeyOrdering candidateKeyOrdering) {
+        super(cryptoBulkhead, candidateKeyOrdering);
+        this.explicitKeySignatureTrustEngine = candidateKeyOrdering.trustEngine(
+                explicitKeySignatureTrustEngine.getCredentialResolver(),
+                explicitKeySignatureTrustEngine.getKeyInfoResolver());
+        this.certificateChainEvaluableCriteria = certificateChainEvaluableCriteria;
     }
 
     @Override
@@ -23,8 +23,8 @@ public class SamlAssertionsSignatureValidator {
             if(!samlValidationResponse.isOK()) {
                 SamlValidationSpecificationFailure failure = samlValidationResponse.getSamlValidationSpecificationFailure();
                 if (samlValidationResponse.getCause() != null)
-                    throw new SamlTransformationErrorException(failure.getErrorMessage(), samlValidationResponse.getCause(), failure.getLogLevel());
-                throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+                    throw new SamlTransformationErrorException(failure, samlValidationResponse.getCause());
+                throw new SamlTransformationErrorException(failure);
             }
         }
         return new ValidatedAssertions(assertions);
@@ -28,6 +28,10 @@ public class SamlMessageSignatureValidator {
         this.signatureValidator = signatureValidator;
     }
 
+    public EntitySignatureValidator forIssuer(String issuerId, QName role) {
+        return signatureValidator.forEntity(issuerId, role);
+    }
+
     public SamlValidationResponse validate(Response response, QName role) {
         return validateWithIssuer(response, response.getIssuer(), role);
     }
@@ -56,6 +60,18 @@ public class SamlMessageSignatureValidator {
     }
 
     private SamlValidationResponse validateWithIssuer(SignableSAMLObject signableSAMLObject, String issuerId, QName role) {
+        return validateSignature(signableSAMLObject, signatureValidator.forEntity(issuerId, role));
+    }
+
+    /**
+     * Validates a signature with a validator that has already been created for its issuer, so that several
+     * signatures from the same issuer in one message share a trust engine and criteria. The issuer is not checked.
+     */
+    public SamlValidationResponse validate(SignableSAMLObject signableSAMLObject, EntitySignatureValidator entitySignatureValidator) {
+        return validateSignature(signableSAMLObject, entitySignatureValidator);
+    }
+
+    private SamlValidationResponse validateSignature(SignableSAMLObject signableSAMLObject, EntitySignatureValidator entitySignatureValidator) {
         if (signableSAMLObject.getSignature() == null){
             return SamlValidationResponse.anInvalidResponse(SamlTransformationErrorFactory.missingSignature());
         }
@@ -63,7 +79,7 @@ public class SamlMessageSignatureValidator {
             return SamlValidationResponse.anInvalidResponse(SamlTransformationErrorFactory.signatureNotSigned());
         }
         try {
-            if (signatureValidator.validate(signableSAMLObject, issuerId, role)) {
+            if (entitySignatureValidator.validate(signableSAMLObject)) {
                 return SamlValidationResponse.aValidResponse();
             }
             else {
@@ -55,12 +55,23 @@ public class SignatureFactory {
             }
         }
 
+        checkKeyMatchesAlgorithm(signingCredential);
         signature.setSigningCredential(signingCredential);
         signature.setSignatureAlgorithm(signatureAlgorithm.getURI());
         signature.setCanonicalizationAlgorithm(SignatureConstants.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
         return signature;
     }
 
+    private void checkKeyMatchesAlgorithm(Credential signingCredential) {
+        if (signingCredential == null || signingCredential.getPublicKey() == null || signatureAlgorithm.getKey() == null) {
+            return;
+        }
+        String keyAlgorithm = signingCredential.getPublicKey().getAlgorithm();
+        if (!signatureAlgorithm.getKey().equals(keyAlgorithm)) {
+            throw new SamlTransformationErrorException(String.format("Signing key algorithm %s does not suit signature algorithm %s", keyAlgorithm, signatureAlgorithm.getURI()), Level.ERROR);
+        }
+    }
+
     public Signature createSignature(@NotNull String id) {
         Signature signature = createSignature();
         DocumentInternalIDContentReference contentReference = new DocumentInternalIDContentReference(id);
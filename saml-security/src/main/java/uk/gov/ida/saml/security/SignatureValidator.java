@@ -19,16 +19,47 @@ import java.util.List;
 
 public abstract class SignatureValidator {
     private final SAMLSignatureProfileValidator samlSignatureProfileValidator = new SAMLSignatureProfileValidator();
+    private final CryptoBulkhead cryptoBulkhead;
+    private final CandidateKeyOrdering candidateKeyOrdering;
+
+    protected SignatureValidator() {
+        this(CryptoBulkhead.unlimited());
+    }
+
+    /**
+     * @param cryptoBulkhead limits how many signatures are verified at once
+     */
+    protected SignatureValidator(CryptoBulkhead cryptoBulkhead) {
+        this(cryptoBulkhead, new CandidateKeyOrdering());
+    }
+
+    /**
+     * @param cryptoBulkhead limits how many signatures are verified at once
+     * @param candidateKeyOrdering orders the keys tried for entities with several, for trust engines built with
+     *                             its {@link CandidateKeyOrdering#trustEngine}
+     */
+    protected SignatureValidator(CryptoBulkhead cryptoBulkhead, CandidateKeyOrdering candidateKeyOrdering) {
+        this.cryptoBulkhead = cryptoBulkhead;
+        this.candidateKeyOrdering = candidateKeyOrdering;
+    }
 
     public final boolean validate(SignableSAMLObject signableSAMLObject, String entityId, QName role) throws SecurityException, SignatureException {
-        Signature signature = signableSAMLObject.getSignature();
+        return forEntity(entityId, role).validate(signableSAMLObject);
+    }
 
-        if (signature == null) {
-            throw new SignatureException("Signature in signableSAMLObject is null");
-        }
+    /**
+     * @return a validator for several signatures from one entity, such as a Response's and those of its assertions,
+     * that looks up the trust engine and builds the criteria once, when it validates its first signature
+     */
+    public final EntitySignatureValidator forEntity(String entityId, QName role) {
+        return new EntitySignatureValidator(this, entityId, role, samlSignatureProfileValidator, cryptoBulkhead, candidateKeyOrdering);
+    }
 
-        samlSignatureProfileValidator.validate(signature);
+    protected final CandidateKeyOrdering getCandidateKeyOrdering() {
+        return candidateKeyOrdering;
+    }
 
+    final CriteriaSet buildCriteria(String entityId, QName role) {
         List<Criterion> additionalCriteria = getAdditionalCriteria(entityId, role);
         CriteriaSet criteria = new CriteriaSet();
 
@@ -48,8 +79,7 @@ public abstract class SignatureValidator {
         criteria.add(new SignatureValidationParametersCriterion(signatureValidationParameters));
 
         criteria.addAll(additionalCriteria);
-
-        return getTrustEngine(entityId).validate(signableSAMLObject.getSignature(), criteria);
+        return criteria;
     }
 
     protected abstract TrustEngine<Signature> getTrustEngine(String entityId);
@@ -0,0 +1,29 @@
+package uk.gov.ida.saml.security;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+
+import static com.google.common.base.Throwables.propagate;
+
+/**
+ * Builds the signing {@link KeyPair} for an {@link IdaKeyStore} from a certificate and its PKCS#8 encoded private
+ * key, reading the private key with the algorithm of the certificate's public key so that EC keys load as readily as
+ * RSA ones.
+ */
+public class SigningKeyPairFactory {
+
+    public KeyPair createKeyPair(X509Certificate signingCertificate, byte[] pkcs8EncodedPrivateKey) {
+        PublicKey publicKey = signingCertificate.getPublicKey();
+        try {
+            PrivateKey privateKey = KeyFactory.getInstance(publicKey.getAlgorithm()).generatePrivate(new PKCS8EncodedKeySpec(pkcs8EncodedPrivateKey));
+            return new KeyPair(publicKey, privateKey);
+        } catch (GeneralSecurityException e) {
+            throw propagate(e);
+        }
+    }
+}
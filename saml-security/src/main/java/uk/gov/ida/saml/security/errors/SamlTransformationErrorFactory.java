@@ -1,5 +1,6 @@
 package uk.gov.ida.saml.security.errors;
 
+import uk.gov.ida.saml.core.validation.PayloadExcerpt;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
 import uk.gov.ida.saml.core.validation.errors.GenericHubProfileValidationSpecification;
 import uk.gov.ida.saml.core.validation.errors.SamlValidationSpecification;
@@ -10,7 +11,7 @@ public final class SamlTransformationErrorFactory {
     }
 
     public static SamlValidationSpecificationFailure unableToDeserializeStringToOpenSaml(final String message) {
-        return new SamlValidationSpecification(SamlValidationSpecification.DESERIALIZATION_ERROR, message);
+        return new SamlValidationSpecification(SamlValidationSpecification.DESERIALIZATION_ERROR, PayloadExcerpt.of(message));
     }
 
     public static SamlValidationSpecificationFailure emptyIssuer() {
@@ -22,6 +23,10 @@ public final class SamlTransformationErrorFactory {
         return new GenericHubProfileValidationSpecification(GenericHubProfileValidationSpecification.ILLEGAL_ISSUER_FORMAT, providedFormat, expectedFormat);
     }
 
+    public static SamlValidationSpecificationFailure unknownIssuer(final String issuerId) {
+        return new GenericHubProfileValidationSpecification(GenericHubProfileValidationSpecification.UNKNOWN_ISSUER, PayloadExcerpt.of(issuerId));
+    }
+
     public static SamlValidationSpecificationFailure unableToDecrypt(final String message) {
         return new GenericHubProfileValidationSpecification(GenericHubProfileValidationSpecification.UNABLE_TO_DECRYPT, message);
     }
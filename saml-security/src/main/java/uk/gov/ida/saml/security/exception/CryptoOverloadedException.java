@@ -0,0 +1,23 @@
+package uk.gov.ida.saml.security.exception;
+
+import uk.gov.ida.saml.security.CryptoBulkhead;
+
+/**
+ * Thrown when a {@link CryptoBulkhead} turns an operation away because too many are already running or waiting.
+ * Nothing has been signed, verified or decrypted; the caller should ask the client to try again shortly, for example
+ * with a 503 and a Retry-After header. There is no stack trace, as it would cost more to capture than the rejection
+ * saves and would say nothing about the cause.
+ */
+public class CryptoOverloadedException extends RuntimeException {
+
+    private final CryptoBulkhead.Operation operation;
+
+    public CryptoOverloadedException(CryptoBulkhead.Operation operation, String reason) {
+        super("Too many " + operation + " operations; try again: " + reason, null, false, false);
+        this.operation = operation;
+    }
+
+    public CryptoBulkhead.Operation getOperation() {
+        return operation;
+    }
+}
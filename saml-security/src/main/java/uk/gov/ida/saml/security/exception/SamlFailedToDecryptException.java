@@ -15,6 +15,6 @@ public class SamlFailedToDecryptException extends SamlTransformationErrorExcepti
     }
 
     public SamlFailedToDecryptException(SamlValidationSpecificationFailure failure, Exception cause) {
-        super(failure.getErrorMessage(), cause, failure.getLogLevel());
+        super(failure, cause);
     }
 }
@@ -0,0 +1,80 @@
+package uk.gov.ida.saml.security.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Records a {@link Timer} for each stage of SAML processing, named {@code uk.gov.ida.saml.<stage>}, and marks a
+ * {@code <stage>.failures} meter whenever a stage throws. Stage names are grouped by direction, for example
+ * {@code inbound.parse}, {@code outbound.encrypt-assertions} or {@code metadata.fetch}.
+ *
+ * Metrics are optional: {@link #disabled()} runs every stage directly without touching a registry.
+ */
+public class SamlMetrics {
+
+    public static final String PREFIX = "uk.gov.ida.saml";
+
+    private static final SamlMetrics DISABLED = new SamlMetrics(null);
+
+    private final MetricRegistry metricRegistry;
+
+    public SamlMetrics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public static SamlMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return metricRegistry != null;
+    }
+
+    public <T, E extends Exception> T time(String stageName, Stage<T, E> stage) throws E {
+        if (!isEnabled()) {
+            return stage.run();
+        }
+
+        Timer.Context context = metricRegistry.timer(name(stageName)).time();
+        try {
+            return stage.run();
+        } catch (Exception e) {
+            metricRegistry.meter(name(stageName, "failures")).mark();
+            throw e;
+        } finally {
+            context.stop();
+        }
+    }
+
+    public void mark(String meterName, long count) {
+        if (isEnabled() && count > 0) {
+            metricRegistry.meter(name(meterName)).mark(count);
+        }
+    }
+
+    public void update(String histogramName, long value) {
+        if (isEnabled()) {
+            metricRegistry.histogram(name(histogramName)).update(value);
+        }
+    }
+
+    /**
+     * Registers the gauge, replacing any gauge already registered under the same name.
+     */
+    public void gauge(String gaugeName, Gauge<?> gauge) {
+        if (isEnabled()) {
+            metricRegistry.remove(name(gaugeName));
+            metricRegistry.register(name(gaugeName), gauge);
+        }
+    }
+
+    public static String name(String... names) {
+        return MetricRegistry.name(PREFIX, names);
+    }
+
+    @FunctionalInterface
+    public interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+}
@@ -0,0 +1,31 @@
+package uk.gov.ida.saml.security.metrics;
+
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.encryption.Decrypter;
+import uk.gov.ida.saml.security.AssertionDecrypter;
+import uk.gov.ida.saml.security.validators.ValidatedEncryptedAssertionContainer;
+import uk.gov.ida.saml.security.validators.encryptedelementtype.EncryptionAlgorithmValidator;
+
+import java.util.List;
+
+/**
+ * Times assertion decryption as {@code inbound.decrypt-assertions} and meters the number of assertions decrypted.
+ */
+public class TimedAssertionDecrypter extends AssertionDecrypter {
+
+    public static final String STAGE = "inbound.decrypt-assertions";
+
+    private final SamlMetrics metrics;
+
+    public TimedAssertionDecrypter(EncryptionAlgorithmValidator encryptionAlgorithmValidator, Decrypter decrypter, SamlMetrics metrics) {
+        super(encryptionAlgorithmValidator, decrypter);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<Assertion> decryptAssertions(ValidatedEncryptedAssertionContainer container) {
+        List<Assertion> assertions = metrics.time(STAGE, () -> super.decryptAssertions(container));
+        metrics.mark("inbound.assertions-decrypted", assertions.size());
+        return assertions;
+    }
+}
@@ -0,0 +1,55 @@
+package uk.gov.ida.saml.security.metrics;
+
+import org.opensaml.saml.common.SignableSAMLObject;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.RequestAbstractType;
+import org.opensaml.saml.saml2.core.Response;
+import uk.gov.ida.saml.core.validation.SamlValidationResponse;
+import uk.gov.ida.saml.security.EntitySignatureValidator;
+import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
+import uk.gov.ida.saml.security.SignatureValidator;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Times message signature validation as {@code inbound.signature-validation} and marks
+ * {@code inbound.signature-validation.invalid} for every signature that is rejected.
+ */
+public class TimedSamlMessageSignatureValidator extends SamlMessageSignatureValidator {
+
+    public static final String STAGE = "inbound.signature-validation";
+
+    private final SamlMetrics metrics;
+
+    public TimedSamlMessageSignatureValidator(SignatureValidator signatureValidator, SamlMetrics metrics) {
+        super(signatureValidator);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public SamlValidationResponse validate(Response response, QName role) {
+        return record(metrics.time(STAGE, () -> super.validate(response, role)));
+    }
+
+    @Override
+    public SamlValidationResponse validate(Assertion assertion, QName role) {
+        return record(metrics.time(STAGE, () -> super.validate(assertion, role)));
+    }
+
+    @Override
+    public SamlValidationResponse validate(RequestAbstractType request, QName role) {
+        return record(metrics.time(STAGE, () -> super.validate(request, role)));
+    }
+
+    @Override
+    public SamlValidationResponse validate(SignableSAMLObject signableSAMLObject, EntitySignatureValidator entitySignatureValidator) {
+        return record(metrics.time(STAGE, () -> super.validate(signableSAMLObject, entitySignatureValidator)));
+    }
+
+    private SamlValidationResponse record(SamlValidationResponse validationResponse) {
+        if (!validationResponse.isOK()) {
+            metrics.mark(STAGE + ".invalid", 1);
+        }
+        return validationResponse;
+    }
+}
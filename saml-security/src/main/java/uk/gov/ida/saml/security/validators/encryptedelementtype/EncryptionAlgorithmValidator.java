@@ -11,6 +11,11 @@ import uk.gov.ida.saml.security.errors.SamlTransformationErrorFactory;
 import java.util.Set;
 
 public class EncryptionAlgorithmValidator {
+
+    public static final Set<String> GCM_DATA_ENCRYPTION_ALGORITHMS = ImmutableSet.of(
+            EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM,
+            EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM);
+
     private final Set<String> algorithmWhitelist;
     private final Set<String> keyTransportAlgorithmWhitelist;
 
@@ -24,11 +29,24 @@ public class EncryptionAlgorithmValidator {
         this.keyTransportAlgorithmWhitelist = keyTransportAlgorithmWhitelist;
     }
 
+    /**
+     * @return a validator that also accepts AES-128-GCM and AES-256-GCM, and RSA-OAEP from XML Encryption 1.1 as
+     * used by eIDAS nodes, as well as the default algorithms
+     */
+    public static EncryptionAlgorithmValidator acceptingGcm() {
+        return new EncryptionAlgorithmValidator(
+                ImmutableSet.<String>builder()
+                        .add(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128)
+                        .addAll(GCM_DATA_ENCRYPTION_ALGORITHMS)
+                        .build(),
+                ImmutableSet.of(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP, EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP11));
+    }
+
     public void validate(EncryptedElementType encryptedElement) {
         final String algorithm = encryptedElement.getEncryptedData().getEncryptionMethod().getAlgorithm();
         if (!this.algorithmWhitelist.contains(algorithm)) {
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.unsupportedEncryptionAlgortithm(algorithm);
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
 
         EncryptionMethod encryptionMethod;
@@ -38,13 +56,13 @@ public class EncryptionAlgorithmValidator {
             encryptionMethod = encryptedElement.getEncryptedData().getKeyInfo().getEncryptedKeys().get(0).getEncryptionMethod();
         } else {
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.unableToLocateEncryptedKey();
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
 
         final String keyTransportAlgorithm = encryptionMethod.getAlgorithm();
         if (!keyTransportAlgorithmWhitelist.contains(keyTransportAlgorithm)) {
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.unsupportedKeyEncryptionAlgorithm(keyTransportAlgorithm);
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
     }
 }
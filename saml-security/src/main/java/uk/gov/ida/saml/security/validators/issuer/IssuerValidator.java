@@ -11,17 +11,17 @@ public class IssuerValidator {
     public void validate(Issuer assertionIssuer) {
         if (assertionIssuer == null) {
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.missingIssuer();
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
 
         if (Strings.isNullOrEmpty(assertionIssuer.getValue())) {
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.emptyIssuer();
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
 
         if (assertionIssuer.getFormat() != null && !NameIDType.ENTITY.equals(assertionIssuer.getFormat())) {
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.illegalIssuerFormat(assertionIssuer.getFormat(), NameIDType.ENTITY);
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
     }
 }
@@ -0,0 +1,80 @@
+package uk.gov.ida.saml.security.validators.issuer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import net.shibboleth.utilities.java.support.resolver.ResolverException;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.saml2.core.Issuer;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.saml.security.errors.SamlTransformationErrorFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects messages whose issuer is not in metadata, before any signature is checked.
+ *
+ * Issuers that were not found are remembered for a while, so that a flood of messages claiming to be from an
+ * unknown entity costs one metadata lookup rather than one per message. An entity added to metadata is only
+ * accepted once its negative entry expires, unless {@link #invalidateUnknownIssuers()} is called when metadata is
+ * refreshed, as the validators built by {@code KnownIssuerValidatorFactory} do. Known issuers are not cached; the
+ * metadata resolver already indexes them.
+ */
+public class KnownIssuerValidator {
+
+    public static final long DEFAULT_NEGATIVE_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final long DEFAULT_MAXIMUM_UNKNOWN_ISSUERS = 10_000;
+
+    private final MetadataResolver metadataResolver;
+    private final Cache<String, Boolean> unknownIssuers;
+
+    public KnownIssuerValidator(MetadataResolver metadataResolver) {
+        this(metadataResolver, DEFAULT_NEGATIVE_TIME_TO_LIVE_MILLIS, DEFAULT_MAXIMUM_UNKNOWN_ISSUERS);
+    }
+
+    public KnownIssuerValidator(MetadataResolver metadataResolver, long negativeTimeToLiveMillis, long maximumUnknownIssuers) {
+        this.metadataResolver = metadataResolver;
+        this.unknownIssuers = CacheBuilder.newBuilder()
+                .maximumSize(maximumUnknownIssuers)
+                .expireAfterWrite(negativeTimeToLiveMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public void validate(Issuer issuer) {
+        validate(issuer == null ? null : issuer.getValue());
+    }
+
+    public void validate(String issuerId) {
+        if (issuerId == null) {
+            throw new SamlTransformationErrorException(SamlTransformationErrorFactory.missingIssuer());
+        }
+        if (unknownIssuers.getIfPresent(issuerId) != null) {
+            throw new SamlTransformationErrorException(SamlTransformationErrorFactory.unknownIssuer(issuerId));
+        }
+
+        boolean known;
+        try {
+            known = metadataResolver.resolveSingle(new CriteriaSet(new EntityIdCriterion(issuerId))) != null;
+        } catch (ResolverException e) {
+            // Not remembered: the issuer may well be known once metadata can be read again
+            throw new SamlTransformationErrorException(SamlTransformationErrorFactory.unknownIssuer(issuerId), e);
+        }
+
+        if (!known) {
+            unknownIssuers.put(issuerId, Boolean.TRUE);
+            throw new SamlTransformationErrorException(SamlTransformationErrorFactory.unknownIssuer(issuerId));
+        }
+    }
+
+    /**
+     * Forgets every issuer that was not found, for example after metadata has been refreshed.
+     */
+    public void invalidateUnknownIssuers() {
+        unknownIssuers.invalidateAll();
+    }
+
+    public long getUnknownIssuerCount() {
+        return unknownIssuers.size();
+    }
+}
@@ -1,6 +1,7 @@
 package uk.gov.ida.saml.security.validators.signature;
 
 import org.opensaml.saml.saml2.core.RequestAbstractType;
+import uk.gov.ida.saml.core.DomReleasePolicy;
 import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
 import uk.gov.ida.saml.core.validation.SamlValidationResponse;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
@@ -11,18 +12,30 @@ import javax.xml.namespace.QName;
 public class SamlRequestSignatureValidator<T extends RequestAbstractType> {
 
     private final SamlMessageSignatureValidator samlMessageSignatureValidator;
+    private final DomReleasePolicy domReleasePolicy;
 
 
     public SamlRequestSignatureValidator(SamlMessageSignatureValidator samlMessageSignatureValidator) {
+        this(samlMessageSignatureValidator, DomReleasePolicy.RETAIN);
+    }
+
+    /**
+     * @param domReleasePolicy applied to a request once its signature, the only one it carries, is valid
+     */
+    public SamlRequestSignatureValidator(SamlMessageSignatureValidator samlMessageSignatureValidator, DomReleasePolicy domReleasePolicy) {
         this.samlMessageSignatureValidator = samlMessageSignatureValidator;
+        this.domReleasePolicy = domReleasePolicy;
     }
 
     public void validate(T samlMessage, QName role) {
         SamlValidationResponse samlValidationResponse = samlMessageSignatureValidator.validate(samlMessage, role);
 
-        if (samlValidationResponse.isOK()) return;
+        if (samlValidationResponse.isOK()) {
+            domReleasePolicy.apply(samlMessage);
+            return;
+        }
 
         SamlValidationSpecificationFailure failure = samlValidationResponse.getSamlValidationSpecificationFailure();
-        throw new SamlTransformationErrorException(failure.getErrorMessage(), samlValidationResponse.getCause(), failure.getLogLevel());
+        throw new SamlTransformationErrorException(failure, samlValidationResponse.getCause());
     }
 }
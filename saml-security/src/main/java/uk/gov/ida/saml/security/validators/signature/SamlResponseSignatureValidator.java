@@ -1,6 +1,7 @@
 package uk.gov.ida.saml.security.validators.signature;
 
 import org.opensaml.saml.saml2.core.Response;
+import uk.gov.ida.saml.core.DomReleasePolicy;
 import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
 import uk.gov.ida.saml.core.validation.SamlValidationResponse;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
@@ -12,17 +13,32 @@ import javax.xml.namespace.QName;
 public class SamlResponseSignatureValidator {
 
     private final SamlMessageSignatureValidator samlMessageSignatureValidator;
+    private final DomReleasePolicy domReleasePolicy;
 
     public SamlResponseSignatureValidator(SamlMessageSignatureValidator samlMessageSignatureValidator) {
+        this(samlMessageSignatureValidator, DomReleasePolicy.RETAIN);
+    }
+
+    /**
+     * @param domReleasePolicy applied to a Response once its signature is valid, unless it carries unencrypted
+     *                         assertions whose own signatures are still to be validated against its DOM
+     */
+    public SamlResponseSignatureValidator(SamlMessageSignatureValidator samlMessageSignatureValidator, DomReleasePolicy domReleasePolicy) {
         this.samlMessageSignatureValidator = samlMessageSignatureValidator;
+        this.domReleasePolicy = domReleasePolicy;
     }
 
     public ValidatedResponse validate(Response response, QName role) {
         SamlValidationResponse samlValidationResponse = samlMessageSignatureValidator.validate(response, role);
 
-        if (samlValidationResponse.isOK()) return new ValidatedResponse(response);
+        if (samlValidationResponse.isOK()) {
+            if (response.getAssertions().isEmpty()) {
+                domReleasePolicy.apply(response);
+            }
+            return new ValidatedResponse(response);
+        }
 
         SamlValidationSpecificationFailure failure = samlValidationResponse.getSamlValidationSpecificationFailure();
-        throw new SamlTransformationErrorException(failure.getErrorMessage(), samlValidationResponse.getCause(), failure.getLogLevel());
+        throw new SamlTransformationErrorException(failure, samlValidationResponse.getCause());
     }
 }
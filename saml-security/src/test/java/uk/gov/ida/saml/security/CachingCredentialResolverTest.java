@@ -0,0 +1,106 @@
+package uk.gov.ida.saml.security;
+
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opensaml.core.criterion.EntityIdCriterion;
+import org.opensaml.saml.criterion.EntityRoleCriterion;
+import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import org.opensaml.security.credential.BasicCredential;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.security.credential.CredentialResolver;
+import org.opensaml.security.credential.UsageType;
+import org.opensaml.security.criteria.KeyAlgorithmCriterion;
+import org.opensaml.security.criteria.UsageCriterion;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.security.saml.TestCredentialFactory;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.ida.saml.core.test.TestEntityIds.HUB_ENTITY_ID;
+import static uk.gov.ida.saml.core.test.TestEntityIds.STUB_IDP_ONE;
+
+public class CachingCredentialResolverTest {
+
+    private Credential credential;
+    private CredentialResolver delegate;
+    private CachingCredentialResolver cachingCredentialResolver;
+
+    @Before
+    public void setUp() throws Exception {
+        credential = new BasicCredential(TestCredentialFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT));
+        delegate = mock(CredentialResolver.class);
+        when(delegate.resolve(any(CriteriaSet.class))).thenReturn(Collections.singletonList(credential));
+        cachingCredentialResolver = new CachingCredentialResolver(delegate);
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeFreezer.unfreezeTime();
+    }
+
+    @Test
+    public void shouldOnlyResolveCredentialsOnceForTheSameEntityRoleAndUsage() throws Exception {
+        assertThat(cachingCredentialResolver.resolveSingle(encryptionCriteria(HUB_ENTITY_ID))).isSameAs(credential);
+        assertThat(cachingCredentialResolver.resolveSingle(encryptionCriteria(HUB_ENTITY_ID))).isSameAs(credential);
+
+        verify(delegate, times(1)).resolve(any(CriteriaSet.class));
+        assertThat(cachingCredentialResolver.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldResolveCredentialsAgainAfterBeingInvalidated() throws Exception {
+        cachingCredentialResolver.resolveSingle(encryptionCriteria(HUB_ENTITY_ID));
+        cachingCredentialResolver.resolveSingle(encryptionCriteria(STUB_IDP_ONE));
+
+        cachingCredentialResolver.invalidate(STUB_IDP_ONE);
+        assertThat(cachingCredentialResolver.size()).isEqualTo(1);
+
+        cachingCredentialResolver.invalidateAll();
+        cachingCredentialResolver.resolveSingle(encryptionCriteria(HUB_ENTITY_ID));
+
+        verify(delegate, times(3)).resolve(any(CriteriaSet.class));
+    }
+
+    @Test
+    public void shouldApplyAdditionalCriteriaToCachedCredentials() throws Exception {
+        CriteriaSet criteria = encryptionCriteria(HUB_ENTITY_ID);
+        criteria.add(new KeyAlgorithmCriterion("EC"));
+
+        assertThat(cachingCredentialResolver.resolve(encryptionCriteria(HUB_ENTITY_ID))).containsExactly(credential);
+        assertThat(cachingCredentialResolver.resolve(criteria)).isEmpty();
+        verify(delegate, times(1)).resolve(any(CriteriaSet.class));
+    }
+
+    @Test
+    public void shouldStopReturningCachedCredentialsOnceTheMetadataHasExpired() throws Exception {
+        DateTime validUntil = DateTime.now().plusHours(1);
+        when(delegate.resolve(any(CriteriaSet.class))).thenReturn(Collections.singletonList(credential), Collections.<Credential>emptyList());
+        cachingCredentialResolver = new CachingCredentialResolver(delegate, CachingCredentialResolver.DEFAULT_MAXIMUM_SIZE, entityId -> Optional.of(validUntil));
+
+        assertThat(cachingCredentialResolver.resolveSingle(encryptionCriteria(HUB_ENTITY_ID))).isSameAs(credential);
+        DateTimeFreezer.freezeTime(validUntil.minusMinutes(1));
+        assertThat(cachingCredentialResolver.resolveSingle(encryptionCriteria(HUB_ENTITY_ID))).isSameAs(credential);
+        verify(delegate, times(1)).resolve(any(CriteriaSet.class));
+
+        DateTimeFreezer.freezeTime(validUntil.plusMinutes(1));
+        assertThat(cachingCredentialResolver.resolveSingle(encryptionCriteria(HUB_ENTITY_ID))).isNull();
+        verify(delegate, times(2)).resolve(any(CriteriaSet.class));
+    }
+
+    private static CriteriaSet encryptionCriteria(String entityId) {
+        return new CriteriaSet(
+                new EntityIdCriterion(entityId),
+                new EntityRoleCriterion(SPSSODescriptor.DEFAULT_ELEMENT_NAME),
+                new UsageCriterion(UsageType.ENCRYPTION));
+    }
+}
@@ -0,0 +1,94 @@
+package uk.gov.ida.saml.security;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.xmlsec.keyinfo.KeyInfoSupport;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.Signature;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.core.test.TestEntityIds;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+import uk.gov.ida.saml.security.saml.OpenSAMLMockitoRunner;
+import uk.gov.ida.saml.security.saml.TestCredentialFactory;
+import uk.gov.ida.saml.security.saml.builders.AssertionBuilder;
+import uk.gov.ida.saml.security.saml.builders.KeyInfoBuilder;
+import uk.gov.ida.saml.security.saml.builders.SignatureBuilder;
+import uk.gov.ida.saml.security.saml.builders.X509CertificateBuilder;
+import uk.gov.ida.saml.security.saml.builders.X509DataBuilder;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(OpenSAMLMockitoRunner.class)
+public class CandidateKeyOrderingTest {
+
+    private final String issuerId = TestEntityIds.HUB_ENTITY_ID;
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final CandidateKeyOrdering candidateKeyOrdering = new CandidateKeyOrdering(new SamlMetrics(metricRegistry));
+    private final CredentialFactorySignatureValidator signatureValidator = new CredentialFactorySignatureValidator(
+            new SigningCredentialFactory(new InjectableSigningKeyStore(ImmutableMap.of(issuerId, asList(
+                    TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT,
+                    TestCertificateStrings.HUB_TEST_SECONDARY_PUBLIC_SIGNING_CERT)))),
+            CryptoBulkhead.unlimited(),
+            candidateKeyOrdering);
+
+    private final Credential secondarySigningCredential = new TestCredentialFactory(
+            TestCertificateStrings.HUB_TEST_SECONDARY_PUBLIC_SIGNING_CERT,
+            TestCertificateStrings.HUB_TEST_PRIVATE_SECONDARY_SIGNING_KEY).getSigningCredential();
+
+    @Test
+    public void shouldTryTheKeyThatLastVerifiedASignatureFromTheIssuerFirst() throws Exception {
+        assertThat(signatureValidator.validate(assertionSignedWith(secondarySigningCredential, null), issuerId, null)).isTrue();
+        assertThat(candidateKeyOrdering.getWastedVerifications()).isEqualTo(1);
+
+        assertThat(signatureValidator.validate(assertionSignedWith(secondarySigningCredential, null), issuerId, null)).isTrue();
+        assertThat(candidateKeyOrdering.getWastedVerifications()).isEqualTo(1);
+        assertThat(metricRegistry.meter(SamlMetrics.name(CandidateKeyOrdering.WASTED_VERIFICATIONS)).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldTryTheKeyTheKeyInfoPointsToFirst() throws Exception {
+        Assertion assertion = assertionSignedWith(secondarySigningCredential, TestCertificateStrings.HUB_TEST_SECONDARY_PUBLIC_SIGNING_CERT);
+
+        assertThat(signatureValidator.validate(assertion, issuerId, null)).isTrue();
+        assertThat(candidateKeyOrdering.getWastedVerifications()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotCountTrustedKeysComparedWithAVerifyingKeyInfoKeyAsWasted() throws Exception {
+        Signature signature = SignatureBuilder.aSignature().withSigningCredential(secondarySigningCredential).build();
+        KeyInfo keyInfo = KeyInfoBuilder.aKeyInfo().build();
+        KeyInfoSupport.addPublicKey(keyInfo, secondarySigningCredential.getPublicKey());
+        signature.setKeyInfo(keyInfo);
+
+        assertThat(signatureValidator.validate(AssertionBuilder.anAssertion().withSignature(signature).build(), issuerId, null)).isTrue();
+        assertThat(candidateKeyOrdering.getWastedVerifications()).isEqualTo(0);
+
+        assertThat(signatureValidator.validate(assertionSignedWith(secondarySigningCredential, null), issuerId, null)).isTrue();
+        assertThat(candidateKeyOrdering.getWastedVerifications()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCountEveryKeyTriedAsWastedWhenNoneVerifies() throws Exception {
+        Credential untrustedSigningCredential = new TestCredentialFactory(TestCertificateStrings.UNCHAINED_PUBLIC_CERT, TestCertificateStrings.UNCHAINED_PRIVATE_KEY).getSigningCredential();
+
+        assertThat(signatureValidator.validate(assertionSignedWith(untrustedSigningCredential, null), issuerId, null)).isFalse();
+        assertThat(candidateKeyOrdering.getWastedVerifications()).isEqualTo(2);
+    }
+
+    private static Assertion assertionSignedWith(Credential signingCredential, String keyInfoCertificate) {
+        Signature signature = SignatureBuilder.aSignature().withSigningCredential(signingCredential).build();
+        if (keyInfoCertificate != null) {
+            signature.setKeyInfo(KeyInfoBuilder.aKeyInfo()
+                    .withX509Data(X509DataBuilder.aX509Data()
+                            .withX509Certificate(X509CertificateBuilder.aX509Certificate().withCert(keyInfoCertificate).build())
+                            .build())
+                    .build());
+        }
+        return AssertionBuilder.anAssertion().withSignature(signature).build();
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gov.ida.saml.security;
+
+import org.junit.Test;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CertificateInternerTest {
+
+    private final CertificateInterner certificateInterner = new CertificateInterner(2);
+
+    @Test
+    public void shouldReturnTheSameInstanceForTheSameCertificate() throws Exception {
+        X509Certificate first = certificateInterner.intern(TestCertificateStrings.STUB_IDP_PUBLIC_PRIMARY_CERT);
+        X509Certificate second = certificateInterner.intern(first.getEncoded());
+
+        assertThat(second).isSameAs(first);
+        assertThat(certificateInterner.getPublicKey(TestCertificateStrings.STUB_IDP_PUBLIC_PRIMARY_CERT)).isSameAs(first.getPublicKey());
+        assertThat(certificateInterner.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotGrowBeyondTheMaximumSize() throws Exception {
+        certificateInterner.intern(TestCertificateStrings.STUB_IDP_PUBLIC_PRIMARY_CERT);
+        certificateInterner.intern(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT);
+        certificateInterner.intern(TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT);
+
+        assertThat(certificateInterner.size()).isLessThanOrEqualTo(2);
+    }
+
+    @Test(expected = CertificateException.class)
+    public void shouldThrowCertificateExceptionForInvalidCertificates() throws Exception {
+        certificateInterner.intern("not a certificate");
+    }
+}
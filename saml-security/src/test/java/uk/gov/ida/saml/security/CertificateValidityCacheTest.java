@@ -0,0 +1,104 @@
+package uk.gov.ida.saml.security;
+
+import certificates.values.CACertificates;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
+import uk.gov.ida.common.shared.security.verification.CertificateChainValidator;
+import uk.gov.ida.common.shared.security.verification.PKIXParametersProvider;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CertificateValidityCacheTest {
+
+    private final X509CertificateFactory certificateFactory = new X509CertificateFactory();
+    private final X509Certificate certificate = certificateFactory.createCertificate(TestCertificateStrings.STUB_IDP_PUBLIC_PRIMARY_CERT);
+
+    private CertificateChainValidator certificateChainValidator;
+    private KeyStore trustStore;
+
+    @Before
+    public void setUp() throws Exception {
+        certificateChainValidator = spy(new CertificateChainValidator(new PKIXParametersProvider(), certificateFactory));
+        trustStore = trustStoreWith("idp", CACertificates.TEST_IDP_CA);
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeFreezer.unfreezeTime();
+    }
+
+    @Test
+    public void shouldOnlyValidateACertificateOnceAgainstTheSameTrustStore() {
+        CertificateValidityCache cache = new CertificateValidityCache(60_000, 10);
+
+        boolean first = cache.validate(certificate, trustStore, certificateChainValidator).isValid();
+        boolean second = cache.validate(certificate, trustStore, certificateChainValidator).isValid();
+
+        assertThat(second).isEqualTo(first);
+        verify(certificateChainValidator, times(1)).validate(certificate, trustStore);
+    }
+
+    @Test
+    public void shouldRevalidateOnceTheTimeToLiveHasPassed() {
+        CertificateValidityCache cache = new CertificateValidityCache(60_000, 10);
+
+        cache.validate(certificate, trustStore, certificateChainValidator);
+        DateTimeFreezer.freezeTime(DateTime.now().plusMinutes(2));
+        cache.validate(certificate, trustStore, certificateChainValidator);
+
+        verify(certificateChainValidator, times(2)).validate(certificate, trustStore);
+    }
+
+    @Test
+    public void shouldRevalidateWhenACertificateIsAddedToTheTrustStore() throws Exception {
+        CertificateValidityCache cache = new CertificateValidityCache(60_000, 10);
+        cache.validate(certificate, trustStore, certificateChainValidator);
+
+        trustStore.setCertificateEntry("root", certificateFactory.createCertificate(CACertificates.TEST_ROOT_CA));
+        cache.validate(certificate, trustStore, certificateChainValidator);
+
+        verify(certificateChainValidator, times(2)).validate(certificate, trustStore);
+    }
+
+    @Test
+    public void shouldRevalidateWhenACertificateInTheTrustStoreIsReplaced() throws Exception {
+        CertificateValidityCache cache = new CertificateValidityCache(60_000, 10);
+        cache.validate(certificate, trustStore, certificateChainValidator);
+
+        trustStore.setCertificateEntry("idp", certificateFactory.createCertificate(CACertificates.TEST_ROOT_CA));
+        cache.validate(certificate, trustStore, certificateChainValidator);
+
+        assertThat(trustStore.size()).isEqualTo(1);
+        verify(certificateChainValidator, times(2)).validate(certificate, trustStore);
+    }
+
+    @Test
+    public void shouldShareResultsBetweenTrustStoresWithTheSameContents() throws Exception {
+        CertificateValidityCache cache = new CertificateValidityCache(60_000, 10);
+        KeyStore sameContents = trustStoreWith("idp", CACertificates.TEST_IDP_CA);
+
+        cache.validate(certificate, trustStore, certificateChainValidator);
+        cache.validate(certificate, sameContents, certificateChainValidator);
+
+        verify(certificateChainValidator, times(1)).validate(certificate, trustStore);
+        verify(certificateChainValidator, never()).validate(certificate, sameContents);
+    }
+
+    private KeyStore trustStoreWith(String alias, String certificateString) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry(alias, certificateFactory.createCertificate(certificateString));
+        return keyStore;
+    }
+}
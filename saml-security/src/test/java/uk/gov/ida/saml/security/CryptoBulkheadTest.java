@@ -0,0 +1,147 @@
+package uk.gov.ida.saml.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Test;
+import org.opensaml.security.SecurityException;
+import uk.gov.ida.saml.security.CryptoBulkhead.Operation;
+import uk.gov.ida.saml.security.exception.CryptoOverloadedException;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class CryptoBulkheadTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final CountDownLatch running = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldRunOperationsWithoutALimitDirectly() throws Exception {
+        CryptoBulkhead bulkhead = CryptoBulkhead.builder().withLimit(Operation.SIGN, 1, 0, Duration.ZERO).build();
+
+        assertThat(bulkhead.call(Operation.VERIFY, () -> "verified")).isEqualTo("verified");
+        assertThat(bulkhead.isLimited(Operation.VERIFY)).isFalse();
+        assertThat(CryptoBulkhead.unlimited().call(Operation.SIGN, () -> "signed")).isEqualTo("signed");
+    }
+
+    @Test
+    public void shouldRejectStraightAwayWhenTheQueueIsFull() throws Exception {
+        CryptoBulkhead bulkhead = CryptoBulkhead.builder()
+                .withMetrics(new SamlMetrics(metricRegistry))
+                .withLimit(Operation.DECRYPT, 1, 0, Duration.standardSeconds(10))
+                .build();
+        holdThePermit(bulkhead, Operation.DECRYPT);
+
+        long start = System.nanoTime();
+        try {
+            bulkhead.run(Operation.DECRYPT, () -> fail("Expected the operation not to start"));
+            fail("Expected the operation to be rejected");
+        } catch (CryptoOverloadedException e) {
+            assertThat(e.getOperation()).isEqualTo(Operation.DECRYPT);
+            assertThat(e.getStackTrace()).isEmpty();
+        }
+
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(5);
+        assertThat(bulkhead.getRejectionCount(Operation.DECRYPT)).isEqualTo(1);
+        assertThat(metricRegistry.meter("uk.gov.ida.saml.crypto.decrypt.rejected").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRejectOnceTheLongestWaitHasPassed() throws Exception {
+        CryptoBulkhead bulkhead = CryptoBulkhead.builder()
+                .withMetrics(new SamlMetrics(metricRegistry))
+                .withLimit(Operation.SIGN, 1, 1, Duration.millis(50))
+                .build();
+        holdThePermit(bulkhead, Operation.SIGN);
+
+        try {
+            bulkhead.run(Operation.SIGN, () -> fail("Expected the operation not to start"));
+            fail("Expected the operation to be rejected");
+        } catch (CryptoOverloadedException e) {
+            assertThat(e.getMessage()).contains("in time");
+        }
+
+        assertThat(bulkhead.getQueueDepth(Operation.SIGN)).isEqualTo(0);
+        assertThat(metricRegistry.histogram("uk.gov.ida.saml.crypto.sign.queue-depth").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAdmitAWaitingCallerWhenAPermitIsReleased() throws Exception {
+        CryptoBulkhead bulkhead = CryptoBulkhead.builder().withLimit(Operation.VERIFY, 1, 1, Duration.standardSeconds(10)).build();
+        holdThePermit(bulkhead, Operation.VERIFY);
+
+        release.countDown();
+
+        assertThat(bulkhead.call(Operation.VERIFY, () -> true)).isTrue();
+    }
+
+    @Test
+    public void shouldReportHowManyCallersAreWaiting() throws Exception {
+        CryptoBulkhead bulkhead = CryptoBulkhead.builder()
+                .withMetrics(new SamlMetrics(metricRegistry))
+                .withLimit(Operation.SIGN, 1, 1, Duration.standardSeconds(10))
+                .build();
+        Gauge<?> waiting = metricRegistry.getGauges().get("uk.gov.ida.saml.crypto.sign.waiting");
+        holdThePermit(bulkhead, Operation.SIGN);
+        ExecutorService waiter = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> waitingCall = waiter.submit(() -> bulkhead.call(Operation.SIGN, () -> true));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!Integer.valueOf(1).equals(waiting.getValue()) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(waiting.getValue()).isEqualTo(1);
+
+            release.countDown();
+
+            assertThat(waitingCall.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(waiting.getValue()).isEqualTo(0);
+        } finally {
+            waiter.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldReleaseThePermitWhenTheOperationFails() throws Exception {
+        CryptoBulkhead bulkhead = CryptoBulkhead.builder().withLimit(Operation.VERIFY, 1, 0, Duration.ZERO).build();
+
+        try {
+            bulkhead.run(Operation.VERIFY, () -> {
+                throw new SecurityException("no credentials");
+            });
+            fail("Expected the operation to fail");
+        } catch (SecurityException e) {
+            assertThat(e.getMessage()).isEqualTo("no credentials");
+        }
+
+        assertThat(bulkhead.call(Operation.VERIFY, () -> true)).isTrue();
+    }
+
+    private void holdThePermit(CryptoBulkhead bulkhead, Operation operation) throws InterruptedException {
+        executor.submit(() -> {
+            bulkhead.run(operation, () -> {
+                running.countDown();
+                release.await();
+            });
+            return null;
+        });
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,113 @@
+package uk.gov.ida.saml.security;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.EncryptedAssertion;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.metadata.EncryptionMethod;
+import org.opensaml.saml.saml2.metadata.KeyDescriptor;
+import org.opensaml.saml.security.impl.SAMLMDCredentialContext;
+import org.opensaml.security.credential.Credential;
+import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
+import uk.gov.ida.common.shared.security.PrivateKeyFactory;
+import uk.gov.ida.common.shared.security.PublicKeyFactory;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.security.saml.OpenSAMLMockitoRunner;
+import uk.gov.ida.saml.security.saml.SamlTransformationErrorManagerTestHelper;
+import uk.gov.ida.saml.security.saml.TestCredentialFactory;
+import uk.gov.ida.saml.security.validators.ValidatedResponse;
+import uk.gov.ida.saml.security.validators.encryptedelementtype.EncryptionAlgorithmValidator;
+
+import java.security.KeyPair;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.ida.saml.security.errors.SamlTransformationErrorFactory.unsupportedEncryptionAlgortithm;
+import static uk.gov.ida.saml.security.saml.builders.AssertionBuilder.anAssertion;
+import static uk.gov.ida.saml.security.saml.builders.ResponseBuilder.aResponse;
+
+@RunWith(OpenSAMLMockitoRunner.class)
+public class EncrypterFactoryTest {
+
+    private final EncrypterFactory gcmPreferringEncrypterFactory = new EncrypterFactory()
+            .withPreferredDataEncryptionAlgorithms(EncrypterFactory.GCM_PREFERRED_DATA_ENCRYPTION_ALGORITHMS);
+
+    @Test
+    public void shouldUseTheDefaultAlgorithmWhenNoPreferencesAreSet() {
+        Credential credential = credentialFromMetadata(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM);
+
+        assertThat(new EncrypterFactory().getDataEncryptionAlgorithm(credential)).isEqualTo(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128);
+    }
+
+    @Test
+    public void shouldUseTheFirstPreferredAlgorithmTheRecipientAdvertises() {
+        Credential credential = credentialFromMetadata(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM, EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128);
+
+        assertThat(gcmPreferringEncrypterFactory.getDataEncryptionAlgorithm(credential)).isEqualTo(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES256_GCM);
+    }
+
+    @Test
+    public void shouldUseTheDefaultAlgorithmWhenTheRecipientAdvertisesNoneOfThePreferredAlgorithms() {
+        Credential credential = credentialFromMetadata(EncryptionConstants.ALGO_ID_BLOCKCIPHER_TRIPLEDES);
+
+        assertThat(gcmPreferringEncrypterFactory.getDataEncryptionAlgorithm(credential)).isEqualTo(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128);
+    }
+
+    @Test
+    public void shouldUseTheDefaultAlgorithmWhenTheCredentialDidNotComeFromMetadata() {
+        Credential credential = new TestCredentialFactory(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT, null).getEncryptingCredential();
+
+        assertThat(gcmPreferringEncrypterFactory.getDataEncryptionAlgorithm(credential)).isEqualTo(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128);
+    }
+
+    @Test
+    public void shouldDecryptAnAssertionEncryptedWithGcmWhenGcmIsAccepted() throws Exception {
+        EncryptedAssertion encryptedAssertion = new EncrypterFactory()
+                .withDataEncryptionAlgorithm(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM)
+                .createEncrypter(hubEncryptingCredential())
+                .encrypt(anAssertion().withId("gcm-assertion").build());
+        Response response = aResponse().addEncryptedAssertion(encryptedAssertion).build();
+
+        List<Assertion> assertions = assertionDecrypter(EncryptionAlgorithmValidator.acceptingGcm()).decryptAssertions(new ValidatedResponse(response));
+
+        assertThat(assertions.get(0).getID()).isEqualTo("gcm-assertion");
+        SamlTransformationErrorManagerTestHelper.validateFail(
+                () -> assertionDecrypter(new EncryptionAlgorithmValidator()).decryptAssertions(new ValidatedResponse(response)),
+                unsupportedEncryptionAlgortithm(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128_GCM));
+    }
+
+    private static Credential hubEncryptingCredential() {
+        return new TestCredentialFactory(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT, null).getEncryptingCredential();
+    }
+
+    private static Credential credentialFromMetadata(String... advertisedAlgorithms) {
+        KeyDescriptor keyDescriptor = (KeyDescriptor) XMLObjectProviderRegistrySupport.getBuilderFactory()
+                .getBuilderOrThrow(KeyDescriptor.DEFAULT_ELEMENT_NAME)
+                .buildObject(KeyDescriptor.DEFAULT_ELEMENT_NAME);
+        for (String algorithm : advertisedAlgorithms) {
+            EncryptionMethod encryptionMethod = (EncryptionMethod) XMLObjectProviderRegistrySupport.getBuilderFactory()
+                    .getBuilderOrThrow(EncryptionMethod.DEFAULT_ELEMENT_NAME)
+                    .buildObject(EncryptionMethod.DEFAULT_ELEMENT_NAME);
+            encryptionMethod.setAlgorithm(algorithm);
+            keyDescriptor.getEncryptionMethods().add(encryptionMethod);
+        }
+        Credential credential = hubEncryptingCredential();
+        credential.getCredentialContextSet().add(new SAMLMDCredentialContext(keyDescriptor));
+        return credential;
+    }
+
+    private static AssertionDecrypter assertionDecrypter(EncryptionAlgorithmValidator encryptionAlgorithmValidator) throws Exception {
+        PublicKeyFactory publicKeyFactory = new PublicKeyFactory(new X509CertificateFactory());
+        KeyPair encryptionKeyPair = new KeyPair(
+                publicKeyFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT),
+                new PrivateKeyFactory().createPrivateKey(Base64.decodeBase64(TestCertificateStrings.HUB_TEST_PRIVATE_ENCRYPTION_KEY)));
+        IdaKeyStore keyStore = new IdaKeyStore(encryptionKeyPair, Collections.singletonList(encryptionKeyPair));
+        List<Credential> credentials = new IdaKeyStoreCredentialRetriever(keyStore).getDecryptingCredentials();
+        return new AssertionDecrypter(encryptionAlgorithmValidator, new DecrypterFactory().createDecrypter(credentials));
+    }
+}
@@ -44,6 +44,7 @@ import uk.gov.ida.saml.security.saml.deserializers.SamlObjectParser;
 import uk.gov.ida.saml.security.saml.deserializers.StringToOpenSamlObjectTransformer;
 
 import java.net.URL;
+import java.security.KeyStore;
 import java.security.cert.CertPathValidatorException;
 import java.security.cert.X509Certificate;
 import java.util.Collections;
@@ -51,7 +52,11 @@ import java.util.Collections;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(OpenSAMLMockitoRunner.class)
@@ -190,6 +195,43 @@ public class MetadataBackedSignatureValidatorTest {
         return certificateChainValidator;
     }
 
+    @Test
+    public void shouldReuseCertificateChainValidationResultsAcrossSignatures() throws Exception {
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        CertificateChainValidator certificateChainValidator = mock(CertificateChainValidator.class);
+        when(certificateChainValidator.validate(any(X509Certificate.class), eq(trustStore))).thenReturn(CertificateValidity.valid());
+        MetadataBackedSignatureValidator metadataBackedSignatureValidator = MetadataBackedSignatureValidator.withCertificateChainValidation(
+                getExplicitKeySignatureTrustEngine(),
+                new CertificateChainEvaluableCriterion(certificateChainValidator, trustStore, new CertificateValidityCache(60_000, 10)));
+        Credential signingCredential = new TestCredentialFactory(TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT, TestCertificateStrings.HUB_TEST_PRIVATE_SIGNING_KEY).getSigningCredential();
+
+        assertThat(metadataBackedSignatureValidator.validate(AssertionBuilder.anAssertion().withSignature(SignatureBuilder.aSignature().withSigningCredential(signingCredential).build()).build(), issuerId, SPSSODescriptor.DEFAULT_ELEMENT_NAME)).isTrue();
+        reset(certificateChainValidator);
+        assertThat(metadataBackedSignatureValidator.validate(AssertionBuilder.anAssertion().withSignature(SignatureBuilder.aSignature().withSigningCredential(signingCredential).build()).build(), issuerId, SPSSODescriptor.DEFAULT_ELEMENT_NAME)).isTrue();
+
+        verifyZeroInteractions(certificateChainValidator);
+    }
+
+    @Test
+    public void shouldValidateTheCertificateChainForEverySignatureWhenNotGivenACache() throws Exception {
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        CertificateChainValidator certificateChainValidator = mock(CertificateChainValidator.class);
+        when(certificateChainValidator.validate(any(X509Certificate.class), eq(trustStore))).thenReturn(CertificateValidity.valid());
+        MetadataBackedSignatureValidator metadataBackedSignatureValidator = MetadataBackedSignatureValidator.withCertificateChainValidation(
+                getExplicitKeySignatureTrustEngine(),
+                new CertificateChainEvaluableCriterion(certificateChainValidator, trustStore));
+        Credential signingCredential = new TestCredentialFactory(TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT, TestCertificateStrings.HUB_TEST_PRIVATE_SIGNING_KEY).getSigningCredential();
+
+        assertThat(metadataBackedSignatureValidator.validate(AssertionBuilder.anAssertion().withSignature(SignatureBuilder.aSignature().withSigningCredential(signingCredential).build()).build(), issuerId, SPSSODescriptor.DEFAULT_ELEMENT_NAME)).isTrue();
+        reset(certificateChainValidator);
+        when(certificateChainValidator.validate(any(X509Certificate.class), eq(trustStore))).thenReturn(CertificateValidity.valid());
+        assertThat(metadataBackedSignatureValidator.validate(AssertionBuilder.anAssertion().withSignature(SignatureBuilder.aSignature().withSigningCredential(signingCredential).build()).build(), issuerId, SPSSODescriptor.DEFAULT_ELEMENT_NAME)).isTrue();
+
+        verify(certificateChainValidator, atLeastOnce()).validate(any(X509Certificate.class), eq(trustStore));
+    }
+
     /* ******************************************************************************************* *
      * Tests below this point were lifted from SignatureValidatorTest to check that
      * MetadataBackedSignatureValidator has equivalent behaviour.
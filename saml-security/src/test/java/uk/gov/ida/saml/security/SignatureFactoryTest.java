@@ -1,15 +1,32 @@
 package uk.gov.ida.saml.security;
 
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.codec.binary.Base64;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.opensaml.saml.saml2.core.Assertion;
 import org.opensaml.xmlsec.algorithm.DigestAlgorithm;
 import org.opensaml.xmlsec.algorithm.SignatureAlgorithm;
+import org.opensaml.xmlsec.algorithm.descriptors.DigestSHA256;
+import org.opensaml.xmlsec.algorithm.descriptors.SignatureECDSASHA256;
+import org.opensaml.xmlsec.algorithm.descriptors.SignatureRSASHA256;
+import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.support.SignatureConstants;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
+import uk.gov.ida.saml.core.test.TestEntityIds;
+import uk.gov.ida.saml.security.saml.EcTestKeys;
 import uk.gov.ida.saml.security.saml.OpenSAMLMockitoRunner;
 
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
+import static uk.gov.ida.saml.security.saml.builders.AssertionBuilder.anAssertion;
 
 @RunWith(OpenSAMLMockitoRunner.class)
 public class SignatureFactoryTest {
@@ -37,4 +54,35 @@ public class SignatureFactoryTest {
 
         signatureFactory.createSignature();
     }
+
+    @Test
+    public void shouldSignWithAnEcKeyUsingEcdsaAndIncludeTheEcCertificateInTheKeyInfo() throws Exception {
+        SignatureFactory signatureFactory = new SignatureFactory(true, ecKeyStoreCredentialRetriever(), new SignatureECDSASHA256(), new DigestSHA256());
+
+        Signature signature = signatureFactory.createSignature("ec-signed-assertion");
+        Assertion assertion = anAssertion().withId("ec-signed-assertion").withSignature(signature).build();
+
+        assertThat(signature.getSignatureAlgorithm()).isEqualTo(SignatureConstants.ALGO_ID_SIGNATURE_ECDSA_SHA256);
+        assertThat(signature.getKeyInfo().getX509Datas().get(0).getX509Certificates().get(0).getValue().replaceAll("\\s", ""))
+                .isEqualTo(EcTestKeys.EC_PUBLIC_SIGNING_CERT);
+        CredentialFactorySignatureValidator signatureValidator = new CredentialFactorySignatureValidator(new SigningCredentialFactory(
+                new InjectableSigningKeyStore(ImmutableMap.of(TestEntityIds.HUB_ENTITY_ID, singletonList(EcTestKeys.EC_PUBLIC_SIGNING_CERT)))));
+        assertThat(signatureValidator.validate(assertion, TestEntityIds.HUB_ENTITY_ID, null)).isTrue();
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenTheSigningKeyDoesNotSuitTheSignatureAlgorithm() {
+        expectedException.expectMessage("Signing key algorithm EC does not suit signature algorithm " + SignatureConstants.ALGO_ID_SIGNATURE_RSA_SHA256);
+
+        new SignatureFactory(ecKeyStoreCredentialRetriever(), new SignatureRSASHA256(), new DigestSHA256()).createSignature();
+    }
+
+    private static IdaKeyStoreCredentialRetriever ecKeyStoreCredentialRetriever() {
+        X509Certificate certificate = new X509CertificateFactory().createCertificate(EcTestKeys.EC_PUBLIC_SIGNING_CERT);
+        IdaKeyStore keyStore = new IdaKeyStore(
+                certificate,
+                new SigningKeyPairFactory().createKeyPair(certificate, Base64.decodeBase64(EcTestKeys.EC_PRIVATE_SIGNING_KEY)),
+                Collections.emptyList());
+        return new IdaKeyStoreCredentialRetriever(keyStore);
+    }
 }
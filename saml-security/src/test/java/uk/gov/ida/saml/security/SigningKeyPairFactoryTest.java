@@ -0,0 +1,53 @@
+package uk.gov.ida.saml.security;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.security.saml.EcTestKeys;
+
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class SigningKeyPairFactoryTest {
+
+    private final SigningKeyPairFactory signingKeyPairFactory = new SigningKeyPairFactory();
+
+    @Test
+    public void shouldLoadAnEcKeyPair() {
+        X509Certificate certificate = new X509CertificateFactory().createCertificate(EcTestKeys.EC_PUBLIC_SIGNING_CERT);
+
+        KeyPair keyPair = signingKeyPairFactory.createKeyPair(certificate, Base64.decodeBase64(EcTestKeys.EC_PRIVATE_SIGNING_KEY));
+
+        assertThat(keyPair.getPublic()).isEqualTo(certificate.getPublicKey());
+        assertThat(keyPair.getPrivate().getAlgorithm()).isEqualTo("EC");
+        assertThat(new IdaKeyStore(certificate, keyPair, Collections.emptyList()).getSigningKeyAlgorithm()).isEqualTo("EC");
+    }
+
+    @Test
+    public void shouldLoadAnRsaKeyPair() {
+        X509Certificate certificate = new X509CertificateFactory().createCertificate(TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT);
+
+        KeyPair keyPair = signingKeyPairFactory.createKeyPair(certificate, Base64.decodeBase64(TestCertificateStrings.HUB_TEST_PRIVATE_SIGNING_KEY));
+
+        assertThat(keyPair.getPrivate().getAlgorithm()).isEqualTo("RSA");
+        assertThat(new IdaKeyStore(certificate, keyPair, Collections.emptyList()).getSigningKeyAlgorithm()).isEqualTo("RSA");
+    }
+
+    @Test
+    public void shouldRejectAPrivateKeyOfADifferentAlgorithmToTheCertificate() {
+        X509Certificate certificate = new X509CertificateFactory().createCertificate(EcTestKeys.EC_PUBLIC_SIGNING_CERT);
+
+        try {
+            signingKeyPairFactory.createKeyPair(certificate, Base64.decodeBase64(TestCertificateStrings.HUB_TEST_PRIVATE_SIGNING_KEY));
+            fail("expected the RSA private key to be rejected");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause()).isInstanceOf(InvalidKeySpecException.class);
+        }
+    }
+}
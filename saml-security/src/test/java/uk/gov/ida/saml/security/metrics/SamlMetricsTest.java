@@ -0,0 +1,48 @@
+package uk.gov.ida.saml.security.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class SamlMetricsTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final SamlMetrics metrics = new SamlMetrics(metricRegistry);
+
+    @Test
+    public void shouldTimeEachStage() {
+        String result = metrics.time("inbound.parse", () -> "parsed");
+
+        assertThat(result).isEqualTo("parsed");
+        assertThat(metricRegistry.timer("uk.gov.ida.saml.inbound.parse").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.getMeters()).doesNotContainKey("uk.gov.ida.saml.inbound.parse.failures");
+    }
+
+    @Test
+    public void shouldMarkFailuresAndRethrow() {
+        try {
+            metrics.time("metadata.fetch", () -> {
+                throw new IOException("unreachable");
+            });
+            fail("expected the stage's exception to be rethrown");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).isEqualTo("unreachable");
+        }
+
+        assertThat(metricRegistry.timer("uk.gov.ida.saml.metadata.fetch").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("uk.gov.ida.saml.metadata.fetch.failures").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRunStagesWithoutRecordingWhenDisabled() {
+        SamlMetrics disabled = SamlMetrics.disabled();
+
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThat(disabled.time("inbound.parse", () -> "parsed")).isEqualTo("parsed");
+        disabled.mark("inbound.assertions-decrypted", 1);
+    }
+}
@@ -0,0 +1,12 @@
+package uk.gov.ida.saml.security.saml;
+
+/**
+ * A self-signed NIST P-256 certificate and its PKCS#8 private key, base64 encoded, for testing ECDSA signing.
+ */
+public abstract class EcTestKeys {
+
+    public static final String EC_PUBLIC_SIGNING_CERT = "MIIB4DCCAYWgAwIBAgIULb63r2WOxCRZEYQ3S65S3tltmjgwCgYIKoZIzj0EAwIwRDEcMBoGA1UEAwwTSFVCIFNpZ25pbmcgRUMgVGVzdDEXMBUGA1UECgwOQ2FiaW5ldCBPZmZpY2UxCzAJBgNVBAYTAkdCMCAXDTI2MTAxOTE3MjAyMFoYDzIxMjYwOTI1MTcyMDIwWjBEMRwwGgYDVQQDDBNIVUIgU2lnbmluZyBFQyBUZXN0MRcwFQYDVQQKDA5DYWJpbmV0IE9mZmljZTELMAkGA1UEBhMCR0IwWTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAASD7pTTWvew/TOq84fSlpE4ef9mppfVV2lkIDobfc/mnhQ8o9yZaBIPSTqfmdmeZdWxYmQahRGfG68qh6+aAtJXo1MwUTAdBgNVHQ4EFgQU7x8FazlE7OdN1+AFEmrpYH0A3MgwHwYDVR0jBBgwFoAU7x8FazlE7OdN1+AFEmrpYH0A3MgwDwYDVR0TAQH/BAUwAwEB/zAKBggqhkjOPQQDAgNJADBGAiEAvpev9deIMCI12ZvwtlABlSUd0ESAYyJQeCuWb4Qy6SgCIQD1JsK/KgUzYJhVK58ADaR3TTjaQbjY9sSwFAUFpDcNSA==";
+
+    public static final String EC_PRIVATE_SIGNING_KEY = "MIGHAgEAMBMGByqGSM49AgEGCCqGSM49AwEHBG0wawIBAQQgye6PxEkVlgSOZBtSiE1IRcKroRnGB1tL+MIIHrtSpg+hRANCAASD7pTTWvew/TOq84fSlpE4ef9mppfVV2lkIDobfc/mnhQ8o9yZaBIPSTqfmdmeZdWxYmQahRGfG68qh6+aAtJX";
+
+}
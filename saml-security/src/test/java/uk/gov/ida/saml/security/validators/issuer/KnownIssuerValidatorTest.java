@@ -0,0 +1,59 @@
+package uk.gov.ida.saml.security.validators.issuer;
+
+import net.shibboleth.utilities.java.support.resolver.CriteriaSet;
+import org.junit.Test;
+import org.opensaml.saml.metadata.resolver.MetadataResolver;
+import org.opensaml.saml.saml2.metadata.EntityDescriptor;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class KnownIssuerValidatorTest {
+
+    private final MetadataResolver metadataResolver = mock(MetadataResolver.class);
+    private final KnownIssuerValidator validator = new KnownIssuerValidator(metadataResolver);
+
+    @Test
+    public void shouldAcceptAnIssuerThatIsInMetadata() throws Exception {
+        when(metadataResolver.resolveSingle(any(CriteriaSet.class))).thenReturn(mock(EntityDescriptor.class));
+
+        validator.validate("https://known.example.com");
+        validator.validate("https://known.example.com");
+
+        verify(metadataResolver, times(2)).resolveSingle(any(CriteriaSet.class));
+        assertThat(validator.getUnknownIssuerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldOnlyLookUpAnUnknownIssuerOnce() throws Exception {
+        rejects("https://unknown.example.com");
+        rejects("https://unknown.example.com");
+
+        verify(metadataResolver, times(1)).resolveSingle(any(CriteriaSet.class));
+        assertThat(validator.getUnknownIssuerCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLookUpAnUnknownIssuerAgainOnceInvalidated() throws Exception {
+        rejects("https://unknown.example.com");
+        validator.invalidateUnknownIssuers();
+        rejects("https://unknown.example.com");
+
+        verify(metadataResolver, times(2)).resolveSingle(any(CriteriaSet.class));
+    }
+
+    private void rejects(String issuerId) {
+        try {
+            validator.validate(issuerId);
+            fail("Expected " + issuerId + " to be rejected");
+        } catch (SamlTransformationErrorException e) {
+            assertThat(e.getMessage()).contains(issuerId);
+        }
+    }
+}
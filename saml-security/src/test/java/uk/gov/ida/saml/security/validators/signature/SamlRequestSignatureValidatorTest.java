@@ -7,11 +7,17 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.opensaml.saml.saml2.core.AuthnRequest;
 import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import uk.gov.ida.saml.core.DomReleasePolicy;
 import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
 import uk.gov.ida.saml.core.validation.SamlValidationResponse;
 import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
 import uk.gov.ida.saml.security.saml.OpenSAMLMockitoRunner;
+import uk.gov.ida.saml.security.saml.builders.AuthnRequestBuilder;
 
+import javax.xml.namespace.QName;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -53,4 +59,27 @@ public class SamlRequestSignatureValidatorTest {
 
         requestSignatureValidator.validate(authnRequest, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
     }
-}
+
+    @Test
+    public void validate_shouldReleaseTheDomOfAValidRequestWhenAskedTo() {
+        AuthnRequest signedRequest = AuthnRequestBuilder.anAuthnRequest().build();
+        assertThat(signedRequest.getDOM()).isNotNull();
+        when(samlMessageSignatureValidator.validate(any(AuthnRequest.class), any(QName.class))).thenReturn(SamlValidationResponse.aValidResponse());
+
+        new SamlRequestSignatureValidator<AuthnRequest>(samlMessageSignatureValidator, DomReleasePolicy.RELEASE_AFTER_VALIDATION)
+                .validate(signedRequest, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+
+        assertThat(signedRequest.getDOM()).isNull();
+        assertThat(signedRequest.getIssuer().getDOM()).isNull();
+    }
+
+    @Test
+    public void validate_shouldKeepTheDomOfAValidRequestByDefault() {
+        AuthnRequest signedRequest = AuthnRequestBuilder.anAuthnRequest().build();
+        when(samlMessageSignatureValidator.validate(signedRequest, SPSSODescriptor.DEFAULT_ELEMENT_NAME)).thenReturn(SamlValidationResponse.aValidResponse());
+
+        requestSignatureValidator.validate(signedRequest, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+
+        assertThat(signedRequest.getDOM()).isNotNull();
+    }
+}
\ No newline at end of file
@@ -7,13 +7,19 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.opensaml.saml.saml2.core.Response;
 import org.opensaml.saml.saml2.metadata.SPSSODescriptor;
+import uk.gov.ida.saml.core.DomReleasePolicy;
 import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
 import uk.gov.ida.saml.core.validation.SamlValidationResponse;
 import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
 import uk.gov.ida.saml.security.saml.OpenSAMLMockitoRunner;
+import uk.gov.ida.saml.security.saml.builders.ResponseBuilder;
 import uk.gov.ida.saml.security.validators.ValidatedResponse;
 
+import javax.xml.namespace.QName;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -58,4 +64,17 @@ public class SamlResponseSignatureValidatorTest {
 
         responseSignatureValidator.validate(response, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
     }
+
+    @Test
+    public void validate_shouldReleaseTheDomOfAValidResponseWhoseAssertionsAreEncrypted() throws Exception {
+        Response signedResponse = ResponseBuilder.aResponse().build();
+        assertThat(signedResponse.getDOM()).isNotNull();
+        when(samlMessageSignatureValidator.validate(any(Response.class), any(QName.class))).thenReturn(SamlValidationResponse.aValidResponse());
+
+        new SamlResponseSignatureValidator(samlMessageSignatureValidator, DomReleasePolicy.RELEASE_AFTER_VALIDATION)
+                .validate(signedResponse, SPSSODescriptor.DEFAULT_ELEMENT_NAME);
+
+        assertThat(signedResponse.getDOM()).isNull();
+        assertThat(signedResponse.getIssuer().getDOM()).isNull();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package uk.gov.ida.saml.deserializers.parser;
+
+import net.shibboleth.utilities.java.support.xml.SerializeSupport;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.core.config.InitializationService;
+import org.opensaml.core.xml.schema.XSString;
+import org.opensaml.core.xml.util.XMLObjectSupport;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Attribute;
+import org.opensaml.saml.saml2.core.AttributeStatement;
+import org.opensaml.saml.saml2.core.AttributeValue;
+import org.opensaml.saml.saml2.core.Issuer;
+import org.opensaml.saml.saml2.core.Response;
+import uk.gov.ida.saml.core.DomReleasePolicy;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the heap retained per in-flight Response with each {@link DomReleasePolicy}. The figure to compare is the
+ * {@code retainedBytesPerResponse} counter, not the time taken; compare it between policies rather than trusting any
+ * one run of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DomReleaseFootprintBenchmark {
+
+    private static final int IN_FLIGHT_RESPONSES = 2_000;
+    private static final int ASSERTIONS_PER_RESPONSE = 2;
+    private static final int ATTRIBUTES_PER_ASSERTION = 10;
+
+    @Param
+    public DomReleasePolicy policy;
+
+    // Keeps the responses being measured reachable while the heap is sampled
+    private static volatile List<Response> retained;
+
+    private String response;
+    private SamlObjectParser samlObjectParser;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long retainedBytesPerResponse;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        InitializationService.initialize();
+        response = SerializeSupport.nodeToString(XMLObjectSupport.marshall(aResponse()));
+        samlObjectParser = new SamlObjectParser(policy);
+    }
+
+    @Benchmark
+    public void retainedHeap(Footprint footprint) throws Exception {
+        long before = usedHeapAfterGc();
+        List<Response> responses = new ArrayList<>(IN_FLIGHT_RESPONSES);
+        for (int i = 0; i < IN_FLIGHT_RESPONSES; i++) {
+            Response parsed = samlObjectParser.getSamlObject(response);
+            samlObjectParser.validationFinished(parsed);
+            responses.add(parsed);
+        }
+        retained = responses;
+        long after = usedHeapAfterGc();
+        retained = null;
+        footprint.retainedBytesPerResponse = (after - before) / IN_FLIGHT_RESPONSES;
+    }
+
+    private static Response aResponse() {
+        Response response = build(Response.DEFAULT_ELEMENT_NAME);
+        response.setID("response-id");
+        response.setIssuer(issuer());
+        for (int i = 0; i < ASSERTIONS_PER_RESPONSE; i++) {
+            Assertion assertion = build(Assertion.DEFAULT_ELEMENT_NAME);
+            assertion.setID("assertion-" + i);
+            assertion.setIssuer(issuer());
+            AttributeStatement attributeStatement = build(AttributeStatement.DEFAULT_ELEMENT_NAME);
+            for (int j = 0; j < ATTRIBUTES_PER_ASSERTION; j++) {
+                Attribute attribute = build(Attribute.DEFAULT_ELEMENT_NAME);
+                attribute.setName("attribute-" + j);
+                XSString value = (XSString) XMLObjectSupport.buildXMLObject(AttributeValue.DEFAULT_ELEMENT_NAME, XSString.TYPE_NAME);
+                value.setValue("value of attribute " + j);
+                attribute.getAttributeValues().add(value);
+                attributeStatement.getAttributes().add(attribute);
+            }
+            assertion.getAttributeStatements().add(attributeStatement);
+            response.getAssertions().add(assertion);
+        }
+        return response;
+    }
+
+    private static Issuer issuer() {
+        Issuer issuer = build(Issuer.DEFAULT_ELEMENT_NAME);
+        issuer.setValue("https://issuer.example.com");
+        return issuer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T build(QName elementName) {
+        return (T) XMLObjectSupport.buildXMLObject(elementName);
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gov.ida.saml.deserializers.validators;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports how many malformed messages per second {@link Base64StringDecoder} can reject, with and without stack
+ * traces, and with the message formatted as it would be when logged or left unformatted as it is when the rejection
+ * is only counted. Compare the figures between modes rather than trusting any one run of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RejectedMessageBenchmark {
+
+    private static final int PAYLOAD_LENGTH = 64 * 1024;
+
+    @Param({"true", "false"})
+    public boolean captureStackTraces;
+
+    @Param({"true", "false"})
+    public boolean formatMessage;
+
+    private final Base64StringDecoder decoder = new Base64StringDecoder();
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SamlTransformationErrorException.setCaptureStackTraces(captureStackTraces);
+        payload = malformedPayload();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SamlTransformationErrorException.setCaptureStackTraces(true);
+    }
+
+    @Benchmark
+    public int reject() {
+        try {
+            return decoder.decode(payload).length();
+        } catch (SamlTransformationErrorException e) {
+            return formatMessage ? e.getMessage().length() : e.getLogLevel().ordinal();
+        }
+    }
+
+    private static String malformedPayload() {
+        StringBuilder payload = new StringBuilder(PAYLOAD_LENGTH);
+        while (payload.length() < PAYLOAD_LENGTH - 1) {
+            payload.append("PHNhbWxwOlJlc3BvbnNl");
+        }
+        payload.setLength(PAYLOAD_LENGTH - 1);
+        return payload.append('<').toString();
+    }
+}
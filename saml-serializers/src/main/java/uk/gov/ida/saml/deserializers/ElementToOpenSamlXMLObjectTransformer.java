@@ -24,7 +24,7 @@ public class ElementToOpenSamlXMLObjectTransformer<TOutput extends XMLObject> im
             return samlObjectParser.getSamlObject(input);
         } catch (UnmarshallingException e) {
             SamlValidationSpecificationFailure failure = unableToUnmarshallElementToOpenSaml(input.getLocalName());
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), e, failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure, e);
         }
     }
 
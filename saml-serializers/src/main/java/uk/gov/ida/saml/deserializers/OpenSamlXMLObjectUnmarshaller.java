@@ -22,7 +22,11 @@ public class OpenSamlXMLObjectUnmarshaller<TOutput extends XMLObject> {
             return samlObjectParser.getSamlObject(input);
         } catch (UnmarshallingException | XMLParserException  e) {
             SamlValidationSpecificationFailure failure = unableToDeserializeStringToOpenSaml(input);
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), e, failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure, e);
         }
     }
+
+    public void validationFinished(TOutput samlObject) {
+        samlObjectParser.validationFinished(samlObject);
+    }
 }
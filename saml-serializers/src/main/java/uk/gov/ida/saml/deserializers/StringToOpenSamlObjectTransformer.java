@@ -34,4 +34,12 @@ public class StringToOpenSamlObjectTransformer<TOutput extends XMLObject> implem
         return openSamlXMLObjectUnmarshaller.fromString(decodedInput);
     }
 
+    /**
+     * Releases the DOM under an object returned by {@link #apply(String)}, if the parser's DOM release policy allows,
+     * once all of its signatures have been validated.
+     */
+    public void validationFinished(TOutput samlObject) {
+        openSamlXMLObjectUnmarshaller.validationFinished(samlObject);
+    }
+
 }
@@ -9,17 +9,36 @@ import org.opensaml.core.xml.io.UnmarshallerFactory;
 import org.opensaml.core.xml.io.UnmarshallingException;
 import org.opensaml.core.xml.util.XMLObjectSupport;
 import org.w3c.dom.Element;
+import uk.gov.ida.saml.core.DomReleasePolicy;
+import uk.gov.ida.saml.core.events.SamlEvents;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 
 public class SamlObjectParser {
 
+    private final DomReleasePolicy domReleasePolicy;
+
+    public SamlObjectParser() {
+        this(DomReleasePolicy.RETAIN);
+    }
+
+    public SamlObjectParser(DomReleasePolicy domReleasePolicy) {
+        this.domReleasePolicy = domReleasePolicy;
+    }
+
     @SuppressWarnings("unchecked")
     public <T extends XMLObject> T getSamlObject(String xmlString) throws UnmarshallingException, XMLParserException {
         ParserPool parserPool = XMLObjectProviderRegistrySupport.getParserPool();
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(xmlString.getBytes(StandardCharsets.UTF_8));
-        return (T) XMLObjectSupport.unmarshallFromInputStream(parserPool, inputStream);
+        byte[] xmlBytes = xmlString.getBytes(StandardCharsets.UTF_8);
+        SamlEvents.Parse event = SamlEvents.startParse();
+        T samlObject = null;
+        try {
+            samlObject = (T) XMLObjectSupport.unmarshallFromInputStream(parserPool, new ByteArrayInputStream(xmlBytes));
+            return samlObject;
+        } finally {
+            event.complete(xmlBytes.length, samlObject, samlObject == null ? SamlEvents.FAILURE : SamlEvents.SUCCESS);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -31,4 +50,12 @@ public class SamlObjectParser {
         // Unmarshall using the document root element
         return (T) unmarshaller.unmarshall(samlRootElement);
     }
+
+    /**
+     * To be called once every signature in an object returned by this parser has been validated, so that its DOM
+     * can be released if the {@link DomReleasePolicy} allows.
+     */
+    public void validationFinished(XMLObject samlObject) {
+        domReleasePolicy.apply(samlObject);
+    }
 }
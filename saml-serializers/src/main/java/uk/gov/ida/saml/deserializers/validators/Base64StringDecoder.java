@@ -14,7 +14,7 @@ public class Base64StringDecoder {
         String withoutWhitespace = input.replaceAll("\\s", "");
         if (!matches("^([A-Za-z0-9+/]{4})*([A-Za-z0-9+/]{4}|[A-Za-z0-9+/]{3}=|[A-Za-z0-9+/]{2}==)$", withoutWhitespace)) {
             SamlValidationSpecificationFailure failure = invalidBase64Encoding(input);
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
 
         return StringUtils.newStringUtf8(Base64Support.decode(input));
@@ -8,7 +8,7 @@ public class NotNullSamlStringValidator {
     public void validate(String input) {
         if (input == null) {
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.noSamlMessage();
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
     }
 }
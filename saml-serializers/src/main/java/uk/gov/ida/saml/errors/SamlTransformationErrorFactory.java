@@ -1,5 +1,6 @@
 package uk.gov.ida.saml.errors;
 
+import uk.gov.ida.saml.core.validation.PayloadExcerpt;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
 import uk.gov.ida.saml.core.validation.errors.SamlValidationSpecification;
 
@@ -9,7 +10,7 @@ public final class SamlTransformationErrorFactory {
     }
 
     public static SamlValidationSpecificationFailure unableToDeserializeStringToOpenSaml(final String message) {
-        return new SamlValidationSpecification(SamlValidationSpecification.DESERIALIZATION_ERROR, message);
+        return new SamlValidationSpecification(SamlValidationSpecification.DESERIALIZATION_ERROR, PayloadExcerpt.of(message));
     }
 
     public static SamlValidationSpecificationFailure unableToUnmarshallElementToOpenSaml(final String elementName) {
@@ -17,7 +18,7 @@ public final class SamlTransformationErrorFactory {
     }
 
     public static SamlValidationSpecificationFailure invalidBase64Encoding(final String input) {
-        return new SamlValidationSpecification(SamlValidationSpecification.INVALID_BASE64_ENCODING, input);
+        return new SamlValidationSpecification(SamlValidationSpecification.INVALID_BASE64_ENCODING, PayloadExcerpt.of(input));
     }
 
     public static SamlValidationSpecificationFailure noSamlMessage() {
@@ -10,6 +10,7 @@ import org.opensaml.saml.common.xml.SAMLConstants;
 import org.opensaml.saml.saml2.metadata.EntityDescriptor;
 import org.opensaml.security.credential.UsageType;
 import org.xml.sax.SAXParseException;
+import uk.gov.ida.saml.core.DomReleasePolicy;
 
 public class SamlObjectParserTest {
 
@@ -25,6 +26,28 @@ public class SamlObjectParserTest {
         Assertions.assertThat(samlObject.getIDPSSODescriptor(SAMLConstants.SAML20P_NS).getKeyDescriptors().get(0).getUse()).isEqualTo(UsageType.SIGNING);
     }
 
+    @Test
+    public void shouldReleaseTheDomOnceValidationHasFinishedWhenThePolicyAllows() throws Exception {
+        SamlObjectParser samlObjectParser = new SamlObjectParser(DomReleasePolicy.RELEASE_AFTER_VALIDATION);
+        EntityDescriptor samlObject = samlObjectParser.getSamlObject(entityDescriptor);
+        Assertions.assertThat(samlObject.getDOM()).isNotNull();
+
+        samlObjectParser.validationFinished(samlObject);
+
+        Assertions.assertThat(samlObject.getDOM()).isNull();
+        Assertions.assertThat(samlObject.getIDPSSODescriptor(SAMLConstants.SAML20P_NS).getDOM()).isNull();
+    }
+
+    @Test
+    public void shouldRetainTheDomByDefault() throws Exception {
+        SamlObjectParser samlObjectParser = new SamlObjectParser();
+        EntityDescriptor samlObject = samlObjectParser.getSamlObject(entityDescriptor);
+
+        samlObjectParser.validationFinished(samlObject);
+
+        Assertions.assertThat(samlObject.getDOM()).isNotNull();
+    }
+
     @Test
     public void shouldFailWhenNaughtyXml() {
         String xmlString = "<?xml version=\"1.0\"?>\n" +
@@ -0,0 +1,195 @@
+package uk.gov.ida.saml.core.pipeline;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.xmlsec.algorithm.descriptors.DigestSHA256;
+import org.opensaml.xmlsec.algorithm.descriptors.SignatureRSASHA256;
+import uk.gov.ida.common.shared.security.PrivateKeyFactory;
+import uk.gov.ida.common.shared.security.PublicKeyFactory;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
+import uk.gov.ida.saml.core.IdaSamlBootstrap;
+import uk.gov.ida.saml.core.api.CoreTransformersFactory;
+import uk.gov.ida.saml.core.domain.IdentityProviderAssertion;
+import uk.gov.ida.saml.core.domain.InboundIdentityProviderResponse;
+import uk.gov.ida.saml.core.domain.PersistentId;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.core.test.TestEntityIds;
+import uk.gov.ida.saml.deserializers.StringToOpenSamlObjectTransformer;
+import uk.gov.ida.saml.deserializers.validators.SizeValidator;
+import uk.gov.ida.saml.security.AssertionDecrypter;
+import uk.gov.ida.saml.security.IdaKeyStore;
+import uk.gov.ida.saml.security.SamlAssertionsSignatureValidator;
+import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
+import uk.gov.ida.saml.security.SigningKeyStore;
+import uk.gov.ida.saml.security.validators.ValidatedResponse;
+import uk.gov.ida.saml.security.validators.signature.SamlResponseSignatureValidator;
+import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+
+import javax.xml.namespace.QName;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static uk.gov.ida.saml.core.test.AuthnResponseFactory.anAuthnResponseFactory;
+
+/**
+ * Reports how many signed Responses with two encrypted, signed assertions per second an {@link InboundResponseProcessor}
+ * handles, against parsing and then composing {@link SamlResponseSignatureValidator}, {@link AssertionDecrypter} and
+ * {@link SamlAssertionsSignatureValidator} as callers do today. The processor's benchmark also reports, as auxiliary
+ * counters, how many microseconds per Response each of its stages took. Compare the figures between the two rather
+ * than trusting any one run of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InboundResponseProcessorBenchmark {
+
+    private static final QName ROLE = IDPSSODescriptor.DEFAULT_ELEMENT_NAME;
+    private static final int RESPONSES = 100;
+
+    private final List<String> responses = new ArrayList<>(RESPONSES);
+    private final Function<Assertion, IdentityProviderAssertion> assertionUnmarshaller = InboundResponseProcessorBenchmark::toIdentityProviderAssertion;
+    private InboundResponseProcessor processor;
+    private StringToOpenSamlObjectTransformer<Response> stringToResponse;
+    private SamlResponseSignatureValidator responseSignatureValidator;
+    private SamlAssertionsSignatureValidator assertionsSignatureValidator;
+    private AssertionDecrypter assertionDecrypter;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class StageTimes {
+        public double parseMicros;
+        public double checksMicros;
+        public double responseSignatureMicros;
+        public double decryptMicros;
+        public double assertionSignaturesMicros;
+        public double unmarshalMicros;
+        public double recordMicros;
+
+        private final Map<String, Long> totalNanos = new HashMap<>();
+        private long processed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            totalNanos.clear();
+            processed = 0;
+        }
+
+        private void add(InboundResponseContext context) {
+            context.getStageDurationsNanos().forEach((stage, nanos) -> totalNanos.merge(stage, nanos, Long::sum));
+            processed++;
+            parseMicros = microsPerResponse(InboundResponseProcessor.PARSE);
+            checksMicros = microsPerResponse(InboundResponseProcessor.CHECKS);
+            responseSignatureMicros = microsPerResponse(InboundResponseProcessor.RESPONSE_SIGNATURE);
+            decryptMicros = microsPerResponse(InboundResponseProcessor.DECRYPT);
+            assertionSignaturesMicros = microsPerResponse(InboundResponseProcessor.ASSERTION_SIGNATURES);
+            unmarshalMicros = microsPerResponse(InboundResponseProcessor.UNMARSHAL);
+            recordMicros = microsPerResponse(InboundResponseProcessor.RECORD);
+        }
+
+        private double microsPerResponse(String stage) {
+            return totalNanos.getOrDefault(stage, 0L) / 1e3 / processed;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        IdaSamlBootstrap.bootstrap();
+        PublicKeyFactory publicKeyFactory = new PublicKeyFactory(new X509CertificateFactory());
+        SigningKeyStore signingKeyStore = entityId -> Collections.singletonList(publicKeyFactory.createPublicKey(TestCertificateStrings.PUBLIC_SIGNING_CERTS.get(entityId)));
+        IdaKeyStore keyStore = hubKeyStore(publicKeyFactory);
+        SizeValidator sizeValidator = input -> { };
+        CoreTransformersFactory factory = new CoreTransformersFactory();
+
+        for (int i = 0; i < RESPONSES; i++) {
+            Response response = anAuthnResponseFactory().aResponseFromIdp(
+                    "request-" + i, TestEntityIds.STUB_IDP_ONE, "http://hub/SAML2/SSO/Response/POST", new SignatureRSASHA256(), new DigestSHA256());
+            responses.add(new XmlObjectToBase64EncodedStringTransformer<>().apply(response));
+        }
+
+        processor = factory.getInboundResponseProcessor(
+                sizeValidator, InboundValidationPipeline.<Response>builder().build(), signingKeyStore, keyStore, assertionUnmarshaller, ROLE);
+        stringToResponse = factory.getStringtoOpenSamlObjectTransformer(sizeValidator);
+        SamlMessageSignatureValidator samlMessageSignatureValidator = factory.getSamlMessageSignatureValidator(factory.getSignatureValidator(signingKeyStore));
+        responseSignatureValidator = new SamlResponseSignatureValidator(samlMessageSignatureValidator);
+        assertionsSignatureValidator = new SamlAssertionsSignatureValidator(samlMessageSignatureValidator);
+        assertionDecrypter = factory.getAssertionDecrypter(keyStore);
+    }
+
+    @Benchmark
+    public List<IdentityProviderAssertion> composed(Cursor cursor) {
+        Response response = stringToResponse.apply(nextResponse(cursor));
+        ValidatedResponse validatedResponse = responseSignatureValidator.validate(response, ROLE);
+        List<Assertion> assertions = assertionDecrypter.decryptAssertions(validatedResponse);
+        assertionsSignatureValidator.validate(assertions, ROLE);
+        List<IdentityProviderAssertion> unmarshalled = new ArrayList<>();
+        for (Assertion assertion : assertions) {
+            unmarshalled.add(assertionUnmarshaller.apply(assertion));
+        }
+        return unmarshalled;
+    }
+
+    @Benchmark
+    public InboundIdentityProviderResponse fused(Cursor cursor, StageTimes stageTimes) {
+        InboundResponseContext context = new InboundResponseContext();
+        InboundIdentityProviderResponse response = processor.process(nextResponse(cursor), context);
+        stageTimes.add(context);
+        return response;
+    }
+
+    private String nextResponse(Cursor cursor) {
+        return responses.get(cursor.next++ % responses.size());
+    }
+
+    private static IdaKeyStore hubKeyStore(PublicKeyFactory publicKeyFactory) throws Exception {
+        PrivateKeyFactory privateKeyFactory = new PrivateKeyFactory();
+        KeyPair signingKeyPair = new KeyPair(
+                publicKeyFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT),
+                privateKeyFactory.createPrivateKey(Base64.decodeBase64(TestCertificateStrings.HUB_TEST_PRIVATE_SIGNING_KEY)));
+        PublicKey publicEncryptionKey = publicKeyFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT);
+        KeyPair encryptionKeyPair = new KeyPair(
+                publicEncryptionKey,
+                privateKeyFactory.createPrivateKey(Base64.decodeBase64(TestCertificateStrings.HUB_TEST_PRIVATE_ENCRYPTION_KEY)));
+        return new IdaKeyStore(signingKeyPair, Collections.singletonList(encryptionKeyPair));
+    }
+
+    private static IdentityProviderAssertion toIdentityProviderAssertion(Assertion assertion) {
+        return new IdentityProviderAssertion(
+                assertion.getID(),
+                assertion.getIssuer().getValue(),
+                assertion.getIssueInstant(),
+                new PersistentId("a-persistent-id"),
+                null,
+                Optional.empty(),
+                Optional.empty());
+    }
+}
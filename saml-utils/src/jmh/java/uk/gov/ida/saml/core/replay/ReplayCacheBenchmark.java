@@ -0,0 +1,67 @@
+package uk.gov.ida.saml.core.replay;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reports how many checks per second a {@link ShardedReplayCache} handles, with a mix of new IDs and replays. Runs on
+ * every core by default; pass {@code -t 1}, {@code -t 2} and so on to JMH to see how the figure grows with the number
+ * of threads, and compare the figures between thread counts rather than trusting any one of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(Threads.MAX)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReplayCacheBenchmark {
+
+    private static final int REPLAY_EVERY = 4;
+    // Short enough that the IDs recorded in a run expire rather than fill the cache
+    private static final Duration TIME_TO_LIVE = Duration.millis(100);
+    private static final long MAXIMUM_SIZE = 50_000_000;
+
+    private ShardedReplayCache replayCache;
+    private DateTime expiresAt;
+
+    @State(Scope.Thread)
+    public static class Ids {
+        private static final AtomicInteger threads = new AtomicInteger();
+
+        private final String prefix = "_" + threads.getAndIncrement() + "-";
+        private int next;
+
+        private String next() {
+            int i = next++;
+            int n = i % REPLAY_EVERY == 0 && i > 0 ? i - 1 : i;
+            return prefix + n;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        replayCache = new ShardedReplayCache(TIME_TO_LIVE, MAXIMUM_SIZE);
+        expiresAt = DateTime.now().plusMinutes(5);
+    }
+
+    @Benchmark
+    public boolean recordIfAbsent(Ids ids) {
+        return replayCache.recordIfAbsent(ids.next(), expiresAt);
+    }
+}
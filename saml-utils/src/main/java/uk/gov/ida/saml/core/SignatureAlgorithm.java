@@ -26,5 +26,11 @@ public enum SignatureAlgorithm {
         public String toString() {
             return SignatureConstants.ALGO_ID_SIGNATURE_RSA_SHA512;
         }
+    },
+    ECDSA_SHA256 {
+        @Override
+        public String toString() {
+            return SignatureConstants.ALGO_ID_SIGNATURE_ECDSA_SHA256;
+        }
     };
 }
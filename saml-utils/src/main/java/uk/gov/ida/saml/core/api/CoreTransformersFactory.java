@@ -1,10 +1,31 @@
 package uk.gov.ida.saml.core.api;
 
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.Duration;
 import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.core.Assertion;
 import org.opensaml.saml.saml2.core.RequestAbstractType;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.encryption.Decrypter;
 import org.opensaml.xmlsec.algorithm.DigestAlgorithm;
 import org.opensaml.xmlsec.algorithm.SignatureAlgorithm;
+import uk.gov.ida.saml.core.DomReleasePolicy;
 import uk.gov.ida.saml.core.OpenSamlXmlObjectFactory;
+import uk.gov.ida.saml.core.async.AsyncSamlTransformers;
+import uk.gov.ida.saml.core.domain.AddressFactory;
+import uk.gov.ida.saml.core.domain.IdentityProviderAssertion;
+import uk.gov.ida.saml.core.metrics.TimedResponseToSignedStringTransformer;
+import uk.gov.ida.saml.core.metrics.TimedStringToOpenSamlObjectTransformer;
+import uk.gov.ida.saml.core.pipeline.InboundResponseProcessor;
+import uk.gov.ida.saml.core.pipeline.InboundValidationPipeline;
+import uk.gov.ida.saml.core.pipeline.InboundValidationPipeline.Cost;
+import uk.gov.ida.saml.core.replay.ReplayCache;
+import uk.gov.ida.saml.core.replay.ShardedReplayCache;
+import uk.gov.ida.saml.core.transformers.EidasMatchingDatasetUnmarshaller;
+import uk.gov.ida.saml.core.transformers.IdentityProviderAssertionUnmarshaller;
+import uk.gov.ida.saml.core.transformers.MatchingDatasetUnmarshaller;
+import uk.gov.ida.saml.core.transformers.TimedMatchingDatasetUnmarshaller;
+import uk.gov.ida.saml.core.transformers.VerifyMatchingDatasetUnmarshaller;
 import uk.gov.ida.saml.core.transformers.inbound.Cycle3DatasetFactory;
 import uk.gov.ida.saml.core.transformers.inbound.HubAssertionUnmarshaller;
 import uk.gov.ida.saml.core.transformers.outbound.ResponseToSignedStringTransformer;
@@ -12,6 +33,7 @@ import uk.gov.ida.saml.core.transformers.outbound.decorators.ResponseAssertionSi
 import uk.gov.ida.saml.core.transformers.outbound.decorators.ResponseSignatureCreator;
 import uk.gov.ida.saml.core.transformers.outbound.decorators.SamlResponseAssertionEncrypter;
 import uk.gov.ida.saml.core.transformers.outbound.decorators.SamlSignatureSigner;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
 import uk.gov.ida.saml.deserializers.ElementToOpenSamlXMLObjectTransformer;
 import uk.gov.ida.saml.deserializers.OpenSamlXMLObjectUnmarshaller;
 import uk.gov.ida.saml.deserializers.StringToOpenSamlObjectTransformer;
@@ -19,8 +41,14 @@ import uk.gov.ida.saml.deserializers.parser.SamlObjectParser;
 import uk.gov.ida.saml.deserializers.validators.Base64StringDecoder;
 import uk.gov.ida.saml.deserializers.validators.NotNullSamlStringValidator;
 import uk.gov.ida.saml.deserializers.validators.SizeValidator;
+import uk.gov.ida.saml.hub.errors.SamlTransformationErrorFactory;
+import uk.gov.ida.saml.hub.validators.RequestReplayValidator;
 import uk.gov.ida.saml.metadata.transformers.KeyDescriptorsUnmarshaller;
+import uk.gov.ida.saml.security.AssertionDecrypter;
+import uk.gov.ida.saml.security.CandidateKeyOrdering;
 import uk.gov.ida.saml.security.CredentialFactorySignatureValidator;
+import uk.gov.ida.saml.security.CryptoBulkhead;
+import uk.gov.ida.saml.security.DecrypterFactory;
 import uk.gov.ida.saml.security.EncrypterFactory;
 import uk.gov.ida.saml.security.EncryptionKeyStore;
 import uk.gov.ida.saml.security.EntityToEncryptForLocator;
@@ -33,11 +61,50 @@ import uk.gov.ida.saml.security.SignatureValidator;
 import uk.gov.ida.saml.security.SignatureWithKeyInfoFactory;
 import uk.gov.ida.saml.security.SigningCredentialFactory;
 import uk.gov.ida.saml.security.SigningKeyStore;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+import uk.gov.ida.saml.security.metrics.TimedAssertionDecrypter;
+import uk.gov.ida.saml.security.metrics.TimedSamlMessageSignatureValidator;
+import uk.gov.ida.saml.security.validators.encryptedelementtype.EncryptionAlgorithmValidator;
+import uk.gov.ida.saml.security.validators.issuer.IssuerValidator;
+import uk.gov.ida.saml.security.validators.issuer.KnownIssuerValidator;
 import uk.gov.ida.saml.security.validators.signature.SamlRequestSignatureValidator;
+import uk.gov.ida.saml.security.validators.signature.SamlResponseSignatureValidator;
 import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
 import uk.gov.ida.saml.serializers.XmlObjectToElementTransformer;
 
+import javax.xml.namespace.QName;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
 public class CoreTransformersFactory {
+
+    private final SamlMetrics metrics;
+    private final CryptoBulkhead cryptoBulkhead;
+    private final CandidateKeyOrdering candidateKeyOrdering;
+
+    public CoreTransformersFactory() {
+        this.metrics = SamlMetrics.disabled();
+        this.cryptoBulkhead = CryptoBulkhead.unlimited();
+        this.candidateKeyOrdering = new CandidateKeyOrdering();
+    }
+
+    /**
+     * @param metricRegistry registry to record a timer for each SAML processing stage in; see {@link SamlMetrics}
+     */
+    public CoreTransformersFactory(MetricRegistry metricRegistry) {
+        this(metricRegistry, CryptoBulkhead.unlimited());
+    }
+
+    /**
+     * @param metricRegistry registry to record a timer for each SAML processing stage in; see {@link SamlMetrics}
+     * @param cryptoBulkhead shared by every signature validator, decrypter and signer this factory creates
+     */
+    public CoreTransformersFactory(MetricRegistry metricRegistry, CryptoBulkhead cryptoBulkhead) {
+        this.metrics = new SamlMetrics(metricRegistry);
+        this.cryptoBulkhead = cryptoBulkhead;
+        this.candidateKeyOrdering = new CandidateKeyOrdering(metrics);
+    }
+
     public KeyDescriptorsUnmarshaller getCertificatesToKeyDescriptorsTransformer() {
         return new KeyDescriptorsUnmarshaller(
                 new OpenSamlXmlObjectFactory()
@@ -64,29 +131,161 @@ public class CoreTransformersFactory {
     public <TOutput extends XMLObject> StringToOpenSamlObjectTransformer<TOutput> getStringtoOpenSamlObjectTransformer(
             final SizeValidator sizeValidator
     ) {
+        return getStringtoOpenSamlObjectTransformer(sizeValidator, DomReleasePolicy.RETAIN);
+    }
+
+    public <TOutput extends XMLObject> StringToOpenSamlObjectTransformer<TOutput> getStringtoOpenSamlObjectTransformer(
+            final SizeValidator sizeValidator,
+            final DomReleasePolicy domReleasePolicy
+    ) {
+        OpenSamlXMLObjectUnmarshaller<TOutput> unmarshaller = new OpenSamlXMLObjectUnmarshaller<>(new SamlObjectParser(domReleasePolicy));
+        if (metrics.isEnabled()) {
+            return new TimedStringToOpenSamlObjectTransformer<>(
+                    new NotNullSamlStringValidator(),
+                    new Base64StringDecoder(),
+                    sizeValidator,
+                    unmarshaller,
+                    metrics
+            );
+        }
         return new StringToOpenSamlObjectTransformer<>(
                 new NotNullSamlStringValidator(),
                 new Base64StringDecoder(),
                 sizeValidator,
-                new OpenSamlXMLObjectUnmarshaller<TOutput>(new SamlObjectParser())
+                unmarshaller
         );
     }
 
     public <TInput extends RequestAbstractType> SamlRequestSignatureValidator<TInput> getSamlRequestSignatureValidator(
             final SigningKeyStore publicKeyStore
+    ) {
+        return getSamlRequestSignatureValidator(publicKeyStore, DomReleasePolicy.RETAIN);
+    }
+
+    /**
+     * @param domReleasePolicy applied to each request once its signature is valid; pair it with the policy given to
+     *                         {@link #getStringtoOpenSamlObjectTransformer(SizeValidator, DomReleasePolicy)}
+     */
+    public <TInput extends RequestAbstractType> SamlRequestSignatureValidator<TInput> getSamlRequestSignatureValidator(
+            final SigningKeyStore publicKeyStore,
+            final DomReleasePolicy domReleasePolicy
     ) {
         return new SamlRequestSignatureValidator<>(
-                new SamlMessageSignatureValidator(getSignatureValidator(publicKeyStore))
+                getSamlMessageSignatureValidator(getSignatureValidator(publicKeyStore)),
+                domReleasePolicy
         );
     }
 
+    /**
+     * @return a validator that remembers accepted request IDs in an in-process {@link ShardedReplayCache}; wrap the
+     * cache in a {@link uk.gov.ida.saml.core.replay.FileBackedReplayCache} and use the other overload if they must
+     * survive a restart
+     */
+    public RequestReplayValidator getRequestReplayValidator(Duration freshnessWindow, Duration clockSkew, long maximumRequestIds) {
+        return getRequestReplayValidator(new ShardedReplayCache(freshnessWindow.plus(clockSkew), maximumRequestIds), freshnessWindow, clockSkew);
+    }
+
+    public RequestReplayValidator getRequestReplayValidator(ReplayCache replayCache, Duration freshnessWindow, Duration clockSkew) {
+        return new RequestReplayValidator(replayCache, freshnessWindow, clockSkew);
+    }
+
+    /**
+     * @return a pipeline that checks a Response's issuer, destination and freshness, then that its issuer is in
+     * metadata and its ID has not been seen, and only then its signature, before recording its ID; decrypt its
+     * assertions once it has passed
+     */
+    public InboundValidationPipeline<Response> getInboundResponseValidationPipeline(
+            String expectedDestination,
+            KnownIssuerValidator knownIssuerValidator,
+            RequestReplayValidator replayValidator,
+            SamlResponseSignatureValidator signatureValidator,
+            QName role) {
+        IssuerValidator issuerValidator = new IssuerValidator();
+        return InboundValidationPipeline.<Response>builder()
+                .withMetrics(metrics)
+                .addCheck("issuer", Cost.CHEAP, response -> issuerValidator.validate(response.getIssuer()))
+                .addCheck("destination", Cost.CHEAP, response -> validateDestination(expectedDestination, response.getDestination()))
+                .addCheck("freshness", Cost.CHEAP, response -> replayValidator.validateFreshness(response.getID(), response.getIssueInstant()))
+                .addCheck("known-issuer", Cost.LOOKUP, response -> knownIssuerValidator.validate(response.getIssuer()))
+                .addCheck("replay", Cost.LOOKUP, response -> replayValidator.validateNotReplayed(response.getID(), response.getIssuer().getValue()))
+                .addCheck("signature", Cost.CRYPTOGRAPHIC, response -> signatureValidator.validate(response, role))
+                .addCheck("record", Cost.RECORDING, response -> replayValidator.record(response.getID(), response.getIssuer().getValue(), response.getIssueInstant()))
+                .build();
+    }
+
+    /**
+     * @param checks a pipeline such as {@link #getInboundResponseValidationPipeline}; its cryptographic checks are not
+     *               run, as the processor validates the signatures itself
+     * @param assertionUnmarshaller such as {@link IdentityProviderAssertionUnmarshaller#fromVerifyAssertion} or
+     *                              {@link IdentityProviderAssertionUnmarshaller#fromCountryAssertion}
+     */
+    public InboundResponseProcessor getInboundResponseProcessor(
+            SizeValidator sizeValidator,
+            InboundValidationPipeline<Response> checks,
+            SigningKeyStore signingKeyStore,
+            IdaKeyStore keyStore,
+            Function<Assertion, IdentityProviderAssertion> assertionUnmarshaller,
+            QName role) {
+        return new InboundResponseProcessor(
+                this.<Response>getStringtoOpenSamlObjectTransformer(sizeValidator, DomReleasePolicy.RELEASE_AFTER_VALIDATION),
+                checks,
+                getSamlMessageSignatureValidator(getSignatureValidator(signingKeyStore)),
+                getAssertionDecrypter(keyStore),
+                assertionUnmarshaller,
+                role);
+    }
+
+    private static void validateDestination(String expectedDestination, String destination) {
+        if (destination == null) {
+            throw new SamlTransformationErrorException(SamlTransformationErrorFactory.missingDestination(expectedDestination));
+        }
+        if (!destination.equals(expectedDestination)) {
+            throw new SamlTransformationErrorException(SamlTransformationErrorFactory.incorrectDestination(expectedDestination, destination));
+        }
+    }
+
+    /**
+     * @param cryptoExecutor a bounded executor, such as one from {@link AsyncSamlTransformers#newCryptoExecutor}, kept
+     *                       apart from the threads that serve requests
+     */
+    public AsyncSamlTransformers getAsyncSamlTransformers(Executor cryptoExecutor) {
+        return new AsyncSamlTransformers(cryptoExecutor);
+    }
+
+    public SamlMessageSignatureValidator getSamlMessageSignatureValidator(SignatureValidator signatureValidator) {
+        if (metrics.isEnabled()) {
+            return new TimedSamlMessageSignatureValidator(signatureValidator, metrics);
+        }
+        return new SamlMessageSignatureValidator(signatureValidator);
+    }
+
+    public AssertionDecrypter getAssertionDecrypter(IdaKeyStore keyStore) {
+        return getAssertionDecrypter(keyStore, new EncryptionAlgorithmValidator());
+    }
+
+    public AssertionDecrypter getAssertionDecrypter(IdaKeyStore keyStore, EncryptionAlgorithmValidator encryptionAlgorithmValidator) {
+        Decrypter decrypter = new DecrypterFactory().createDecrypter(new IdaKeyStoreCredentialRetriever(keyStore).getDecryptingCredentials(), cryptoBulkhead);
+        if (metrics.isEnabled()) {
+            return new TimedAssertionDecrypter(encryptionAlgorithmValidator, decrypter, metrics);
+        }
+        return new AssertionDecrypter(encryptionAlgorithmValidator, decrypter);
+    }
+
+    public MatchingDatasetUnmarshaller getVerifyMatchingDatasetUnmarshaller() {
+        return timed(new VerifyMatchingDatasetUnmarshaller(new AddressFactory()));
+    }
+
+    public MatchingDatasetUnmarshaller getEidasMatchingDatasetUnmarshaller() {
+        return timed(new EidasMatchingDatasetUnmarshaller());
+    }
+
     public SignatureValidator getSignatureValidator(SigningKeyStore signingKeyStore) {
         SigningCredentialFactory signingCredentialFactory = new SigningCredentialFactory(signingKeyStore);
         return getSignatureValidator(signingCredentialFactory);
     }
 
     public SignatureValidator getSignatureValidator(SigningCredentialFactory publicCredentialFactory) {
-        return new CredentialFactorySignatureValidator(publicCredentialFactory);
+        return new CredentialFactorySignatureValidator(publicCredentialFactory, cryptoBulkhead, candidateKeyOrdering);
     }
 
     public ResponseToSignedStringTransformer getResponseStringTransformer(
@@ -107,7 +306,7 @@ public class CoreTransformersFactory {
             final DigestAlgorithm digestAlgorithm,
             final EncrypterFactory encrypterFactory) {
         SignatureFactory signatureFactory = new SignatureFactory(new IdaKeyStoreCredentialRetriever(keyStore), signatureAlgorithm, digestAlgorithm);
-        ResponseAssertionSigner responseAssertionSigner = new ResponseAssertionSigner(signatureFactory);
+        ResponseAssertionSigner responseAssertionSigner = new ResponseAssertionSigner(signatureFactory, cryptoBulkhead);
         return getResponseStringTransformer(publicKeyStore, entityToEncryptForLocator, encrypterFactory, signatureFactory, responseAssertionSigner);
     }
 
@@ -121,7 +320,7 @@ public class CoreTransformersFactory {
             final DigestAlgorithm digestAlgorithm
     ) {
         SignatureFactory signatureFactory = new SignatureWithKeyInfoFactory(new IdaKeyStoreCredentialRetriever(keyStore), signatureAlgorithm, digestAlgorithm, issuerId, publicSigningKey);
-        ResponseAssertionSigner responseAssertionSigner = new ResponseAssertionSigner(signatureFactory);
+        ResponseAssertionSigner responseAssertionSigner = new ResponseAssertionSigner(signatureFactory, cryptoBulkhead);
         return getResponseStringTransformer(encryptionKeyStore, entityToEncryptForLocator, new EncrypterFactory(), signatureFactory, responseAssertionSigner);
     }
 
@@ -147,12 +346,26 @@ public class CoreTransformersFactory {
                         new KeyStoreBackedEncryptionCredentialResolver(publicKeyStore),
                         encrypterFactory,
                         entityToEncryptForLocator);
+        if (metrics.isEnabled()) {
+            return new TimedResponseToSignedStringTransformer(
+                    new XmlObjectToBase64EncodedStringTransformer<>(),
+                    new SamlSignatureSigner<Response>(cryptoBulkhead),
+                    responseAssertionEncrypter,
+                    responseAssertionSigner,
+                    new ResponseSignatureCreator(signatureFactory),
+                    metrics
+            );
+        }
         return new ResponseToSignedStringTransformer(
                 new XmlObjectToBase64EncodedStringTransformer<>(),
-                new SamlSignatureSigner<>(),
+                new SamlSignatureSigner<>(cryptoBulkhead),
                 responseAssertionEncrypter,
                 responseAssertionSigner,
                 new ResponseSignatureCreator(signatureFactory)
         );
     }
+
+    private MatchingDatasetUnmarshaller timed(MatchingDatasetUnmarshaller matchingDatasetUnmarshaller) {
+        return metrics.isEnabled() ? new TimedMatchingDatasetUnmarshaller(matchingDatasetUnmarshaller, metrics) : matchingDatasetUnmarshaller;
+    }
 }
@@ -0,0 +1,137 @@
+package uk.gov.ida.saml.core.async;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.RequestAbstractType;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.xmlsec.signature.SignableXMLObject;
+import uk.gov.ida.saml.core.transformers.outbound.decorators.AbstractAssertionEncrypter;
+import uk.gov.ida.saml.core.transformers.outbound.decorators.SamlSignatureSigner;
+import uk.gov.ida.saml.deserializers.StringToOpenSamlObjectTransformer;
+import uk.gov.ida.saml.security.AssertionDecrypter;
+import uk.gov.ida.saml.security.validators.ValidatedEncryptedAssertionContainer;
+import uk.gov.ida.saml.security.validators.ValidatedResponse;
+import uk.gov.ida.saml.security.validators.signature.SamlRequestSignatureValidator;
+import uk.gov.ida.saml.security.validators.signature.SamlResponseSignatureValidator;
+import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+
+import javax.xml.namespace.QName;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the SAML transformers on a separate, bounded executor and returns their results as {@link CompletableFuture}s,
+ * so that request threads never sign, verify, encrypt or decrypt, or wait on a metadata refresh.
+ *
+ * An operation started from one of the executor's threads, for example from a {@code thenCompose} on the result of
+ * an earlier operation, runs straight away on that thread rather than being queued again, so a chain such as
+ * deserialize, verify, decrypt costs one hand-off however many steps it has. Operations started from any other
+ * thread are queued on the executor. If the executor rejects an operation, its future fails with a
+ * {@link RejectedExecutionException}.
+ */
+public class AsyncSamlTransformers {
+
+    private final Executor cryptoExecutor;
+    private final ThreadLocal<Boolean> onCryptoExecutor = new ThreadLocal<>();
+
+    public AsyncSamlTransformers(Executor cryptoExecutor) {
+        this.cryptoExecutor = cryptoExecutor;
+    }
+
+    /**
+     * @return a fixed-size pool of daemon threads that rejects work once {@code queueCapacity} operations are waiting
+     */
+    public static ThreadPoolExecutor newCryptoExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("saml-crypto-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T extends XMLObject> CompletableFuture<T> deserialize(StringToOpenSamlObjectTransformer<T> transformer, String input) {
+        return submit(() -> transformer.apply(input));
+    }
+
+    public CompletableFuture<ValidatedResponse> verify(SamlResponseSignatureValidator validator, Response response, QName role) {
+        return submit(() -> validator.validate(response, role));
+    }
+
+    /**
+     * @return the request, once its signature has been validated
+     */
+    public <T extends RequestAbstractType> CompletableFuture<T> verify(SamlRequestSignatureValidator<T> validator, T request, QName role) {
+        return submit(() -> {
+            validator.validate(request, role);
+            return request;
+        });
+    }
+
+    public CompletableFuture<List<Assertion>> decrypt(AssertionDecrypter decrypter, ValidatedEncryptedAssertionContainer container) {
+        return submit(() -> decrypter.decryptAssertions(container));
+    }
+
+    public <T> CompletableFuture<T> encrypt(AbstractAssertionEncrypter<T> encrypter, T samlMessage) {
+        return submit(() -> encrypter.encryptAssertions(samlMessage));
+    }
+
+    public <T extends SignableXMLObject> CompletableFuture<T> sign(SamlSignatureSigner<T> signer, T samlMessage) {
+        return submit(() -> signer.sign(samlMessage));
+    }
+
+    public <T extends XMLObject> CompletableFuture<String> serialize(XmlObjectToBase64EncodedStringTransformer<T> serializer, T samlObject) {
+        return submit(() -> serializer.apply(samlObject));
+    }
+
+    /**
+     * Runs any other transformer, such as a {@link uk.gov.ida.saml.core.transformers.outbound.ResponseToSignedStringTransformer}
+     * or an {@link uk.gov.ida.saml.core.pipeline.InboundResponseProcessor}'s {@code process}, on the executor.
+     */
+    public <I, O> CompletableFuture<O> transform(Function<? super I, ? extends O> transformer, I input) {
+        return submit(() -> transformer.apply(input));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<? extends T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (Boolean.TRUE.equals(onCryptoExecutor.get())) {
+            complete(result, operation);
+            return result;
+        }
+        try {
+            cryptoExecutor.execute(() -> {
+                onCryptoExecutor.set(Boolean.TRUE);
+                try {
+                    // Stages that depend on the result run here, inside complete, so operations they start run inline
+                    complete(result, operation);
+                } finally {
+                    onCryptoExecutor.remove();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, Supplier<? extends T> operation) {
+        T value;
+        try {
+            value = operation.get();
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        result.complete(value);
+    }
+}
@@ -0,0 +1,65 @@
+package uk.gov.ida.saml.core.domain;
+
+import org.joda.time.DateTime;
+import org.opensaml.xmlsec.signature.Signature;
+
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * A Response from an identity provider or country whose signatures have been validated and whose assertions have
+ * been decrypted, validated and unmarshalled.
+ */
+public class InboundIdentityProviderResponse extends IdaSamlResponse {
+    private String statusCode;
+    private Optional<String> subStatusCode;
+    private Optional<String> statusMessage;
+    private Optional<Signature> signature;
+    private Optional<IdentityProviderAssertion> matchingDatasetAssertion;
+    private Optional<IdentityProviderAssertion> authnStatementAssertion;
+
+    public InboundIdentityProviderResponse(
+            String id,
+            String inResponseTo,
+            String issuer,
+            DateTime issueInstant,
+            URI destination,
+            String statusCode,
+            Optional<String> subStatusCode,
+            Optional<String> statusMessage,
+            Optional<Signature> signature,
+            Optional<IdentityProviderAssertion> matchingDatasetAssertion,
+            Optional<IdentityProviderAssertion> authnStatementAssertion) {
+        super(id, issueInstant, inResponseTo, issuer, destination);
+        this.statusCode = statusCode;
+        this.subStatusCode = subStatusCode;
+        this.statusMessage = statusMessage;
+        this.signature = signature;
+        this.matchingDatasetAssertion = matchingDatasetAssertion;
+        this.authnStatementAssertion = authnStatementAssertion;
+    }
+
+    public String getStatusCode() {
+        return statusCode;
+    }
+
+    public Optional<String> getSubStatusCode() {
+        return subStatusCode;
+    }
+
+    public Optional<String> getStatusMessage() {
+        return statusMessage;
+    }
+
+    public Optional<Signature> getSignature() {
+        return signature;
+    }
+
+    public Optional<IdentityProviderAssertion> getMatchingDatasetAssertion() {
+        return matchingDatasetAssertion;
+    }
+
+    public Optional<IdentityProviderAssertion> getAuthnStatementAssertion() {
+        return authnStatementAssertion;
+    }
+}
@@ -0,0 +1,45 @@
+package uk.gov.ida.saml.core.metrics;
+
+import org.opensaml.saml.saml2.core.Response;
+import uk.gov.ida.saml.core.transformers.outbound.ResponseToSignedStringTransformer;
+import uk.gov.ida.saml.core.transformers.outbound.decorators.ResponseAssertionSigner;
+import uk.gov.ida.saml.core.transformers.outbound.decorators.ResponseSignatureCreator;
+import uk.gov.ida.saml.core.transformers.outbound.decorators.SamlResponseAssertionEncrypter;
+import uk.gov.ida.saml.core.transformers.outbound.decorators.SamlSignatureSigner;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+
+/**
+ * Times each stage of building a signed response: {@code outbound.add-signature}, {@code outbound.sign-assertions},
+ * {@code outbound.encrypt-assertions}, {@code outbound.sign-response} and {@code outbound.serialize}, as well as
+ * the whole transformation as {@code outbound.response}. The number of assertions encrypted is also metered.
+ */
+public class TimedResponseToSignedStringTransformer extends ResponseToSignedStringTransformer {
+
+    private final SamlMetrics metrics;
+
+    public TimedResponseToSignedStringTransformer(
+            XmlObjectToBase64EncodedStringTransformer<?> xmlObjectToBase64EncodedStringTransformer,
+            SamlSignatureSigner<Response> samlSignatureSigner,
+            SamlResponseAssertionEncrypter samlResponseAssertionEncrypter,
+            ResponseAssertionSigner responseAssertionSigner,
+            ResponseSignatureCreator responseSignatureCreator,
+            SamlMetrics metrics) {
+        super(xmlObjectToBase64EncodedStringTransformer, samlSignatureSigner, samlResponseAssertionEncrypter, responseAssertionSigner, responseSignatureCreator);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String apply(final Response response) {
+        return metrics.time("outbound.response", () -> {
+            final Response responseWithSignature = metrics.time("outbound.add-signature", () -> responseSignatureCreator.addUnsignedSignatureTo(response));
+            final Response assertionSignedResponse = metrics.time("outbound.sign-assertions", () -> responseAssertionSigner.signAssertions(responseWithSignature));
+            final int assertionCount = assertionSignedResponse.getAssertions().size();
+            final Response encryptedAssertionResponse = metrics.time("outbound.encrypt-assertions", () -> samlResponseAssertionEncrypter.encryptAssertions(assertionSignedResponse));
+            metrics.mark("outbound.assertions-encrypted", assertionCount);
+            final Response signedResponse = metrics.time("outbound.sign-response", () -> samlSignatureSigner.sign(encryptedAssertionResponse));
+
+            return metrics.time("outbound.serialize", () -> xmlObjectToBase64EncodedStringTransformer.apply(signedResponse));
+        });
+    }
+}
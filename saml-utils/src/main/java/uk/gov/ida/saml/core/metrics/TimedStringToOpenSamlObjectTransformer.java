@@ -0,0 +1,34 @@
+package uk.gov.ida.saml.core.metrics;
+
+import org.opensaml.core.xml.XMLObject;
+import uk.gov.ida.saml.deserializers.OpenSamlXMLObjectUnmarshaller;
+import uk.gov.ida.saml.deserializers.StringToOpenSamlObjectTransformer;
+import uk.gov.ida.saml.deserializers.validators.Base64StringDecoder;
+import uk.gov.ida.saml.deserializers.validators.NotNullSamlStringValidator;
+import uk.gov.ida.saml.deserializers.validators.SizeValidator;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+/**
+ * Times decoding, size validation and parsing of inbound messages as {@code inbound.parse}.
+ */
+public class TimedStringToOpenSamlObjectTransformer<TOutput extends XMLObject> extends StringToOpenSamlObjectTransformer<TOutput> {
+
+    public static final String STAGE = "inbound.parse";
+
+    private final SamlMetrics metrics;
+
+    public TimedStringToOpenSamlObjectTransformer(
+            final NotNullSamlStringValidator notNullSamlStringValidator,
+            final Base64StringDecoder base64StringDecoder,
+            final SizeValidator sizeValidator,
+            final OpenSamlXMLObjectUnmarshaller<TOutput> openSamlXMLObjectUnmarshaller,
+            final SamlMetrics metrics) {
+        super(notNullSamlStringValidator, base64StringDecoder, sizeValidator, openSamlXMLObjectUnmarshaller);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public TOutput apply(final String input) {
+        return metrics.time(STAGE, () -> super.apply(input));
+    }
+}
@@ -0,0 +1,65 @@
+package uk.gov.ida.saml.core.pipeline;
+
+import uk.gov.ida.saml.security.EntitySignatureValidator;
+import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
+
+import javax.xml.namespace.QName;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * What {@link InboundResponseProcessor} has learned about one message so far: who issued it, the signature
+ * validators already set up for each issuer, and how long each stage took. Not thread safe: use one per message.
+ */
+public final class InboundResponseContext {
+
+    private final Map<String, EntitySignatureValidator> signatureValidators = new HashMap<>();
+    private final Map<String, Long> stageDurationsNanos = new LinkedHashMap<>();
+    private String issuerId;
+
+    public String getIssuerId() {
+        return issuerId;
+    }
+
+    void setIssuerId(String issuerId) {
+        this.issuerId = issuerId;
+    }
+
+    /**
+     * @return how long each stage took, in nanoseconds, in the order the stages ran; a stage that failed is included
+     */
+    public Map<String, Long> getStageDurationsNanos() {
+        return Collections.unmodifiableMap(stageDurationsNanos);
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : stageDurationsNanos.values()) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    EntitySignatureValidator signatureValidatorFor(String issuerId, QName role, SamlMessageSignatureValidator samlMessageSignatureValidator) {
+        return signatureValidators.computeIfAbsent(issuerId, issuer -> samlMessageSignatureValidator.forIssuer(issuer, role));
+    }
+
+    <T> T time(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            stageDurationsNanos.merge(stage, System.nanoTime() - start, Long::sum);
+        }
+    }
+
+    void time(String stage, Runnable work) {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package uk.gov.ida.saml.core.pipeline;
+
+import org.opensaml.saml.common.SignableSAMLObject;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.core.StatusCode;
+import org.opensaml.saml.saml2.core.StatusMessage;
+import uk.gov.ida.saml.core.domain.IdentityProviderAssertion;
+import uk.gov.ida.saml.core.domain.InboundIdentityProviderResponse;
+import uk.gov.ida.saml.core.pipeline.InboundValidationPipeline.Cost;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.saml.core.validation.SamlValidationResponse;
+import uk.gov.ida.saml.deserializers.StringToOpenSamlObjectTransformer;
+import uk.gov.ida.saml.security.AssertionDecrypter;
+import uk.gov.ida.saml.security.EntitySignatureValidator;
+import uk.gov.ida.saml.security.SamlMessageSignatureValidator;
+import uk.gov.ida.saml.security.validators.ValidatedResponse;
+import uk.gov.ida.saml.security.validators.issuer.IssuerValidator;
+
+import javax.xml.namespace.QName;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Turns a base64 encoded Response from an identity provider or country into an {@link InboundIdentityProviderResponse}
+ * in one call: parses it, runs the cheap and lookup checks of an {@link InboundValidationPipeline}, validates its
+ * signature, decrypts its assertions, validates their signatures, unmarshalls them and finally runs the pipeline's
+ * recording checks.
+ *
+ * Composing {@link uk.gov.ida.saml.security.validators.signature.SamlResponseSignatureValidator},
+ * {@link AssertionDecrypter} and {@link uk.gov.ida.saml.security.SamlAssertionsSignatureValidator} does the same
+ * work, but looks up the issuer's trust engine and builds its criteria again for every signature. Here those are
+ * built once per issuer per message, in an {@link InboundResponseContext}, and shared between the Response and its
+ * assertions. The pipeline's cryptographic checks are not run, as this class does that work itself.
+ */
+public class InboundResponseProcessor {
+
+    public static final String PARSE = "parse";
+    public static final String CHECKS = "checks";
+    public static final String RESPONSE_SIGNATURE = "response-signature";
+    public static final String DECRYPT = "decrypt";
+    public static final String ASSERTION_SIGNATURES = "assertion-signatures";
+    public static final String UNMARSHAL = "unmarshal";
+    public static final String RECORD = "record";
+
+    private final StringToOpenSamlObjectTransformer<Response> stringToResponse;
+    private final InboundValidationPipeline<Response> checks;
+    private final SamlMessageSignatureValidator samlMessageSignatureValidator;
+    private final AssertionDecrypter assertionDecrypter;
+    private final Function<Assertion, IdentityProviderAssertion> assertionUnmarshaller;
+    private final QName role;
+    private final IssuerValidator issuerValidator = new IssuerValidator();
+
+    public InboundResponseProcessor(
+            StringToOpenSamlObjectTransformer<Response> stringToResponse,
+            InboundValidationPipeline<Response> checks,
+            SamlMessageSignatureValidator samlMessageSignatureValidator,
+            AssertionDecrypter assertionDecrypter,
+            Function<Assertion, IdentityProviderAssertion> assertionUnmarshaller,
+            QName role) {
+        this.stringToResponse = stringToResponse;
+        this.checks = checks;
+        this.samlMessageSignatureValidator = samlMessageSignatureValidator;
+        this.assertionDecrypter = assertionDecrypter;
+        this.assertionUnmarshaller = assertionUnmarshaller;
+        this.role = role;
+    }
+
+    public InboundIdentityProviderResponse process(String base64EncodedResponse) {
+        return process(base64EncodedResponse, new InboundResponseContext());
+    }
+
+    /**
+     * @param context a new context, from which the time each stage took can be read afterwards, even if the
+     *                Response was rejected
+     * @throws SamlTransformationErrorException if the Response, or any of its assertions, is rejected
+     */
+    public InboundIdentityProviderResponse process(String base64EncodedResponse, InboundResponseContext context) {
+        Response response = context.time(PARSE, () -> stringToResponse.apply(base64EncodedResponse));
+        try {
+            context.time(CHECKS, () -> {
+                issuerValidator.validate(response.getIssuer());
+                context.setIssuerId(response.getIssuer().getValue());
+                checks.validate(response, Cost.CHEAP, Cost.LOOKUP);
+            });
+            context.time(RESPONSE_SIGNATURE, () -> validateSignature(response, context.getIssuerId(), context));
+            List<Assertion> assertions = context.time(DECRYPT, () -> assertionDecrypter.decryptAssertions(new ValidatedResponse(response)));
+            context.time(ASSERTION_SIGNATURES, () -> {
+                for (Assertion assertion : assertions) {
+                    issuerValidator.validate(assertion.getIssuer());
+                    validateSignature(assertion, assertion.getIssuer().getValue(), context);
+                }
+            });
+            InboundIdentityProviderResponse inboundResponse = context.time(UNMARSHAL, () -> toInboundResponse(response, assertions));
+            context.time(RECORD, () -> checks.validate(response, Cost.RECORDING, Cost.RECORDING));
+            return inboundResponse;
+        } finally {
+            stringToResponse.validationFinished(response);
+        }
+    }
+
+    private void validateSignature(SignableSAMLObject signable, String issuerId, InboundResponseContext context) {
+        EntitySignatureValidator entitySignatureValidator = context.signatureValidatorFor(issuerId, role, samlMessageSignatureValidator);
+        SamlValidationResponse validationResponse = samlMessageSignatureValidator.validate(signable, entitySignatureValidator);
+        if (!validationResponse.isOK()) {
+            if (validationResponse.getCause() != null) {
+                throw new SamlTransformationErrorException(validationResponse.getSamlValidationSpecificationFailure(), validationResponse.getCause());
+            }
+            throw new SamlTransformationErrorException(validationResponse.getSamlValidationSpecificationFailure());
+        }
+    }
+
+    private InboundIdentityProviderResponse toInboundResponse(Response response, List<Assertion> assertions) {
+        List<IdentityProviderAssertion> identityProviderAssertions = new ArrayList<>(assertions.size());
+        for (Assertion assertion : assertions) {
+            identityProviderAssertions.add(assertionUnmarshaller.apply(assertion));
+        }
+        Optional<IdentityProviderAssertion> matchingDatasetAssertion = identityProviderAssertions.stream()
+                .filter(assertion -> assertion.getMatchingDataset().isPresent())
+                .findFirst();
+        Optional<IdentityProviderAssertion> authnStatementAssertion = identityProviderAssertions.stream()
+                .filter(assertion -> assertion.getAuthnStatement().isPresent())
+                .findFirst();
+
+        StatusCode statusCode = response.getStatus().getStatusCode();
+        Optional<String> subStatusCode = Optional.ofNullable(statusCode.getStatusCode()).map(StatusCode::getValue);
+        Optional<String> statusMessage = Optional.ofNullable(response.getStatus().getStatusMessage())
+                .map(StatusMessage::getMessage);
+
+        return new InboundIdentityProviderResponse(
+                response.getID(),
+                response.getInResponseTo(),
+                response.getIssuer().getValue(),
+                response.getIssueInstant(),
+                response.getDestination() == null ? null : URI.create(response.getDestination()),
+                statusCode.getValue(),
+                subStatusCode,
+                statusMessage,
+                Optional.ofNullable(response.getSignature()),
+                matchingDatasetAssertion,
+                authnStatementAssertion);
+    }
+}
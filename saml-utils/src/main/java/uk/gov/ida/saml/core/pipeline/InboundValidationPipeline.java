@@ -0,0 +1,152 @@
+package uk.gov.ida.saml.core.pipeline;
+
+import com.google.common.collect.ImmutableList;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a message through a series of named checks, cheapest first, and stops at the first that rejects it, so that
+ * a message that fails a structural or metadata check never reaches signature validation or decryption.
+ *
+ * Checks run in order of their {@link Cost}, and in the order they were added where their costs are equal. A check
+ * rejects a message by throwing a {@link SamlTransformationErrorException}; each rejection is counted against the
+ * check's name, and marked on a meter named {@code inbound.rejected.<check>} when metrics are enabled.
+ *
+ * @param <T> the type of message being validated
+ */
+public class InboundValidationPipeline<T> {
+
+    public enum Cost {
+        /** Inspects only the message itself, such as whether its issuer, destination or issue instant is acceptable. */
+        CHEAP,
+        /** Looks the message up in memory, such as in metadata or a replay cache. */
+        LOOKUP,
+        /** Verifies a signature or decrypts. */
+        CRYPTOGRAPHIC,
+        /** Records that the message has been accepted, so runs only once every other check has passed. */
+        RECORDING
+    }
+
+    @FunctionalInterface
+    public interface Check<T> {
+        void validate(T message);
+    }
+
+    private final List<Stage<T>> stages;
+    private final SamlMetrics metrics;
+
+    private InboundValidationPipeline(List<Stage<T>> stages, SamlMetrics metrics) {
+        this.stages = stages;
+        this.metrics = metrics;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return the message, once every check has passed
+     * @throws SamlTransformationErrorException from the first check to reject the message
+     */
+    public T validate(T message) {
+        return validate(message, Cost.CHEAP, Cost.RECORDING);
+    }
+
+    /**
+     * Runs only the checks whose cost is between {@code lowestCost} and {@code highestCost} inclusive, for callers
+     * that perform some of the work themselves, such as {@link InboundResponseProcessor} with the cryptography.
+     *
+     * @return the message, once every check in the range has passed
+     * @throws SamlTransformationErrorException from the first check to reject the message
+     */
+    public T validate(T message, Cost lowestCost, Cost highestCost) {
+        for (Stage<T> stage : stages) {
+            if (stage.cost.compareTo(lowestCost) < 0 || stage.cost.compareTo(highestCost) > 0) {
+                continue;
+            }
+            try {
+                stage.check.validate(message);
+            } catch (SamlTransformationErrorException e) {
+                stage.rejections.increment();
+                metrics.mark(stage.meterName, 1);
+                throw e;
+            }
+        }
+        return message;
+    }
+
+    /**
+     * @return the names of the checks, in the order they run
+     */
+    public List<String> getCheckNames() {
+        List<String> names = new ArrayList<>(stages.size());
+        for (Stage<T> stage : stages) {
+            names.add(stage.name);
+        }
+        return names;
+    }
+
+    /**
+     * @return how many messages each check has rejected, by check name, in the order the checks run
+     */
+    public Map<String, Long> getRejectionCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Stage<T> stage : stages) {
+            counts.put(stage.name, stage.rejections.sum());
+        }
+        return counts;
+    }
+
+    public static class Builder<T> {
+
+        private final List<Stage<T>> stages = new ArrayList<>();
+        private SamlMetrics metrics = SamlMetrics.disabled();
+
+        private Builder() {
+        }
+
+        public Builder<T> withMetrics(SamlMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder<T> addCheck(String name, Cost cost, Check<T> check) {
+            for (Stage<T> stage : stages) {
+                if (stage.name.equals(name)) {
+                    throw new IllegalArgumentException("A check named " + name + " has already been added");
+                }
+            }
+            stages.add(new Stage<>(name, cost, check));
+            return this;
+        }
+
+        public InboundValidationPipeline<T> build() {
+            List<Stage<T>> ordered = new ArrayList<>(stages);
+            // List.sort is stable, so checks of equal cost keep the order they were added in
+            ordered.sort(Comparator.comparing(stage -> stage.cost));
+            return new InboundValidationPipeline<>(ImmutableList.copyOf(ordered), metrics);
+        }
+    }
+
+    private static final class Stage<T> {
+        private final String name;
+        private final Cost cost;
+        private final Check<T> check;
+        private final String meterName;
+        private final LongAdder rejections = new LongAdder();
+
+        private Stage(String name, Cost cost, Check<T> check) {
+            this.name = name;
+            this.cost = cost;
+            this.check = check;
+            this.meterName = "inbound.rejected." + name;
+        }
+    }
+}
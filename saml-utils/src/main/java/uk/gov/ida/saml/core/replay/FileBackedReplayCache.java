@@ -0,0 +1,133 @@
+package uk.gov.ida.saml.core.replay;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ReplayCache} that journals every ID its delegate records to a local file, and reloads the unexpired ones
+ * when it is created, so that a restart does not open a window in which recently accepted messages can be replayed.
+ *
+ * Each record is flushed to the operating system before the ID is reported as new, but not forced to disk. The
+ * journal is rewritten without its expired records when the cache is created and after every
+ * {@code compactionThreshold} appends. Appends are serialised, which caps throughput well below that of a
+ * {@link ShardedReplayCache} on its own.
+ */
+public class FileBackedReplayCache implements ReplayCache, Closeable {
+
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1_000_000;
+
+    private final ReplayCache delegate;
+    private final Path journalFile;
+    private final long compactionThreshold;
+    private DataOutputStream journal;
+    private long appendsSinceCompaction;
+
+    public FileBackedReplayCache(ReplayCache delegate, Path journalFile) throws IOException {
+        this(delegate, journalFile, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public FileBackedReplayCache(ReplayCache delegate, Path journalFile, long compactionThreshold) throws IOException {
+        this.delegate = delegate;
+        this.journalFile = journalFile;
+        this.compactionThreshold = compactionThreshold;
+        for (Map.Entry<String, Long> record : compact().entrySet()) {
+            delegate.recordIfAbsent(record.getKey(), new DateTime(record.getValue()));
+        }
+        this.journal = openForAppend();
+    }
+
+    @Override
+    public boolean recordIfAbsent(String id, DateTime expiresAt) {
+        if (!delegate.recordIfAbsent(id, expiresAt)) {
+            return false;
+        }
+        append(id, expiresAt.getMillis());
+        return true;
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return delegate.contains(id);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        journal.close();
+    }
+
+    private synchronized void append(String id, long expiresAt) {
+        try {
+            journal.writeLong(expiresAt);
+            journal.writeUTF(id);
+            journal.flush();
+            if (++appendsSinceCompaction >= compactionThreshold) {
+                journal.close();
+                compact();
+                journal = openForAppend();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to journal message ID to " + journalFile, e);
+        }
+    }
+
+    /**
+     * Rewrites the journal with only its unexpired records, keeping the latest expiry for each ID.
+     */
+    private Map<String, Long> compact() throws IOException {
+        Map<String, Long> unexpired = readUnexpired();
+        Path compacted = journalFile.resolveSibling(journalFile.getFileName() + ".compacting");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+            for (Map.Entry<String, Long> record : unexpired.entrySet()) {
+                out.writeLong(record.getValue());
+                out.writeUTF(record.getKey());
+            }
+        }
+        Files.move(compacted, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        appendsSinceCompaction = 0;
+        return unexpired;
+    }
+
+    private Map<String, Long> readUnexpired() throws IOException {
+        Map<String, Long> unexpired = new LinkedHashMap<>();
+        if (!Files.exists(journalFile)) {
+            return unexpired;
+        }
+        long now = DateTimeUtils.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            while (true) {
+                long expiresAt;
+                String id;
+                try {
+                    expiresAt = in.readLong();
+                    id = in.readUTF();
+                } catch (EOFException e) {
+                    // Either the end of the journal or a record cut short by a crash mid-write
+                    break;
+                }
+                if (expiresAt > now) {
+                    unexpired.merge(id, expiresAt, Math::max);
+                }
+            }
+        }
+        return unexpired;
+    }
+
+    private DataOutputStream openForAppend() throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile.toFile(), true)));
+    }
+}
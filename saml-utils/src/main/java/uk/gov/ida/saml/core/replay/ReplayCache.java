@@ -0,0 +1,26 @@
+package uk.gov.ida.saml.core.replay;
+
+import org.joda.time.DateTime;
+
+/**
+ * Remembers the IDs of messages that have already been accepted, so that a message cannot be replayed while it is
+ * still fresh enough to be accepted again.
+ */
+public interface ReplayCache {
+
+    /**
+     * Records an ID unless it has already been recorded and has not yet expired.
+     *
+     * @param id the message ID
+     * @param expiresAt when the message stops being fresh enough to accept, after which its ID may be forgotten
+     * @return {@code true} if the ID had not been seen, {@code false} if this is a replay
+     * @throws ReplayCacheFullException if the ID cannot be recorded without forgetting one that has not expired
+     */
+    boolean recordIfAbsent(String id, DateTime expiresAt);
+
+    /**
+     * @return whether the ID has been recorded and has not yet expired; a cheap check that records nothing, for
+     * rejecting replays before doing any expensive work on them
+     */
+    boolean contains(String id);
+}
@@ -0,0 +1,11 @@
+package uk.gov.ida.saml.core.replay;
+
+/**
+ * Thrown rather than forgetting an unexpired ID, which would let its message be replayed.
+ */
+public class ReplayCacheFullException extends RuntimeException {
+
+    public ReplayCacheFullException(long maximumSize) {
+        super("Replay cache is full: more than " + maximumSize + " unexpired message IDs");
+    }
+}
@@ -0,0 +1,157 @@
+package uk.gov.ida.saml.core.replay;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Duration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-process {@link ReplayCache} built for high request rates.
+ *
+ * IDs are spread over independently locked shards so that threads rarely contend. Within a shard each ID is filed
+ * in a time bucket according to when it expires, and a bucket's IDs are all forgotten together once the bucket has
+ * passed, so there are no per-entry timers and no sweeps. An ID can be remembered for up to one bucket width longer
+ * than asked, never shorter.
+ *
+ * Memory is bounded by {@code maximumSize}: once a shard is full, recording another unexpired ID fails with a
+ * {@link ReplayCacheFullException} rather than forgetting an ID that could then be replayed.
+ */
+public class ShardedReplayCache implements ReplayCache {
+
+    public static final int DEFAULT_BUCKET_COUNT = 60;
+
+    private final long maximumTimeToLiveMillis;
+    private final long bucketWidthMillis;
+    private final long maximumSize;
+    private final Shard[] shards;
+
+    /**
+     * @param maximumTimeToLive the longest any ID is remembered for; expiry times further ahead are brought in to it,
+     *                          so it should be at least the freshness window plus any allowed clock skew
+     * @param maximumSize the most unexpired IDs to hold
+     */
+    public ShardedReplayCache(Duration maximumTimeToLive, long maximumSize) {
+        this(maximumTimeToLive, maximumSize, defaultShardCount(), DEFAULT_BUCKET_COUNT);
+    }
+
+    public ShardedReplayCache(Duration maximumTimeToLive, long maximumSize, int shardCount, int bucketCount) {
+        if (maximumTimeToLive.getMillis() <= 0 || maximumSize <= 0 || shardCount <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("Time to live, size, shard count and bucket count must all be positive");
+        }
+        this.maximumTimeToLiveMillis = maximumTimeToLive.getMillis();
+        this.bucketWidthMillis = Math.max(1, (maximumTimeToLiveMillis + bucketCount - 1) / bucketCount);
+        this.maximumSize = maximumSize;
+        int roundedShardCount = Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new Shard[Math.max(1, roundedShardCount)];
+        long shardCapacity = (maximumSize + shards.length - 1) / shards.length;
+        for (int i = 0; i < shards.length; i++) {
+            // The live buckets span the time to live, plus one for the current bucket and one for rounding
+            shards[i] = new Shard(bucketCount + 2, shardCapacity);
+        }
+    }
+
+    @Override
+    public boolean recordIfAbsent(String id, DateTime expiresAt) {
+        long now = DateTimeUtils.currentTimeMillis();
+        long expiry = Math.min(expiresAt.getMillis(), now + maximumTimeToLiveMillis);
+        if (expiry <= now) {
+            // Already too stale to be accepted again, so there is nothing to remember
+            return true;
+        }
+        return shardFor(id).recordIfAbsent(id, expiry / bucketWidthMillis, now / bucketWidthMillis, maximumSize);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return shardFor(id).contains(id, DateTimeUtils.currentTimeMillis() / bucketWidthMillis);
+    }
+
+    /**
+     * @return the number of IDs currently remembered, including any in buckets that have passed but not yet been dropped
+     */
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private Shard shardFor(String id) {
+        int hash = id.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    private static int defaultShardCount() {
+        return 4 * Runtime.getRuntime().availableProcessors();
+    }
+
+    private static final class Shard {
+        private final Map<String, Long> bucketById = new HashMap<>();
+        private final Bucket[] buckets;
+        private final long capacity;
+        private long currentBucket = Long.MIN_VALUE;
+
+        private Shard(int bucketCount, long capacity) {
+            this.buckets = new Bucket[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.capacity = capacity;
+        }
+
+        private synchronized boolean recordIfAbsent(String id, long bucketNumber, long nowBucket, long maximumSize) {
+            advanceTo(nowBucket);
+            if (bucketById.containsKey(id)) {
+                return false;
+            }
+            if (bucketById.size() >= capacity) {
+                throw new ReplayCacheFullException(maximumSize);
+            }
+            bucketById.put(id, bucketNumber);
+            Bucket bucket = buckets[index(bucketNumber)];
+            bucket.number = bucketNumber;
+            bucket.ids.add(id);
+            return true;
+        }
+
+        private synchronized boolean contains(String id, long nowBucket) {
+            advanceTo(nowBucket);
+            return bucketById.containsKey(id);
+        }
+
+        private synchronized int size() {
+            return bucketById.size();
+        }
+
+        private void advanceTo(long nowBucket) {
+            if (nowBucket <= currentBucket) {
+                return;
+            }
+            long from = currentBucket == Long.MIN_VALUE ? nowBucket - buckets.length : Math.max(currentBucket, nowBucket - buckets.length);
+            for (long number = from; number < nowBucket; number++) {
+                Bucket bucket = buckets[index(number)];
+                if (bucket.number < nowBucket && !bucket.ids.isEmpty()) {
+                    for (String id : bucket.ids) {
+                        bucketById.remove(id);
+                    }
+                    bucket.ids.clear();
+                }
+            }
+            currentBucket = nowBucket;
+        }
+
+        private int index(long bucketNumber) {
+            return (int) Math.floorMod(bucketNumber, (long) buckets.length);
+        }
+    }
+
+    private static final class Bucket {
+        private long number = Long.MIN_VALUE;
+        private final List<String> ids = new ArrayList<>();
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gov.ida.saml.core.transformers;
+
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Attribute;
+import uk.gov.ida.saml.core.domain.MatchingDataset;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+/**
+ * Times unmarshalling of a matching dataset by another {@link MatchingDatasetUnmarshaller} as
+ * {@code inbound.mds-unmarshal}.
+ */
+public class TimedMatchingDatasetUnmarshaller extends MatchingDatasetUnmarshaller {
+
+    public static final String STAGE = "inbound.mds-unmarshal";
+
+    private final MatchingDatasetUnmarshaller delegate;
+    private final SamlMetrics metrics;
+
+    public TimedMatchingDatasetUnmarshaller(MatchingDatasetUnmarshaller delegate, SamlMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public MatchingDataset fromAssertion(Assertion assertion) {
+        return metrics.time(STAGE, () -> delegate.fromAssertion(assertion));
+    }
+
+    @Override
+    protected void transformAttribute(Attribute attribute, MatchingDatasetBuilder datasetBuilder) {
+        delegate.transformAttribute(attribute, datasetBuilder);
+    }
+
+    @Override
+    protected String getPersonalIdentifier(Assertion assertion) {
+        return delegate.getPersonalIdentifier(assertion);
+    }
+}
@@ -21,7 +21,7 @@ public class Cycle3DatasetFactory {
 
         if (attributeStatements.size() != 1) {
             SamlValidationSpecificationFailure failure = missingAttributeStatementInAssertion(assertion.getID());
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
 
         List<Attribute> attributes = attributeStatements.get(0).getAttributes();
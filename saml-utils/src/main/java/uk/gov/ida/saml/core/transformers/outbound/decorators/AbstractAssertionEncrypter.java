@@ -6,10 +6,12 @@ import org.opensaml.saml.saml2.core.EncryptedAssertion;
 import org.opensaml.saml.saml2.encryption.Encrypter;
 import org.opensaml.security.credential.Credential;
 import org.opensaml.xmlsec.encryption.support.EncryptionException;
+import uk.gov.ida.saml.core.events.SamlEvents;
 import uk.gov.ida.saml.security.EncrypterFactory;
 import uk.gov.ida.saml.security.EncryptionCredentialResolver;
 import uk.gov.ida.saml.security.EntityToEncryptForLocator;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public abstract class AbstractAssertionEncrypter<T> {
@@ -29,20 +31,30 @@ public abstract class AbstractAssertionEncrypter<T> {
 
     public T encryptAssertions(T samlMessage) {
         if (getAssertions(samlMessage).size() > 0) {
-            String entityToEncryptFor = entityToEncryptForLocator.fromRequestId(getRequestId(samlMessage));
-            Credential credential = credentialResolver.getEncryptingCredential(entityToEncryptFor);
+            SamlEvents.Encryption event = SamlEvents.startEncryption();
+            String entityToEncryptFor = null;
+            List<EncryptedAssertion> encryptedAssertions = new ArrayList<>();
+            String outcome = SamlEvents.FAILURE;
+            try {
+                entityToEncryptFor = entityToEncryptForLocator.fromRequestId(getRequestId(samlMessage));
+                Credential credential = credentialResolver.getEncryptingCredential(entityToEncryptFor);
 
-            Encrypter samlEncrypter = encrypterFactory.createEncrypter(credential);
+                Encrypter samlEncrypter = encrypterFactory.createEncrypter(credential);
 
-            for (Assertion assertion : getAssertions(samlMessage)) {
-                try {
-                    EncryptedAssertion encryptedAssertion = samlEncrypter.encrypt(assertion);
-                    getEncryptedAssertions(samlMessage).add(encryptedAssertion);
-                } catch (EncryptionException e) {
-                    throw Throwables.propagate(e);
+                for (Assertion assertion : getAssertions(samlMessage)) {
+                    try {
+                        EncryptedAssertion encryptedAssertion = samlEncrypter.encrypt(assertion);
+                        encryptedAssertions.add(encryptedAssertion);
+                        getEncryptedAssertions(samlMessage).add(encryptedAssertion);
+                    } catch (EncryptionException e) {
+                        throw Throwables.propagate(e);
+                    }
                 }
+                getAssertions(samlMessage).removeAll(getAssertions(samlMessage));
+                outcome = SamlEvents.SUCCESS;
+            } finally {
+                event.complete(entityToEncryptFor, encryptedAssertions, outcome);
             }
-            getAssertions(samlMessage).removeAll(getAssertions(samlMessage));
         }
         return samlMessage;
     }
@@ -8,6 +8,7 @@ import org.opensaml.saml.saml2.core.Response;
 import org.opensaml.xmlsec.signature.Signature;
 import org.opensaml.xmlsec.signature.support.SignatureException;
 import org.opensaml.xmlsec.signature.support.Signer;
+import uk.gov.ida.saml.security.CryptoBulkhead;
 import uk.gov.ida.saml.security.SignatureFactory;
 
 import javax.inject.Inject;
@@ -15,10 +16,19 @@ import javax.inject.Inject;
 public class ResponseAssertionSigner {
 
     private final SignatureFactory signatureFactory;
+    private final CryptoBulkhead cryptoBulkhead;
 
     @Inject
     public ResponseAssertionSigner(SignatureFactory signatureFactory) {
+        this(signatureFactory, CryptoBulkhead.unlimited());
+    }
+
+    /**
+     * @param cryptoBulkhead limits how many assertions are signed at once
+     */
+    public ResponseAssertionSigner(SignatureFactory signatureFactory, CryptoBulkhead cryptoBulkhead) {
         this.signatureFactory = signatureFactory;
+        this.cryptoBulkhead = cryptoBulkhead;
     }
 
     public Response signAssertions(Response response) {
@@ -29,7 +39,7 @@ public class ResponseAssertionSigner {
 
                 try {
                     XMLObjectProviderRegistrySupport.getMarshallerFactory().getMarshaller(assertion).marshall(assertion);
-                    Signer.signObject(assertion.getSignature());
+                    cryptoBulkhead.run(CryptoBulkhead.Operation.SIGN, () -> Signer.signObject(signature));
                 } catch (SignatureException | MarshallingException e) {
                     throw new SAMLRuntimeException("Problem signing assertion " + assertion, e);
                 }
@@ -8,17 +8,37 @@ import org.opensaml.xmlsec.signature.SignableXMLObject;
 import org.opensaml.xmlsec.signature.Signature;
 import org.opensaml.xmlsec.signature.support.SignatureException;
 import org.opensaml.xmlsec.signature.support.Signer;
+import uk.gov.ida.saml.core.events.SamlEvents;
+import uk.gov.ida.saml.security.CryptoBulkhead;
 
 public class SamlSignatureSigner<T extends SignableXMLObject> {
 
+    private final CryptoBulkhead cryptoBulkhead;
+
+    public SamlSignatureSigner() {
+        this(CryptoBulkhead.unlimited());
+    }
+
+    /**
+     * @param cryptoBulkhead limits how many objects are signed at once
+     */
+    public SamlSignatureSigner(CryptoBulkhead cryptoBulkhead) {
+        this.cryptoBulkhead = cryptoBulkhead;
+    }
+
     public T sign(T input) {
 
         Signature rootObjectSignature = input.getSignature();
+        SamlEvents.Sign event = SamlEvents.startSign();
+        String outcome = SamlEvents.FAILURE;
         try {
             XMLObjectProviderRegistrySupport.getMarshallerFactory().getMarshaller(input).marshall(input);
-            Signer.signObject(rootObjectSignature);
+            cryptoBulkhead.run(CryptoBulkhead.Operation.SIGN, () -> Signer.signObject(rootObjectSignature));
+            outcome = SamlEvents.SUCCESS;
         } catch (SignatureException | MarshallingException e) {
             throw new SAMLRuntimeException("Unknown problem while signing SAML object", e);
+        } finally {
+            event.complete(input, outcome);
         }
 
         return input;
@@ -1,6 +1,10 @@
 package uk.gov.ida.saml.hub.errors;
 
+import org.joda.time.DateTime;
 import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
+import uk.gov.ida.saml.core.validation.errors.DuplicateRequestIdValidationSpecificationFailure;
+import uk.gov.ida.saml.core.validation.errors.GenericHubProfileValidationSpecification;
+import uk.gov.ida.saml.core.validation.errors.RequestFreshnessValidationSpecification;
 import uk.gov.ida.saml.core.validation.errors.ResponseProcessingValidationSpecification;
 import uk.gov.ida.saml.core.validation.errors.StringValidationSpecification;
 
@@ -21,4 +25,27 @@ public final class SamlTransformationErrorFactory {
         return new ResponseProcessingValidationSpecification(ResponseProcessingValidationSpecification.MISSING_ATTRIBUTE_STATEMENT_IN_ASSERTION, assertionId);
     }
 
+    public static SamlValidationSpecificationFailure duplicateRequestId(final String requestId, final String issuerId) {
+        return new DuplicateRequestIdValidationSpecificationFailure(DuplicateRequestIdValidationSpecificationFailure.DUPLICATE_REQUEST_ID, requestId, issuerId);
+    }
+
+    public static SamlValidationSpecificationFailure requestTooOld(final String requestId, final DateTime issueInstant, final DateTime now) {
+        return new RequestFreshnessValidationSpecification(RequestFreshnessValidationSpecification.REQUEST_TOO_OLD, requestId, issueInstant, now);
+    }
+
+    public static SamlValidationSpecificationFailure requestIssuedInFuture(final String requestId, final DateTime issueInstant, final DateTime now) {
+        return new RequestFreshnessValidationSpecification(RequestFreshnessValidationSpecification.REQUEST_ISSUED_IN_FUTURE, requestId, issueInstant, now);
+    }
+
+    public static SamlValidationSpecificationFailure missingDestination(final String expectedDestination) {
+        return new GenericHubProfileValidationSpecification(GenericHubProfileValidationSpecification.MISSING_DESTINATION, expectedDestination);
+    }
+
+    public static SamlValidationSpecificationFailure incorrectDestination(final String expectedDestination, final String receivedDestination) {
+        return new GenericHubProfileValidationSpecification(GenericHubProfileValidationSpecification.EMPTY_DESTINATION, expectedDestination, receivedDestination);
+    }
+
+    public static SamlValidationSpecificationFailure missingIssueInstant(final String requestId) {
+        return new GenericHubProfileValidationSpecification(GenericHubProfileValidationSpecification.MISSING_ISSUE_INSTANT, requestId);
+    }
 }
@@ -0,0 +1,81 @@
+package uk.gov.ida.saml.hub.validators;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.opensaml.saml.saml2.core.Issuer;
+import org.opensaml.saml.saml2.core.RequestAbstractType;
+import uk.gov.ida.saml.core.replay.ReplayCache;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.saml.core.validation.SamlValidationSpecificationFailure;
+import uk.gov.ida.saml.hub.errors.SamlTransformationErrorFactory;
+
+/**
+ * Rejects requests that are stale, issued in the future, or have already been accepted while still fresh. Run it
+ * after the request's signature has been validated, so that an unsigned message cannot use up another's ID.
+ *
+ * The checks are also available separately, so that {@link #validateFreshness} and {@link #validateNotReplayed},
+ * which record nothing, can reject a message before its signature is checked, and {@link #record} only once it has
+ * been.
+ */
+public class RequestReplayValidator {
+
+    private final ReplayCache replayCache;
+    private final Duration freshnessWindow;
+    private final Duration clockSkew;
+
+    /**
+     * @param replayCache remembers accepted request IDs; it must keep them for at least {@code freshnessWindow}
+     *                    plus {@code clockSkew}
+     * @param freshnessWindow how long after its issue instant a request is accepted
+     * @param clockSkew how far ahead of our clock a request's issue instant may be
+     */
+    public RequestReplayValidator(ReplayCache replayCache, Duration freshnessWindow, Duration clockSkew) {
+        this.replayCache = replayCache;
+        this.freshnessWindow = freshnessWindow;
+        this.clockSkew = clockSkew;
+    }
+
+    public void validate(RequestAbstractType request) {
+        validate(request.getID(), issuerOf(request.getIssuer()), request.getIssueInstant());
+    }
+
+    public void validate(String requestId, String issuerId, DateTime issueInstant) {
+        validateFreshness(requestId, issueInstant);
+        record(requestId, issuerId, issueInstant);
+    }
+
+    public void validateFreshness(String requestId, DateTime issueInstant) {
+        if (issueInstant == null) {
+            fail(SamlTransformationErrorFactory.missingIssueInstant(requestId));
+        }
+
+        DateTime now = DateTime.now();
+        if (issueInstant.isAfter(now.plus(clockSkew))) {
+            fail(SamlTransformationErrorFactory.requestIssuedInFuture(requestId, issueInstant, now));
+        }
+
+        if (!issueInstant.plus(freshnessWindow).isAfter(now)) {
+            fail(SamlTransformationErrorFactory.requestTooOld(requestId, issueInstant, now));
+        }
+    }
+
+    public void validateNotReplayed(String requestId, String issuerId) {
+        if (replayCache.contains(requestId)) {
+            fail(SamlTransformationErrorFactory.duplicateRequestId(requestId, issuerId));
+        }
+    }
+
+    public void record(String requestId, String issuerId, DateTime issueInstant) {
+        if (!replayCache.recordIfAbsent(requestId, issueInstant.plus(freshnessWindow))) {
+            fail(SamlTransformationErrorFactory.duplicateRequestId(requestId, issuerId));
+        }
+    }
+
+    private static String issuerOf(Issuer issuer) {
+        return issuer == null ? null : issuer.getValue();
+    }
+
+    private static void fail(SamlValidationSpecificationFailure failure) {
+        throw new SamlTransformationErrorException(failure);
+    }
+}
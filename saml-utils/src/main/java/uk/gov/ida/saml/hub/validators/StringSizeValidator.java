@@ -10,12 +10,12 @@ public class StringSizeValidator {
 
         if(input.length() < lowerBound){
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.stringTooSmall(input.length(), lowerBound);
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
 
         if(input.length() > upperBound){
             SamlValidationSpecificationFailure failure = SamlTransformationErrorFactory.stringTooLarge(input.length(), upperBound);
-            throw new SamlTransformationErrorException(failure.getErrorMessage(), failure.getLogLevel());
+            throw new SamlTransformationErrorException(failure);
         }
     }
 }
@@ -0,0 +1,106 @@
+package uk.gov.ida.saml.core.async;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.event.Level;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncSamlTransformersTest {
+
+    private final ThreadPoolExecutor cryptoExecutor = AsyncSamlTransformers.newCryptoExecutor(1, 1);
+    private final AsyncSamlTransformers asyncTransformers = new AsyncSamlTransformers(cryptoExecutor);
+    private final Function<String, String> currentThreadName = input -> Thread.currentThread().getName();
+
+    @After
+    public void tearDown() {
+        cryptoExecutor.shutdownNow();
+    }
+
+    @Test
+    public void shouldRunOperationsOnTheCryptoExecutor() throws Exception {
+        String threadName = asyncTransformers.transform(currentThreadName, "input").get(5, TimeUnit.SECONDS);
+
+        assertThat(threadName).startsWith("saml-crypto-").isNotEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void shouldRunOperationsStartedFromTheCryptoExecutorWithoutQueueingThemAgain() throws Exception {
+        AtomicInteger submissions = new AtomicInteger();
+        AsyncSamlTransformers countingTransformers = new AsyncSamlTransformers(operation -> {
+            submissions.incrementAndGet();
+            cryptoExecutor.execute(operation);
+        });
+
+        CountDownLatch chainBuilt = new CountDownLatch(1);
+
+        CompletableFuture<String> chain = countingTransformers.transform(awaiting(chainBuilt).andThen(currentThreadName), "first")
+                .thenCompose(first -> countingTransformers.transform(currentThreadName, "second")
+                        .thenApply(second -> first + "," + second));
+        chainBuilt.countDown();
+
+        String[] threadNames = chain.get(5, TimeUnit.SECONDS).split(",");
+
+        assertThat(threadNames[1]).isEqualTo(threadNames[0]);
+        assertThat(submissions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFailTheFutureWhenTheOperationFails() throws Exception {
+        SamlTransformationErrorException error = new SamlTransformationErrorException("bad signature", Level.ERROR);
+
+        CompletableFuture<String> result = asyncTransformers.transform(input -> {
+            throw error;
+        }, "input");
+
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Expected the operation to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isSameAs(error);
+        }
+    }
+
+    @Test
+    public void shouldFailTheFutureWhenTheCryptoExecutorIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, String> blocking = awaiting(release);
+        CompletableFuture<String> running = asyncTransformers.transform(blocking, "running");
+        CompletableFuture<String> queued = asyncTransformers.transform(blocking, "queued");
+
+        CompletableFuture<String> rejected = asyncTransformers.transform(blocking, "rejected");
+
+        assertThat(rejected.isCompletedExceptionally()).isTrue();
+        try {
+            rejected.get();
+            fail("Expected the operation to be rejected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+    }
+
+    private static Function<String, String> awaiting(CountDownLatch latch) {
+        return input -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return input;
+        };
+    }
+}
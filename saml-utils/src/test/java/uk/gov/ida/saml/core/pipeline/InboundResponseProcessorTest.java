@@ -0,0 +1,157 @@
+package uk.gov.ida.saml.core.pipeline;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.Response;
+import org.opensaml.saml.saml2.metadata.IDPSSODescriptor;
+import org.opensaml.xmlsec.algorithm.descriptors.DigestSHA256;
+import org.opensaml.xmlsec.algorithm.descriptors.SignatureRSASHA256;
+import org.slf4j.event.Level;
+import uk.gov.ida.common.shared.security.PrivateKeyFactory;
+import uk.gov.ida.common.shared.security.PublicKeyFactory;
+import uk.gov.ida.common.shared.security.X509CertificateFactory;
+import uk.gov.ida.saml.core.api.CoreTransformersFactory;
+import uk.gov.ida.saml.core.domain.IdentityProviderAssertion;
+import uk.gov.ida.saml.core.domain.InboundIdentityProviderResponse;
+import uk.gov.ida.saml.core.domain.PersistentId;
+import uk.gov.ida.saml.core.pipeline.InboundValidationPipeline.Cost;
+import uk.gov.ida.saml.core.test.OpenSAMLMockitoRunner;
+import uk.gov.ida.saml.core.test.TestCertificateStrings;
+import uk.gov.ida.saml.core.test.TestEntityIds;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.saml.security.IdaKeyStore;
+import uk.gov.ida.saml.security.SigningKeyStore;
+import uk.gov.ida.saml.serializers.XmlObjectToBase64EncodedStringTransformer;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static uk.gov.ida.saml.core.test.AuthnResponseFactory.anAuthnResponseFactory;
+import static uk.gov.ida.saml.core.test.builders.IdentityProviderAuthnStatementBuilder.anIdentityProviderAuthnStatement;
+import static uk.gov.ida.saml.core.test.builders.MatchingDatasetBuilder.aMatchingDataset;
+
+@RunWith(OpenSAMLMockitoRunner.class)
+public class InboundResponseProcessorTest {
+
+    private static final String DESTINATION = "http://hub/SAML2/SSO/Response/POST";
+
+    private final PublicKeyFactory publicKeyFactory = new PublicKeyFactory(new X509CertificateFactory());
+    private final List<String> checksRun = new ArrayList<>();
+    private IdaKeyStore hubKeyStore;
+
+    @Before
+    public void setUp() throws Exception {
+        PrivateKey privateSigningKey = new PrivateKeyFactory().createPrivateKey(Base64.decodeBase64(TestCertificateStrings.HUB_TEST_PRIVATE_SIGNING_KEY));
+        PublicKey publicSigningKey = publicKeyFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT);
+        PrivateKey privateEncryptionKey = new PrivateKeyFactory().createPrivateKey(Base64.decodeBase64(TestCertificateStrings.HUB_TEST_PRIVATE_ENCRYPTION_KEY));
+        PublicKey publicEncryptionKey = publicKeyFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_ENCRYPTION_CERT);
+        hubKeyStore = new IdaKeyStore(new KeyPair(publicSigningKey, privateSigningKey), Collections.singletonList(new KeyPair(publicEncryptionKey, privateEncryptionKey)));
+    }
+
+    @Test
+    public void shouldProcessASignedResponseWithEncryptedAssertionsInOneCall() throws Exception {
+        InboundResponseContext context = new InboundResponseContext();
+
+        InboundIdentityProviderResponse response = processor(idpSigningKeys()).process(aResponseFromIdp(), context);
+
+        assertThat(response.getIssuer()).isEqualTo(TestEntityIds.STUB_IDP_ONE);
+        assertThat(response.getInResponseTo()).isEqualTo("a-request");
+        assertThat(response.getSignature().isPresent()).isTrue();
+        assertThat(response.getMatchingDatasetAssertion().isPresent()).isTrue();
+        assertThat(response.getAuthnStatementAssertion().isPresent()).isTrue();
+        assertThat(checksRun).containsExactly("cheap", "record");
+        assertThat(context.getIssuerId()).isEqualTo(TestEntityIds.STUB_IDP_ONE);
+        assertThat(context.getStageDurationsNanos().keySet()).containsExactly(
+                InboundResponseProcessor.PARSE,
+                InboundResponseProcessor.CHECKS,
+                InboundResponseProcessor.RESPONSE_SIGNATURE,
+                InboundResponseProcessor.DECRYPT,
+                InboundResponseProcessor.ASSERTION_SIGNATURES,
+                InboundResponseProcessor.UNMARSHAL,
+                InboundResponseProcessor.RECORD);
+    }
+
+    @Test
+    public void shouldRejectAResponseSignedWithAnUnknownKeyBeforeDecryptingOrRecordingIt() throws Exception {
+        InboundResponseContext context = new InboundResponseContext();
+        SigningKeyStore hubSigningKeysOnly = entityId -> Collections.singletonList(publicKeyFactory.createPublicKey(TestCertificateStrings.HUB_TEST_PUBLIC_SIGNING_CERT));
+
+        try {
+            processor(hubSigningKeysOnly).process(aResponseFromIdp(), context);
+            fail("Expected the Response to be rejected");
+        } catch (SamlTransformationErrorException e) {
+            assertThat(context.getStageDurationsNanos()).containsKey(InboundResponseProcessor.RESPONSE_SIGNATURE);
+            assertThat(context.getStageDurationsNanos()).doesNotContainKey(InboundResponseProcessor.DECRYPT);
+            assertThat(checksRun).containsExactly("cheap");
+        }
+    }
+
+    @Test
+    public void shouldNotValidateTheSignatureWhenACheapCheckRejectsTheResponse() throws Exception {
+        InboundResponseContext context = new InboundResponseContext();
+        InboundValidationPipeline<Response> rejectingChecks = InboundValidationPipeline.<Response>builder()
+                .addCheck("destination", Cost.CHEAP, response -> {
+                    throw new SamlTransformationErrorException("wrong destination", Level.ERROR);
+                })
+                .build();
+
+        try {
+            processor(idpSigningKeys(), rejectingChecks).process(aResponseFromIdp(), context);
+            fail("Expected the Response to be rejected");
+        } catch (SamlTransformationErrorException e) {
+            assertThat(e.getMessage()).isEqualTo("wrong destination");
+            assertThat(context.getStageDurationsNanos().keySet()).containsExactly(InboundResponseProcessor.PARSE, InboundResponseProcessor.CHECKS);
+        }
+    }
+
+    private InboundResponseProcessor processor(SigningKeyStore signingKeyStore) {
+        InboundValidationPipeline<Response> checks = InboundValidationPipeline.<Response>builder()
+                .addCheck("cheap", Cost.CHEAP, response -> checksRun.add("cheap"))
+                .addCheck("signature", Cost.CRYPTOGRAPHIC, response -> checksRun.add("signature"))
+                .addCheck("record", Cost.RECORDING, response -> checksRun.add("record"))
+                .build();
+        return processor(signingKeyStore, checks);
+    }
+
+    private InboundResponseProcessor processor(SigningKeyStore signingKeyStore, InboundValidationPipeline<Response> checks) {
+        return new CoreTransformersFactory().getInboundResponseProcessor(
+                input -> { },
+                checks,
+                signingKeyStore,
+                hubKeyStore,
+                InboundResponseProcessorTest::toIdentityProviderAssertion,
+                IDPSSODescriptor.DEFAULT_ELEMENT_NAME);
+    }
+
+    private SigningKeyStore idpSigningKeys() {
+        return entityId -> Collections.singletonList(publicKeyFactory.createPublicKey(TestCertificateStrings.PUBLIC_SIGNING_CERTS.get(entityId)));
+    }
+
+    private static String aResponseFromIdp() throws Exception {
+        Response response = anAuthnResponseFactory().aResponseFromIdp(
+                "a-request", TestEntityIds.STUB_IDP_ONE, DESTINATION, new SignatureRSASHA256(), new DigestSHA256());
+        return new XmlObjectToBase64EncodedStringTransformer<>().apply(response);
+    }
+
+    private static IdentityProviderAssertion toIdentityProviderAssertion(Assertion assertion) {
+        boolean hasAuthnStatement = !assertion.getAuthnStatements().isEmpty();
+        return new IdentityProviderAssertion(
+                assertion.getID(),
+                assertion.getIssuer().getValue(),
+                assertion.getIssueInstant(),
+                new PersistentId("a-persistent-id"),
+                null,
+                hasAuthnStatement ? Optional.empty() : Optional.of(aMatchingDataset().build()),
+                hasAuthnStatement ? Optional.of(anIdentityProviderAuthnStatement().build()) : Optional.empty());
+    }
+}
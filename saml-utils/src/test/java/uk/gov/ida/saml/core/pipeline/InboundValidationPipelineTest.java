@@ -0,0 +1,71 @@
+package uk.gov.ida.saml.core.pipeline;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.slf4j.event.Level;
+import uk.gov.ida.saml.core.pipeline.InboundValidationPipeline.Cost;
+import uk.gov.ida.saml.core.validation.SamlTransformationErrorException;
+import uk.gov.ida.saml.security.metrics.SamlMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.Assert.fail;
+
+public class InboundValidationPipelineTest {
+
+    private final List<String> checksRun = new ArrayList<>();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldRunChecksCheapestFirstKeepingTheOrderOfChecksOfEqualCost() {
+        InboundValidationPipeline<String> pipeline = InboundValidationPipeline.<String>builder()
+                .addCheck("signature", Cost.CRYPTOGRAPHIC, passing("signature"))
+                .addCheck("record", Cost.RECORDING, passing("record"))
+                .addCheck("known-issuer", Cost.LOOKUP, passing("known-issuer"))
+                .addCheck("issuer", Cost.CHEAP, passing("issuer"))
+                .addCheck("destination", Cost.CHEAP, passing("destination"))
+                .build();
+
+        assertThat(pipeline.validate("message")).isEqualTo("message");
+
+        assertThat(checksRun).containsExactly("issuer", "destination", "known-issuer", "signature", "record");
+        assertThat(pipeline.getCheckNames()).isEqualTo(checksRun);
+    }
+
+    @Test
+    public void shouldStopAtTheFirstRejectionAndCountIt() {
+        InboundValidationPipeline<String> pipeline = InboundValidationPipeline.<String>builder()
+                .withMetrics(new SamlMetrics(metricRegistry))
+                .addCheck("signature", Cost.CRYPTOGRAPHIC, passing("signature"))
+                .addCheck("known-issuer", Cost.LOOKUP, message -> {
+                    throw new SamlTransformationErrorException("unknown issuer", Level.ERROR);
+                })
+                .addCheck("issuer", Cost.CHEAP, passing("issuer"))
+                .build();
+
+        try {
+            pipeline.validate("message");
+            fail("Expected the pipeline to reject the message");
+        } catch (SamlTransformationErrorException e) {
+            assertThat(e.getMessage()).isEqualTo("unknown issuer");
+        }
+
+        assertThat(checksRun).containsExactly("issuer");
+        assertThat(pipeline.getRejectionCounts()).contains(entry("known-issuer", 1L), entry("signature", 0L));
+        assertThat(metricRegistry.meter("uk.gov.ida.saml.inbound.rejected.known-issuer").getCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowTwoChecksWithTheSameName() {
+        InboundValidationPipeline.<String>builder()
+                .addCheck("issuer", Cost.CHEAP, passing("issuer"))
+                .addCheck("issuer", Cost.LOOKUP, passing("issuer"));
+    }
+
+    private InboundValidationPipeline.Check<String> passing(String name) {
+        return message -> checksRun.add(name);
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.ida.saml.core.replay;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileBackedReplayCacheTest {
+
+    private static final DateTime NOW = new DateTime(2018, 11, 1, 12, 0);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path journalFile;
+
+    @Before
+    public void setUp() throws Exception {
+        DateTimeUtils.setCurrentMillisFixed(NOW.getMillis());
+        journalFile = temporaryFolder.getRoot().toPath().resolve("replay-cache");
+    }
+
+    @After
+    public void unfreezeTime() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void shouldRememberUnexpiredIdsAcrossRestarts() throws Exception {
+        try (FileBackedReplayCache replayCache = new FileBackedReplayCache(aShardedReplayCache(), journalFile)) {
+            replayCache.recordIfAbsent("short-lived", NOW.plusMinutes(1));
+            replayCache.recordIfAbsent("long-lived", NOW.plusMinutes(5));
+        }
+
+        DateTimeUtils.setCurrentMillisFixed(NOW.plusMinutes(2).getMillis());
+
+        try (FileBackedReplayCache replayCache = new FileBackedReplayCache(aShardedReplayCache(), journalFile)) {
+            assertThat(replayCache.recordIfAbsent("long-lived", NOW.plusMinutes(5))).isFalse();
+            assertThat(replayCache.recordIfAbsent("short-lived", NOW.plusMinutes(5))).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldKeepWorkingAfterCompactingTheJournal() throws Exception {
+        try (FileBackedReplayCache replayCache = new FileBackedReplayCache(aShardedReplayCache(), journalFile, 2)) {
+            replayCache.recordIfAbsent("first", NOW.plusMinutes(5));
+            replayCache.recordIfAbsent("second", NOW.plusMinutes(5));
+            replayCache.recordIfAbsent("third", NOW.plusMinutes(5));
+        }
+
+        try (FileBackedReplayCache replayCache = new FileBackedReplayCache(aShardedReplayCache(), journalFile)) {
+            assertThat(replayCache.recordIfAbsent("first", NOW.plusMinutes(5))).isFalse();
+            assertThat(replayCache.recordIfAbsent("third", NOW.plusMinutes(5))).isFalse();
+        }
+    }
+
+    private static ShardedReplayCache aShardedReplayCache() {
+        return new ShardedReplayCache(Duration.standardMinutes(10), 100);
+    }
+}
@@ -0,0 +1,80 @@
+package uk.gov.ida.saml.core.replay;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedReplayCacheTest {
+
+    private static final DateTime NOW = new DateTime(2018, 11, 1, 12, 0);
+
+    private final ShardedReplayCache replayCache = new ShardedReplayCache(Duration.standardMinutes(10), 100, 4, 10);
+
+    @Before
+    public void freezeTime() {
+        DateTimeUtils.setCurrentMillisFixed(NOW.getMillis());
+    }
+
+    @After
+    public void unfreezeTime() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void shouldRejectAnIdThatHasAlreadyBeenRecorded() {
+        assertThat(replayCache.recordIfAbsent("id", NOW.plusMinutes(5))).isTrue();
+        assertThat(replayCache.recordIfAbsent("id", NOW.plusMinutes(5))).isFalse();
+        assertThat(replayCache.recordIfAbsent("another-id", NOW.plusMinutes(5))).isTrue();
+    }
+
+    @Test
+    public void shouldReportWhetherAnIdHasBeenRecordedWithoutRecordingIt() {
+        assertThat(replayCache.contains("id")).isFalse();
+        assertThat(replayCache.size()).isEqualTo(0);
+
+        replayCache.recordIfAbsent("id", NOW.plusMinutes(5));
+
+        assertThat(replayCache.contains("id")).isTrue();
+    }
+
+    @Test
+    public void shouldForgetIdsOnceTheirBucketHasPassed() {
+        replayCache.recordIfAbsent("id", NOW.plusMinutes(5));
+
+        DateTimeUtils.setCurrentMillisFixed(NOW.plusMinutes(4).getMillis());
+        assertThat(replayCache.recordIfAbsent("id", NOW.plusMinutes(5))).isFalse();
+
+        DateTimeUtils.setCurrentMillisFixed(NOW.plusMinutes(6).getMillis());
+        assertThat(replayCache.recordIfAbsent("id", NOW.plusMinutes(15))).isTrue();
+        assertThat(replayCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotRememberIdsBeyondTheMaximumTimeToLive() {
+        replayCache.recordIfAbsent("id", NOW.plusHours(1));
+
+        DateTimeUtils.setCurrentMillisFixed(NOW.plusMinutes(12).getMillis());
+
+        assertThat(replayCache.recordIfAbsent("id", NOW.plusHours(1))).isTrue();
+    }
+
+    @Test
+    public void shouldNotRecordIdsThatHaveAlreadyExpired() {
+        assertThat(replayCache.recordIfAbsent("id", NOW.minusMinutes(1))).isTrue();
+        assertThat(replayCache.size()).isEqualTo(0);
+    }
+
+    @Test(expected = ReplayCacheFullException.class)
+    public void shouldRefuseToForgetUnexpiredIdsWhenFull() {
+        ShardedReplayCache smallCache = new ShardedReplayCache(Duration.standardMinutes(10), 2, 1, 10);
+        smallCache.recordIfAbsent("first", NOW.plusMinutes(5));
+        smallCache.recordIfAbsent("second", NOW.plusMinutes(5));
+
+        smallCache.recordIfAbsent("third", NOW.plusMinutes(5));
+    }
+}
@@ -0,0 +1,86 @@
+package uk.gov.ida.saml.hub.validators;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.ida.saml.core.replay.ShardedReplayCache;
+import uk.gov.ida.saml.core.test.SamlTransformationErrorManagerTestHelper;
+import uk.gov.ida.saml.hub.errors.SamlTransformationErrorFactory;
+
+public class RequestReplayValidatorTest {
+
+    private static final DateTime NOW = new DateTime(2018, 11, 1, 12, 0);
+    private static final Duration FRESHNESS_WINDOW = Duration.standardMinutes(5);
+    private static final Duration CLOCK_SKEW = Duration.standardSeconds(30);
+
+    private final RequestReplayValidator validator = new RequestReplayValidator(
+            new ShardedReplayCache(FRESHNESS_WINDOW.plus(CLOCK_SKEW), 100), FRESHNESS_WINDOW, CLOCK_SKEW);
+
+    @Before
+    public void freezeTime() {
+        DateTimeUtils.setCurrentMillisFixed(NOW.getMillis());
+    }
+
+    @After
+    public void unfreezeTime() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void shouldAcceptAFreshRequest() {
+        validator.validate("request-id", "issuer", NOW.minusMinutes(1));
+    }
+
+    @Test
+    public void shouldRejectARequestThatHasAlreadyBeenAccepted() {
+        validator.validate("request-id", "issuer", NOW.minusMinutes(1));
+
+        SamlTransformationErrorManagerTestHelper.validateFail(
+                () -> validator.validate("request-id", "issuer", NOW.minusMinutes(1)),
+                SamlTransformationErrorFactory.duplicateRequestId("request-id", "issuer")
+        );
+    }
+
+    @Test
+    public void shouldOnlyRejectAReplayBeforeRecordingOnceTheRequestHasBeenRecorded() {
+        validator.validateNotReplayed("request-id", "issuer");
+        validator.validateNotReplayed("request-id", "issuer");
+        validator.record("request-id", "issuer", NOW.minusMinutes(1));
+
+        SamlTransformationErrorManagerTestHelper.validateFail(
+                () -> validator.validateNotReplayed("request-id", "issuer"),
+                SamlTransformationErrorFactory.duplicateRequestId("request-id", "issuer")
+        );
+    }
+
+    @Test
+    public void shouldRejectARequestThatIsTooOld() {
+        DateTime issueInstant = NOW.minus(FRESHNESS_WINDOW);
+
+        SamlTransformationErrorManagerTestHelper.validateFail(
+                () -> validator.validate("request-id", "issuer", issueInstant),
+                SamlTransformationErrorFactory.requestTooOld("request-id", issueInstant, NOW)
+        );
+    }
+
+    @Test
+    public void shouldRejectARequestIssuedInTheFuture() {
+        DateTime issueInstant = NOW.plus(CLOCK_SKEW).plusSeconds(1);
+
+        SamlTransformationErrorManagerTestHelper.validateFail(
+                () -> validator.validate("request-id", "issuer", issueInstant),
+                SamlTransformationErrorFactory.requestIssuedInFuture("request-id", issueInstant, NOW)
+        );
+    }
+
+    @Test
+    public void shouldRejectARequestWithNoIssueInstant() {
+        SamlTransformationErrorManagerTestHelper.validateFail(
+                () -> validator.validate("request-id", "issuer", null),
+                SamlTransformationErrorFactory.missingIssueInstant("request-id")
+        );
+    }
+}